@@ -0,0 +1,144 @@
+package com.backoffice.fitandflex.benchmark;
+
+import com.backoffice.fitandflex.dto.BranchDto;
+import com.backoffice.fitandflex.dto.ClassDTO;
+import com.backoffice.fitandflex.dto.PaymentDTO;
+import com.backoffice.fitandflex.dto.UserDTO;
+import com.backoffice.fitandflex.entity.Branch;
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.ClassSchedulePattern;
+import com.backoffice.fitandflex.entity.Payment;
+import com.backoffice.fitandflex.entity.User;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entidades y DTOs en memoria para los benchmarks (sin base de datos ni contexto de Spring)
+ */
+final class BenchmarkFixtures {
+
+    static final LocalDateTime NOW = LocalDateTime.of(2025, 11, 18, 10, 0);
+
+    private BenchmarkFixtures() {
+    }
+
+    static Branch branch() {
+        return Branch.builder()
+                .id(1L)
+                .name("Fit & Flex Quito Norte")
+                .address("Av. Amazonas N34-120")
+                .city("Quito")
+                .state("Pichincha")
+                .country("Ecuador")
+                .phone("+593 2 123 4567")
+                .email("norte@fitandflex.com")
+                .createdAt(Instant.parse("2025-01-01T00:00:00Z"))
+                .build();
+    }
+
+    static User user(long id, Branch branch) {
+        return User.builder()
+                .id(id)
+                .name("Usuario " + id)
+                .email("usuario" + id + "@fitandflex.com")
+                .password("secret")
+                .branch(branch)
+                .build();
+    }
+
+    static Class clazz(Branch branch) {
+        return Class.builder()
+                .id(1L)
+                .name("Yoga Vinyasa")
+                .description("Clase de yoga dinámico")
+                .capacity(20)
+                .active(true)
+                .branch(branch)
+                .createdBy(user(1L, branch))
+                .createdAt(NOW)
+                .updatedAt(NOW)
+                .build();
+    }
+
+    /**
+     * Patrones repartidos entre los 7 días, de una hora, desde las 6:00; se crean desordenados para que
+     * la agrupación y el orden por día hagan trabajo real
+     */
+    static List<ClassSchedulePattern> patterns(Class clazz, int count) {
+        List<ClassSchedulePattern> patterns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalTime start = LocalTime.of(6, 0).plusHours(i / 7 % 16);
+            patterns.add(ClassSchedulePattern.builder()
+                    .id((long) i + 1)
+                    .clazz(clazz)
+                    .dayOfWeek(7 - i % 7)
+                    .startTime(start)
+                    .endTime(start.plusHours(1))
+                    .recurrent(true)
+                    .build());
+        }
+        return patterns;
+    }
+
+    static List<ClassDTO.ResponseWithDate> classesWithDate(int count) {
+        Branch branch = branch();
+        BranchDto.Response branchResponse = BranchDto.Response.fromEntity(branch);
+        UserDTO.SummaryResponse createdBy = UserDTO.SummaryResponse.fromEntity(user(1L, branch));
+        List<ClassDTO.ResponseWithDate> classes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate date = NOW.toLocalDate().plusDays(i % 7);
+            List<ClassDTO.TimeRange> timeRanges = new ArrayList<>();
+            for (int h = 0; h < 4; h++) {
+                timeRanges.add(ClassDTO.TimeRange.builder()
+                        .startTime(LocalTime.of(7 + h * 3, 0))
+                        .endTime(LocalTime.of(8 + h * 3, 0))
+                        .subscriptionCount(h * 2)
+                        .build());
+            }
+            classes.add(ClassDTO.ResponseWithDate.builder()
+                    .id((long) i + 1)
+                    .name("Clase " + i)
+                    .description("Descripción de la clase " + i)
+                    .capacity(20)
+                    .active(true)
+                    .subscriptionCount(12)
+                    .branch(branchResponse)
+                    .createdBy(createdBy)
+                    .date(date)
+                    .dayOfWeek(date.getDayOfWeek().getValue())
+                    .timeRanges(timeRanges)
+                    .createdAt(NOW)
+                    .updatedAt(NOW)
+                    .build());
+        }
+        return classes;
+    }
+
+    static List<PaymentDTO.Response> payments(int count) {
+        Branch branch = branch();
+        List<PaymentDTO.Response> payments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Payment payment = Payment.builder()
+                    .id((long) i + 1)
+                    .amount(BigDecimal.valueOf(4500 + i, 2))
+                    .currency("USD")
+                    .paymentDate(NOW.minusDays(i % 30))
+                    .status(Payment.PaymentStatus.COMPLETED)
+                    .paymentMethod(Payment.PaymentMethod.CARD)
+                    .transactionId("TX-" + (100000 + i))
+                    .description("Pago de membresía mensual")
+                    .user(user(i % 50 + 1, branch))
+                    .createdAt(Instant.parse("2025-11-01T10:30:00Z"))
+                    .updatedAt(Instant.parse("2025-11-01T10:30:00Z"))
+                    .build();
+            payments.add(PaymentDTO.fromEntity(payment));
+        }
+        return payments;
+    }
+}
@@ -0,0 +1,55 @@
+package com.backoffice.fitandflex.benchmark;
+
+import com.backoffice.fitandflex.dto.ClassDTO;
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.ClassSchedulePattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * ClassDTO.Response.fromEntity: agrupación de patrones por día, orden por día y conteo por horario
+ * (con los conteos ya precargados en memoria, como en el listado de clases)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassResponseBenchmark {
+
+    /**
+     * Patrones de horario de la clase (7 = uno por día)
+     */
+    @Param({"7", "28", "112"})
+    private int patterns;
+
+    private Class clazz;
+    private List<ClassSchedulePattern> schedulePatterns;
+    private ToIntFunction<ClassSchedulePattern> counter;
+
+    @Setup
+    public void setUp() {
+        clazz = BenchmarkFixtures.clazz(BenchmarkFixtures.branch());
+        schedulePatterns = BenchmarkFixtures.patterns(clazz, patterns);
+        counter = pattern -> pattern.getStartTime().getHour();
+    }
+
+    @Benchmark
+    public ClassDTO.Response fromEntity() {
+        return ClassDTO.Response.fromEntity(clazz, schedulePatterns, 12, counter);
+    }
+}
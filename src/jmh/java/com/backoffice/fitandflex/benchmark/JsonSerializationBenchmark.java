@@ -0,0 +1,60 @@
+package com.backoffice.fitandflex.benchmark;
+
+import com.backoffice.fitandflex.dto.ClassDTO;
+import com.backoffice.fitandflex.dto.PaymentDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de las respuestas de listados, con un ObjectMapper configurado como el de Spring Boot
+ * (módulos de java.time, fechas como texto)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    /**
+     * Elementos de la lista (tamaño de página típico y listados completos)
+     */
+    @Param({"20", "200", "2000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<ClassDTO.ResponseWithDate> classes;
+    private List<PaymentDTO.Response> payments;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        classes = BenchmarkFixtures.classesWithDate(size);
+        payments = BenchmarkFixtures.payments(size);
+    }
+
+    @Benchmark
+    public byte[] classesWithDate() throws Exception {
+        return objectMapper.writeValueAsBytes(classes);
+    }
+
+    @Benchmark
+    public byte[] payments() throws Exception {
+        return objectMapper.writeValueAsBytes(payments);
+    }
+}
@@ -0,0 +1,88 @@
+package com.backoffice.fitandflex.benchmark;
+
+import com.backoffice.fitandflex.security.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtService: firma de tokens (login/refresh) y parseo y validación (cada request autenticado)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    /**
+     * Roles en el claim "roles" (tamaño del token)
+     */
+    @Param({"1", "8"})
+    private int roles;
+
+    private JwtService jwtService;
+    private UserDetails userDetails;
+    private Map<String, Object> claims;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        jwtService = new JwtService();
+        set("jwtSecret", "benchmark-secret-with-at-least-32-characters");
+        set("jwtExpirationMs", 86_400_000L);
+        Method init = JwtService.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(jwtService);
+
+        List<String> roleNames = new ArrayList<>(roles);
+        for (int i = 0; i < roles; i++) {
+            roleNames.add(i == 0 ? "BRANCH_ADMIN" : "ROLE_" + i);
+        }
+        claims = new HashMap<>();
+        claims.put("roles", roleNames);
+        claims.put("branchId", 1L);
+        userDetails = User.withUsername("admin@fitandflex.com").password("secret").roles("BRANCH_ADMIN").build();
+        token = jwtService.generateToken(claims, userDetails);
+    }
+
+    private void set(String field, Object value) throws Exception {
+        Field declared = JwtService.class.getDeclaredField(field);
+        declared.setAccessible(true);
+        declared.set(jwtService, value);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(claims, userDetails);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtService.validateToken(token, userDetails);
+    }
+}
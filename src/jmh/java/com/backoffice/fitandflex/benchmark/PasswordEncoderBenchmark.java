@@ -0,0 +1,61 @@
+package com.backoffice.fitandflex.benchmark;
+
+import com.backoffice.fitandflex.config.SecurityConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt al costo de SecurityConfig: domina el tiempo del login y del alta de usuarios.
+ * Para comparar otro costo antes de cambiarlo, agregar el valor a {@code strength}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordEncoderBenchmark {
+
+    @Param({"" + SecurityConfig.BCRYPT_STRENGTH})
+    private int strength;
+
+    /**
+     * Largo de la contraseña (BCrypt usa hasta 72 bytes)
+     */
+    @Param({"8", "64"})
+    private int passwordLength;
+
+    private PasswordEncoder encoder;
+    private String password;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder(strength);
+        password = "p".repeat(passwordLength);
+        hash = encoder.encode(password);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(password);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(password, hash);
+    }
+}
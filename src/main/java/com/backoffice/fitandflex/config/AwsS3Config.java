@@ -14,7 +14,7 @@ import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 @Configuration
 @Profile("!test")
-@ConditionalOnExpression("!'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty()")
+@ConditionalOnExpression("'${app.video.storage.type:s3}' == 's3' && !'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty()")
 public class AwsS3Config {
 
     @Value("${aws.s3.region:us-east-2}")
@@ -0,0 +1,45 @@
+package com.backoffice.fitandflex.config;
+
+import com.backoffice.fitandflex.dto.CursorPageRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resuelve {@link CursorPageRequest} desde los parámetros cursor, size e includeTotal
+ */
+public class CursorPageRequestArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final int defaultSize;
+    private final int maxSize;
+
+    public CursorPageRequestArgumentResolver(int defaultSize, int maxSize) {
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return CursorPageRequest.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        int size = defaultSize;
+        String sizeParam = webRequest.getParameter("size");
+        if (sizeParam != null && !sizeParam.isBlank()) {
+            try {
+                size = Integer.parseInt(sizeParam.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Tamaño de página inválido: " + sizeParam);
+            }
+        }
+        size = Math.min(Math.max(1, size), maxSize);
+
+        boolean includeTotal = Boolean.parseBoolean(webRequest.getParameter("includeTotal"));
+        return CursorPageRequest.of(webRequest.getParameter("cursor"), size, includeTotal);
+    }
+}
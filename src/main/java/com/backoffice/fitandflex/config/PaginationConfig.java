@@ -1,5 +1,6 @@
 package com.backoffice.fitandflex.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -16,14 +17,24 @@ import java.util.List;
 @EnableSpringDataWebSupport
 public class PaginationConfig implements WebMvcConfigurer {
 
+    /**
+     * Paginación por cursor (keyset): los endpoints la activan declarando un parámetro CursorPageRequest
+     */
+    @Value("${app.pagination.cursor.default-size:20}")
+    private int cursorDefaultSize;
+
+    @Value("${app.pagination.cursor.max-size:100}")
+    private int cursorMaxSize;
+
     @Override
     public void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
         PageableHandlerMethodArgumentResolver resolver = new PageableHandlerMethodArgumentResolver();
-        
+
         // Configurar valores por defecto
         resolver.setFallbackPageable(org.springframework.data.domain.PageRequest.of(0, 10));
         resolver.setMaxPageSize(100); // Máximo 100 elementos por página
-        
+
         argumentResolvers.add(resolver);
+        argumentResolvers.add(new CursorPageRequestArgumentResolver(cursorDefaultSize, cursorMaxSize));
     }
 }
@@ -0,0 +1,12 @@
+package com.backoffice.fitandflex.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuración de tareas programadas (reconciliación de cachés, procesos batch)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -3,7 +3,9 @@ package com.backoffice.fitandflex.config;
 import com.backoffice.fitandflex.security.JwtAuthenticationFilter;
 import com.backoffice.fitandflex.security.JwtService;
 import com.backoffice.fitandflex.security.UserDetailsServiceImpl;
+import com.backoffice.fitandflex.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -22,18 +24,30 @@ import org.springframework.web.cors.CorsConfigurationSource;
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    /**
+     * Costo de BCrypt (2^strength rondas); lo usan también los benchmarks del login
+     */
+    public static final int BCRYPT_STRENGTH = 10;
+
     private final UserDetailsServiceImpl userDetailsService;
     private final JwtService jwtService;
+    private final UserPrincipalCache principalCache;
     private final CorsConfigurationSource corsConfigurationSource;
 
+    /**
+     * Permitir /actuator/prometheus sin autenticación (scraper en red privada)
+     */
+    @Value("${app.metrics.prometheus-public:false}")
+    private boolean prometheusPublic;
+
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtService, userDetailsService);
+        return new JwtAuthenticationFilter(jwtService, principalCache);
     }
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(BCRYPT_STRENGTH);
     }
 
     // optional: provider
@@ -60,8 +74,8 @@ public class SecurityConfig {
                         .requestMatchers("/", "/api", "/api/auth/login", "/api/auth/logout").permitAll()
                         // Videos - acceso público para GET, autenticado para POST/DELETE
                         .requestMatchers("/api/videos/**").permitAll()
-                        // Actuator - solo health público, el resto requiere auth
-                        .requestMatchers("/actuator/health", "/actuator/info").permitAll()
+                        // Actuator - health e info públicos (y prometheus si se habilita), el resto requiere auth
+                        .requestMatchers(publicActuatorEndpoints()).permitAll()
                         .requestMatchers("/actuator/**").hasRole("SUPER_ADMIN")
                         // Swagger/OpenAPI - solo en desarrollo (deshabilitado en prod via properties)
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html", "/swagger-ui/index.html", "/webjars/**").permitAll()
@@ -82,4 +96,10 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    private String[] publicActuatorEndpoints() {
+        return prometheusPublic
+                ? new String[]{"/actuator/health", "/actuator/info", "/actuator/prometheus"}
+                : new String[]{"/actuator/health", "/actuator/info"};
+    }
 }
@@ -0,0 +1,172 @@
+package com.backoffice.fitandflex.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de sentencias SQL por petición HTTP y por método de repositorio (detección de N+1).
+ * <ul>
+ *   <li>El DataSource se envuelve con datasource-proxy: cuenta toda sentencia que llega a JDBC, tanto de
+ *       Hibernate como de JdbcTemplate. Un lote (executeBatch) cuenta como una ejecución.</li>
+ *   <li>Cada repositorio de Spring Data recibe un interceptor que publica {@code sql.repository.statements}
+ *       y {@code sql.repository.time} etiquetados por repositorio y método.</li>
+ *   <li>{@link SqlMetricsFilter} publica lo mismo por endpoint y agrega el encabezado {@code X-SQL-Count}
+ *       fuera de producción.</li>
+ * </ul>
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sql-metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMetricsConfig {
+
+    private static final String START_NANOS = "sqlMetrics.startNanos";
+
+    /**
+     * Envolver el DataSource con el proxy que cuenta sentencias (static: los BeanPostProcessor se crean
+     * antes que el resto de la configuración)
+     */
+    @Bean
+    public static BeanPostProcessor sqlCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new StatementCountingListener())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Agregar el interceptor de métricas a los proxies de repositorios de Spring Data
+     */
+    @Bean
+    public static BeanPostProcessor sqlRepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(repositoryFactory ->
+                            repositoryFactory.addRepositoryProxyPostProcessor((factory, repositoryInformation) ->
+                                    factory.addAdvice(new RepositoryMetricsInterceptor(
+                                            repositoryInformation.getRepositoryInterface().getSimpleName(),
+                                            meterRegistryProvider))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlMetricsFilter> sqlMetricsFilter(
+            @Value("${app.sql-metrics.header-enabled:true}") boolean headerEnabled,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        FilterRegistrationBean<SqlMetricsFilter> registration =
+                new FilterRegistrationBean<>(new SqlMetricsFilter(headerEnabled, meterRegistryProvider.getIfAvailable()));
+        // Antes de Spring Security, para incluir la carga del usuario autenticado
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    /**
+     * Cuenta cada ejecución en el ámbito SQL del hilo actual, con su tiempo JDBC
+     */
+    static final class StatementCountingListener implements QueryExecutionListener {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            execInfo.addCustomValue(START_NANOS, System.nanoTime());
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            Long start = execInfo.getCustomValue(START_NANOS, Long.class);
+            SqlStatementScope.record(start != null ? System.nanoTime() - start : 0L);
+        }
+    }
+
+    /**
+     * Abre un ámbito SQL por invocación de método de repositorio y publica sus totales
+     */
+    static final class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+        private final String repository;
+        private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+        private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+        private record Meters(DistributionSummary statements, Timer time) {
+        }
+
+        RepositoryMetricsInterceptor(String repository, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+            this.repository = repository;
+            this.meterRegistryProvider = meterRegistryProvider;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            SqlStatementScope scope = SqlStatementScope.open(repository + "." + method.getName());
+            try {
+                return invocation.proceed();
+            } finally {
+                scope.close();
+                Meters methodMeters = meters(method);
+                if (methodMeters != null) {
+                    methodMeters.statements().record(scope.getStatements());
+                    methodMeters.time().record(scope.getJdbcNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        private Meters meters(Method method) {
+            Meters cached = meters.get(method);
+            if (cached != null) {
+                return cached;
+            }
+            // El registro se resuelve en la primera llamada: los repositorios se crean antes que Micrometer
+            MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+            if (registry == null) {
+                return null;
+            }
+            return meters.computeIfAbsent(method, m -> new Meters(
+                    DistributionSummary.builder("sql.repository.statements")
+                            .description("Sentencias SQL ejecutadas por método de repositorio")
+                            .tags("repository", repository, "method", m.getName())
+                            .register(registry),
+                    Timer.builder("sql.repository.time")
+                            .description("Tiempo JDBC por método de repositorio")
+                            .tags("repository", repository, "method", m.getName())
+                            .register(registry)));
+        }
+    }
+}
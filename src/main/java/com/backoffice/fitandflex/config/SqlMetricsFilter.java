@@ -0,0 +1,143 @@
+package com.backoffice.fitandflex.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cuenta las sentencias SQL y el tiempo JDBC de cada petición HTTP.
+ * <ul>
+ *   <li>Publica {@code sql.request.statements} y {@code sql.request.time} etiquetados por método y ruta
+ *       (el patrón del endpoint, no la URL con ids).</li>
+ *   <li>Con {@code app.sql-metrics.header-enabled} agrega {@code X-SQL-Count} y {@code X-SQL-Time-Ms} a la
+ *       respuesta, con lo ejecutado hasta escribir el cuerpo (sin copiar el cuerpo en memoria).</li>
+ *   <li>Solo cuenta el hilo de la petición: las descargas con {@code StreamingResponseBody} consultan en
+ *       otro hilo y no se incluyen.</li>
+ * </ul>
+ */
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    public static final String COUNT_HEADER = "X-SQL-Count";
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    private final boolean headerEnabled;
+    private final MeterRegistry meterRegistry;
+
+    public SqlMetricsFilter(boolean headerEnabled, MeterRegistry meterRegistry) {
+        this.headerEnabled = headerEnabled;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        SqlStatementScope scope = SqlStatementScope.openRequest(request.getMethod() + " " + request.getRequestURI());
+        HttpServletResponse target = headerEnabled ? new SqlHeaderResponse(response, scope) : response;
+        try {
+            chain.doFilter(request, target);
+        } finally {
+            if (headerEnabled && !response.isCommitted()) {
+                writeHeaders(response, scope);
+            }
+            String uri = uri(request);
+            scope.relabel(request.getMethod() + " " + uri);
+            scope.close();
+            record(request.getMethod(), uri, scope);
+        }
+    }
+
+    private void record(String method, String uri, SqlStatementScope scope) {
+        if (meterRegistry == null) {
+            return;
+        }
+        DistributionSummary.builder("sql.request.statements")
+                .description("Sentencias SQL ejecutadas por petición HTTP")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(scope.getStatements());
+        Timer.builder("sql.request.time")
+                .description("Tiempo JDBC por petición HTTP")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(scope.getJdbcNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+
+    private static void writeHeaders(HttpServletResponse response, SqlStatementScope scope) {
+        response.setHeader(COUNT_HEADER, String.valueOf(scope.getStatements()));
+        response.setHeader(TIME_HEADER, String.valueOf(TimeUnit.NANOSECONDS.toMillis(scope.getJdbcNanos())));
+    }
+
+    /**
+     * Escribe los encabezados antes de que el cuerpo confirme la respuesta; al final de la petición se
+     * sobrescriben con el total si la respuesta todavía no se envió
+     */
+    private static final class SqlHeaderResponse extends HttpServletResponseWrapper {
+
+        private final SqlStatementScope scope;
+
+        private SqlHeaderResponse(HttpServletResponse response, SqlStatementScope scope) {
+            super(response);
+            this.scope = scope;
+        }
+
+        private void beforeCommit() {
+            if (!isCommitted()) {
+                writeHeaders((HttpServletResponse) getResponse(), scope);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            beforeCommit();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            beforeCommit();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            beforeCommit();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            beforeCommit();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            beforeCommit();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            beforeCommit();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.backoffice.fitandflex.config;
+
+/**
+ * Contador de sentencias SQL y tiempo JDBC del hilo actual.
+ * <ul>
+ *   <li>Los ámbitos se anidan (petición HTTP, método de repositorio): cada sentencia se cuenta en el ámbito
+ *       más interno y al cerrarlo sus totales se suman al ámbito padre.</li>
+ *   <li>Un ámbito recuerda la petición HTTP hija con más sentencias, para los presupuestos de consultas en
+ *       tests.</li>
+ *   <li>Sin ámbito abierto (jobs, arranque) las sentencias no se cuentan.</li>
+ * </ul>
+ */
+public final class SqlStatementScope implements AutoCloseable {
+
+    private static final ThreadLocal<SqlStatementScope> CURRENT = new ThreadLocal<>();
+
+    private final SqlStatementScope parent;
+    private String label;
+    private final boolean request;
+    private int statements;
+    private long jdbcNanos;
+    private boolean closed;
+
+    private String worstRequest;
+    private int worstRequestStatements = -1;
+
+    private SqlStatementScope(SqlStatementScope parent, String label, boolean request) {
+        this.parent = parent;
+        this.label = label;
+        this.request = request;
+    }
+
+    /**
+     * Abrir un ámbito en el hilo actual; debe cerrarse en el mismo hilo (try-with-resources)
+     */
+    public static SqlStatementScope open(String label) {
+        return push(label, false);
+    }
+
+    /**
+     * Abrir el ámbito de una petición HTTP
+     */
+    public static SqlStatementScope openRequest(String label) {
+        return push(label, true);
+    }
+
+    private static SqlStatementScope push(String label, boolean request) {
+        SqlStatementScope scope = new SqlStatementScope(CURRENT.get(), label, request);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Registrar una sentencia ejecutada en el hilo actual
+     */
+    static void record(long elapsedNanos) {
+        SqlStatementScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.statements++;
+            scope.jdbcNanos += elapsedNanos;
+        }
+    }
+
+    /**
+     * Cambiar la etiqueta antes de cerrar (la ruta de una petición se conoce después de resolver el handler)
+     */
+    void relabel(String label) {
+        this.label = label;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    /**
+     * Petición HTTP (método y ruta) con más sentencias entre las cerradas dentro de este ámbito, o null
+     */
+    public String getWorstRequest() {
+        return worstRequest;
+    }
+
+    public int getWorstRequestStatements() {
+        return Math.max(worstRequestStatements, 0);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (CURRENT.get() == this) {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+        if (parent != null) {
+            parent.statements += statements;
+            parent.jdbcNanos += jdbcNanos;
+            if (request && statements > parent.worstRequestStatements) {
+                parent.worstRequest = label;
+                parent.worstRequestStatements = statements;
+            }
+            if (worstRequestStatements > parent.worstRequestStatements) {
+                parent.worstRequest = worstRequest;
+                parent.worstRequestStatements = worstRequestStatements;
+            }
+        }
+    }
+}
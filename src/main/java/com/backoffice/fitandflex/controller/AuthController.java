@@ -7,6 +7,7 @@ import com.backoffice.fitandflex.entity.User;
 import com.backoffice.fitandflex.repository.UserRepository;
 import com.backoffice.fitandflex.security.JwtService;
 import com.backoffice.fitandflex.security.UserDetailsServiceImpl;
+import com.backoffice.fitandflex.service.OperationMetrics;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -37,6 +38,7 @@ public class AuthController {
     private final JwtService jwtService;
     private final UserRepository userRepository;
     private final UserDetailsServiceImpl userDetailsService;
+    private final OperationMetrics operationMetrics;
 
     @Operation(
         summary = "Iniciar sesión",
@@ -70,12 +72,17 @@ public class AuthController {
     })
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody AuthRequest request) {
+        return operationMetrics.time("login", operation -> login(request, operation));
+    }
+
+    private ResponseEntity<?> login(AuthRequest request, OperationMetrics.Operation operation) {
         try {
             log.info("Intento de login para usuario: {}", request.getEmail());
             
             // Verificar si el usuario existe y está activo
             User user = userRepository.findByEmail(request.getEmail())
                     .orElseThrow(() -> new BadCredentialsException("Credenciales inválidas"));
+            operation.branch(user.getBranch());
             
             if (!user.getActive()) {
                 log.warn("Intento de login con usuario inactivo: {}", request.getEmail());
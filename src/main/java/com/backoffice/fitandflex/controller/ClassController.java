@@ -2,10 +2,15 @@ package com.backoffice.fitandflex.controller;
 
 import com.backoffice.fitandflex.dto.ClassDTO;
 import com.backoffice.fitandflex.dto.CommonDto;
+import com.backoffice.fitandflex.dto.CursorPage;
+import com.backoffice.fitandflex.dto.CursorPageRequest;
+import com.backoffice.fitandflex.service.DataExportService;
 import com.backoffice.fitandflex.service.ClassService;
 import com.backoffice.fitandflex.service.ClassSubscriptionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -18,15 +23,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.servlet.http.HttpServletRequest;
 import com.backoffice.fitandflex.security.JwtService;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +53,7 @@ public class ClassController {
 
     private final ClassService classService;
     private final ClassSubscriptionService subscriptionService;
+    private final DataExportService dataExportService;
     private final JwtService jwtService;
     
     /**
@@ -329,6 +340,58 @@ public class ClassController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+        summary = "Obtener clases activas por rango de fechas",
+        description = "Obtiene las clases activas con sus horarios para cada fecha del rango (ambos extremos incluidos). " +
+                      "Permite cargar una semana completa en una sola petición. El rango no puede exceder 31 días."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Lista de clases activas por fecha obtenida exitosamente",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = List.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Rango de fechas inválido",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = Map.class)
+            )
+        )
+    })
+    @GetMapping("/active/range")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN', 'USER')")
+    public ResponseEntity<List<ClassDTO.ResponseWithDate>> getActiveClassesByDateRange(
+            @Parameter(description = "Fecha inicial (formato yyyy-MM-dd)", example = "2025-11-17", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Fecha final, incluida (formato yyyy-MM-dd)", example = "2025-11-23", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest request) {
+        log.info("Obteniendo clases activas desde {} hasta {}", from, to);
+        
+        // Extraer token del header Authorization
+        String authHeader = request.getHeader("Authorization");
+        Long branchId = null;
+        boolean isSuperAdmin = false;
+        
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            branchId = jwtService.extractBranchId(token);
+            isSuperAdmin = jwtService.isSuperAdmin(token);
+        }
+        
+        // Si es SUPER_ADMIN, no filtrar por branch (pasar null)
+        Long filterBranchId = isSuperAdmin ? null : branchId;
+        
+        List<ClassDTO.ResponseWithDate> response = classService.getActiveClassesByDateRange(from, to, filterBranchId);
+        
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
         summary = "Buscar clases por nombre",
         description = "Busca clases que contengan el nombre especificado (búsqueda case insensitive)"
@@ -744,6 +807,52 @@ public class ClassController {
                         .build());
     }
 
+    @Operation(
+        summary = "Inscribir a un usuario por período",
+        description = "Crea una suscripción por cada fecha del período en que la clase tiene un horario que cumple la regla " +
+                      "(días de la semana y horario). La capacidad se verifica para todos los horarios a la vez; " +
+                      "los horarios llenos se informan en la respuesta y no impiden la inscripción en los demás."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "Inscripción procesada (ver horarios llenos en la respuesta)"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Datos inválidos, clase inactiva o ningún horario coincide con la regla"
+        )
+    })
+    @PostMapping("/{id}/subscribe/term")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN', 'USER')")
+    public ResponseEntity<CommonDto.SuccessResponse<ClassDTO.TermEnrollmentResponse>> enrollForTerm(
+            @PathVariable Long id,
+            @Valid @RequestBody ClassDTO.TermEnrollmentRequest request,
+            HttpServletRequest httpRequest) {
+        log.info("Inscribiendo usuario {} en clase {} por período", request.getUserId(), id);
+
+        String authHeader = httpRequest.getHeader("Authorization");
+        Long userBranchId = null;
+        boolean isSuperAdmin = false;
+
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            userBranchId = jwtService.extractBranchId(token);
+            isSuperAdmin = jwtService.isSuperAdmin(token);
+        }
+
+        ClassDTO.TermEnrollmentResponse enrollment = subscriptionService.enrollForTerm(id, request, userBranchId, isSuperAdmin);
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(CommonDto.SuccessResponse.<ClassDTO.TermEnrollmentResponse>builder()
+                        .success(true)
+                        .message(enrollment.getFull().isEmpty()
+                                ? "Inscripción por período creada exitosamente"
+                                : "Inscripción por período creada; algunos horarios no tenían cupo")
+                        .data(enrollment)
+                        .build());
+    }
+
     @Operation(
         summary = "Obtener suscripciones de una clase",
         description = "Obtiene todas las suscripciones activas de una clase específica"
@@ -1079,4 +1188,59 @@ public class ClassController {
         
         return ResponseEntity.ok(subscriptions);
     }
+
+    /**
+     * Obtener suscripciones de una sucursal con paginación por cursor
+     * Coste constante a cualquier profundidad; pensado para listados con scroll infinito
+     */
+    @Operation(
+        summary = "Obtener suscripciones por sucursal (cursor)",
+        description = "Lista las suscripciones de la sucursal de la más reciente a la más antigua usando paginación por cursor. " +
+                     "Usar nextCursor de la respuesta para pedir la página siguiente; el total solo se calcula con includeTotal=true."
+    )
+    @Parameters({
+        @Parameter(name = "cursor", in = ParameterIn.QUERY, description = "Cursor devuelto en nextCursor por la página anterior (vacío para la primera)"),
+        @Parameter(name = "size", in = ParameterIn.QUERY, description = "Tamaño de página (por defecto: 20, máximo: 100)"),
+        @Parameter(name = "includeTotal", in = ParameterIn.QUERY, description = "Incluir el total de elementos (COUNT adicional, por defecto: false)")
+    })
+    @GetMapping("/subscriptions/branch/{branchId}/cursor")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
+    public ResponseEntity<CursorPage<ClassDTO.SubscriptionResponse>> getSubscriptionsByBranchCursor(
+            @Parameter(description = "ID de la sucursal", example = "2", required = true)
+            @PathVariable Long branchId,
+            @Parameter(hidden = true) CursorPageRequest pageRequest) {
+
+        CursorPage<ClassDTO.SubscriptionResponse> subscriptions = subscriptionService.getSubscriptionsByBranchId(branchId, pageRequest);
+        return ResponseEntity.ok(subscriptions);
+    }
+
+    /**
+     * Exportar suscripciones en CSV o NDJSON
+     * Las filas se escriben en la respuesta a medida que se leen de la base de datos
+     */
+    @Operation(
+        summary = "Exportar suscripciones",
+        description = "Descarga las suscripciones en CSV o NDJSON, filtradas opcionalmente por sucursal y fecha de creación. " +
+                      "La respuesta se genera en streaming, sin cargar las suscripciones en memoria."
+    )
+    @GetMapping("/subscriptions/export")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportSubscriptions(
+            @Parameter(description = "Formato: csv o ndjson (por defecto: csv)", required = false)
+            @RequestParam(value = "format", required = false) String format,
+            @Parameter(description = "ID de la sucursal (por defecto: todas)", required = false)
+            @RequestParam(value = "branchId", required = false) Long branchId,
+            @Parameter(description = "Fecha de creación desde (inclusive)", required = false)
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "Fecha de creación hasta (inclusive)", required = false)
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+
+        DataExportService.Format exportFormat = DataExportService.Format.fromParam(format);
+        StreamingResponseBody body = dataExportService.exportSubscriptions(branchId, startDate, endDate, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("subscriptions." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
 }
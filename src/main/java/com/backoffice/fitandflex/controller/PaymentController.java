@@ -1,11 +1,17 @@
 package com.backoffice.fitandflex.controller;
 
 import com.backoffice.fitandflex.dto.CommonDto;
+import com.backoffice.fitandflex.dto.CursorPage;
+import com.backoffice.fitandflex.dto.CursorPageRequest;
 import com.backoffice.fitandflex.dto.PaymentDTO;
 import com.backoffice.fitandflex.entity.Payment;
+import com.backoffice.fitandflex.service.DataExportService;
 import com.backoffice.fitandflex.service.PaymentService;
+import com.backoffice.fitandflex.service.PaymentStatsRebuildJob;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -17,12 +23,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +50,8 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final DataExportService dataExportService;
+    private final PaymentStatsRebuildJob paymentStatsRebuildJob;
     
     /**
      * Helper method para crear Pageable
@@ -168,6 +181,36 @@ public class PaymentController {
                 .build());
     }
 
+    /**
+     * Exportar pagos en CSV o NDJSON
+     * Las filas se escriben en la respuesta a medida que se leen de la base de datos
+     */
+    @Operation(
+        summary = "Exportar pagos",
+        description = "Descarga los pagos en CSV o NDJSON, filtrados opcionalmente por sucursal y fecha de pago. " +
+                      "La respuesta se genera en streaming, sin cargar los pagos en memoria."
+    )
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @Parameter(description = "Formato: csv o ndjson (por defecto: csv)", required = false)
+            @RequestParam(value = "format", required = false) String format,
+            @Parameter(description = "ID de la sucursal (por defecto: todas)", required = false)
+            @RequestParam(value = "branchId", required = false) Long branchId,
+            @Parameter(description = "Fecha de pago desde (inclusive)", required = false)
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "Fecha de pago hasta (inclusive)", required = false)
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+
+        DataExportService.Format exportFormat = DataExportService.Format.fromParam(format);
+        StreamingResponseBody body = dataExportService.exportPayments(branchId, startDate, endDate, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("payments." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
     /**
      * Obtener pago por ID
      */
@@ -306,6 +349,25 @@ public class PaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    /**
+     * Obtener pagos por sucursal con paginación por cursor
+     * Coste constante a cualquier profundidad; pensado para listados con scroll infinito
+     */
+    @Parameters({
+        @Parameter(name = "cursor", in = ParameterIn.QUERY, description = "Cursor devuelto en nextCursor por la página anterior (vacío para la primera)"),
+        @Parameter(name = "size", in = ParameterIn.QUERY, description = "Tamaño de página (por defecto: 20, máximo: 100)"),
+        @Parameter(name = "includeTotal", in = ParameterIn.QUERY, description = "Incluir el total de elementos (COUNT adicional, por defecto: false)")
+    })
+    @GetMapping("/branch/{branchId}/cursor")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
+    public ResponseEntity<CursorPage<PaymentDTO.Response>> getPaymentsByBranchCursor(
+            @PathVariable Long branchId,
+            @Parameter(hidden = true) CursorPageRequest pageRequest) {
+
+        CursorPage<PaymentDTO.Response> payments = paymentService.getPaymentsByBranch(branchId, pageRequest);
+        return ResponseEntity.ok(payments);
+    }
+
     /**
      * Obtener pagos por rango de fechas
      */
@@ -487,10 +549,21 @@ public class PaymentController {
     /**
      * Obtener estadísticas de pagos
      */
+    @Operation(
+        summary = "Estadísticas de pagos",
+        description = "Conteos por estado, monto total y reembolsado, leídos del acumulado diario de pagos. " +
+                      "Con granularity (day, week, month) incluye una serie por período; sin rango se usan los últimos 30 días, 12 semanas o 12 meses."
+    )
     @GetMapping("/stats")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
-    public ResponseEntity<CommonDto.SuccessResponse<Object>> getPaymentStats() {
-        CommonDto.SuccessResponse<Object> stats = paymentService.getPaymentStats();
+    public ResponseEntity<CommonDto.SuccessResponse<Object>> getPaymentStats(
+            @Parameter(description = "Primer día, inclusive (opcional)", required = false)
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Último día, inclusive (opcional)", required = false)
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Granularidad de la serie: day, week o month (opcional)", required = false)
+            @RequestParam(value = "granularity", required = false) String granularity) {
+        CommonDto.SuccessResponse<Object> stats = paymentService.getPaymentStats(startDate, endDate, granularity);
         return ResponseEntity.ok(stats);
     }
 
@@ -508,11 +581,43 @@ public class PaymentController {
     /**
      * Obtener estadísticas de pagos por sucursal
      */
+    @Operation(
+        summary = "Estadísticas de pagos por sucursal",
+        description = "Igual que /stats, filtrado por la sucursal del usuario que realizó el pago."
+    )
     @GetMapping("/stats/branch/{branchId}")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
     public ResponseEntity<CommonDto.SuccessResponse<Object>> getPaymentStatsByBranch(
-            @PathVariable Long branchId) {
-        CommonDto.SuccessResponse<Object> stats = paymentService.getPaymentStatsByBranch(branchId);
+            @PathVariable Long branchId,
+            @Parameter(description = "Primer día, inclusive (opcional)", required = false)
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Último día, inclusive (opcional)", required = false)
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Granularidad de la serie: day, week o month (opcional)", required = false)
+            @RequestParam(value = "granularity", required = false) String granularity) {
+        CommonDto.SuccessResponse<Object> stats = paymentService.getPaymentStatsByBranch(branchId, startDate, endDate, granularity);
         return ResponseEntity.ok(stats);
     }
+
+    /**
+     * Reconstruir el acumulado diario de pagos
+     */
+    @Operation(
+        summary = "Reconstruir estadísticas de pagos",
+        description = "Recalcula desde la tabla de pagos el acumulado diario del rango indicado (inclusive), mes a mes."
+    )
+    @PostMapping("/stats/rebuild")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<CommonDto.SuccessResponse<Object>> rebuildPaymentStats(
+            @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.info("Reconstruyendo el acumulado de pagos del {} al {}", startDate, endDate);
+        int rows = paymentStatsRebuildJob.rebuild(startDate, endDate);
+
+        return ResponseEntity.ok(CommonDto.SuccessResponse.builder()
+                .success(true)
+                .message("Estadísticas reconstruidas exitosamente")
+                .data(Map.of("startDate", startDate, "endDate", endDate, "rows", rows))
+                .build());
+    }
 }
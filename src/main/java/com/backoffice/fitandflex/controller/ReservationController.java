@@ -1,27 +1,40 @@
 package com.backoffice.fitandflex.controller;
 
 import com.backoffice.fitandflex.dto.CommonDto;
+import com.backoffice.fitandflex.dto.CursorPage;
+import com.backoffice.fitandflex.dto.CursorPageRequest;
 import com.backoffice.fitandflex.dto.ReservationDTO;
 import com.backoffice.fitandflex.entity.ReservationStatus;
+import com.backoffice.fitandflex.security.JwtService;
+import com.backoffice.fitandflex.service.DataExportService;
 import com.backoffice.fitandflex.service.ReservationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +50,8 @@ import java.util.Map;
 public class ReservationController {
 
     private final ReservationService reservationService;
+    private final DataExportService dataExportService;
+    private final JwtService jwtService;
     
     /**
      * Helper method para crear Pageable
@@ -51,7 +66,9 @@ public class ReservationController {
      */
     @Operation(
         summary = "Crear nueva reserva",
-        description = "Crea una nueva reserva para un usuario en un horario específico."
+        description = "Crea una nueva reserva para un usuario en un horario específico. " +
+                     "Si el horario está lleno, la reserva queda en lista de espera (WAITLISTED) y se activa " +
+                     "automáticamente cuando se libera un cupo, salvo que joinWaitlist sea false."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -91,7 +108,9 @@ public class ReservationController {
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(CommonDto.SuccessResponse.<ReservationDTO.Response>builder()
                         .success(true)
-                        .message("Reserva creada exitosamente")
+                        .message(reservation.getStatus() == ReservationStatus.WAITLISTED
+                                ? "Horario lleno: reserva agregada a la lista de espera"
+                                : "Reserva creada exitosamente")
                         .data(reservation)
                         .build());
     }
@@ -166,6 +185,36 @@ public class ReservationController {
                 .build());
     }
 
+    /**
+     * Exportar reservas en CSV o NDJSON
+     * Las filas se escriben en la respuesta a medida que se leen de la base de datos
+     */
+    @Operation(
+        summary = "Exportar reservas",
+        description = "Descarga las reservas en CSV o NDJSON, filtradas opcionalmente por sucursal y fecha de reserva. " +
+                      "La respuesta se genera en streaming, sin cargar las reservas en memoria."
+    )
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportReservations(
+            @Parameter(description = "Formato: csv o ndjson (por defecto: csv)", required = false)
+            @RequestParam(value = "format", required = false) String format,
+            @Parameter(description = "ID de la sucursal (por defecto: todas)", required = false)
+            @RequestParam(value = "branchId", required = false) Long branchId,
+            @Parameter(description = "Fecha de reserva desde (inclusive)", required = false)
+            @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "Fecha de reserva hasta (inclusive)", required = false)
+            @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+
+        DataExportService.Format exportFormat = DataExportService.Format.fromParam(format);
+        StreamingResponseBody body = dataExportService.exportReservations(branchId, startDate, endDate, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("reservations." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
     /**
      * Obtener reserva por ID
      */
@@ -284,6 +333,25 @@ public class ReservationController {
         return ResponseEntity.ok(reservations);
     }
 
+    /**
+     * Obtener reservas por sucursal con paginación por cursor
+     * Coste constante a cualquier profundidad; pensado para listados con scroll infinito
+     */
+    @Parameters({
+        @Parameter(name = "cursor", in = ParameterIn.QUERY, description = "Cursor devuelto en nextCursor por la página anterior (vacío para la primera)"),
+        @Parameter(name = "size", in = ParameterIn.QUERY, description = "Tamaño de página (por defecto: 20, máximo: 100)"),
+        @Parameter(name = "includeTotal", in = ParameterIn.QUERY, description = "Incluir el total de elementos (COUNT adicional, por defecto: false)")
+    })
+    @GetMapping("/branch/{branchId}/cursor")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
+    public ResponseEntity<CursorPage<ReservationDTO.Response>> getReservationsByBranchCursor(
+            @PathVariable Long branchId,
+            @Parameter(hidden = true) CursorPageRequest pageRequest) {
+
+        CursorPage<ReservationDTO.Response> reservations = reservationService.getReservationsByBranch(branchId, pageRequest);
+        return ResponseEntity.ok(reservations);
+    }
+
     /**
      * Obtener reservas por clase
      */
@@ -457,6 +525,64 @@ public class ReservationController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Obtener estadísticas de reservas por clase
+     */
+    @Operation(
+        summary = "Obtener estadísticas de reservas por clase",
+        description = "Retorna los conteos de reservas por estado, la tasa de asistencia y la tasa de no asistencia, " +
+                      "en total y por clase. Filtros opcionales por sucursal, clase y rango de fechas del horario reservado. " +
+                      "BRANCH_ADMIN solo puede consultar su propia sucursal."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Estadísticas obtenidas exitosamente",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CommonDto.SuccessResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Rango de fechas inválido",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = Map.class)
+            )
+        )
+    })
+    @GetMapping("/stats/classes")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'BRANCH_ADMIN')")
+    public ResponseEntity<CommonDto.SuccessResponse<ReservationDTO.StatsResponse>> getReservationStatsByClass(
+            @Parameter(description = "ID de la sucursal", example = "1")
+            @RequestParam(required = false) Long branchId,
+            @Parameter(description = "ID de la clase", example = "5")
+            @RequestParam(required = false) Long classId,
+            @Parameter(description = "Fecha inicial (formato yyyy-MM-dd)", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Fecha final, incluida (formato yyyy-MM-dd)", example = "2025-01-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest request) {
+        
+        // BRANCH_ADMIN solo puede ver estadísticas de su sucursal
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            if (!jwtService.isSuperAdmin(token)) {
+                branchId = jwtService.extractBranchId(token);
+            }
+        }
+        
+        ReservationDTO.StatsResponse stats = reservationService.getReservationStats(branchId, classId, from, to);
+        
+        return ResponseEntity.ok(CommonDto.SuccessResponse.<ReservationDTO.StatsResponse>builder()
+                .success(true)
+                .message("Estadísticas obtenidas exitosamente")
+                .data(stats)
+                .build());
+    }
+
     /**
      * Obtener estadísticas de reservas por usuario
      */
@@ -1,11 +1,15 @@
 package com.backoffice.fitandflex.controller;
 
+import com.backoffice.fitandflex.dto.CursorPage;
+import com.backoffice.fitandflex.dto.CursorPageRequest;
 import com.backoffice.fitandflex.dto.UserDTO;
 import com.backoffice.fitandflex.dto.UserClassDTO;
 import com.backoffice.fitandflex.dto.UserProductDTO;
 import com.backoffice.fitandflex.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -192,6 +196,27 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+        summary = "Obtener todos los usuarios (cursor)",
+        description = "Lista los usuarios del más reciente al más antiguo usando paginación por cursor. " +
+                     "Usar nextCursor de la respuesta para pedir la página siguiente; el total solo se calcula con includeTotal=true."
+    )
+    @Parameters({
+        @Parameter(name = "cursor", in = ParameterIn.QUERY, description = "Cursor devuelto en nextCursor por la página anterior (vacío para la primera)"),
+        @Parameter(name = "size", in = ParameterIn.QUERY, description = "Tamaño de página (por defecto: 20, máximo: 100)"),
+        @Parameter(name = "includeTotal", in = ParameterIn.QUERY, description = "Incluir el total de elementos (COUNT adicional, por defecto: false)")
+    })
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('BRANCH_ADMIN')")
+    public ResponseEntity<CursorPage<UserDTO.Response>> getAllUsersCursor(
+            @Parameter(hidden = true) CursorPageRequest pageRequest) {
+        log.info("Obteniendo usuarios por cursor - tamaño: {}", pageRequest.getSize());
+
+        CursorPage<UserDTO.Response> response = userService.getAllUsers(pageRequest);
+
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
         summary = "Obtener todos los usuarios (Spring Data paginación)",
         description = "Obtiene una lista paginada de todos los usuarios usando Spring Data paginación automática"
@@ -1,6 +1,8 @@
 package com.backoffice.fitandflex.controller;
 
 import com.backoffice.fitandflex.dto.UserMembershipDTO;
+import com.backoffice.fitandflex.service.BulkMembershipImportService;
+import com.backoffice.fitandflex.service.UserBalanceRebuildJob;
 import com.backoffice.fitandflex.service.UserMembershipService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,6 +16,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +24,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +40,8 @@ import java.util.Map;
 public class UserMembershipController {
 
     private final UserMembershipService userMembershipService;
+    private final BulkMembershipImportService bulkMembershipImportService;
+    private final UserBalanceRebuildJob userBalanceRebuildJob;
 
     /**
      * Asignar membresía a usuario
@@ -84,6 +90,47 @@ public class UserMembershipController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Asignar membresías en forma masiva (JSON)
+     */
+    @Operation(
+        summary = "Asignar membresías en forma masiva",
+        description = "Registra varias asignaciones de membresía con sus abonos iniciales en una sola solicitud " +
+                      "(máximo 5000 filas). Cada fila se valida con las mismas reglas que la asignación individual; " +
+                      "las filas inválidas se informan en el resultado sin impedir el registro de las demás. " +
+                      "Con dryRun=true solo se valida."
+    )
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('BRANCH_ADMIN')")
+    public ResponseEntity<UserMembershipDTO.BulkAssignResponse> bulkAssignMemberships(
+            @RequestBody UserMembershipDTO.BulkAssignRequest request,
+            @Parameter(description = "Solo validar, sin registrar (por defecto: false)")
+            @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun,
+            Authentication authentication) {
+
+        return ResponseEntity.ok(bulkMembershipImportService.assign(request.getRows(), authentication.getName(), dryRun));
+    }
+
+    /**
+     * Asignar membresías en forma masiva (CSV)
+     */
+    @Operation(
+        summary = "Asignar membresías en forma masiva desde CSV",
+        description = "Igual que /bulk, leyendo las asignaciones de un CSV con encabezado. Columnas: userId o userEmail, " +
+                      "productId, startDate, endDate y opcionalmente initialPayment, paymentMethod y notes. " +
+                      "Las fechas aceptan yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss."
+    )
+    @PostMapping(value = "/bulk/csv", consumes = {"text/csv", "text/plain"})
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('BRANCH_ADMIN')")
+    public ResponseEntity<UserMembershipDTO.BulkAssignResponse> bulkAssignMembershipsCsv(
+            InputStream csv,
+            @Parameter(description = "Solo validar, sin registrar (por defecto: false)")
+            @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun,
+            Authentication authentication) {
+
+        return ResponseEntity.ok(bulkMembershipImportService.assignCsv(csv, authentication.getName(), dryRun));
+    }
+
     /**
      * Obtener todas las membresías (paginado)
      */
@@ -602,4 +649,76 @@ public class UserMembershipController {
         
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Verificar pagos pendientes de un usuario (check-in en recepción)
+     */
+    @Operation(
+        summary = "Verificar pagos pendientes",
+        description = "Retorna el saldo pendiente del usuario desde el saldo materializado y, si tiene deuda, el detalle por membresía."
+    )
+    @GetMapping("/user/{userId}/pending-payments")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('BRANCH_ADMIN') or @userService.isOwner(#userId, authentication.name)")
+    public ResponseEntity<Map<String, Object>> hasPendingPayments(
+            @Parameter(description = "ID del usuario") @PathVariable Long userId) {
+
+        return ResponseEntity.ok(userMembershipService.hasPendingPayments(userId));
+    }
+
+    /**
+     * Obtener saldos de varios usuarios
+     */
+    @Operation(
+        summary = "Obtener saldos de varios usuarios",
+        description = "Retorna el saldo de membresías de cada usuario indicado (máximo 500), con una sola consulta. " +
+                      "Los montos se expresan en unidades mínimas (centavos)."
+    )
+    @GetMapping("/balances")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('BRANCH_ADMIN')")
+    public ResponseEntity<List<UserMembershipDTO.BalanceResponse>> getBalances(
+            @Parameter(description = "IDs de usuario separados por coma", example = "1,2,3")
+            @RequestParam List<Long> userIds) {
+
+        return ResponseEntity.ok(userMembershipService.getBalances(userIds));
+    }
+
+    /**
+     * Reconstruir los saldos de membresías
+     */
+    @Operation(
+        summary = "Reconstruir saldos de membresías",
+        description = "Recalcula desde las membresías el saldo de todos los usuarios, por rangos de usuarios."
+    )
+    @PostMapping("/balances/rebuild")
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildBalances() {
+        log.info("Reconstruyendo los saldos de membresías");
+        int rows = userBalanceRebuildJob.rebuild();
+
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "message", "Saldos reconstruidos exitosamente",
+            "rows", rows
+        ));
+    }
+
+    /**
+     * Obtener deudores de una sucursal
+     */
+    @Operation(
+        summary = "Obtener deudores de una sucursal",
+        description = "Usuarios de la sucursal con saldo pendiente, ordenados de mayor a menor deuda."
+    )
+    @GetMapping("/branch/{branchId}/debtors")
+    @PreAuthorize("hasRole('SUPER_ADMIN') or hasRole('BRANCH_ADMIN')")
+    public ResponseEntity<Page<UserMembershipDTO.BalanceResponse>> getDebtorsByBranch(
+            @Parameter(description = "ID de la sucursal") @PathVariable Long branchId,
+            @Parameter(description = "Número de página (por defecto: 0)")
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @Parameter(description = "Tamaño de página (por defecto: 20, máximo: 100)")
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 100));
+        return ResponseEntity.ok(userMembershipService.getDebtorsByBranch(branchId, pageable));
+    }
 }
@@ -1,8 +1,9 @@
 package com.backoffice.fitandflex.controller;
 
 import com.backoffice.fitandflex.entity.Video;
-import com.backoffice.fitandflex.service.S3Service;
+import com.backoffice.fitandflex.service.PresignedUrlCache;
 import com.backoffice.fitandflex.service.VideoService;
+import com.backoffice.fitandflex.service.VideoStreamingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,21 +11,24 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
-import org.springframework.context.annotation.Profile;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.InputStream;
+import java.net.URI;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -32,29 +36,36 @@ import java.util.Map;
 @RequiredArgsConstructor
 @Slf4j
 @Tag(name = "Videos", description = "Endpoints para gestión de videos (BD + S3)")
-@Profile("!test")
-@ConditionalOnExpression("!'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty()")
+@ConditionalOnExpression("'${app.video.storage.type:s3}' == 'local' || (!'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty())")
 public class VideoController {
 
     private final VideoService videoService;
-    private final S3Service s3Service; // Used for streaming if necessary
+    private final PresignedUrlCache presignedUrlCache;
+    private final VideoStreamingService videoStreamingService;
 
-    @Operation(summary = "Listar videos", description = "Obtiene una lista de todos los videos registrados en la base de datos con sus URLs presignadas")
+    @Operation(summary = "Listar videos", description = "Obtiene una página de los videos registrados en la base de datos con sus URLs presignadas")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de videos obtenida exitosamente", content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "500", description = "Error al listar los videos", content = @Content(mediaType = "application/json"))
     })
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllVideos() {
+    public ResponseEntity<Map<String, Object>> getAllVideos(
+            @Parameter(description = "Número de página (por defecto: 0)", required = false) @RequestParam(value = "page", defaultValue = "0") int page,
+            @Parameter(description = "Tamaño de página (por defecto: 20, máximo: 100)", required = false) @RequestParam(value = "size", defaultValue = "20") int size) {
         try {
-            log.info("Solicitud de listado de videos");
+            log.info("Solicitud de listado de videos - página: {}, tamaño: {}", page, size);
 
-            List<Map<String, Object>> videos = videoService.getAllVideos();
+            Page<Map<String, Object>> videos = videoService.getVideos(
+                    PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), 100)));
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("videos", videos);
-            response.put("count", videos.size());
+            response.put("videos", videos.getContent());
+            response.put("count", videos.getNumberOfElements());
+            response.put("page", videos.getNumber());
+            response.put("size", videos.getSize());
+            response.put("totalElements", videos.getTotalElements());
+            response.put("totalPages", videos.getTotalPages());
 
             return ResponseEntity.ok(response);
 
@@ -107,6 +118,50 @@ public class VideoController {
         }
     }
 
+    @Operation(summary = "Subir video por streaming", description = "Sube un video enviando el archivo como cuerpo binario de la petición (Content-Type del video). "
+            + "El cuerpo se transfiere al almacenamiento (S3 por partes o archivo local) sin almacenarse en disco ni completo en memoria; los metadatos se guardan solo si la subida se completa")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Video subido exitosamente", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Map.class))),
+            @ApiResponse(responseCode = "400", description = "Archivo inválido o tamaño excedido", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Error al subir el video", content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/upload/stream")
+    public ResponseEntity<Map<String, Object>> uploadVideoStream(
+            HttpServletRequest request,
+            @Parameter(description = "Título del video", required = true) @RequestParam("title") String title,
+            @Parameter(description = "Descripción del video", required = false) @RequestParam(value = "description", required = false) String description,
+            @Parameter(description = "Nombre original del archivo", required = false) @RequestParam(value = "fileName", required = false) String fileName) {
+        try {
+            long declaredLength = request.getContentLengthLong();
+            log.info("Intento de subir video por streaming: '{}' ({} bytes declarados)", title, declaredLength);
+
+            Video video = videoService.uploadVideoStream(request.getInputStream(), request.getContentType(),
+                    fileName, declaredLength, title, description);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Video subido exitosamente");
+            response.put("video", video);
+
+            log.info("Video subido exitosamente con ID: {}", video.getId());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Error de validación al subir video: {}", e.getMessage());
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+
+        } catch (Exception e) {
+            log.error("Error al subir video: {}", e.getMessage(), e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", "Error al subir el video: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     @Operation(summary = "Actualizar video", description = "Actualiza el título y/o descripción de un video")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Video actualizado exitosamente", content = @Content(mediaType = "application/json")),
@@ -184,23 +239,76 @@ public class VideoController {
         }
     }
 
-    @Operation(summary = "Stream Video", description = "Obtiene el stream del video por ID")
+    @Operation(summary = "Stream Video", description = "Obtiene el stream del video por ID. Soporta Range / If-Range / ETag " +
+            "(206 Partial Content) para que el reproductor descargue solo los bytes necesarios al adelantar. " +
+            "Con mode=redirect responde 302 a la URL presignada de S3 (con almacenamiento local se sirve en modo proxy).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Video completo"),
+            @ApiResponse(responseCode = "206", description = "Rango de bytes solicitado"),
+            @ApiResponse(responseCode = "302", description = "Redirección a la URL presignada (modo redirect)"),
+            @ApiResponse(responseCode = "304", description = "El cliente ya tiene esta versión (If-None-Match)"),
+            @ApiResponse(responseCode = "404", description = "Video no encontrado"),
+            @ApiResponse(responseCode = "416", description = "Rango no satisfacible")
+    })
     @GetMapping("/{id}/stream")
-    public ResponseEntity<InputStreamResource> streamVideo(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> streamVideo(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @Parameter(description = "Modo de entrega: proxy (stream con rangos) o redirect (302 a URL presignada)")
+            @RequestParam(value = "mode", required = false) String mode) {
         try {
             Video video = videoService.getVideoById(id);
-            InputStream videoStream = s3Service.getVideo(video.getS3Key());
-            InputStreamResource resource = new InputStreamResource(videoStream);
+
+            if (videoStreamingService.isRedirectMode(mode)) {
+                // Sin URLs firmadas (almacenamiento local) se sirve en modo proxy
+                String presignedUrl = presignedUrlCache.getUrl(video.getS3Key());
+                if (presignedUrl != null) {
+                    return ResponseEntity.status(HttpStatus.FOUND)
+                            .location(URI.create(presignedUrl))
+                            .cacheControl(CacheControl.noStore())
+                            .build();
+                }
+            }
+
+            long size = videoStreamingService.resolveSize(video);
+            String etag = videoStreamingService.etag(video, size);
+
+            if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(
                     MediaType.parseMediaType(video.getContentType() != null ? video.getContentType() : "video/mp4"));
-            headers.setContentDispositionFormData("inline", video.getFileName()); // inline para streaming
+            headers.setContentDisposition(ContentDisposition.inline().filename(video.getFileName()).build()); // inline para streaming
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.setETag(etag);
+
+            // If-Range: solo se respeta el rango si el cliente tiene la misma versión
+            VideoStreamingService.ByteRange byteRange = null;
+            if (range != null && (ifRange == null || ifRange.trim().equals(etag))) {
+                byteRange = videoStreamingService.parseRange(range, size);
+            }
+
+            if (byteRange == null) {
+                headers.setContentLength(size);
+                return ResponseEntity.ok()
+                        .headers(headers)
+                        .body(videoStreamingService.openStream(video, VideoStreamingService.ByteRange.full(size)));
+            }
 
-            return ResponseEntity.ok()
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + byteRange.start() + "-" + byteRange.end() + "/" + size);
+            headers.setContentLength(byteRange.length());
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
                     .headers(headers)
-                    .body(resource);
+                    .body(videoStreamingService.openStream(video, byteRange));
 
+        } catch (VideoStreamingService.RangeNotSatisfiableException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + e.getSize())
+                    .build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -298,11 +298,34 @@ public class ClassDTO {
         }
         
         public static Response fromEntity(Class clazz, java.util.Collection<com.backoffice.fitandflex.entity.ClassSchedulePattern> patterns, Integer subscriptionCount) {
-            return fromEntity(clazz, patterns, subscriptionCount, null);
+            return fromEntity(clazz, patterns, subscriptionCount,
+                    (java.util.function.ToIntFunction<com.backoffice.fitandflex.entity.ClassSchedulePattern>) null);
         }
         
         public static Response fromEntity(Class clazz, java.util.Collection<com.backoffice.fitandflex.entity.ClassSchedulePattern> patterns, Integer subscriptionCount, 
                                          com.backoffice.fitandflex.repository.ClassSubscriptionRepository subscriptionRepository) {
+            // Conteo por horario consultando la BD (una consulta por patrón)
+            java.util.function.ToIntFunction<com.backoffice.fitandflex.entity.ClassSchedulePattern> timeRangeCounter = null;
+            if (subscriptionRepository != null && clazz.getId() != null) {
+                timeRangeCounter = pattern -> {
+                    Long count = subscriptionRepository.countActiveSubscriptionsByClassDayAndTimeRange(
+                        clazz.getId(),
+                        pattern.getDayOfWeek(),
+                        pattern.getStartTime(),
+                        pattern.getEndTime()
+                    );
+                    return count != null ? count.intValue() : 0;
+                };
+            }
+            return fromEntity(clazz, patterns, subscriptionCount, timeRangeCounter);
+        }
+        
+        /**
+         * Construye la respuesta usando una función que resuelve el conteo de suscripciones de cada patrón.
+         * Permite alimentar los conteos desde mapas precargados en memoria (sin consultas por patrón).
+         */
+        public static Response fromEntity(Class clazz, java.util.Collection<com.backoffice.fitandflex.entity.ClassSchedulePattern> patterns, Integer subscriptionCount, 
+                                         java.util.function.ToIntFunction<com.backoffice.fitandflex.entity.ClassSchedulePattern> timeRangeCounter) {
             // Convertir patrones de horarios a formato DaySchedule
             List<DaySchedule> daySchedules = null;
             
@@ -329,17 +352,7 @@ public class ClassDTO {
                                     .endTime(pattern.getEndTime());
                                 
                                 // Calcular conteo de suscripciones para este horario específico y día de la semana
-                                if (subscriptionRepository != null && clazz.getId() != null) {
-                                    Long count = subscriptionRepository.countActiveSubscriptionsByClassDayAndTimeRange(
-                                        clazz.getId(),
-                                        entry.getKey(), // dayOfWeek del patrón
-                                        pattern.getStartTime(),
-                                        pattern.getEndTime()
-                                    );
-                                    builder.subscriptionCount(count != null ? count.intValue() : 0);
-                                } else {
-                                    builder.subscriptionCount(0);
-                                }
+                                builder.subscriptionCount(timeRangeCounter != null ? timeRangeCounter.applyAsInt(pattern) : 0);
                                 
                                 return builder.build();
                             })
@@ -552,4 +565,83 @@ public class ClassDTO {
                     .build();
         }
     }
+
+    /**
+     * DTO para inscribir a un usuario en los horarios de una clase durante un período
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @io.swagger.v3.oas.annotations.media.Schema(description = "Inscripción por período: se crea una suscripción por cada fecha del período en que la clase tiene un horario que cumple la regla.", example = """
+            {
+              "userId": 1,
+              "startDate": "2025-11-03",
+              "endDate": "2026-01-31",
+              "daysOfWeek": [1, 3],
+              "startTime": "07:00:00"
+            }
+            """)
+    public static class TermEnrollmentRequest {
+        @NotNull(message = "El ID del usuario es obligatorio")
+        @io.swagger.v3.oas.annotations.media.Schema(description = "ID del usuario que se inscribe", example = "1")
+        private Long userId;
+
+        @NotNull(message = "La fecha de inicio es obligatoria")
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Primer día del período (formato yyyy-MM-dd)", example = "2025-11-03")
+        private java.time.LocalDate startDate;
+
+        @NotNull(message = "La fecha de fin es obligatoria")
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Último día del período, inclusive (formato yyyy-MM-dd)", example = "2026-01-31")
+        private java.time.LocalDate endDate;
+
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Días de la semana (1=Lunes ... 7=Domingo). Si se omite, todos los días con horario", example = "[1, 3]")
+        private List<@Min(value = 1, message = "El día de la semana debe estar entre 1 y 7") @Max(value = 7, message = "El día de la semana debe estar entre 1 y 7") Integer> daysOfWeek;
+
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Hora de inicio del horario (formato HH:mm:ss). Si se omite, todos los horarios del día", example = "07:00:00")
+        private LocalTime startTime;
+
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Hora de fin del horario (formato HH:mm:ss). Si se omite, cualquiera", example = "08:00:00")
+        private LocalTime endTime;
+    }
+
+    /**
+     * Horario de una clase en una fecha
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class TermSlot {
+        private java.time.LocalDate date;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Día de la semana (1=Lunes ... 7=Domingo)", example = "1")
+        private Integer dayOfWeek;
+        private LocalTime startTime;
+        private LocalTime endTime;
+    }
+
+    /**
+     * DTO para respuesta de la inscripción por período
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class TermEnrollmentResponse {
+        private Long userId;
+        private Long classId;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Horarios del período que cumplen la regla", example = "26")
+        private Integer requestedSlots;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Suscripciones creadas o reactivadas")
+        private List<SubscriptionResponse> subscriptions;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Horarios en los que el usuario ya estaba suscrito")
+        private List<TermSlot> alreadySubscribed;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Horarios sin cupo, en los que no se inscribió")
+        private List<TermSlot> full;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Horarios sin clases disponibles en la membresía del usuario, en los que no se inscribió")
+        private List<TermSlot> noCredits;
+    }
 }
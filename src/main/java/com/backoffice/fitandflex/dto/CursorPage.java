@@ -0,0 +1,42 @@
+package com.backoffice.fitandflex.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página obtenida con paginación por cursor.
+ * totalElements solo se informa si se pidió (includeTotal=true); contarlo cuesta tanto como recorrer
+ * la tabla completa.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+    private final Long totalElements;
+
+    /**
+     * Construir la página a partir de las filas leídas (se leen size + 1 para saber si hay más)
+     * @param rows Filas leídas, como máximo size + 1
+     * @param size Tamaño de página solicitado
+     * @param cursorOf Cursor que apunta después de una fila
+     * @param mapper Conversión de la fila al DTO de respuesta
+     * @param totalElements Total de elementos, o null si no se pidió
+     */
+    public static <E, T> CursorPage<T> from(List<E> rows, int size, Function<E, String> cursorOf,
+                                            Function<E, T> mapper, Long totalElements) {
+        boolean hasNext = rows.size() > size;
+        List<E> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(pageRows.get(pageRows.size() - 1)) : null;
+        List<T> content = pageRows.stream().map(mapper).toList();
+        return new CursorPage<>(content, size, hasNext, nextCursor, totalElements);
+    }
+}
@@ -0,0 +1,78 @@
+package com.backoffice.fitandflex.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Petición de paginación por cursor (keyset).
+ * El cursor es opaco para el cliente: codifica la clave de orden (fecha, id) del último elemento
+ * de la página anterior. Sin cursor se obtiene la primera página.
+ * Se resuelve desde los parámetros cursor, size e includeTotal (ver PaginationConfig).
+ */
+@Getter
+public class CursorPageRequest {
+
+    private final Instant afterTimestamp;
+    private final Long afterId;
+    private final int size;
+    private final boolean includeTotal;
+
+    public CursorPageRequest(Instant afterTimestamp, Long afterId, int size, boolean includeTotal) {
+        this.afterTimestamp = afterTimestamp;
+        this.afterId = afterId;
+        this.size = size;
+        this.includeTotal = includeTotal;
+    }
+
+    /**
+     * Crear la petición a partir del cursor recibido
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public static CursorPageRequest of(String cursor, int size, boolean includeTotal) {
+        if (cursor == null || cursor.isBlank()) {
+            return new CursorPageRequest(null, null, size, includeTotal);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            Instant timestamp = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new CursorPageRequest(timestamp, Long.parseLong(parts[2]), size, includeTotal);
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    /**
+     * Codificar el cursor que apunta después del elemento indicado
+     */
+    public static String encode(Instant timestamp, Long id) {
+        String raw = timestamp.getEpochSecond() + ":" + timestamp.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Codificar el cursor para claves LocalDateTime (se interpretan en UTC solo a efectos de codificación)
+     */
+    public static String encode(LocalDateTime timestamp, Long id) {
+        return encode(timestamp.toInstant(ZoneOffset.UTC), id);
+    }
+
+    public boolean isFirstPage() {
+        return afterTimestamp == null;
+    }
+
+    /**
+     * Fecha del cursor como LocalDateTime (inversa de {@link #encode(LocalDateTime, Long)})
+     */
+    public LocalDateTime getAfterLocalDateTime() {
+        return afterTimestamp != null ? LocalDateTime.ofInstant(afterTimestamp, ZoneOffset.UTC) : null;
+    }
+}
@@ -47,6 +47,12 @@ public class ReservationDTO {
             example = "1"
         )
         private Long scheduleId;
+
+        @io.swagger.v3.oas.annotations.media.Schema(
+            description = "Si el horario está lleno, dejar la reserva en lista de espera (por defecto true). Con false se rechaza la reserva",
+            example = "true"
+        )
+        private Boolean joinWaitlist;
     }
 
     /**
@@ -68,7 +74,7 @@ public class ReservationDTO {
         @io.swagger.v3.oas.annotations.media.Schema(
             description = "Nuevo estado de la reserva",
             example = "CANCELED",
-            allowableValues = {"ACTIVE", "CANCELED", "ATTENDED", "NO_SHOW"}
+            allowableValues = {"ACTIVE", "WAITLISTED", "CANCELED", "ATTENDED", "NO_SHOW"}
         )
         private ReservationStatus status;
     }
@@ -110,6 +116,11 @@ public class ReservationDTO {
         private LocalDateTime endTime;
         private LocalDateTime reservationDate;
         private ReservationStatus status;
+        @io.swagger.v3.oas.annotations.media.Schema(
+            description = "Posición en la lista de espera (solo al crear una reserva en estado WAITLISTED)",
+            example = "3"
+        )
+        private Integer waitlistPosition;
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
     }
@@ -141,6 +152,98 @@ public class ReservationDTO {
         private ReservationStatus status;
     }
 
+    /**
+     * Conteos de reservas por estado y tasas de asistencia
+     * Las tasas se calculan sobre las reservas resueltas (ATTENDED + NO_SHOW), en porcentaje
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @io.swagger.v3.oas.annotations.media.Schema(
+        description = "Conteos de reservas por estado con tasas de asistencia y no asistencia",
+        example = """
+        {
+          "total": 120,
+          "active": 30,
+          "waitlisted": 4,
+          "canceled": 16,
+          "attended": 62,
+          "noShow": 8,
+          "attendanceRate": 88.57,
+          "noShowRate": 11.43
+        }
+        """
+    )
+    public static class StatusStats {
+        private long total;
+        private long active;
+        private long waitlisted;
+        private long canceled;
+        private long attended;
+        private long noShow;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Porcentaje de asistencia sobre reservas resueltas (null si no hay)", example = "88.57")
+        private Double attendanceRate;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Porcentaje de no asistencia sobre reservas resueltas (null si no hay)", example = "11.43")
+        private Double noShowRate;
+
+        /**
+         * Construir las estadísticas a partir de los conteos por estado
+         */
+        public static StatusStats fromCounts(java.util.Map<ReservationStatus, Long> counts) {
+            long attended = counts.getOrDefault(ReservationStatus.ATTENDED, 0L);
+            long noShow = counts.getOrDefault(ReservationStatus.NO_SHOW, 0L);
+            long resolved = attended + noShow;
+            return StatusStats.builder()
+                    .total(counts.values().stream().mapToLong(Long::longValue).sum())
+                    .active(counts.getOrDefault(ReservationStatus.ACTIVE, 0L))
+                    .waitlisted(counts.getOrDefault(ReservationStatus.WAITLISTED, 0L))
+                    .canceled(counts.getOrDefault(ReservationStatus.CANCELED, 0L))
+                    .attended(attended)
+                    .noShow(noShow)
+                    .attendanceRate(resolved > 0 ? percentage(attended, resolved) : null)
+                    .noShowRate(resolved > 0 ? percentage(noShow, resolved) : null)
+                    .build();
+        }
+
+        private static double percentage(long part, long whole) {
+            return Math.round(part * 10000.0 / whole) / 100.0;
+        }
+    }
+
+    /**
+     * Estadísticas de reservas de una clase
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @io.swagger.v3.oas.annotations.media.Schema(description = "Estadísticas de reservas de una clase")
+    public static class ClassStats {
+        private Long classId;
+        private String className;
+        private StatusStats stats;
+    }
+
+    /**
+     * Response de estadísticas de reservas con filtros aplicados, totales y detalle por clase
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @io.swagger.v3.oas.annotations.media.Schema(description = "Estadísticas de reservas por estado, totales y por clase")
+    public static class StatsResponse {
+        private Long branchId;
+        private Long classId;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Fecha inicial del horario reservado (incluida)", example = "2025-01-01")
+        private java.time.LocalDate from;
+        @io.swagger.v3.oas.annotations.media.Schema(description = "Fecha final del horario reservado (incluida)", example = "2025-01-31")
+        private java.time.LocalDate to;
+        private StatusStats totals;
+        private java.util.List<ClassStats> classes;
+    }
+
     /**
      * Método para convertir entidad a Response
      */
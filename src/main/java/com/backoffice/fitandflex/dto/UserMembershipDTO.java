@@ -153,6 +153,9 @@ public class UserMembershipDTO {
         @Schema(description = "Si está completamente pagada", example = "false")
         private Boolean fullyPaid;
 
+        @Schema(description = "Clases disponibles (null = ilimitadas)", example = "8")
+        private Integer remainingClasses;
+
         public static Response fromEntity(UserMembership membership) {
             return Response.builder()
                     .id(membership.getId())
@@ -181,6 +184,7 @@ public class UserMembershipDTO {
                     .paidAmount(membership.getPaidAmount())
                     .pendingAmount(membership.getPendingAmount())
                     .fullyPaid(membership.isFullyPaid())
+                    .remainingClasses(membership.getRemainingClasses())
                     .build();
         }
     }
@@ -272,4 +276,134 @@ public class UserMembershipDTO {
         @Schema(description = "ID de transacción (opcional)", example = "TXN123456")
         private String transactionId;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Saldo de membresías de un usuario (montos en unidades mínimas, p. ej. centavos)")
+    public static class BalanceResponse {
+
+        @Schema(description = "ID del usuario", example = "1")
+        private Long userId;
+
+        @Schema(description = "Nombre del usuario (solo en el listado de deudores)", example = "Juan Pérez")
+        private String userName;
+
+        @Schema(description = "Email del usuario (solo en el listado de deudores)", example = "juan@example.com")
+        private String userEmail;
+
+        @Schema(description = "Total de las membresías en centavos", example = "15000")
+        private long totalDueMinor;
+
+        @Schema(description = "Total abonado en centavos", example = "10000")
+        private long paidMinor;
+
+        @Schema(description = "Saldo pendiente en centavos", example = "5000")
+        private long pendingMinor;
+
+        @Schema(description = "Saldo pendiente", example = "50.00")
+        private BigDecimal pendingAmount;
+
+        @Schema(description = "Membresías con saldo pendiente", example = "1")
+        private int membershipsWithPendingPayment;
+
+        @Schema(description = "Si el usuario tiene pagos pendientes", example = "true")
+        private boolean hasPendingPayments;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Fila de una asignación masiva de membresías (userId o userEmail)")
+    public static class BulkAssignRow {
+
+        @Schema(description = "ID del usuario", example = "1")
+        private Long userId;
+
+        @Schema(description = "Email del usuario (alternativa a userId)", example = "juan@empresa.com")
+        private String userEmail;
+
+        @Schema(description = "ID del producto (membresía)", example = "1", required = true)
+        private Long productId;
+
+        @Schema(description = "Fecha de inicio de la membresía", example = "2024-01-15T00:00:00", required = true)
+        private LocalDateTime startDate;
+
+        @Schema(description = "Fecha de fin de la membresía", example = "2024-02-15T23:59:59", required = true)
+        private LocalDateTime endDate;
+
+        @Schema(description = "Monto inicial pagado (abono)", example = "50.00")
+        private BigDecimal initialPayment;
+
+        @Schema(description = "Método de pago del abono inicial (por defecto: CASH)", example = "TRANSFER")
+        private com.backoffice.fitandflex.entity.Payment.PaymentMethod paymentMethod;
+
+        @Schema(description = "Notas adicionales", example = "Convenio empresa ACME")
+        private String notes;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Request de asignación masiva de membresías")
+    public static class BulkAssignRequest {
+
+        @Schema(description = "Asignaciones a registrar", required = true)
+        private java.util.List<BulkAssignRow> rows;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Resultado de una fila de la asignación masiva")
+    public static class BulkRowResult {
+
+        @Schema(description = "Número de fila (1 = primera asignación)", example = "1")
+        private int row;
+
+        @Schema(description = "Resultado: CREATED, VALID (simulación) o REJECTED", example = "CREATED")
+        private String status;
+
+        @Schema(description = "ID del usuario", example = "1")
+        private Long userId;
+
+        @Schema(description = "ID del producto", example = "1")
+        private Long productId;
+
+        @Schema(description = "ID de la membresía creada", example = "120")
+        private Long membershipId;
+
+        @Schema(description = "ID del pago del abono inicial, si lo hubo", example = "340")
+        private Long paymentId;
+
+        @Schema(description = "Motivo del rechazo", example = "Usuario no encontrado: juan@empresa.com")
+        private String message;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Resultado de la asignación masiva de membresías")
+    public static class BulkAssignResponse {
+
+        @Schema(description = "Si solo se validó sin registrar nada", example = "false")
+        private boolean dryRun;
+
+        @Schema(description = "Filas recibidas", example = "500")
+        private int total;
+
+        @Schema(description = "Filas registradas (o válidas en simulación)", example = "497")
+        private int accepted;
+
+        @Schema(description = "Filas rechazadas", example = "3")
+        private int rejected;
+
+        @Schema(description = "Resultado por fila")
+        private java.util.List<BulkRowResult> results;
+    }
 }
@@ -29,7 +29,8 @@ import java.util.Set;
 public class Branch {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "branches_id_seq")
+    @SequenceGenerator(name = "branches_id_seq", sequenceName = "branches_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -17,7 +17,8 @@ import java.util.Set;
 public class Class {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "classes_id_seq")
+    @SequenceGenerator(name = "classes_id_seq", sequenceName = "classes_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
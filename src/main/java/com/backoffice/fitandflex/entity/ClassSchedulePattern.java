@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class ClassSchedulePattern {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "class_schedule_patterns_id_seq")
+    @SequenceGenerator(name = "class_schedule_patterns_id_seq", sequenceName = "class_schedule_patterns_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
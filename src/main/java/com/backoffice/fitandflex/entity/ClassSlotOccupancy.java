@@ -0,0 +1,53 @@
+package com.backoffice.fitandflex.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Contador de ocupación de un horario de clase para una fecha específica.
+ * Se usa como guardia de capacidad a nivel de BD: las admisiones incrementan el contador
+ * con una actualización condicional (occupied < capacidad), lo que serializa solo las
+ * suscripciones del mismo horario.
+ */
+@Entity
+@Table(
+        name = "class_slot_occupancy",
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        name = "uk_class_slot_occupancy_slot",
+                        columnNames = {"class_id", "slot_date", "start_time", "end_time"}
+                )
+        }
+)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class ClassSlotOccupancy {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "class_id", nullable = false)
+    private Class clazz;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer occupied = 0; // suscripciones activas en este horario
+}
@@ -23,7 +23,8 @@ import java.time.LocalTime;
                 @Index(name = "idx_class_subscription_user", columnList = "user_id"),
                 @Index(name = "idx_class_subscription_class", columnList = "class_id"),
                 @Index(name = "idx_class_subscription_active", columnList = "active"),
-                @Index(name = "idx_class_subscription_day", columnList = "day_of_week")
+                @Index(name = "idx_class_subscription_day", columnList = "day_of_week"),
+                @Index(name = "idx_class_subscription_created_id", columnList = "created_at, id")
         }
 )
 @Data
@@ -34,7 +35,8 @@ import java.time.LocalTime;
 public class ClassSubscription {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "class_subscriptions_id_seq")
+    @SequenceGenerator(name = "class_subscriptions_id_seq", sequenceName = "class_subscriptions_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
@@ -66,6 +68,9 @@ public class ClassSubscription {
     @Builder.Default
     private Boolean active = true;
 
+    @Column(name = "membership_id")
+    private Long membershipId; // Membresía a la que se descontó la clase (null si no consumió créditos)
+
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
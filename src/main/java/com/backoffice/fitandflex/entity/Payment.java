@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
                 @Index(name = "idx_payment_reservation", columnList = "reservation_id"),
                 @Index(name = "idx_payment_status", columnList = "status"),
                 @Index(name = "idx_payment_date", columnList = "payment_date"),
-                @Index(name = "idx_payment_transaction_id", columnList = "transaction_id")
+                @Index(name = "idx_payment_transaction_id", columnList = "transaction_id"),
+                @Index(name = "idx_payment_date_id", columnList = "payment_date, id")
         }
 )
 @Getter
@@ -30,7 +31,8 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_id_seq")
+    @SequenceGenerator(name = "payments_id_seq", sequenceName = "payments_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -90,6 +92,13 @@ public class Payment {
     @JoinColumn(name = "reservation_id", foreignKey = @ForeignKey(name = "fk_payment_reservation"))
     private Reservation reservation;
 
+    /**
+     * Sucursal del usuario al registrar el pago: fija la fila de payment_daily_stats del pago aunque el
+     * usuario cambie de sucursal después (null = usuario sin sucursal)
+     */
+    @Column(name = "branch_id", updatable = false)
+    private Long branchId;
+
     /**
      * Timestamps
      */
@@ -106,6 +115,9 @@ public class Payment {
         if (this.paymentDate == null) {
             this.paymentDate = LocalDateTime.now();
         }
+        if (this.branchId == null && this.user != null && this.user.getBranch() != null) {
+            this.branchId = this.user.getBranch().getId();
+        }
     }
 
     @PreUpdate
@@ -0,0 +1,71 @@
+package com.backoffice.fitandflex.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Acumulado diario de pagos por sucursal, estado y método de pago.
+ * Se mantiene de forma incremental al crear o modificar pagos y se puede reconstruir desde la tabla
+ * de pagos; las estadísticas se leen de aquí en lugar de agregar la tabla de pagos en cada consulta.
+ * La sucursal es la del usuario al registrar el pago (0 si el usuario no tiene sucursal) y el día es
+ * el de la fecha de pago; los reembolsos se acumulan en el día del pago original.
+ */
+@Entity
+@Table(
+        name = "payment_daily_stats",
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        name = "uk_payment_daily_stats_key",
+                        columnNames = {"branch_id", "day", "status", "method"}
+                )
+        },
+        indexes = {
+                @Index(name = "idx_payment_daily_stats_day", columnList = "day")
+        }
+)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class PaymentDailyStats {
+
+    /**
+     * Valor de branch_id para pagos de usuarios sin sucursal
+     */
+    public static final long NO_BRANCH = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @Column(name = "branch_id", nullable = false)
+    private Long branchId;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Payment.PaymentStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Payment.PaymentMethod method;
+
+    @Column(name = "payment_count", nullable = false)
+    @Builder.Default
+    private Long paymentCount = 0L;
+
+    @Column(name = "amount_sum", nullable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal amountSum = BigDecimal.ZERO;
+
+    @Column(name = "refund_sum", nullable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal refundSum = BigDecimal.ZERO;
+}
@@ -12,7 +12,10 @@ import java.time.LocalDateTime;
                 @Index(name = "idx_reservation_user", columnList = "user_id"),
                 @Index(name = "idx_reservation_schedule", columnList = "schedule_id"),
                 @Index(name = "idx_reservation_status", columnList = "status"),
-                @Index(name = "idx_reservation_date", columnList = "reservationDate")
+                @Index(name = "idx_reservation_date", columnList = "reservationDate"),
+                @Index(name = "idx_reservation_user_status", columnList = "user_id, status"),
+                @Index(name = "idx_reservation_schedule_status", columnList = "schedule_id, status, created_at, id"),
+                @Index(name = "idx_reservation_created_id", columnList = "created_at, id")
         }
 )
 @Data
@@ -23,7 +26,8 @@ import java.time.LocalDateTime;
 public class Reservation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservations_id_seq")
+    @SequenceGenerator(name = "reservations_id_seq", sequenceName = "reservations_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
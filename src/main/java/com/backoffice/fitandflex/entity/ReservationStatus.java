@@ -2,6 +2,7 @@ package com.backoffice.fitandflex.entity;
 
 public enum ReservationStatus {
     ACTIVE,    // Reserva activa
+    WAITLISTED, // En lista de espera (horario lleno), se promueve a ACTIVE al liberarse un cupo
     CANCELED,  // Cancelada por el usuario o administrador
     ATTENDED,  // El usuario asistió a la clase
     NO_SHOW    // El usuario no asistió
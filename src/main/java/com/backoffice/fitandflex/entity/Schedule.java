@@ -24,7 +24,8 @@ import java.util.Set;
 public class Schedule {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "schedules_id_seq")
+    @SequenceGenerator(name = "schedules_id_seq", sequenceName = "schedules_id_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
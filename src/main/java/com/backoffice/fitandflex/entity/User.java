@@ -18,7 +18,8 @@ import java.time.LocalDate;
         indexes = {
                 @Index(name = "idx_user_email", columnList = "email"),
                 @Index(name = "idx_user_role", columnList = "role_id"),
-                @Index(name = "idx_user_branch", columnList = "branch_id")
+                @Index(name = "idx_user_branch", columnList = "branch_id"),
+                @Index(name = "idx_user_created_id", columnList = "created_at, id")
         }
 )
 @Getter
@@ -30,7 +31,8 @@ import java.time.LocalDate;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     /**
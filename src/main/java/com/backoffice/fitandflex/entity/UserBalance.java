@@ -0,0 +1,55 @@
+package com.backoffice.fitandflex.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * UserBalance entity: saldo de membresías de un usuario, en unidades mínimas de la moneda (centavos).
+ * Se mantiene de forma incremental al asignar, abonar o eliminar membresías, así el saldo de un
+ * usuario se consulta con una sola lectura por clave primaria.
+ */
+@Entity
+@Table(name = "user_balances")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(onlyExplicitlyIncluded = true)
+public class UserBalance {
+
+    @Id
+    @Column(name = "user_id")
+    @ToString.Include
+    private Long userId;
+
+    /**
+     * Suma del precio de todas las membresías del usuario
+     */
+    @Column(name = "total_due_minor", nullable = false)
+    @Builder.Default
+    private Long totalDueMinor = 0L;
+
+    /**
+     * Suma de los abonos registrados
+     */
+    @Column(name = "paid_minor", nullable = false)
+    @Builder.Default
+    private Long paidMinor = 0L;
+
+    /**
+     * Suma de los saldos pendientes de cada membresía
+     */
+    @Column(name = "pending_minor", nullable = false)
+    @Builder.Default
+    private Long pendingMinor = 0L;
+
+    @Column(name = "memberships_with_pending", nullable = false)
+    @Builder.Default
+    private Integer membershipsWithPending = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -30,7 +30,8 @@ import java.time.LocalDateTime;
 public class UserMembership {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_memberships_id_seq")
+    @SequenceGenerator(name = "user_memberships_id_seq", sequenceName = "user_memberships_id_seq", allocationSize = 50)
     @ToString.Include
     private Long id;
 
@@ -91,6 +92,12 @@ public class UserMembership {
     @Builder.Default
     private BigDecimal paidAmount = BigDecimal.ZERO;
 
+    /**
+     * Clases disponibles (null = ilimitadas): se descuenta una al suscribirse a una clase y se devuelve al cancelar
+     */
+    @Column(name = "remaining_classes")
+    private Integer remainingClasses;
+
     /**
      * Quién asignó la membresía
      */
@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 public class Video {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "videos_id_seq")
+    @SequenceGenerator(name = "videos_id_seq", sequenceName = "videos_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
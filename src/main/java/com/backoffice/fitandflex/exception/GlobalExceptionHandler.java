@@ -164,6 +164,22 @@ public class GlobalExceptionHandler {
                                                 request.getDescription(false).replace("uri=", "")));
         }
 
+        /**
+         * Horario ocupado procesando otras admisiones (409 Conflict) - Custom
+         */
+        @ExceptionHandler(SlotBusyException.class)
+        public ResponseEntity<Map<String, Object>> handleSlotBusy(
+                        SlotBusyException ex, WebRequest request) {
+
+                log.warn("Horario ocupado: {}", ex.getMessage());
+
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                                buildErrorResponse(
+                                                HttpStatus.CONFLICT,
+                                                ex.getMessage(),
+                                                request.getDescription(false).replace("uri=", "")));
+        }
+
         /**
          * Cualquier otra excepción (500 Internal Server Error)
          * En producción NO expone detalles del error
@@ -0,0 +1,11 @@
+package com.backoffice.fitandflex.exception;
+
+/**
+ * Excepción cuando un horario está procesando demasiadas admisiones simultáneas (409)
+ */
+public class SlotBusyException extends RuntimeException {
+
+    public SlotBusyException(String message) {
+        super(message);
+    }
+}
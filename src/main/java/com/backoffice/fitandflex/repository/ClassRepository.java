@@ -3,10 +3,12 @@ package com.backoffice.fitandflex.repository;
 import com.backoffice.fitandflex.entity.Class;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ClassRepository extends JpaRepository<Class, Long> {
@@ -17,10 +19,18 @@ public interface ClassRepository extends JpaRepository<Class, Long> {
     List<Class> findByBranchId(Long branchId);
     
     /**
-     * Buscar clases por sucursal con paginación
+     * Buscar clases por sucursal con paginación, cargando sucursal y creador en la misma consulta
      */
+    @EntityGraph(attributePaths = {"branch", "createdBy", "createdBy.role", "createdBy.branch"})
     Page<Class> findByBranchId(Long branchId, Pageable pageable);
     
+    /**
+     * Listar clases con paginación, cargando sucursal y creador en la misma consulta
+     */
+    @Override
+    @EntityGraph(attributePaths = {"branch", "createdBy", "createdBy.role", "createdBy.branch"})
+    Page<Class> findAll(Pageable pageable);
+    
     /**
      * Buscar clases activas
      */
@@ -67,6 +77,13 @@ public interface ClassRepository extends JpaRepository<Class, Long> {
     @Query("SELECT c FROM Class c WHERE c.branch.id = :branchId AND c.active = true ORDER BY c.name ASC")
     List<Class> findActiveClassesByBranchOrderedByName(@Param("branchId") Long branchId);
     
+    /**
+     * Buscar clases activas por IDs cargando sucursal y creador en la misma consulta
+     */
+    @EntityGraph(attributePaths = {"branch", "createdBy", "createdBy.role", "createdBy.branch"})
+    @Query("SELECT c FROM Class c WHERE c.id IN :ids AND c.active = true")
+    List<Class> findActiveClassesByIdIn(@Param("ids") Collection<Long> ids);
+    
     /**
      * Contar clases activas por sucursal
      */
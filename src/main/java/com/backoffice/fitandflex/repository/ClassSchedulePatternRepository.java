@@ -2,7 +2,10 @@ package com.backoffice.fitandflex.repository;
 
 import com.backoffice.fitandflex.entity.ClassSchedulePattern;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ClassSchedulePatternRepository extends JpaRepository<ClassSchedulePattern, Long> {
@@ -17,6 +20,11 @@ public interface ClassSchedulePatternRepository extends JpaRepository<ClassSched
      */
     List<ClassSchedulePattern> findByClazzIdAndActiveTrue(Long classId);
     
+    /**
+     * Buscar patrones activos de varias clases en una sola consulta
+     */
+    List<ClassSchedulePattern> findByClazzIdInAndActiveTrue(Collection<Long> classIds);
+    
     /**
      * Buscar patrones activos
      */
@@ -27,6 +35,22 @@ public interface ClassSchedulePatternRepository extends JpaRepository<ClassSched
      */
     List<ClassSchedulePattern> findByDayOfWeekAndActiveTrue(Integer dayOfWeek);
     
+    /**
+     * Buscar patrones activos de clases activas para varios días de la semana (filtrando por sucursal si se indica)
+     * Carga la clase, su sucursal y su creador en la misma consulta
+     */
+    @Query("SELECT p FROM ClassSchedulePattern p " +
+           "JOIN FETCH p.clazz c " +
+           "LEFT JOIN FETCH c.branch " +
+           "LEFT JOIN FETCH c.createdBy cb " +
+           "LEFT JOIN FETCH cb.role " +
+           "LEFT JOIN FETCH cb.branch " +
+           "WHERE p.active = true AND c.active = true AND p.dayOfWeek IN :daysOfWeek AND " +
+           "(:branchId IS NULL OR c.branch.id = :branchId)")
+    List<ClassSchedulePattern> findActivePatternsOfActiveClassesByDaysOfWeek(
+            @Param("daysOfWeek") Collection<Integer> daysOfWeek,
+            @Param("branchId") Long branchId);
+    
     /**
      * Eliminar todos los patrones de una clase
      */
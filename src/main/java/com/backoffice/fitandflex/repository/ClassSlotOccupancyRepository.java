@@ -0,0 +1,61 @@
+package com.backoffice.fitandflex.repository;
+
+import com.backoffice.fitandflex.entity.ClassSlotOccupancy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Repository
+public interface ClassSlotOccupancyRepository extends JpaRepository<ClassSlotOccupancy, Long> {
+
+    /**
+     * Crear el contador de un horario con el número actual de suscripciones activas, si no existe
+     * @return 1 si se creó, 0 si ya existía
+     */
+    @Modifying
+    @Query(value = "INSERT INTO class_slot_occupancy (class_id, slot_date, start_time, end_time, occupied) " +
+                   "SELECT :classId, :date, :startTime, :endTime, COUNT(cs.id) FROM class_subscriptions cs " +
+                   "WHERE cs.class_id = :classId AND cs.date = :date AND cs.start_time = :startTime AND " +
+                   "cs.end_time = :endTime AND cs.active = true " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int createIfAbsent(
+            @Param("classId") Long classId,
+            @Param("date") LocalDate date,
+            @Param("startTime") LocalTime startTime,
+            @Param("endTime") LocalTime endTime);
+
+    /**
+     * Incrementar la ocupación solo si está por debajo de la capacidad (actualización atómica condicional)
+     * La fila queda bloqueada hasta el fin de la transacción, serializando las admisiones del mismo horario
+     * @return 1 si se admitió, 0 si el horario está lleno o el contador no existe
+     */
+    @Modifying
+    @Query("UPDATE ClassSlotOccupancy o SET o.occupied = o.occupied + 1 " +
+           "WHERE o.clazz.id = :classId AND o.slotDate = :date AND o.startTime = :startTime AND " +
+           "o.endTime = :endTime AND o.occupied < :capacity")
+    int incrementIfBelowCapacity(
+            @Param("classId") Long classId,
+            @Param("date") LocalDate date,
+            @Param("startTime") LocalTime startTime,
+            @Param("endTime") LocalTime endTime,
+            @Param("capacity") int capacity);
+
+    /**
+     * Decrementar la ocupación de un horario (sin bajar de cero)
+     */
+    @Modifying
+    @Query("UPDATE ClassSlotOccupancy o SET o.occupied = o.occupied - 1 " +
+           "WHERE o.clazz.id = :classId AND o.slotDate = :date AND o.startTime = :startTime AND " +
+           "o.endTime = :endTime AND o.occupied > 0")
+    int decrement(
+            @Param("classId") Long classId,
+            @Param("date") LocalDate date,
+            @Param("startTime") LocalTime startTime,
+            @Param("endTime") LocalTime endTime);
+}
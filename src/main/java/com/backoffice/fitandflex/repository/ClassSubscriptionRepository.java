@@ -12,18 +12,55 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ClassSubscriptionRepository extends JpaRepository<ClassSubscription, Long> {
 
+    /**
+     * Proyección: conteo de suscripciones activas por clase
+     */
+    interface ClassSubscriptionCount {
+        Long getClassId();
+        Long getTotal();
+    }
+
+    /**
+     * Proyección: conteo de suscripciones activas por clase, día de la semana y rango de horas
+     */
+    interface TimeRangeSubscriptionCount {
+        Long getClassId();
+        Integer getDayOfWeek();
+        LocalTime getStartTime();
+        LocalTime getEndTime();
+        Long getTotal();
+    }
+
+    /**
+     * Proyección: conteo de suscripciones activas por clase, fecha y rango de horas
+     */
+    interface DateTimeRangeSubscriptionCount {
+        Long getClassId();
+        LocalDate getSubscriptionDate();
+        LocalTime getStartTime();
+        LocalTime getEndTime();
+        Long getTotal();
+    }
+
     /**
      * Obtener todas las suscripciones activas de un usuario
      */
     List<ClassSubscription> findByUserIdAndActiveTrue(Long userId);
 
+    /**
+     * Obtener las suscripciones (activas o canceladas) de un usuario en una clase dentro de un rango de fechas
+     */
+    List<ClassSubscription> findByUserIdAndClazzIdAndDateBetween(Long userId, Long classId, LocalDate from, LocalDate to);
+
     /**
      * Obtener todas las suscripciones activas de una clase
      */
@@ -154,6 +191,50 @@ public interface ClassSubscriptionRepository extends JpaRepository<ClassSubscrip
     @Query("SELECT COUNT(cs) FROM ClassSubscription cs WHERE cs.clazz.id = :classId AND cs.active = true")
     Long countActiveSubscriptionsByClassId(@Param("classId") Long classId);
 
+    /**
+     * Contar suscripciones activas de varias clases agrupadas por clase (una sola consulta)
+     */
+    @Query("SELECT cs.clazz.id AS classId, COUNT(cs) AS total FROM ClassSubscription cs " +
+           "WHERE cs.clazz.id IN :classIds AND cs.active = true " +
+           "GROUP BY cs.clazz.id")
+    List<ClassSubscriptionCount> countActiveSubscriptionsGroupedByClass(@Param("classIds") Collection<Long> classIds);
+
+    /**
+     * Contar suscripciones activas de varias clases agrupadas por clase, día de la semana y rango de horas
+     */
+    @Query("SELECT cs.clazz.id AS classId, cs.dayOfWeek AS dayOfWeek, cs.startTime AS startTime, " +
+           "cs.endTime AS endTime, COUNT(cs) AS total FROM ClassSubscription cs " +
+           "WHERE cs.clazz.id IN :classIds AND cs.active = true " +
+           "GROUP BY cs.clazz.id, cs.dayOfWeek, cs.startTime, cs.endTime")
+    List<TimeRangeSubscriptionCount> countActiveSubscriptionsGroupedByClassDayAndTimeRange(
+            @Param("classIds") Collection<Long> classIds);
+
+    /**
+     * Contar suscripciones activas en un rango de fechas agrupadas por clase, fecha y rango de horas
+     * Solo considera clases activas (filtrando por sucursal si se indica)
+     */
+    @Query("SELECT cs.clazz.id AS classId, cs.date AS subscriptionDate, cs.startTime AS startTime, " +
+           "cs.endTime AS endTime, COUNT(cs) AS total FROM ClassSubscription cs " +
+           "JOIN cs.clazz c " +
+           "WHERE cs.date BETWEEN :from AND :to AND cs.active = true AND c.active = true AND " +
+           "(:branchId IS NULL OR c.branch.id = :branchId) " +
+           "GROUP BY cs.clazz.id, cs.date, cs.startTime, cs.endTime")
+    List<DateTimeRangeSubscriptionCount> countActiveSubscriptionsByDateRangeGroupedBySlot(
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to,
+            @Param("branchId") Long branchId);
+
+    /**
+     * Contar suscripciones activas de varias clases y fechas agrupadas por clase, fecha y rango de horas
+     */
+    @Query("SELECT cs.clazz.id AS classId, cs.date AS subscriptionDate, cs.startTime AS startTime, " +
+           "cs.endTime AS endTime, COUNT(cs) AS total FROM ClassSubscription cs " +
+           "WHERE cs.clazz.id IN :classIds AND cs.date IN :dates AND cs.active = true " +
+           "GROUP BY cs.clazz.id, cs.date, cs.startTime, cs.endTime")
+    List<DateTimeRangeSubscriptionCount> countActiveSubscriptionsByClassesAndDatesGroupedBySlot(
+            @Param("classIds") Collection<Long> classIds,
+            @Param("dates") Collection<LocalDate> dates);
+
     /**
      * Contar suscripciones activas para un horario específico de una clase y día de la semana
      * Cuenta tanto suscripciones recurrentes como específicas que coinciden con el día y rango de horas
@@ -223,6 +304,27 @@ public interface ClassSubscriptionRepository extends JpaRepository<ClassSubscrip
            "WHERE b.id = :branchId")
     Page<ClassSubscription> findByBranchId(@Param("branchId") Long branchId, Pageable pageable);
 
+    /**
+     * Primera página de suscripciones por sucursal con paginación por cursor (más recientes primero)
+     * El Pageable solo limita filas; no se ejecuta COUNT
+     */
+    @EntityGraph(attributePaths = {"user", "clazz", "clazz.branch"})
+    @Query("SELECT cs FROM ClassSubscription cs WHERE cs.clazz.branch.id = :branchId " +
+           "ORDER BY cs.createdAt DESC, cs.id DESC")
+    List<ClassSubscription> findKeysetFirstByBranchId(@Param("branchId") Long branchId, Pageable limit);
+
+    /**
+     * Página siguiente a la clave (createdAt, id) del cursor
+     */
+    @EntityGraph(attributePaths = {"user", "clazz", "clazz.branch"})
+    @Query("SELECT cs FROM ClassSubscription cs WHERE cs.clazz.branch.id = :branchId " +
+           "AND (cs.createdAt < :createdAt OR (cs.createdAt = :createdAt AND cs.id < :id)) " +
+           "ORDER BY cs.createdAt DESC, cs.id DESC")
+    List<ClassSubscription> findKeysetAfterByBranchId(@Param("branchId") Long branchId,
+                                                      @Param("createdAt") LocalDateTime createdAt,
+                                                      @Param("id") Long id,
+                                                      Pageable limit);
+
     /**
      * Buscar suscripciones activas por sucursal
      */
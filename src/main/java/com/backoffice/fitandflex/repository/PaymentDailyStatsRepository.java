@@ -0,0 +1,113 @@
+package com.backoffice.fitandflex.repository;
+
+import com.backoffice.fitandflex.entity.Payment;
+import com.backoffice.fitandflex.entity.PaymentDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PaymentDailyStatsRepository extends JpaRepository<PaymentDailyStats, Long> {
+
+    /**
+     * Proyección de totales por día y estado
+     */
+    interface DayStatusTotals {
+        LocalDate getDay();
+        Payment.PaymentStatus getStatus();
+        Long getPayments();
+        BigDecimal getAmount();
+        BigDecimal getRefunded();
+    }
+
+    /**
+     * Proyección de totales por estado
+     */
+    interface StatusTotals {
+        Payment.PaymentStatus getStatus();
+        Long getPayments();
+        BigDecimal getAmount();
+        BigDecimal getRefunded();
+    }
+
+    /**
+     * Sumar una variación al acumulado de (sucursal, día, estado, método), creando la fila si no existe
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment_daily_stats (branch_id, day, status, method, payment_count, amount_sum, refund_sum) " +
+                   "VALUES (:branchId, :day, :status, :method, :count, :amount, :refund) " +
+                   "ON CONFLICT (branch_id, day, status, method) DO UPDATE SET " +
+                   "payment_count = payment_daily_stats.payment_count + EXCLUDED.payment_count, " +
+                   "amount_sum = payment_daily_stats.amount_sum + EXCLUDED.amount_sum, " +
+                   "refund_sum = payment_daily_stats.refund_sum + EXCLUDED.refund_sum",
+           nativeQuery = true)
+    int applyDelta(@Param("branchId") Long branchId,
+                   @Param("day") LocalDate day,
+                   @Param("status") String status,
+                   @Param("method") String method,
+                   @Param("count") long count,
+                   @Param("amount") BigDecimal amount,
+                   @Param("refund") BigDecimal refund);
+
+    /**
+     * Totales por estado, con filtros opcionales de sucursal y rango de días (inclusive)
+     */
+    @Query("SELECT s.status AS status, SUM(s.paymentCount) AS payments, SUM(s.amountSum) AS amount, " +
+           "SUM(s.refundSum) AS refunded FROM PaymentDailyStats s " +
+           "WHERE (:branchId IS NULL OR s.branchId = :branchId) " +
+           "AND (:from IS NULL OR s.day >= :from) " +
+           "AND (:to IS NULL OR s.day <= :to) " +
+           "GROUP BY s.status")
+    List<StatusTotals> sumGroupedByStatus(@Param("branchId") Long branchId,
+                                          @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+
+    /**
+     * Totales por día y estado en un rango de días (inclusive), con filtro opcional de sucursal
+     */
+    @Query("SELECT s.day AS day, s.status AS status, SUM(s.paymentCount) AS payments, SUM(s.amountSum) AS amount, " +
+           "SUM(s.refundSum) AS refunded FROM PaymentDailyStats s " +
+           "WHERE (:branchId IS NULL OR s.branchId = :branchId) " +
+           "AND s.day >= :from AND s.day <= :to " +
+           "GROUP BY s.day, s.status ORDER BY s.day")
+    List<DayStatusTotals> sumGroupedByDayAndStatus(@Param("branchId") Long branchId,
+                                                   @Param("from") LocalDate from,
+                                                   @Param("to") LocalDate to);
+
+    /**
+     * Bloquear el acumulado durante una reconstrucción.
+     * Las variaciones concurrentes esperan al commit de la reconstrucción y la reconstrucción espera a
+     * las transacciones que ya aplicaron variaciones, así ningún pago se cuenta dos veces ni se pierde.
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE payment_daily_stats IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    /**
+     * Eliminar el acumulado de un rango de días (inclusive)
+     */
+    @Modifying
+    @Query("DELETE FROM PaymentDailyStats s WHERE s.day >= :from AND s.day <= :to")
+    int deleteByDayRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Recalcular desde la tabla de pagos el acumulado de los pagos con fecha en [from, to)
+     * @return Número de filas de acumulado insertadas
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment_daily_stats (branch_id, day, status, method, payment_count, amount_sum, refund_sum) " +
+                   "SELECT COALESCE(p.branch_id, 0), CAST(p.payment_date AS DATE), p.status, p.payment_method, " +
+                   "COUNT(*), SUM(p.amount), COALESCE(SUM(p.refund_amount), 0) " +
+                   "FROM payments p " +
+                   "WHERE p.payment_date >= :from AND p.payment_date < :to " +
+                   "GROUP BY COALESCE(p.branch_id, 0), CAST(p.payment_date AS DATE), p.status, p.payment_method",
+           nativeQuery = true)
+    int insertAggregatedFromPayments(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
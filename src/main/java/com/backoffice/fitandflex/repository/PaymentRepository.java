@@ -3,6 +3,7 @@ package com.backoffice.fitandflex.repository;
 import com.backoffice.fitandflex.entity.Payment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -111,6 +112,27 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p JOIN p.user u WHERE u.branch.id = :branchId")
     Page<Payment> findByBranchId(@Param("branchId") Long branchId, Pageable pageable);
 
+    /**
+     * Primera página de pagos por sucursal con paginación por cursor (más recientes primero)
+     * El Pageable solo limita filas; no se ejecuta COUNT
+     */
+    @EntityGraph(attributePaths = {"user"})
+    @Query("SELECT p FROM Payment p WHERE p.user.branch.id = :branchId " +
+           "ORDER BY p.paymentDate DESC, p.id DESC")
+    List<Payment> findKeysetFirstByBranchId(@Param("branchId") Long branchId, Pageable limit);
+
+    /**
+     * Página siguiente a la clave (paymentDate, id) del cursor
+     */
+    @EntityGraph(attributePaths = {"user"})
+    @Query("SELECT p FROM Payment p WHERE p.user.branch.id = :branchId " +
+           "AND (p.paymentDate < :paymentDate OR (p.paymentDate = :paymentDate AND p.id < :id)) " +
+           "ORDER BY p.paymentDate DESC, p.id DESC")
+    List<Payment> findKeysetAfterByBranchId(@Param("branchId") Long branchId,
+                                            @Param("paymentDate") LocalDateTime paymentDate,
+                                            @Param("id") Long id,
+                                            Pageable limit);
+
     /**
      * Buscar pagos por sucursal y estado
      */
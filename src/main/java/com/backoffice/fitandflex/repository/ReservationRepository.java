@@ -4,12 +4,15 @@ import com.backoffice.fitandflex.entity.Reservation;
 import com.backoffice.fitandflex.entity.ReservationStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +22,24 @@ import java.util.Optional;
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
 
+    /**
+     * Proyección de conteo de reservas por estado
+     */
+    interface StatusCount {
+        ReservationStatus getStatus();
+        Long getTotal();
+    }
+
+    /**
+     * Proyección de conteo de reservas por clase y estado
+     */
+    interface ClassStatusCount {
+        Long getClassId();
+        String getClassName();
+        ReservationStatus getStatus();
+        Long getTotal();
+    }
+
     /**
      * Buscar reservas por usuario
      */
@@ -142,6 +163,29 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
            "WHERE b.id = :branchId")
     Page<Reservation> findByBranchId(@Param("branchId") Long branchId, Pageable pageable);
 
+    /**
+     * Primera página de reservas por sucursal con paginación por cursor (más recientes primero)
+     * El Pageable solo limita filas; no se ejecuta COUNT
+     */
+    @EntityGraph(attributePaths = {"user", "schedule", "schedule.clazz"})
+    @Query("SELECT r FROM Reservation r " +
+           "WHERE r.schedule.clazz.branch.id = :branchId " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Reservation> findKeysetFirstByBranchId(@Param("branchId") Long branchId, Pageable limit);
+
+    /**
+     * Página siguiente a la clave (createdAt, id) del cursor
+     */
+    @EntityGraph(attributePaths = {"user", "schedule", "schedule.clazz"})
+    @Query("SELECT r FROM Reservation r " +
+           "WHERE r.schedule.clazz.branch.id = :branchId " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Reservation> findKeysetAfterByBranchId(@Param("branchId") Long branchId,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id,
+                                                Pageable limit);
+
     /**
      * Buscar reservas por sucursal y estado
      */
@@ -220,6 +264,11 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
      */
     long countByScheduleIdAndStatus(Long scheduleId, ReservationStatus status);
 
+    /**
+     * Verificar si un horario tiene reservas en un estado
+     */
+    boolean existsByScheduleIdAndStatus(Long scheduleId, ReservationStatus status);
+
     /**
      * Buscar reservas por estado y rango de fechas
      */
@@ -239,4 +288,85 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
            "JOIN c.branch b " +
            "WHERE b.id = :branchId")
     long countByBranchId(@Param("branchId") Long branchId);
-}
\ No newline at end of file
+
+    /**
+     * Verificar si el usuario tiene una reserva activa o en lista de espera en un horario que empieza a la
+     * misma hora: una en espera puede promoverse y ocuparía dos cupos a la vez (usa idx_reservation_user_status)
+     */
+    @Query("SELECT COUNT(r) > 0 FROM Reservation r " +
+           "JOIN r.schedule s " +
+           "WHERE r.user.id = :userId AND r.status IN ('ACTIVE', 'WAITLISTED') AND s.startTime = :startTime")
+    boolean existsOpenReservationByUserAndStartTime(@Param("userId") Long userId,
+                                                    @Param("startTime") LocalDateTime startTime);
+
+    /**
+     * IDs de la lista de espera de un horario en orden de llegada (FIFO). Se ordena por createdAt: con
+     * secuencias pooled cada instancia reserva su propio bloque de IDs y el ID no refleja el orden de alta.
+     */
+    @Query("SELECT r.id FROM Reservation r " +
+           "WHERE r.schedule.id = :scheduleId AND r.status = 'WAITLISTED' " +
+           "ORDER BY r.createdAt ASC, r.id ASC")
+    List<Long> findWaitlistedIdsByScheduleId(@Param("scheduleId") Long scheduleId, Pageable pageable);
+
+    /**
+     * Contar reservas en lista de espera de un horario anteriores (createdAt, id) a una reserva dada
+     */
+    @Query("SELECT COUNT(r) FROM Reservation r " +
+           "WHERE r.schedule.id = :scheduleId AND r.status = 'WAITLISTED' " +
+           "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :reservationId))")
+    long countWaitlistedAhead(@Param("scheduleId") Long scheduleId,
+                              @Param("createdAt") LocalDateTime createdAt,
+                              @Param("reservationId") Long reservationId);
+
+    /**
+     * Promover reservas de la lista de espera a activas
+     */
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = 'ACTIVE', r.updatedAt = :now " +
+           "WHERE r.id IN :ids AND r.status = 'WAITLISTED'")
+    int promoteWaitlisted(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * IDs de horarios futuros y activos con lista de espera y cupos libres
+     */
+    @Query("SELECT DISTINCT s.id FROM Reservation r " +
+           "JOIN r.schedule s " +
+           "WHERE r.status = 'WAITLISTED' AND s.active = true AND s.startTime > :now AND " +
+           "s.clazz.capacity > (SELECT COUNT(a) FROM Reservation a WHERE a.schedule = s AND a.status = 'ACTIVE')")
+    List<Long> findScheduleIdsWithPromotableWaitlist(@Param("now") LocalDateTime now);
+
+    /**
+     * Contar todas las reservas agrupadas por estado
+     */
+    @Query("SELECT r.status AS status, COUNT(r) AS total FROM Reservation r GROUP BY r.status")
+    List<StatusCount> countGroupedByStatus();
+
+    /**
+     * Contar las reservas de un usuario agrupadas por estado
+     */
+    @Query("SELECT r.status AS status, COUNT(r) AS total FROM Reservation r " +
+           "WHERE r.user.id = :userId GROUP BY r.status")
+    List<StatusCount> countByUserGroupedByStatus(@Param("userId") Long userId);
+
+    /**
+     * Contar reservas agrupadas por clase y estado, con filtros opcionales
+     * El rango de fechas se aplica sobre la hora de inicio del horario reservado ([from, to))
+     * @param branchId ID de la sucursal (null para todas)
+     * @param classId ID de la clase (null para todas)
+     * @param from Inicio del rango, incluido (null sin límite)
+     * @param to Fin del rango, excluido (null sin límite)
+     */
+    @Query("SELECT c.id AS classId, c.name AS className, r.status AS status, COUNT(r) AS total " +
+           "FROM Reservation r " +
+           "JOIN r.schedule s " +
+           "JOIN s.clazz c " +
+           "WHERE (:branchId IS NULL OR c.branch.id = :branchId) " +
+           "AND (:classId IS NULL OR c.id = :classId) " +
+           "AND (:from IS NULL OR s.startTime >= :from) " +
+           "AND (:to IS NULL OR s.startTime < :to) " +
+           "GROUP BY c.id, c.name, r.status")
+    List<ClassStatusCount> countGroupedByClassAndStatus(@Param("branchId") Long branchId,
+                                                        @Param("classId") Long classId,
+                                                        @Param("from") LocalDateTime from,
+                                                        @Param("to") LocalDateTime to);
+}
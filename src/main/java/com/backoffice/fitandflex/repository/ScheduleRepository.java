@@ -1,12 +1,15 @@
 package com.backoffice.fitandflex.repository;
 
 import com.backoffice.fitandflex.entity.Schedule;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
     
@@ -102,4 +105,12 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
      */
     @Query("SELECT s FROM Schedule s WHERE s.startTime BETWEEN :now AND :nextWeek AND s.active = true ORDER BY s.startTime ASC")
     List<Schedule> findUpcomingSchedules(@Param("now") LocalDateTime now, @Param("nextWeek") LocalDateTime nextWeek);
+    
+    /**
+     * Buscar horario por ID bloqueando su fila (SELECT ... FOR UPDATE)
+     * Serializa las altas y promociones de reservas de un mismo horario
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Schedule s WHERE s.id = :id")
+    Optional<Schedule> findByIdForUpdate(@Param("id") Long id);
 }
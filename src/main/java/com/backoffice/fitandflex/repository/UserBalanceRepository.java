@@ -0,0 +1,111 @@
+package com.backoffice.fitandflex.repository;
+
+import com.backoffice.fitandflex.entity.UserBalance;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserBalanceRepository extends JpaRepository<UserBalance, Long> {
+
+    /**
+     * Proyección del saldo de un usuario con sus datos de contacto
+     */
+    interface DebtorBalance {
+        Long getUserId();
+        String getUserName();
+        String getUserEmail();
+        Long getTotalDueMinor();
+        Long getPaidMinor();
+        Long getPendingMinor();
+        Integer getMembershipsWithPending();
+    }
+
+    /**
+     * Sumar una variación al saldo de un usuario, creando la fila si no existe
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_balances (user_id, total_due_minor, paid_minor, pending_minor, memberships_with_pending, updated_at) " +
+                   "VALUES (:userId, :dueDelta, :paidDelta, :pendingDelta, :pendingCountDelta, :now) " +
+                   "ON CONFLICT (user_id) DO UPDATE SET " +
+                   "total_due_minor = user_balances.total_due_minor + EXCLUDED.total_due_minor, " +
+                   "paid_minor = user_balances.paid_minor + EXCLUDED.paid_minor, " +
+                   "pending_minor = user_balances.pending_minor + EXCLUDED.pending_minor, " +
+                   "memberships_with_pending = user_balances.memberships_with_pending + EXCLUDED.memberships_with_pending, " +
+                   "updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("dueDelta") long dueDelta,
+                   @Param("paidDelta") long paidDelta,
+                   @Param("pendingDelta") long pendingDelta,
+                   @Param("pendingCountDelta") int pendingCountDelta,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Bloquear las variaciones concurrentes hasta el fin de la transacción de reconstrucción
+     * (las transacciones con una variación ya aplicada terminan antes; las nuevas esperan)
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE user_balances IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    /**
+     * Mayor ID de usuario con membresías o con saldo, para recorrer la reconstrucción por rangos
+     */
+    @Query(value = "SELECT GREATEST(COALESCE((SELECT MAX(user_id) FROM user_memberships), 0), " +
+                   "COALESCE((SELECT MAX(user_id) FROM user_balances), 0))",
+           nativeQuery = true)
+    long findMaxUserId();
+
+    /**
+     * Eliminar los saldos de un rango de usuarios (inclusive)
+     */
+    @Modifying
+    @Query("DELETE FROM UserBalance b WHERE b.userId >= :fromUserId AND b.userId <= :toUserId")
+    int deleteByUserIdRange(@Param("fromUserId") Long fromUserId, @Param("toUserId") Long toUserId);
+
+    /**
+     * Recalcular desde las membresías los saldos de un rango de usuarios (inclusive), con el mismo cálculo
+     * que la carga inicial de V9
+     * @return Número de saldos insertados
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_balances (user_id, total_due_minor, paid_minor, pending_minor, memberships_with_pending, updated_at) " +
+                   "SELECT um.user_id, " +
+                   "SUM(CAST(ROUND(um.total_amount * 100) AS BIGINT)), " +
+                   "SUM(CAST(ROUND(um.paid_amount * 100) AS BIGINT)), " +
+                   "SUM(GREATEST(CAST(ROUND(um.total_amount * 100) AS BIGINT) - CAST(ROUND(um.paid_amount * 100) AS BIGINT), 0)), " +
+                   "SUM(CASE WHEN um.total_amount > um.paid_amount THEN 1 ELSE 0 END), :now " +
+                   "FROM user_memberships um " +
+                   "WHERE um.user_id >= :fromUserId AND um.user_id <= :toUserId " +
+                   "GROUP BY um.user_id",
+           nativeQuery = true)
+    int insertAggregatedFromMemberships(@Param("fromUserId") Long fromUserId,
+                                        @Param("toUserId") Long toUserId,
+                                        @Param("now") LocalDateTime now);
+
+    /**
+     * Saldos de varios usuarios en una sola consulta
+     */
+    List<UserBalance> findByUserIdIn(Collection<Long> userIds);
+
+    /**
+     * Usuarios de una sucursal con saldo pendiente, de mayor a menor deuda
+     */
+    @Query(value = "SELECT b.userId AS userId, u.name AS userName, u.email AS userEmail, " +
+                   "b.totalDueMinor AS totalDueMinor, b.paidMinor AS paidMinor, b.pendingMinor AS pendingMinor, " +
+                   "b.membershipsWithPending AS membershipsWithPending " +
+                   "FROM UserBalance b, User u WHERE u.id = b.userId AND u.branch.id = :branchId AND b.pendingMinor > 0 " +
+                   "ORDER BY b.pendingMinor DESC, b.userId",
+           countQuery = "SELECT COUNT(b) FROM UserBalance b, User u " +
+                        "WHERE u.id = b.userId AND u.branch.id = :branchId AND b.pendingMinor > 0")
+    Page<DebtorBalance> findDebtorsByBranchId(@Param("branchId") Long branchId, Pageable pageable);
+}
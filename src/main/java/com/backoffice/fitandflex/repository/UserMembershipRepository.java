@@ -1,14 +1,18 @@
 package com.backoffice.fitandflex.repository;
 
 import com.backoffice.fitandflex.entity.UserMembership;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -86,11 +90,39 @@ public interface UserMembershipRepository extends JpaRepository<UserMembership,
                                            @Param("endDate") LocalDateTime endDate);
 
     /**
-     * Buscar membresías vencidas
+     * Buscar membresías vencidas: las marcadas EXPIRED y las activas con fecha de fin pasada que el
+     * proceso de expiración aún no ha marcado
      */
-    @Query("SELECT um FROM UserMembership um WHERE um.endDate < :now AND um.active = true")
+    @Query("SELECT um FROM UserMembership um WHERE um.status = 'EXPIRED' " +
+           "OR (um.status = 'ACTIVE' AND um.active = true AND um.endDate < :now)")
     List<UserMembership> findExpired(@Param("now") LocalDateTime now);
 
+    /**
+     * Marcar como EXPIRED un lote de membresías activas con fecha de fin anterior a :now.
+     * Las filas bloqueadas por otra transacción se saltan y quedan para el siguiente lote.
+     * @return IDs de las membresías expiradas
+     */
+    @Query(value = "UPDATE user_memberships SET status = 'EXPIRED', active = false, updated_at = :now " +
+                   "WHERE id IN (SELECT id FROM user_memberships WHERE status = 'ACTIVE' AND end_date < :now " +
+                   "LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING id",
+           nativeQuery = true)
+    List<Long> expireBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Tomar un advisory lock de PostgreSQL hasta el fin de la transacción, sin esperar
+     * @return true si se obtuvo el lock
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("key") long key);
+
+    /**
+     * Membresías de un usuario con saldo pendiente, con su producto
+     */
+    @Query("SELECT um FROM UserMembership um JOIN FETCH um.product " +
+           "WHERE um.user.id = :userId AND um.totalAmount > um.paidAmount")
+    List<UserMembership> findWithPendingBalanceByUserId(@Param("userId") Long userId);
+
     /**
      * Buscar membresías que expiran pronto (próximos N días)
      */
@@ -153,6 +185,73 @@ public interface UserMembershipRepository extends JpaRepository<UserMembership,
     Optional<UserMembership> findActiveByUserIdAndProductId(@Param("userId") Long userId, 
                                                            @Param("productId") Long productId);
 
+    /**
+     * Pares (usuario, producto) con membresía activa para varios usuarios en una sola consulta
+     */
+    @Query("SELECT um.user.id AS userId, um.product.id AS productId FROM UserMembership um " +
+           "WHERE um.user.id IN :userIds AND um.active = true AND um.status = 'ACTIVE'")
+    List<ActiveUserProduct> findActiveUserProductsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Par (usuario, producto) de una membresía activa
+     */
+    interface ActiveUserProduct {
+        Long getUserId();
+        Long getProductId();
+    }
+
+    /**
+     * Membresías activas de un usuario con su sucursal, vigencia y clases disponibles (sin cargar entidades)
+     */
+    @Query("SELECT um.id AS membershipId, p.branch.id AS branchId, um.startDate AS startDate, " +
+           "um.endDate AS endDate, um.remainingClasses AS remainingClasses " +
+           "FROM UserMembership um JOIN um.product p " +
+           "WHERE um.user.id = :userId AND um.active = true AND um.status = 'ACTIVE'")
+    List<EntitlementRow> findEntitlementsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Vigencia y créditos de una membresía activa
+     */
+    interface EntitlementRow {
+        Long getMembershipId();
+        Long getBranchId();
+        LocalDateTime getStartDate();
+        LocalDateTime getEndDate();
+        Integer getRemainingClasses();
+    }
+
+    /**
+     * Descontar clases de una membresía activa solo si le quedan suficientes (actualización atómica condicional)
+     * @return 1 si se descontaron, 0 si no le quedan clases suficientes o ya no está activa
+     */
+    @Modifying
+    @Query("UPDATE UserMembership um SET um.remainingClasses = um.remainingClasses - :count " +
+           "WHERE um.id = :id AND um.remainingClasses >= :count AND um.active = true AND um.status = 'ACTIVE'")
+    int consumeClasses(@Param("id") Long id, @Param("count") int count);
+
+    /**
+     * Devolver clases a una membresía con cupo limitado
+     */
+    @Modifying
+    @Query("UPDATE UserMembership um SET um.remainingClasses = um.remainingClasses + :count " +
+           "WHERE um.id = :id AND um.remainingClasses IS NOT NULL")
+    int refundClasses(@Param("id") Long id, @Param("count") int count);
+
+    /**
+     * Membresía bloqueada hasta el fin de la transacción, para modificar montos y estado sin perder
+     * actualizaciones concurrentes (el UPDATE de la entidad escribe todas las columnas)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT um FROM UserMembership um WHERE um.id = :id")
+    Optional<UserMembership> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Clases disponibles de varias membresías, bloqueándolas hasta el fin de la transacción
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT um FROM UserMembership um WHERE um.id IN :ids")
+    List<UserMembership> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
     /**
      * Buscar membresías que expiran en los próximos días
      */
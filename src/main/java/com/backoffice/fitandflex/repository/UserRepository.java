@@ -1,20 +1,48 @@
 package com.backoffice.fitandflex.repository;
 
 import com.backoffice.fitandflex.entity.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    /**
+     * Buscar varios usuarios por email en una sola consulta
+     */
+    List<User> findByEmailIn(Collection<String> emails);
     boolean existsByEmail(String email);
     
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.role WHERE u.email = :email")
     Optional<User> findByEmailWithRole(@Param("email") String email);
     
+    @Query("SELECT u.active FROM User u WHERE u.email = :email")
+    Optional<Boolean> findActiveByEmail(@Param("email") String email);
+
+    /**
+     * Primera página de usuarios con paginación por cursor (más recientes primero, sin COUNT)
+     */
+    @EntityGraph(attributePaths = {"role", "branch"})
+    @Query("SELECT u FROM User u ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findKeysetFirst(Pageable limit);
+
+    /**
+     * Página siguiente a la clave (createdAt, id) del cursor
+     */
+    @EntityGraph(attributePaths = {"role", "branch"})
+    @Query("SELECT u FROM User u " +
+           "WHERE u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findKeysetAfter(@Param("createdAt") Instant createdAt, @Param("id") Long id, Pageable limit);
+    
     List<User> findByBranchId(Long branchId);
     List<User> findByRoleName(String roleName);
     List<User> findByActiveTrue();
@@ -1,5 +1,7 @@
 package com.backoffice.fitandflex.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,18 +10,21 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @RequiredArgsConstructor
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final UserPrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -40,9 +45,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
+        final Claims claims;
         try {
-            userEmail = jwtService.extractUsername(jwt);
+            // Un solo parseo: valida firma y expiración y obtiene los claims
+            claims = jwtService.parseValidClaims(jwt);
+            userEmail = claims.getSubject();
             log.debug("Extracted user email from JWT: {}", userEmail);
+        } catch (ExpiredJwtException ex) {
+            log.debug("JWT expired for user: {}", ex.getClaims() != null ? ex.getClaims().getSubject() : null);
+            filterChain.doFilter(request, response);
+            return;
         } catch (Exception ex) {
             log.warn("Failed to extract username from JWT: {}", ex.getMessage());
             filterChain.doFilter(request, response);
@@ -50,14 +62,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            log.debug("Loading user details for: {}", userEmail);
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-
-            if (jwtService.validateToken(jwt, userDetails)) {
+            // Estado del usuario desde caché (sin consulta a BD en estado estable)
+            if (principalCache.isEnabled(userEmail)) {
+                List<GrantedAuthority> authorities = jwtService.extractAuthorities(claims);
+                UserDetails userDetails = User.withUsername(userEmail)
+                        .password("")
+                        .authorities(authorities)
+                        .build();
                 log.debug("JWT is valid, setting authentication for user: {} with authorities: {}", 
-                         userEmail, userDetails.getAuthorities());
+                         userEmail, authorities);
                 UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                        new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             } else {
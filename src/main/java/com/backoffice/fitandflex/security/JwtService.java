@@ -2,12 +2,17 @@ package com.backoffice.fitandflex.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.security.Key;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -19,9 +24,20 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private Long jwtExpirationMs;
 
+    // Clave y parser se construyen una sola vez (son inmutables y thread-safe)
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     private Key getSigningKey(){
-        byte[] keyBytes = jwtSecret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails){
@@ -152,11 +168,36 @@ public class JwtService {
         return roles.stream().anyMatch(role -> role.contains("SUPER_ADMIN"));
     }
 
+    /**
+     * Valida firma y expiración del token y retorna sus claims en un solo parseo
+     * @throws ExpiredJwtException si el token está expirado
+     * @throws RuntimeException si el token es inválido
+     */
+    public Claims parseValidClaims(String token) {
+        return parseClaims(token);
+    }
+
+    /**
+     * Construye las authorities a partir del claim "roles" (con prefijo ROLE_)
+     */
+    public List<GrantedAuthority> extractAuthorities(Claims claims) {
+        Object rolesObj = claims.get("roles");
+        if (!(rolesObj instanceof java.util.Collection<?> roles)) {
+            return java.util.Collections.emptyList();
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (Object role : roles) {
+            if (role != null) {
+                String name = role.toString();
+                authorities.add(new SimpleGrantedAuthority(name.startsWith("ROLE_") ? name : "ROLE_" + name));
+            }
+        }
+        return authorities;
+    }
+
     private Claims parseClaims(String token){
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
+            return jwtParser
                     .parseClaimsJws(token)
                     .getBody();
         } catch (ExpiredJwtException e) {
@@ -1,25 +1,324 @@
 package com.backoffice.fitandflex.security;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Rate limiting en proceso con token buckets (sin Redis).
+ * <ul>
+ *   <li>Políticas separadas para login, refresh de token, subida de videos, lecturas y escrituras.</li>
+ *   <li>Login y refresh se limitan por IP; el resto por usuario (subject del JWT) o por IP si la
+ *       petición no está autenticada.</li>
+ *   <li>Se registra como filtro de servlet después de Spring Security, así el usuario autenticado ya
+ *       está disponible sin volver a parsear el token.</li>
+ *   <li>La IP del cliente es la de la conexión. Solo si {@code trust-forwarded-for} está activo y la conexión
+ *       viene de un proxy de {@code trusted-proxies}, se toma la entrada de X-Forwarded-For más a la derecha
+ *       que no sea un proxy de confianza (las de la izquierda las puede falsificar el cliente).</li>
+ *   <li>Memoria acotada: los buckets inactivos y llenos se eliminan periódicamente; si se alcanza el
+ *       máximo se eliminan los llenos y, si no alcanza, los de acceso más antiguo (cada clave conserva
+ *       su propio bucket, nunca se comparte entre clientes).</li>
+ * </ul>
+ */
 @Slf4j
 @Component
 public class RateLimitingFilter implements Filter {
 
+    /**
+     * Al llenarse el mapa se libera hasta este porcentaje del máximo, para no barrerlo en cada clave nueva
+     */
+    private static final double EVICTION_TARGET = 0.9;
+
+    private final boolean enabled;
+    private final boolean trustForwardedFor;
+    private final List<IpAddressMatcher> trustedProxies;
+    private final int maxBuckets;
+    private final long idleEvictionNanos;
+    private final Map<Policy, PolicyConfig> policies = new EnumMap<>(Policy.class);
+    private final ConcurrentHashMap<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Counter> throttledCounters = new ConcurrentHashMap<>();
+
+    public RateLimitingFilter(Environment env, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.enabled = env.getProperty("app.rate-limit.enabled", Boolean.class, true);
+        this.trustForwardedFor = env.getProperty("app.rate-limit.trust-forwarded-for", Boolean.class, false);
+        this.trustedProxies = Arrays.stream(env.getProperty("app.rate-limit.trusted-proxies", String[].class, new String[0]))
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+        this.maxBuckets = env.getProperty("app.rate-limit.max-buckets", Integer.class, 100_000);
+        this.idleEvictionNanos = TimeUnit.SECONDS.toNanos(
+                env.getProperty("app.rate-limit.idle-eviction-seconds", Long.class, 600L));
+        for (Policy policy : Policy.values()) {
+            String prefix = "app.rate-limit." + policy.propertyName + ".";
+            long capacity = env.getProperty(prefix + "capacity", Long.class, policy.defaultCapacity);
+            long periodSeconds = env.getProperty(prefix + "period-seconds", Long.class, policy.defaultPeriodSeconds);
+            policies.put(policy, new PolicyConfig(Math.max(1, capacity),
+                    TimeUnit.SECONDS.toNanos(Math.max(1, periodSeconds))));
+        }
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
-        
-        // Rate limiting temporalmente deshabilitado
-        // TODO: Implementar rate limiting con Redis
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        Policy policy = enabled ? classify(httpRequest) : null;
+        if (policy == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String subject = policy.perUser ? authenticatedSubject() : null;
+        KeyType keyType = subject != null ? KeyType.USER : KeyType.IP;
+        String key = subject != null ? subject : clientIp(httpRequest);
+
+        PolicyConfig config = policies.get(policy);
+        long now = System.nanoTime();
+        TokenBucket.Probe probe = bucketFor(new BucketKey(policy, keyType, key), config, now).tryConsume(now);
+
+        httpResponse.setHeader("X-RateLimit-Limit", String.valueOf(config.capacity()));
+        httpResponse.setHeader("X-RateLimit-Remaining", String.valueOf(probe.remaining()));
+        httpResponse.setHeader("X-RateLimit-Reset", String.valueOf(toSecondsCeil(probe.nanosToFull())));
+
+        if (!probe.allowed()) {
+            long retryAfter = Math.max(1, toSecondsCeil(probe.nanosToNextToken()));
+            log.warn("Rate limit excedido - política: {}, {}: {}, {} {}",
+                    policy.propertyName, keyType.tag, key, httpRequest.getMethod(), httpRequest.getRequestURI());
+            countThrottled(policy, keyType);
+            writeTooManyRequests(httpRequest, httpResponse, retryAfter);
+            return;
+        }
+
         chain.doFilter(request, response);
     }
+
+    /**
+     * Eliminar buckets inactivos que ya se rellenaron por completo
+     * (recrearlos no cambia el comportamiento porque empiezan llenos)
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> now - bucket.lastAccessNanos() > idleEvictionNanos && bucket.isFull(now));
+        log.debug("Rate limiting: {} buckets eliminados, {} activos", before - buckets.size(), buckets.size());
+    }
+
+    private TokenBucket bucketFor(BucketKey key, PolicyConfig config, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            makeRoom(now);
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(config.capacity(), config.refillPeriodNanos(), now));
+    }
+
+    /**
+     * Liberar espacio al alcanzar el máximo: primero los buckets llenos (recrearlos no cambia nada), luego
+     * los de acceso más antiguo hasta {@link #EVICTION_TARGET} del máximo
+     */
+    private synchronized void makeRoom(long now) {
+        if (buckets.size() < maxBuckets) {
+            return;
+        }
+        int target = (int) (maxBuckets * EVICTION_TARGET);
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        int excess = buckets.size() - target;
+        if (excess > 0) {
+            buckets.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccessNanos()))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(buckets::remove);
+        }
+        log.warn("Rate limiting: máximo de {} buckets alcanzado, quedan {}", maxBuckets, buckets.size());
+    }
+
+    private Policy classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path == null || !path.startsWith("/api/")) {
+            return null;
+        }
+        String method = request.getMethod();
+        if ("OPTIONS".equals(method)) {
+            return null;
+        }
+        if (path.equals("/api/auth/login")) {
+            return Policy.LOGIN;
+        }
+        if (path.equals("/api/auth/refresh-token")) {
+            return Policy.REFRESH;
+        }
+        if ("POST".equals(method) && (path.endsWith("/upload") || path.contains("/upload/"))) {
+            return Policy.UPLOAD;
+        }
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return Policy.READ;
+        }
+        return Policy.WRITE;
+    }
+
+    private String authenticatedSubject() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * IP del cliente: la de la conexión, o la entrada de X-Forwarded-For más a la derecha que no sea un
+     * proxy de confianza si la conexión viene de uno. Sin {@code trusted-proxies} configurados se confía
+     * solo en el proxy inmediato (un único salto).
+     */
+    private String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!trustForwardedFor || !isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor == null || forwardedFor.isBlank()) {
+            return remoteAddr;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            if (trustedProxies.isEmpty() || !isTrustedProxy(hop)) {
+                return hop;
+            }
+        }
+        return remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (trustedProxies.isEmpty()) {
+            return true;
+        }
+        try {
+            for (IpAddressMatcher proxy : trustedProxies) {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            // Entrada de X-Forwarded-For que no es una IP: no es un proxy de confianza
+        }
+        return false;
+    }
+
+    private void countThrottled(Policy policy, KeyType keyType) {
+        if (meterRegistry == null) {
+            return;
+        }
+        throttledCounters.computeIfAbsent(policy.propertyName + ":" + keyType.tag, k ->
+                Counter.builder("http.server.requests.throttled")
+                        .description("Peticiones rechazadas por rate limiting")
+                        .tag("policy", policy.propertyName)
+                        .tag("key", keyType.tag)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private void writeTooManyRequests(HttpServletRequest request, HttpServletResponse response, long retryAfterSeconds)
+            throws IOException {
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{"
+                + "\"timestamp\":\"" + Instant.now() + "\","
+                + "\"status\":" + status.value() + ","
+                + "\"error\":\"" + status.getReasonPhrase() + "\","
+                + "\"message\":\"Demasiadas solicitudes, intente nuevamente en " + retryAfterSeconds + " segundos\","
+                + "\"path\":\"" + escapeJson(request.getRequestURI()) + "\""
+                + "}");
+    }
+
+    private static String escapeJson(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static long toSecondsCeil(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Políticas de rate limiting con sus valores por defecto (capacidad por período)
+     */
+    private enum Policy {
+        LOGIN("login", 10, 60, false),
+        REFRESH("refresh-token", 20, 60, false),
+        UPLOAD("upload", 20, 3600, true),
+        READ("read", 300, 60, true),
+        WRITE("write", 60, 60, true);
+
+        private final String propertyName;
+        private final long defaultCapacity;
+        private final long defaultPeriodSeconds;
+        private final boolean perUser;
+
+        Policy(String propertyName, long defaultCapacity, long defaultPeriodSeconds, boolean perUser) {
+            this.propertyName = propertyName;
+            this.defaultCapacity = defaultCapacity;
+            this.defaultPeriodSeconds = defaultPeriodSeconds;
+            this.perUser = perUser;
+        }
+    }
+
+    private enum KeyType {
+        IP("ip"),
+        USER("user");
+
+        private final String tag;
+
+        KeyType(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private record PolicyConfig(long capacity, long refillPeriodNanos) {
+    }
+
+    private record BucketKey(Policy policy, KeyType keyType, String key) {
+    }
 }
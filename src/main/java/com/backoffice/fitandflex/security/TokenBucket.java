@@ -0,0 +1,72 @@
+package com.backoffice.fitandflex.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token bucket sin locks: el estado (tokens disponibles, último relleno) es inmutable
+ * y se actualiza con compare-and-set.
+ */
+final class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+    private volatile long lastAccessNanos;
+
+    TokenBucket(long capacity, long refillPeriodNanos, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) capacity / refillPeriodNanos;
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+        this.lastAccessNanos = nowNanos;
+    }
+
+    /**
+     * Intentar consumir un token
+     */
+    Probe tryConsume(long nowNanos) {
+        lastAccessNanos = nowNanos;
+        while (true) {
+            State current = state.get();
+            double available = refill(current, nowNanos);
+            boolean allowed = available >= 1.0;
+            State next = new State(allowed ? available - 1.0 : available, Math.max(current.timestampNanos(), nowNanos));
+            if (state.compareAndSet(current, next)) {
+                long nanosToNextToken = allowed ? 0L : (long) Math.ceil((1.0 - next.tokens()) / tokensPerNano);
+                long nanosToFull = (long) Math.ceil((capacity - next.tokens()) / tokensPerNano);
+                return new Probe(allowed, (long) Math.floor(next.tokens()), nanosToNextToken, nanosToFull);
+            }
+        }
+    }
+
+    /**
+     * Indica si el bucket estaría lleno en el instante dado
+     */
+    boolean isFull(long nowNanos) {
+        return refill(state.get(), nowNanos) >= capacity;
+    }
+
+    long lastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    private double refill(State current, long nowNanos) {
+        long elapsed = nowNanos - current.timestampNanos();
+        if (elapsed <= 0) {
+            return current.tokens();
+        }
+        return Math.min(capacity, current.tokens() + elapsed * tokensPerNano);
+    }
+
+    private record State(double tokens, long timestampNanos) {
+    }
+
+    /**
+     * Resultado de un intento de consumo
+     * @param allowed Si se consumió un token
+     * @param remaining Tokens enteros restantes
+     * @param nanosToNextToken Espera hasta el próximo token (0 si se permitió)
+     * @param nanosToFull Espera hasta que el bucket vuelva a estar lleno
+     */
+    record Probe(boolean allowed, long remaining, long nanosToNextToken, long nanosToFull) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.backoffice.fitandflex.security;
+
+import com.backoffice.fitandflex.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché acotada con expiración (TTL) del estado habilitado de los usuarios autenticados por JWT.
+ * Evita consultar la BD en cada petición autenticada; las entradas se invalidan al modificar,
+ * desactivar o cambiar la contraseña de un usuario.
+ */
+@Component
+@Slf4j
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final long ttlMs;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Se incrementa en cada invalidación; una lectura de BD solo se guarda si no hubo invalidaciones
+     * mientras se consultaba (evita guardar un estado anterior al commit)
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserPrincipalCache(UserRepository userRepository,
+                              @Value("${app.auth.principal-cache.ttl-ms:60000}") long ttlMs,
+                              @Value("${app.auth.principal-cache.max-entries:10000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Indica si el usuario existe y está activo
+     * @param email Email del usuario (subject del token)
+     */
+    public boolean isEnabled(String email) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(email);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.enabled();
+        }
+
+        long seenInvalidations = invalidations.get();
+        boolean enabled = Boolean.TRUE.equals(userRepository.findActiveByEmail(email).orElse(null));
+        if (entries.size() >= maxEntries) {
+            evictExpired(now);
+        }
+        if (entries.size() < maxEntries && invalidations.get() == seenInvalidations) {
+            entries.put(email, new Entry(enabled, now + ttlMs));
+        }
+        return enabled;
+    }
+
+    /**
+     * Invalidar la entrada de un usuario (se aplica al confirmar la transacción)
+     */
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(email);
+                }
+            });
+        } else {
+            remove(email);
+        }
+    }
+
+    private void remove(String email) {
+        invalidations.incrementAndGet();
+        entries.remove(email);
+    }
+
+    private void evictExpired(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        log.debug("Caché de usuarios autenticados: {} entradas tras limpiar expiradas", entries.size());
+    }
+
+    private record Entry(boolean enabled, long expiresAt) {
+    }
+}
@@ -0,0 +1,430 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.dto.UserMembershipDTO;
+import com.backoffice.fitandflex.entity.Payment;
+import com.backoffice.fitandflex.entity.Product;
+import com.backoffice.fitandflex.entity.User;
+import com.backoffice.fitandflex.entity.UserMembership;
+import com.backoffice.fitandflex.repository.PaymentRepository;
+import com.backoffice.fitandflex.repository.ProductRepository;
+import com.backoffice.fitandflex.repository.UserMembershipRepository;
+import com.backoffice.fitandflex.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Asignación masiva de membresías (lista JSON o CSV).
+ * <ul>
+ *   <li>Usuarios, productos y membresías activas se cargan con una consulta por tipo para todas las filas;
+ *       cada fila se valida en memoria con las mismas reglas que la asignación individual.</li>
+ *   <li>Las membresías y sus abonos iniciales se insertan en lotes JDBC (hibernate.jdbc.batch_size): los ids
+ *       salen de secuencias con asignación por bloques, sin una ida a la base por fila.</li>
+ *   <li>Saldos de usuario y acumulado de pagos se actualizan con un upsert por usuario y por fila de
+ *       acumulado, no por membresía.</li>
+ *   <li>Las filas inválidas se informan en el resultado sin impedir el registro de las demás.</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@Transactional
+public class BulkMembershipImportService {
+
+    public static final String STATUS_CREATED = "CREATED";
+    public static final String STATUS_VALID = "VALID";
+    public static final String STATUS_REJECTED = "REJECTED";
+
+    private static final List<String> CSV_COLUMNS = List.of(
+            "userid", "useremail", "productid", "startdate", "enddate", "initialpayment", "paymentmethod", "notes");
+
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final UserMembershipRepository userMembershipRepository;
+    private final PaymentRepository paymentRepository;
+    private final UserBalanceLedger userBalanceLedger;
+    private final PaymentStatsRollup paymentStatsRollup;
+    private final ClassCreditLedger classCreditLedger;
+    private final int maxRows;
+
+    public BulkMembershipImportService(UserRepository userRepository,
+                                       ProductRepository productRepository,
+                                       UserMembershipRepository userMembershipRepository,
+                                       PaymentRepository paymentRepository,
+                                       UserBalanceLedger userBalanceLedger,
+                                       PaymentStatsRollup paymentStatsRollup,
+                                       ClassCreditLedger classCreditLedger,
+                                       @Value("${app.memberships.bulk.max-rows:5000}") int maxRows) {
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.userMembershipRepository = userMembershipRepository;
+        this.paymentRepository = paymentRepository;
+        this.userBalanceLedger = userBalanceLedger;
+        this.paymentStatsRollup = paymentStatsRollup;
+        this.classCreditLedger = classCreditLedger;
+        this.maxRows = Math.max(1, maxRows);
+    }
+
+    /**
+     * Fila de entrada con su número; error != null si no se pudo interpretar
+     */
+    private record Line(int number, UserMembershipDTO.BulkAssignRow row, String error) {
+    }
+
+    /**
+     * Fila válida lista para insertar
+     */
+    private record Accepted(UserMembershipDTO.BulkRowResult result, UserMembership membership, Payment payment) {
+    }
+
+    private record UserProduct(Long userId, Long productId) {
+    }
+
+    /**
+     * Asignar membresías desde una lista
+     * @param dryRun true para solo validar, sin registrar nada
+     */
+    public UserMembershipDTO.BulkAssignResponse assign(List<UserMembershipDTO.BulkAssignRow> rows,
+                                                       String assignedByEmail, boolean dryRun) {
+        if (rows == null || rows.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos una asignación");
+        }
+        checkRowLimit(rows.size());
+        List<Line> lines = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            UserMembershipDTO.BulkAssignRow row = rows.get(i);
+            lines.add(new Line(i + 1, row, row == null ? "Fila vacía" : null));
+        }
+        return process(lines, assignedByEmail, dryRun);
+    }
+
+    /**
+     * Asignar membresías desde un CSV con encabezado.
+     * Columnas: userId o userEmail, productId, startDate, endDate y opcionalmente initialPayment,
+     * paymentMethod y notes. Las fechas aceptan yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss; una fecha de fin sin
+     * hora se toma hasta el final del día.
+     * @param dryRun true para solo validar, sin registrar nada
+     */
+    public UserMembershipDTO.BulkAssignResponse assignCsv(InputStream csv, String assignedByEmail, boolean dryRun) {
+        List<Line> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null || header.isBlank()) {
+                throw new IllegalArgumentException("El CSV debe incluir una fila de encabezado");
+            }
+            Map<String, Integer> columns = parseHeader(header);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                checkRowLimit(lines.size() + 1);
+                int number = lines.size() + 1;
+                try {
+                    lines.add(new Line(number, parseRow(splitCsvLine(line), columns), null));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    lines.add(new Line(number, null, e.getMessage()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo el CSV de asignaciones", e);
+        }
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("El CSV no contiene asignaciones");
+        }
+        return process(lines, assignedByEmail, dryRun);
+    }
+
+    private UserMembershipDTO.BulkAssignResponse process(List<Line> lines, String assignedByEmail, boolean dryRun) {
+        long startedAt = System.currentTimeMillis();
+        User assignedBy = userRepository.findByEmail(assignedByEmail)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario que asigna no encontrado: " + assignedByEmail));
+
+        // Precargar usuarios, productos y membresías activas de todas las filas
+        Set<Long> userIds = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (Line line : lines) {
+            if (line.row() == null) {
+                continue;
+            }
+            if (line.row().getUserId() != null) {
+                userIds.add(line.row().getUserId());
+            } else if (line.row().getUserEmail() != null && !line.row().getUserEmail().isBlank()) {
+                emails.add(line.row().getUserEmail().trim());
+            }
+            if (line.row().getProductId() != null) {
+                productIds.add(line.row().getProductId());
+            }
+        }
+        Map<Long, User> usersById = userIds.isEmpty() ? new HashMap<>()
+                : userRepository.findAllById(userIds).stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<String, User> usersByEmail = emails.isEmpty() ? Map.of()
+                : userRepository.findByEmailIn(emails).stream().collect(Collectors.toMap(User::getEmail, Function.identity()));
+        usersByEmail.values().forEach(user -> usersById.putIfAbsent(user.getId(), user));
+        Map<Long, Product> products = productIds.isEmpty() ? Map.of()
+                : productRepository.findAllById(productIds).stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+        Set<UserProduct> activePairs = usersById.isEmpty() ? new HashSet<>()
+                : userMembershipRepository.findActiveUserProductsByUserIdIn(usersById.keySet()).stream()
+                        .map(pair -> new UserProduct(pair.getUserId(), pair.getProductId()))
+                        .collect(Collectors.toCollection(HashSet::new));
+
+        // Validar cada fila en memoria
+        List<UserMembershipDTO.BulkRowResult> results = new ArrayList<>(lines.size());
+        List<Accepted> accepted = new ArrayList<>();
+        Map<UserProduct, Integer> rowByPair = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Line line : lines) {
+            UserMembershipDTO.BulkRowResult result = UserMembershipDTO.BulkRowResult.builder()
+                    .row(line.number())
+                    .status(STATUS_REJECTED)
+                    .build();
+            results.add(result);
+            if (line.error() != null) {
+                result.setMessage(line.error());
+                continue;
+            }
+            UserMembershipDTO.BulkAssignRow row = line.row();
+            User user = row.getUserId() != null ? usersById.get(row.getUserId())
+                    : row.getUserEmail() != null ? usersByEmail.get(row.getUserEmail().trim()) : null;
+            Product product = row.getProductId() != null ? products.get(row.getProductId()) : null;
+            result.setUserId(user != null ? user.getId() : row.getUserId());
+            result.setProductId(row.getProductId());
+
+            String error = validate(row, user, product, activePairs, rowByPair);
+            if (error != null) {
+                result.setMessage(error);
+                continue;
+            }
+            rowByPair.put(new UserProduct(user.getId(), product.getId()), line.number());
+
+            BigDecimal totalAmount = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+            BigDecimal initialPayment = row.getInitialPayment() != null ? row.getInitialPayment() : BigDecimal.ZERO;
+            UserMembership membership = UserMembership.builder()
+                    .user(user)
+                    .product(product)
+                    .startDate(row.getStartDate())
+                    .endDate(row.getEndDate())
+                    .status("ACTIVE")
+                    .active(true)
+                    .notes(row.getNotes())
+                    .assignedBy(assignedBy)
+                    .totalAmount(totalAmount)
+                    .paidAmount(initialPayment)
+                    .remainingClasses(product.getNumberOfClasses())
+                    .build();
+            Payment payment = null;
+            if (initialPayment.compareTo(BigDecimal.ZERO) > 0) {
+                payment = Payment.builder()
+                        .user(user)
+                        .amount(initialPayment)
+                        .currency("USD")
+                        .paymentDate(now)
+                        .paymentMethod(row.getPaymentMethod() != null ? row.getPaymentMethod() : Payment.PaymentMethod.CASH)
+                        .description("Abono inicial de membresía: " + product.getName())
+                        .status(Payment.PaymentStatus.COMPLETED)
+                        .build();
+            }
+            result.setStatus(dryRun ? STATUS_VALID : STATUS_CREATED);
+            accepted.add(new Accepted(result, membership, payment));
+        }
+
+        if (!dryRun && !accepted.isEmpty()) {
+            insert(accepted);
+            userBalanceLedger.recordAssignments(accepted.stream().map(Accepted::membership).toList());
+            paymentStatsRollup.applyAll(accepted.stream()
+                    .map(Accepted::payment)
+                    .filter(Objects::nonNull)
+                    .map(paymentStatsRollup::contributionOf)
+                    .toList());
+            accepted.stream().map(a -> a.membership().getUser().getId()).distinct().forEach(classCreditLedger::invalidate);
+        }
+
+        log.info("Asignación masiva de membresías{}: {} filas, {} aceptadas, {} rechazadas en {} ms",
+                dryRun ? " (simulación)" : "", lines.size(), accepted.size(), lines.size() - accepted.size(),
+                System.currentTimeMillis() - startedAt);
+        return UserMembershipDTO.BulkAssignResponse.builder()
+                .dryRun(dryRun)
+                .total(lines.size())
+                .accepted(accepted.size())
+                .rejected(lines.size() - accepted.size())
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Reglas de la asignación individual, sobre los datos precargados
+     * @return Motivo del rechazo, o null si la fila es válida
+     */
+    private String validate(UserMembershipDTO.BulkAssignRow row, User user, Product product,
+                            Set<UserProduct> activePairs, Map<UserProduct, Integer> rowByPair) {
+        if (row.getUserId() == null && (row.getUserEmail() == null || row.getUserEmail().isBlank())) {
+            return "Debe indicar userId o userEmail";
+        }
+        if (user == null) {
+            return "Usuario no encontrado: " + (row.getUserId() != null ? row.getUserId() : row.getUserEmail().trim());
+        }
+        if (row.getProductId() == null) {
+            return "El ID del producto es obligatorio";
+        }
+        if (product == null) {
+            return "Producto no encontrado: " + row.getProductId();
+        }
+        if (!Boolean.TRUE.equals(product.getActive())) {
+            return "No se puede asignar un producto inactivo";
+        }
+        if (row.getStartDate() == null || row.getEndDate() == null) {
+            return "Las fechas de inicio y fin son obligatorias";
+        }
+        if (row.getStartDate().isAfter(row.getEndDate())) {
+            return "La fecha de inicio no puede ser posterior a la fecha de fin";
+        }
+        BigDecimal totalAmount = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+        if (row.getInitialPayment() != null && row.getInitialPayment().signum() < 0) {
+            return "El abono inicial no puede ser negativo";
+        }
+        if (row.getInitialPayment() != null && row.getInitialPayment().compareTo(totalAmount) > 0) {
+            return "El abono inicial no puede exceder el precio total de la membresía";
+        }
+        UserProduct pair = new UserProduct(user.getId(), product.getId());
+        if (activePairs.contains(pair)) {
+            return "El usuario ya tiene una membresía activa de este producto";
+        }
+        if (rowByPair.containsKey(pair)) {
+            return "Asignación duplicada del mismo usuario y producto (fila " + rowByPair.get(pair) + ")";
+        }
+        return null;
+    }
+
+    private void insert(List<Accepted> accepted) {
+        userMembershipRepository.saveAll(accepted.stream().map(Accepted::membership).toList());
+        paymentRepository.saveAll(accepted.stream().map(Accepted::payment).filter(Objects::nonNull).toList());
+        for (Accepted row : accepted) {
+            row.result().setMembershipId(row.membership().getId());
+            row.result().setPaymentId(row.payment() != null ? row.payment().getId() : null);
+        }
+    }
+
+    private void checkRowLimit(int rows) {
+        if (rows > maxRows) {
+            throw new IllegalArgumentException("Se permiten como máximo " + maxRows + " asignaciones por solicitud");
+        }
+    }
+
+    private static Map<String, Integer> parseHeader(String header) {
+        List<String> names = splitCsvLine(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i).trim().toLowerCase(Locale.ROOT).replace("_", "");
+            if (CSV_COLUMNS.contains(name)) {
+                columns.putIfAbsent(name, i);
+            }
+        }
+        if (!columns.containsKey("userid") && !columns.containsKey("useremail")) {
+            throw new IllegalArgumentException("El CSV debe incluir la columna userId o userEmail");
+        }
+        for (String required : List.of("productid", "startdate", "enddate")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Falta la columna obligatoria en el CSV: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private static UserMembershipDTO.BulkAssignRow parseRow(List<String> values, Map<String, Integer> columns) {
+        String paymentMethod = value(values, columns, "paymentmethod");
+        String initialPayment = value(values, columns, "initialpayment");
+        String userId = value(values, columns, "userid");
+        String productId = value(values, columns, "productid");
+        String startDate = value(values, columns, "startdate");
+        String endDate = value(values, columns, "enddate");
+        try {
+            return UserMembershipDTO.BulkAssignRow.builder()
+                    .userId(userId != null ? Long.valueOf(userId) : null)
+                    .userEmail(value(values, columns, "useremail"))
+                    .productId(productId != null ? Long.valueOf(productId) : null)
+                    .startDate(startDate != null ? parseDateTime(startDate, LocalTime.MIDNIGHT) : null)
+                    .endDate(endDate != null ? parseDateTime(endDate, LocalTime.of(23, 59, 59)) : null)
+                    .initialPayment(initialPayment != null ? new BigDecimal(initialPayment) : null)
+                    .paymentMethod(paymentMethod != null
+                            ? Payment.PaymentMethod.valueOf(paymentMethod.toUpperCase(Locale.ROOT)) : null)
+                    .notes(value(values, columns, "notes"))
+                    .build();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor numérico inválido en la fila");
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha inválida: " + e.getParsedString());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Método de pago no soportado: " + paymentMethod);
+        }
+    }
+
+    private static LocalDateTime parseDateTime(String value, LocalTime defaultTime) {
+        return value.length() <= 10 ? LocalDate.parse(value).atTime(defaultTime) : LocalDateTime.parse(value);
+    }
+
+    private static String value(List<String> values, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Separar una línea CSV (RFC 4180: campos entre comillas, comillas duplicadas como escape)
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Comillas sin cerrar en la fila");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,293 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.UserMembership;
+import com.backoffice.fitandflex.repository.UserMembershipRepository;
+import com.backoffice.fitandflex.service.SlotAdmissionControl.Slot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Créditos de clases de las membresías (Product.numberOfClasses), exigidos al suscribirse a una clase.
+ * <ul>
+ *   <li>Cada membresía guarda sus clases disponibles (remaining_classes, null = ilimitadas). Suscribirse
+ *       descuenta una con un UPDATE condicional atómico; cancelar la devuelve a la membresía registrada en
+ *       la suscripción.</li>
+ *   <li>Las membresías activas de cada usuario (vigencia, sucursal, si tienen cupo limitado) se guardan
+ *       en memoria: elegir la membresía no consulta la BD. Con membresía ilimitada la suscripción no
+ *       agrega sentencias; con cupo limitado, solo el descuento.</li>
+ *   <li>La foto de un usuario se descarta al asignar, modificar, extender, cambiar de estado o eliminar
+ *       sus membresías (después del commit) y expira a los {@code snapshot-ttl-seconds}, para acotar
+ *       el desfase con cambios hechos en otras instancias.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class ClassCreditLedger {
+
+    private final UserMembershipRepository membershipRepository;
+    private final boolean enforce;
+    private final long snapshotTtlNanos;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Se incrementa en cada invalidación: una carga solo se guarda si no hubo invalidaciones mientras se consultaba la BD
+     */
+    private final AtomicLong epoch = new AtomicLong();
+
+    public ClassCreditLedger(UserMembershipRepository membershipRepository,
+                             @Value("${app.entitlements.enforce:true}") boolean enforce,
+                             @Value("${app.entitlements.snapshot-ttl-seconds:60}") long snapshotTtlSeconds,
+                             @Value("${app.entitlements.max-entries:50000}") int maxEntries) {
+        this.membershipRepository = membershipRepository;
+        this.enforce = enforce;
+        this.snapshotTtlNanos = TimeUnit.SECONDS.toNanos(snapshotTtlSeconds);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Membresía activa de un usuario, tal como se usa para elegir de dónde descontar
+     */
+    private record Entitlement(Long membershipId, Long branchId, LocalDate startDate, LocalDate endDate,
+                               boolean limited) {
+
+        private boolean covers(Class clazz, LocalDate date) {
+            boolean branchMatches = clazz.getBranch() == null || clazz.getBranch().getId().equals(branchId);
+            return branchMatches && !date.isBefore(startDate) && !date.isAfter(endDate);
+        }
+    }
+
+    private record Snapshot(List<Entitlement> entitlements, long loadedAt) {
+    }
+
+    /**
+     * Descontar una clase para una suscripción.
+     * Debe llamarse dentro de la transacción que crea o reactiva la suscripción.
+     * @return ID de la membresía a la que se descontó la clase (null si la cubre una membresía ilimitada)
+     * @throws IllegalArgumentException si el usuario no tiene una membresía vigente con clases disponibles
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Long consume(Long userId, Class clazz, LocalDate date) {
+        if (!enforce) {
+            return null;
+        }
+        for (Entitlement entitlement : candidates(userId, clazz, date)) {
+            if (!entitlement.limited()) {
+                return null;
+            }
+            if (membershipRepository.consumeClasses(entitlement.membershipId(), 1) == 1) {
+                return entitlement.membershipId();
+            }
+        }
+        throw new IllegalArgumentException("El usuario no tiene una membresía vigente con clases disponibles para el " + date);
+    }
+
+    /**
+     * Abrir la asignación de créditos de una inscripción por período. Las membresías con cupo limitado
+     * quedan bloqueadas hasta el fin de la transacción; los créditos se descuentan con {@link #consumeAllocated}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Allocation allocate(Long userId, Class clazz) {
+        if (!enforce) {
+            return new Allocation(clazz, null, Map.of());
+        }
+        List<Entitlement> entitlements = snapshot(userId).entitlements();
+        List<Long> limitedIds = entitlements.stream().filter(Entitlement::limited).map(Entitlement::membershipId).toList();
+        Map<Long, Integer> remaining = new HashMap<>();
+        if (!limitedIds.isEmpty()) {
+            for (UserMembership membership : membershipRepository.findAllByIdInForUpdate(limitedIds)) {
+                boolean usable = Boolean.TRUE.equals(membership.getActive()) && "ACTIVE".equals(membership.getStatus());
+                remaining.put(membership.getId(), usable && membership.getRemainingClasses() != null
+                        ? membership.getRemainingClasses() : 0);
+            }
+        }
+        return new Allocation(clazz, entitlements, remaining);
+    }
+
+    /**
+     * Créditos asignados a las fechas de una inscripción por período, todavía sin descontar en la BD.
+     * Un horario que no se admite devuelve su crédito con {@link #release} para asignarlo a otra fecha.
+     */
+    public static final class Allocation {
+
+        private final Class clazz;
+        /** Membresías del usuario; null si no se exigen créditos */
+        private final List<Entitlement> entitlements;
+        private final Map<Long, Integer> remaining;
+        private final Map<Slot, Long> assigned = new LinkedHashMap<>();
+
+        private Allocation(Class clazz, List<Entitlement> entitlements, Map<Long, Integer> remaining) {
+            this.clazz = clazz;
+            this.entitlements = entitlements;
+            this.remaining = new HashMap<>(remaining);
+        }
+
+        /**
+         * Asignar créditos, en el orden recibido, a las fechas que todavía no tienen
+         * @return Fechas a las que se asignó crédito en esta llamada
+         */
+        public List<Slot> assign(Collection<Slot> slots) {
+            List<Slot> newlyAssigned = new ArrayList<>();
+            for (Slot slot : slots) {
+                if (assigned.containsKey(slot)) {
+                    continue;
+                }
+                if (entitlements == null) {
+                    assigned.put(slot, null);
+                    newlyAssigned.add(slot);
+                    continue;
+                }
+                for (Entitlement entitlement : candidates(entitlements, clazz, slot.date())) {
+                    if (!entitlement.limited()) {
+                        assigned.put(slot, null);
+                        newlyAssigned.add(slot);
+                        break;
+                    }
+                    int left = remaining.getOrDefault(entitlement.membershipId(), 0);
+                    if (left > 0) {
+                        remaining.put(entitlement.membershipId(), left - 1);
+                        assigned.put(slot, entitlement.membershipId());
+                        newlyAssigned.add(slot);
+                        break;
+                    }
+                }
+            }
+            return newlyAssigned;
+        }
+
+        /**
+         * Devolver el crédito de una fecha que no se inscribió
+         */
+        public void release(Slot slot) {
+            if (!assigned.containsKey(slot)) {
+                return;
+            }
+            Long membershipId = assigned.remove(slot);
+            if (membershipId != null) {
+                remaining.merge(membershipId, 1, Integer::sum);
+            }
+        }
+
+        /**
+         * Membresía asignada a una fecha (null si la cubre una membresía ilimitada o no se exigen créditos)
+         */
+        public Long membershipOf(Slot slot) {
+            return assigned.get(slot);
+        }
+    }
+
+    /**
+     * Descontar los créditos que siguen asignados (las fechas que finalmente se inscribieron)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void consumeAllocated(Allocation allocation) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Long membershipId : allocation.assigned.values()) {
+            if (membershipId != null) {
+                counts.merge(membershipId, 1, Integer::sum);
+            }
+        }
+        counts.forEach((membershipId, count) -> {
+            if (membershipRepository.consumeClasses(membershipId, count) != 1) {
+                throw new IllegalStateException("No se pudieron descontar " + count + " clases de la membresía " + membershipId);
+            }
+        });
+    }
+
+    /**
+     * Devolver clases a la membresía de la que se descontaron (cancelación o eliminación de suscripciones)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refund(Long membershipId, int count) {
+        if (membershipId == null || count <= 0) {
+            return;
+        }
+        membershipRepository.refundClasses(membershipId, count);
+    }
+
+    /**
+     * Descartar la foto de membresías de un usuario; si hay una transacción activa, también al confirmarla
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Membresías que cubren la fecha y la sucursal de la clase: primero las ilimitadas, luego las de cupo
+     * limitado que vencen antes
+     */
+    private List<Entitlement> candidates(Long userId, Class clazz, LocalDate date) {
+        return candidates(snapshot(userId).entitlements(), clazz, date);
+    }
+
+    private static List<Entitlement> candidates(List<Entitlement> entitlements, Class clazz, LocalDate date) {
+        List<Entitlement> candidates = new ArrayList<>();
+        for (Entitlement entitlement : entitlements) {
+            if (entitlement.covers(clazz, date)) {
+                candidates.add(entitlement);
+            }
+        }
+        candidates.sort(Comparator.comparing(Entitlement::limited).thenComparing(Entitlement::endDate));
+        return candidates;
+    }
+
+    private Snapshot snapshot(Long userId) {
+        Snapshot snapshot = snapshots.get(userId);
+        if (snapshot != null && System.nanoTime() - snapshot.loadedAt() < snapshotTtlNanos) {
+            return snapshot;
+        }
+
+        long seenEpoch = epoch.get();
+        List<Entitlement> entitlements = membershipRepository.findEntitlementsByUserId(userId).stream()
+                .map(row -> new Entitlement(row.getMembershipId(), row.getBranchId(),
+                        row.getStartDate().toLocalDate(), row.getEndDate().toLocalDate(),
+                        row.getRemainingClasses() != null))
+                .toList();
+        Snapshot loaded = new Snapshot(entitlements, System.nanoTime());
+
+        // Solo guardar si nadie invalidó mientras se consultaba la BD
+        if (epoch.get() == seenEpoch) {
+            if (snapshots.size() >= maxEntries) {
+                log.debug("Fotos de membresías al máximo ({}), se descartan todas", maxEntries);
+                snapshots.clear();
+            }
+            snapshots.put(userId, loaded);
+        }
+        return loaded;
+    }
+
+    private void evict(Long userId) {
+        snapshots.remove(userId);
+        epoch.incrementAndGet();
+    }
+}
@@ -0,0 +1,92 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.dto.ClassDTO;
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.ClassSchedulePattern;
+import com.backoffice.fitandflex.repository.ClassSchedulePatternRepository;
+import com.backoffice.fitandflex.repository.ClassSubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ensambla las respuestas de clases en lote.
+ * Carga patrones y conteos de suscripciones de todas las clases de la página con un número fijo
+ * de consultas (IN + GROUP BY) y construye los DTOs desde mapas en memoria.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClassResponseAssembler {
+
+    private final ClassSchedulePatternRepository schedulePatternRepository;
+    private final ClassSubscriptionRepository subscriptionRepository;
+
+    /**
+     * Construir la respuesta de una sola clase
+     */
+    public ClassDTO.Response toResponse(Class clazz) {
+        return toResponses(List.of(clazz)).get(0);
+    }
+
+    /**
+     * Construir las respuestas de una lista de clases (3 consultas sin importar el tamaño de la lista)
+     */
+    public List<ClassDTO.Response> toResponses(List<Class> classes) {
+        if (classes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> classIds = classes.stream()
+                .map(Class::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        log.debug("Ensamblando respuestas para {} clases", classIds.size());
+
+        // Patrones activos de todas las clases
+        Map<Long, List<ClassSchedulePattern>> patternsByClass = schedulePatternRepository
+                .findByClazzIdInAndActiveTrue(classIds).stream()
+                .collect(Collectors.groupingBy(pattern -> pattern.getClazz().getId()));
+
+        // Conteo total de suscripciones activas por clase
+        Map<Long, Long> countsByClass = new HashMap<>();
+        for (ClassSubscriptionRepository.ClassSubscriptionCount row
+                : subscriptionRepository.countActiveSubscriptionsGroupedByClass(classIds)) {
+            countsByClass.put(row.getClassId(), row.getTotal());
+        }
+
+        // Conteo de suscripciones activas por clase, día y rango de horas
+        Map<TimeRangeKey, Long> countsByTimeRange = new HashMap<>();
+        for (ClassSubscriptionRepository.TimeRangeSubscriptionCount row
+                : subscriptionRepository.countActiveSubscriptionsGroupedByClassDayAndTimeRange(classIds)) {
+            countsByTimeRange.put(
+                    new TimeRangeKey(row.getClassId(), row.getDayOfWeek(), row.getStartTime(), row.getEndTime()),
+                    row.getTotal());
+        }
+
+        return classes.stream()
+                .map(clazz -> ClassDTO.Response.fromEntity(
+                        clazz,
+                        patternsByClass.getOrDefault(clazz.getId(), Collections.emptyList()),
+                        countsByClass.getOrDefault(clazz.getId(), 0L).intValue(),
+                        pattern -> countsByTimeRange.getOrDefault(
+                                new TimeRangeKey(clazz.getId(), pattern.getDayOfWeek(),
+                                        pattern.getStartTime(), pattern.getEndTime()),
+                                0L).intValue()))
+                .toList();
+    }
+
+    /**
+     * Clave de un horario de clase (clase, día de la semana, hora inicio, hora fin)
+     */
+    private record TimeRangeKey(Long classId, Integer dayOfWeek, LocalTime startTime, LocalTime endTime) {
+    }
+}
@@ -1,18 +1,14 @@
 package com.backoffice.fitandflex.service;
 
-import com.backoffice.fitandflex.dto.BranchDto;
 import com.backoffice.fitandflex.dto.ClassDTO;
-import com.backoffice.fitandflex.dto.UserDTO;
 import com.backoffice.fitandflex.entity.Branch;
 import com.backoffice.fitandflex.entity.Class;
 import com.backoffice.fitandflex.entity.ClassSchedulePattern;
-import com.backoffice.fitandflex.entity.ClassSubscription;
 import com.backoffice.fitandflex.entity.Schedule;
 import com.backoffice.fitandflex.entity.User;
 import com.backoffice.fitandflex.repository.BranchRepository;
 import com.backoffice.fitandflex.repository.ClassRepository;
 import com.backoffice.fitandflex.repository.ClassSchedulePatternRepository;
-import com.backoffice.fitandflex.repository.ClassSubscriptionRepository;
 import com.backoffice.fitandflex.repository.ScheduleRepository;
 import com.backoffice.fitandflex.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -40,7 +36,9 @@ public class ClassService {
     private final UserRepository userRepository;
     private final ClassSchedulePatternRepository schedulePatternRepository;
     private final ScheduleRepository scheduleRepository;
-    private final ClassSubscriptionRepository subscriptionRepository;
+    private final ClassResponseAssembler responseAssembler;
+    private final ClassTimetableService timetableService;
+    private final OperationMetrics operationMetrics;
 
     /**
      * Crear una nueva clase
@@ -75,13 +73,8 @@ public class ClassService {
         Class savedClass = classRepository.save(clazz);
         log.info("Clase creada exitosamente: {}", savedClass.getName());
         
-        // Cargar patrones para la respuesta (sin modificar la colección de la entidad)
-        List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(savedClass.getId());
-        
-        // Contar suscripciones activas (optimizado con COUNT en BD)
-        Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(savedClass.getId()).intValue();
-        
-        return ClassDTO.Response.fromEntity(savedClass, patterns, subscriptionCount, subscriptionRepository);
+        // Cargar patrones y conteos para la respuesta (sin modificar la colección de la entidad)
+        return responseAssembler.toResponse(savedClass);
     }
     
     /**
@@ -143,13 +136,8 @@ public class ClassService {
         Class clazz = classRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Clase no encontrada: " + id));
         
-        // Cargar patrones para la respuesta (sin modificar la colección de la entidad)
-        List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(id);
-        
-        // Contar suscripciones activas (optimizado con COUNT en BD)
-        Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(id).intValue();
-        
-        return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
+        // Cargar patrones y conteos para la respuesta (sin modificar la colección de la entidad)
+        return responseAssembler.toResponse(clazz);
     }
 
     /**
@@ -161,14 +149,8 @@ public class ClassService {
         
         Page<Class> classes = classRepository.findAll(pageable);
         
-        // Cargar patrones para cada clase (sin modificar la colección de la entidad)
-        List<ClassDTO.Response> responses = classes.getContent().stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .collect(java.util.stream.Collectors.toList());
+        // Cargar patrones y conteos de todas las clases de la página en lote
+        List<ClassDTO.Response> responses = responseAssembler.toResponses(classes.getContent());
         
         return new org.springframework.data.domain.PageImpl<>(responses, pageable, classes.getTotalElements());
     }
@@ -182,14 +164,8 @@ public class ClassService {
         
         Page<Class> classes = classRepository.findByBranchId(branchId, pageable);
         
-        // Cargar patrones para cada clase (sin modificar la colección de la entidad)
-        List<ClassDTO.Response> responses = classes.getContent().stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .collect(java.util.stream.Collectors.toList());
+        // Cargar patrones y conteos de todas las clases de la página en lote
+        List<ClassDTO.Response> responses = responseAssembler.toResponses(classes.getContent());
         
         return new org.springframework.data.domain.PageImpl<>(responses, pageable, classes.getTotalElements());
     }
@@ -202,13 +178,7 @@ public class ClassService {
         log.info("Obteniendo clases de la sucursal: {}", branchId);
         
         List<Class> classes = classRepository.findByBranchId(branchId);
-        return classes.stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .toList();
+        return responseAssembler.toResponses(classes);
     }
 
     /**
@@ -219,13 +189,7 @@ public class ClassService {
         log.info("Obteniendo clases activas de la sucursal: {}", branchId);
         
         List<Class> classes = classRepository.findActiveClassesByBranchOrderedByName(branchId);
-        return classes.stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .toList();
+        return responseAssembler.toResponses(classes);
     }
 
     /**
@@ -236,13 +200,7 @@ public class ClassService {
         log.info("Obteniendo clases activas");
         
         List<Class> classes = classRepository.findByActiveTrue();
-        return classes.stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .toList();
+        return responseAssembler.toResponses(classes);
     }
 
     /**
@@ -255,132 +213,23 @@ public class ClassService {
     public List<ClassDTO.ResponseWithDate> getActiveClassesByDate(java.time.LocalDate date, Long branchId) {
         log.info("Obteniendo clases activas para la fecha: {}, branchId: {}", date, branchId);
         
-        // Calcular el día de la semana de la fecha (1=Lunes, 7=Domingo)
-        int dayOfWeek = date.getDayOfWeek().getValue();
-        
-        // Obtener clases que tienen suscripciones para esta fecha específica
-        List<Class> classesWithSubscriptions = subscriptionRepository.findClassesWithSubscriptionsForDate(date);
-        
-        // Obtener clases activas (filtrar por branch si se proporciona)
-        List<Class> allActiveClasses;
-        if (branchId != null) {
-            allActiveClasses = classRepository.findActiveClassesByBranchOrderedByName(branchId);
-        } else {
-            allActiveClasses = classRepository.findByActiveTrue();
-        }
-        
-        // Combinar ambas listas (sin duplicados)
-        java.util.Set<Long> classIds = new java.util.HashSet<>();
-        List<Class> relevantClasses = new java.util.ArrayList<>();
-        
-        // Agregar clases con suscripciones (filtrar por branch si se proporciona)
-        for (Class clazz : classesWithSubscriptions) {
-            if (clazz.getActive() && !classIds.contains(clazz.getId())) {
-                // Si se especifica branchId, filtrar por branch
-                if (branchId == null || (clazz.getBranch() != null && clazz.getBranch().getId().equals(branchId))) {
-                    classIds.add(clazz.getId());
-                    relevantClasses.add(clazz);
-                }
-            }
-        }
-        
-        // Agregar clases con patrones recurrentes para este día (ya filtradas por branch si aplica)
-        for (Class clazz : allActiveClasses) {
-            if (!classIds.contains(clazz.getId())) {
-                List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId())
-                        .stream()
-                        .filter(pattern -> pattern.getDayOfWeek().equals(dayOfWeek))
-                        .collect(java.util.stream.Collectors.toList());
-                
-                if (!patterns.isEmpty()) {
-                    classIds.add(clazz.getId());
-                    relevantClasses.add(clazz);
-                }
-            }
-        }
+        return operationMetrics.time("getActiveClassesByDate", operation -> {
+            operation.branchId(branchId);
+            return timetableService.getTimetable(date, branchId);
+        });
+    }
+
+    /**
+     * Obtener clases activas para cada fecha de un rango (ambos extremos incluidos)
+     * @param from Fecha inicial
+     * @param to Fecha final
+     * @param branchId ID de la sucursal para filtrar (null para obtener todas las sucursales)
+     */
+    @Transactional(readOnly = true)
+    public List<ClassDTO.ResponseWithDate> getActiveClassesByDateRange(java.time.LocalDate from, java.time.LocalDate to, Long branchId) {
+        log.info("Obteniendo clases activas desde {} hasta {}, branchId: {}", from, to, branchId);
         
-        return relevantClasses.stream()
-                .map(clazz -> {
-                    // Obtener suscripciones directas para esta fecha
-                    List<ClassSubscription> subscriptionsForDate = subscriptionRepository.findSubscriptionsByClassAndDate(
-                            clazz.getId(), date);
-                    
-                    // Obtener patrones recurrentes para este día
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId())
-                            .stream()
-                            .filter(pattern -> pattern.getDayOfWeek().equals(dayOfWeek))
-                            .collect(java.util.stream.Collectors.toList());
-                    
-                    // Crear un mapa de horarios únicos (combinando patrones y suscripciones)
-                    java.util.Map<String, ClassDTO.TimeRange> timeRangeMap = new java.util.HashMap<>();
-                    
-                    // Agregar horarios de patrones recurrentes
-                    for (ClassSchedulePattern pattern : patterns) {
-                        String key = pattern.getStartTime() + "-" + pattern.getEndTime();
-                        Long count = subscriptionRepository.countByClazzIdAndDateAndStartTimeAndEndTimeAndActiveTrue(
-                                clazz.getId(),
-                                date,
-                                pattern.getStartTime(),
-                                pattern.getEndTime()
-                        );
-                        
-                        timeRangeMap.put(key, ClassDTO.TimeRange.builder()
-                                .startTime(pattern.getStartTime())
-                                .endTime(pattern.getEndTime())
-                                .subscriptionCount(count != null ? count.intValue() : 0)
-                                .build());
-                    }
-                    
-                    // Agregar horarios de suscripciones directas (pueden no tener patrón)
-                    for (ClassSubscription subscription : subscriptionsForDate) {
-                        String key = subscription.getStartTime() + "-" + subscription.getEndTime();
-                        if (!timeRangeMap.containsKey(key)) {
-                            Long count = subscriptionRepository.countByClazzIdAndDateAndStartTimeAndEndTimeAndActiveTrue(
-                                    clazz.getId(),
-                                    date,
-                                    subscription.getStartTime(),
-                                    subscription.getEndTime()
-                            );
-                            
-                            timeRangeMap.put(key, ClassDTO.TimeRange.builder()
-                                    .startTime(subscription.getStartTime())
-                                    .endTime(subscription.getEndTime())
-                                    .subscriptionCount(count != null ? count.intValue() : 0)
-                                    .build());
-                        }
-                    }
-                    
-                    // Convertir mapa a lista ordenada por hora de inicio
-                    List<ClassDTO.TimeRange> timeRanges = timeRangeMap.values().stream()
-                            .sorted(java.util.Comparator.comparing(ClassDTO.TimeRange::getStartTime))
-                            .collect(java.util.stream.Collectors.toList());
-                    
-                    // Si no hay horarios, retornar null (se filtrará después)
-                    if (timeRanges.isEmpty()) {
-                        return null;
-                    }
-                    
-                    // Contar total de suscripciones de la clase
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    
-                    return ClassDTO.ResponseWithDate.builder()
-                            .id(clazz.getId())
-                            .name(clazz.getName())
-                            .description(clazz.getDescription())
-                            .capacity(clazz.getCapacity())
-                            .active(clazz.getActive())
-                            .subscriptionCount(subscriptionCount != null ? subscriptionCount : 0)
-                            .branch(clazz.getBranch() != null ? BranchDto.Response.fromEntity(clazz.getBranch()) : null)
-                            .createdBy(clazz.getCreatedBy() != null ? UserDTO.SummaryResponse.fromEntity(clazz.getCreatedBy()) : null)
-                            .date(date)
-                            .dayOfWeek(dayOfWeek)
-                            .timeRanges(timeRanges)
-                            .createdAt(clazz.getCreatedAt())
-                            .updatedAt(clazz.getUpdatedAt())
-                            .build();
-                })
-                .filter(java.util.Objects::nonNull) // Filtrar clases sin horarios
-                .collect(java.util.stream.Collectors.toList());
+        return timetableService.getTimetable(from, to, branchId);
     }
 
     /**
@@ -391,13 +240,7 @@ public class ClassService {
         log.info("Buscando clases por nombre: {}", name);
         
         List<Class> classes = classRepository.findByNameContainingIgnoreCase(name);
-        return classes.stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .toList();
+        return responseAssembler.toResponses(classes);
     }
 
     /**
@@ -418,13 +261,7 @@ public class ClassService {
             classes = classRepository.findAll();
         }
         
-        return classes.stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .toList();
+        return responseAssembler.toResponses(classes);
     }
 
     /**
@@ -435,13 +272,7 @@ public class ClassService {
         log.info("Obteniendo clases con horarios disponibles");
         
         List<Class> classes = classRepository.findClassesWithAvailableSchedules();
-        return classes.stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .toList();
+        return responseAssembler.toResponses(classes);
     }
 
     /**
@@ -476,13 +307,8 @@ public class ClassService {
         Class updatedClass = classRepository.save(clazz);
         log.info("Clase actualizada exitosamente: {}", updatedClass.getName());
         
-        // Cargar patrones para la respuesta (sin modificar la colección de la entidad)
-        List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(updatedClass.getId());
-        
-        // Contar suscripciones activas (optimizado con COUNT en BD)
-        Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(updatedClass.getId()).intValue();
-        
-        return ClassDTO.Response.fromEntity(updatedClass, patterns, subscriptionCount, subscriptionRepository);
+        // Cargar patrones y conteos para la respuesta (sin modificar la colección de la entidad)
+        return responseAssembler.toResponse(updatedClass);
     }
 
     /**
@@ -598,13 +424,7 @@ public class ClassService {
         log.info("Obteniendo clases creadas por usuario: {}", createdById);
         
         List<Class> classes = classRepository.findByCreatedById(createdById);
-        return classes.stream()
-                .map(clazz -> {
-                    List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(clazz.getId());
-                    Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(clazz.getId()).intValue();
-                    return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
-                })
-                .toList();
+        return responseAssembler.toResponses(classes);
     }
 
     /**
@@ -704,12 +524,7 @@ public class ClassService {
             log.info("Horario específico creado exitosamente para fecha {}", request.getDate());
         }
 
-        // Cargar patrones actualizados para la respuesta
-        List<ClassSchedulePattern> patterns = schedulePatternRepository.findByClazzIdAndActiveTrue(classId);
-        
-        // Contar suscripciones activas (optimizado con COUNT en BD)
-        Integer subscriptionCount = subscriptionRepository.countActiveSubscriptionsByClassId(classId).intValue();
-        
-        return ClassDTO.Response.fromEntity(clazz, patterns, subscriptionCount, subscriptionRepository);
+        // Cargar patrones y conteos para la respuesta (sin modificar la colección de la entidad)
+        return responseAssembler.toResponse(clazz);
     }
 }
@@ -1,24 +1,37 @@
 package com.backoffice.fitandflex.service;
 
 import com.backoffice.fitandflex.dto.ClassDTO;
+import com.backoffice.fitandflex.dto.CursorPage;
+import com.backoffice.fitandflex.dto.CursorPageRequest;
 import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.ClassSchedulePattern;
 import com.backoffice.fitandflex.entity.ClassSubscription;
 import com.backoffice.fitandflex.entity.User;
 import com.backoffice.fitandflex.repository.BranchRepository;
 import com.backoffice.fitandflex.repository.ClassRepository;
+import com.backoffice.fitandflex.repository.ClassSchedulePatternRepository;
 import com.backoffice.fitandflex.repository.ClassSubscriptionRepository;
 import com.backoffice.fitandflex.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +47,16 @@ public class ClassSubscriptionService {
     private final ClassRepository classRepository;
     private final UserRepository userRepository;
     private final BranchRepository branchRepository;
+    private final SlotAdmissionControl admissionControl;
+    private final ClassSchedulePatternRepository patternRepository;
+    private final ClassCreditLedger creditLedger;
+    private final OperationMetrics operationMetrics;
+
+    /**
+     * Duración máxima de una inscripción por período (días)
+     */
+    @Value("${app.subscriptions.term.max-days:186}")
+    private int termMaxDays;
 
     /**
      * Crear una nueva suscripción
@@ -43,6 +66,12 @@ public class ClassSubscriptionService {
      * @param isSuperAdmin Indica si el usuario es SUPER_ADMIN
      */
     public ClassDTO.SubscriptionResponse createSubscription(Long classId, ClassDTO.CreateSubscriptionRequest request, Long userBranchId, boolean isSuperAdmin) {
+        return operationMetrics.time("createSubscription",
+                operation -> createSubscription(classId, request, userBranchId, isSuperAdmin, operation));
+    }
+
+    private ClassDTO.SubscriptionResponse createSubscription(Long classId, ClassDTO.CreateSubscriptionRequest request, Long userBranchId,
+                                                             boolean isSuperAdmin, OperationMetrics.Operation operation) {
         log.info("Creando suscripción para usuario {} en clase {}", request.getUserId(), classId);
 
         // Validar que el usuario existe
@@ -52,6 +81,7 @@ public class ClassSubscriptionService {
         // Validar que la clase existe
         Class clazz = classRepository.findById(classId)
                 .orElseThrow(() -> new IllegalArgumentException("Clase no encontrada con ID: " + classId));
+        operation.branch(clazz.getBranch());
 
         // Validar que la clase está activa
         if (!clazz.getActive()) {
@@ -102,22 +132,23 @@ public class ClassSubscriptionService {
                 request.getStartTime(),
                 request.getEndTime());
 
+        // Descontar una clase de la membresía del usuario (lanza excepción si no tiene clases disponibles)
+        Long membershipId = creditLedger.consume(user.getId(), clazz, date);
+
         ClassSubscription savedSubscription;
         
         if (existingInactiveSubscription.isPresent() && !existingInactiveSubscription.get().getActive()) {
-            // Reactivar suscripción existente
+            // Reactivar suscripción existente (ocupa un cupo: pasa por el control de admisión)
+            admissionControl.admit(clazz, date, request.getStartTime(), request.getEndTime());
             ClassSubscription subscription = existingInactiveSubscription.get();
             subscription.setActive(true);
+            subscription.setMembershipId(membershipId);
             savedSubscription = subscriptionRepository.save(subscription);
             log.info("Suscripción reactivada exitosamente con ID: {}", savedSubscription.getId());
         } else {
             // Validar capacidad de la clase para esta fecha específica
-            Long currentSubscriptions = subscriptionRepository.countByClazzIdAndDateAndStartTimeAndEndTimeAndActiveTrue(
-                    classId, date, request.getStartTime(), request.getEndTime());
-            
-            if (currentSubscriptions >= clazz.getCapacity()) {
-                throw new IllegalArgumentException("La clase está llena para este horario y fecha");
-            }
+            // (lock por horario + incremento condicional en BD; lanza excepción si está llena)
+            admissionControl.admit(clazz, date, request.getStartTime(), request.getEndTime());
 
             // Crear nueva suscripción (siempre con fecha específica, recurrent siempre false)
             ClassSubscription subscription = ClassSubscription.builder()
@@ -129,6 +160,7 @@ public class ClassSubscriptionService {
                     .dayOfWeek(dayOfWeek)
                     .recurrent(false) // Siempre false, cada suscripción es para una fecha específica
                     .active(true)
+                    .membershipId(membershipId)
                     .build();
 
             savedSubscription = subscriptionRepository.save(subscription);
@@ -138,6 +170,157 @@ public class ClassSubscriptionService {
         return ClassDTO.SubscriptionResponse.fromEntity(savedSubscription);
     }
 
+    /**
+     * Inscribir a un usuario en los horarios de una clase durante un período.
+     * Expande la regla (días de la semana y horario) contra los patrones activos de la clase y crea una
+     * suscripción por fecha; la capacidad de todos los horarios se verifica en lote y los que están llenos
+     * o no tienen clases disponibles en la membresía se informan en la respuesta sin cancelar la
+     * inscripción en los demás.
+     * @param classId ID de la clase
+     * @param request Usuario, período y regla de recurrencia
+     * @param userBranchId ID de la sucursal del usuario (null si es SUPER_ADMIN)
+     * @param isSuperAdmin Indica si el usuario es SUPER_ADMIN
+     */
+    public ClassDTO.TermEnrollmentResponse enrollForTerm(Long classId, ClassDTO.TermEnrollmentRequest request,
+                                                         Long userBranchId, boolean isSuperAdmin) {
+        log.info("Inscribiendo usuario {} en clase {} del {} al {}", request.getUserId(), classId,
+                request.getStartDate(), request.getEndDate());
+
+        User user = userRepository.findById(request.getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + request.getUserId()));
+
+        Class clazz = classRepository.findById(classId)
+                .orElseThrow(() -> new IllegalArgumentException("Clase no encontrada con ID: " + classId));
+
+        if (!clazz.getActive()) {
+            throw new IllegalArgumentException("No se puede suscribir a clases inactivas");
+        }
+
+        if (!isSuperAdmin && userBranchId != null && clazz.getBranch() != null) {
+            if (!clazz.getBranch().getId().equals(userBranchId)) {
+                throw new IllegalArgumentException("No se puede crear suscripciones para clases de otras sucursales");
+            }
+        }
+
+        LocalDate from = request.getStartDate();
+        LocalDate to = request.getEndDate();
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        if (ChronoUnit.DAYS.between(from, to) + 1 > termMaxDays) {
+            throw new IllegalArgumentException("El período no puede superar " + termMaxDays + " días");
+        }
+
+        // Expandir la regla contra los patrones de horario de la clase
+        Map<Integer, List<ClassSchedulePattern>> patternsByDay = new HashMap<>();
+        for (ClassSchedulePattern pattern : patternRepository.findByClazzIdAndActiveTrue(classId)) {
+            boolean dayMatches = request.getDaysOfWeek() == null || request.getDaysOfWeek().isEmpty()
+                    || request.getDaysOfWeek().contains(pattern.getDayOfWeek());
+            boolean startMatches = request.getStartTime() == null || request.getStartTime().equals(pattern.getStartTime());
+            boolean endMatches = request.getEndTime() == null || request.getEndTime().equals(pattern.getEndTime());
+            if (dayMatches && startMatches && endMatches) {
+                patternsByDay.computeIfAbsent(pattern.getDayOfWeek(), day -> new ArrayList<>()).add(pattern);
+            }
+        }
+        List<SlotAdmissionControl.Slot> slots = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            for (ClassSchedulePattern pattern : patternsByDay.getOrDefault(date.getDayOfWeek().getValue(), List.of())) {
+                slots.add(new SlotAdmissionControl.Slot(date, pattern.getStartTime(), pattern.getEndTime()));
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("La clase no tiene horarios que coincidan con la regla en el período indicado");
+        }
+        slots.sort(Comparator.comparing(SlotAdmissionControl.Slot::date)
+                .thenComparing(SlotAdmissionControl.Slot::startTime));
+
+        // Suscripciones existentes del usuario en el período: las activas se omiten, las canceladas se reactivan
+        Map<SlotAdmissionControl.Slot, ClassSubscription> existing = new HashMap<>();
+        for (ClassSubscription subscription : subscriptionRepository.findByUserIdAndClazzIdAndDateBetween(
+                user.getId(), classId, from, to)) {
+            existing.put(new SlotAdmissionControl.Slot(subscription.getDate(), subscription.getStartTime(),
+                    subscription.getEndTime()), subscription);
+        }
+        List<SlotAdmissionControl.Slot> alreadySubscribed = new ArrayList<>();
+        List<SlotAdmissionControl.Slot> candidates = new ArrayList<>();
+        for (SlotAdmissionControl.Slot slot : slots) {
+            ClassSubscription subscription = existing.get(slot);
+            if (subscription != null && Boolean.TRUE.equals(subscription.getActive())) {
+                alreadySubscribed.add(slot);
+            } else {
+                candidates.add(slot);
+            }
+        }
+
+        // Créditos de la membresía en orden de fecha y capacidad de los horarios en lote. Los créditos de
+        // los horarios llenos se devuelven y se reasignan a las fechas siguientes, hasta que no se libere ninguno
+        ClassCreditLedger.Allocation credits = creditLedger.allocate(user.getId(), clazz);
+        // Las rondas de admisión de abajo solo piden horarios de candidates: sus franjas se toman todas aquí, en orden
+        admissionControl.lockAll(clazz, candidates);
+        Set<SlotAdmissionControl.Slot> admitted = new LinkedHashSet<>();
+        Set<SlotAdmissionControl.Slot> full = new LinkedHashSet<>();
+        List<SlotAdmissionControl.Slot> pending = credits.assign(candidates);
+        while (!pending.isEmpty()) {
+            Set<SlotAdmissionControl.Slot> batch = admissionControl.admitAll(clazz, pending);
+            admitted.addAll(batch);
+            for (SlotAdmissionControl.Slot slot : pending) {
+                if (!batch.contains(slot)) {
+                    full.add(slot);
+                    credits.release(slot);
+                }
+            }
+            if (batch.size() == pending.size()) {
+                break;
+            }
+            pending = credits.assign(candidates.stream()
+                    .filter(slot -> !admitted.contains(slot) && !full.contains(slot))
+                    .toList());
+        }
+        creditLedger.consumeAllocated(credits);
+        List<SlotAdmissionControl.Slot> noCredits = candidates.stream()
+                .filter(slot -> !admitted.contains(slot) && !full.contains(slot))
+                .toList();
+
+        List<ClassSubscription> toSave = new ArrayList<>(admitted.size());
+        for (SlotAdmissionControl.Slot slot : candidates) {
+            if (!admitted.contains(slot)) {
+                continue;
+            }
+            ClassSubscription subscription = existing.get(slot);
+            if (subscription != null) {
+                subscription.setActive(true);
+                subscription.setMembershipId(credits.membershipOf(slot));
+            } else {
+                subscription = ClassSubscription.builder()
+                        .user(user)
+                        .clazz(clazz)
+                        .startTime(slot.startTime())
+                        .endTime(slot.endTime())
+                        .date(slot.date())
+                        .dayOfWeek(slot.date().getDayOfWeek().getValue())
+                        .recurrent(false) // Cada suscripción es para una fecha específica
+                        .active(true)
+                        .membershipId(credits.membershipOf(slot))
+                        .build();
+            }
+            toSave.add(subscription);
+        }
+        List<ClassSubscription> saved = subscriptionRepository.saveAll(toSave);
+
+        log.info("Inscripción por período de usuario {} en clase {}: {} horarios, {} suscripciones, {} ya suscritos, {} llenos, {} sin clases disponibles",
+                user.getId(), classId, slots.size(), saved.size(), alreadySubscribed.size(), full.size(), noCredits.size());
+
+        return ClassDTO.TermEnrollmentResponse.builder()
+                .userId(user.getId())
+                .classId(classId)
+                .requestedSlots(slots.size())
+                .subscriptions(saved.stream().map(ClassDTO.SubscriptionResponse::fromEntity).toList())
+                .alreadySubscribed(alreadySubscribed.stream().map(ClassSubscriptionService::toTermSlot).toList())
+                .full(full.stream().map(ClassSubscriptionService::toTermSlot).toList())
+                .noCredits(noCredits.stream().map(ClassSubscriptionService::toTermSlot).toList())
+                .build();
+    }
+
     /**
      * Obtener todas las suscripciones activas de una clase
      * @param classId ID de la clase
@@ -240,8 +423,12 @@ public class ClassSubscriptionService {
         ClassSubscription subscription = subscriptionRepository.findById(subscriptionId)
                 .orElseThrow(() -> new IllegalArgumentException("Suscripción no encontrada con ID: " + subscriptionId));
         
+        boolean wasActive = Boolean.TRUE.equals(subscription.getActive());
         subscription.setActive(false);
         ClassSubscription savedSubscription = subscriptionRepository.save(subscription);
+        if (wasActive) {
+            releaseSlot(savedSubscription);
+        }
         
         log.info("Suscripción cancelada exitosamente: {}", subscriptionId);
         return ClassDTO.SubscriptionResponse.fromEntity(savedSubscription);
@@ -253,11 +440,13 @@ public class ClassSubscriptionService {
     public void deleteSubscription(Long subscriptionId) {
         log.info("Eliminando suscripción: {}", subscriptionId);
         
-        if (!subscriptionRepository.existsById(subscriptionId)) {
-            throw new IllegalArgumentException("Suscripción no encontrada con ID: " + subscriptionId);
-        }
+        ClassSubscription subscription = subscriptionRepository.findById(subscriptionId)
+                .orElseThrow(() -> new IllegalArgumentException("Suscripción no encontrada con ID: " + subscriptionId));
         
-        subscriptionRepository.deleteById(subscriptionId);
+        subscriptionRepository.delete(subscription);
+        if (Boolean.TRUE.equals(subscription.getActive())) {
+            releaseSlot(subscription);
+        }
         log.info("Suscripción eliminada exitosamente: {}", subscriptionId);
     }
 
@@ -288,6 +477,7 @@ public class ClassSubscriptionService {
         ClassSubscription subscription = subscriptions.get(0);
         subscription.setActive(false);
         ClassSubscription savedSubscription = subscriptionRepository.save(subscription);
+        releaseSlot(savedSubscription);
         
         log.info("Suscripción cancelada exitosamente: {}", savedSubscription.getId());
         return ClassDTO.SubscriptionResponse.fromEntity(savedSubscription);
@@ -310,6 +500,7 @@ public class ClassSubscriptionService {
         
         subscription.setActive(false);
         ClassSubscription savedSubscription = subscriptionRepository.save(subscription);
+        releaseSlot(savedSubscription);
         
         log.info("Suscripción cancelada exitosamente: {}", savedSubscription.getId());
         return ClassDTO.SubscriptionResponse.fromEntity(savedSubscription);
@@ -327,16 +518,35 @@ public class ClassSubscriptionService {
             throw new IllegalArgumentException("Sucursal no encontrada con ID: " + branchId);
         }
         
-        // Contar total para debugging
-        long totalCount = subscriptionRepository.countByBranchId(branchId);
-        log.debug("Total de suscripciones encontradas para branch {}: {}", branchId, totalCount);
-        
         Page<ClassSubscription> subscriptions = subscriptionRepository.findByBranchId(branchId, pageable);
         log.info("Suscripciones obtenidas: {} de {}", subscriptions.getNumberOfElements(), subscriptions.getTotalElements());
         
         return subscriptions.map(ClassDTO.SubscriptionResponse::fromEntity);
     }
 
+    /**
+     * Obtener suscripciones de una sucursal con paginación por cursor (más recientes primero)
+     * El total solo se cuenta si se pide explícitamente
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ClassDTO.SubscriptionResponse> getSubscriptionsByBranchId(Long branchId, CursorPageRequest request) {
+        log.info("Obteniendo suscripciones para sucursal {} por cursor - tamaño: {}", branchId, request.getSize());
+
+        if (!branchRepository.existsById(branchId)) {
+            throw new IllegalArgumentException("Sucursal no encontrada con ID: " + branchId);
+        }
+
+        Pageable limit = PageRequest.of(0, request.getSize() + 1);
+        List<ClassSubscription> rows = request.isFirstPage()
+                ? subscriptionRepository.findKeysetFirstByBranchId(branchId, limit)
+                : subscriptionRepository.findKeysetAfterByBranchId(branchId, request.getAfterLocalDateTime(), request.getAfterId(), limit);
+        Long total = request.isIncludeTotal() ? subscriptionRepository.countByBranchId(branchId) : null;
+
+        return CursorPage.from(rows, request.getSize(),
+                cs -> CursorPageRequest.encode(cs.getCreatedAt(), cs.getId()),
+                ClassDTO.SubscriptionResponse::fromEntity, total);
+    }
+
     /**
      * Obtener todas las suscripciones activas de una sucursal con paginación
      */
@@ -358,5 +568,25 @@ public class ClassSubscriptionService {
         
         return subscriptions.map(ClassDTO.SubscriptionResponse::fromEntity);
     }
-}
 
+    /**
+     * Liberar el cupo de una suscripción (contador en BD) y devolver la clase a la membresía
+     */
+    private void releaseSlot(ClassSubscription subscription) {
+        creditLedger.refund(subscription.getMembershipId(), 1);
+        admissionControl.release(
+                subscription.getClazz().getId(),
+                subscription.getDate(),
+                subscription.getStartTime(),
+                subscription.getEndTime());
+    }
+
+    private static ClassDTO.TermSlot toTermSlot(SlotAdmissionControl.Slot slot) {
+        return ClassDTO.TermSlot.builder()
+                .date(slot.date())
+                .dayOfWeek(slot.date().getDayOfWeek().getValue())
+                .startTime(slot.startTime())
+                .endTime(slot.endTime())
+                .build();
+    }
+}
@@ -0,0 +1,217 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.dto.BranchDto;
+import com.backoffice.fitandflex.dto.ClassDTO;
+import com.backoffice.fitandflex.dto.UserDTO;
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.ClassSchedulePattern;
+import com.backoffice.fitandflex.repository.ClassRepository;
+import com.backoffice.fitandflex.repository.ClassSchedulePatternRepository;
+import com.backoffice.fitandflex.repository.ClassSubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Motor de horarios diarios de clases.
+ * Obtiene los patrones de los días consultados, los conteos de suscripciones por fecha y horario
+ * y las clases involucradas con un número fijo de consultas, y combina los resultados en memoria.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class ClassTimetableService {
+
+    /**
+     * Número máximo de días que se pueden consultar en un solo rango
+     */
+    public static final int MAX_RANGE_DAYS = 31;
+
+    private final ClassRepository classRepository;
+    private final ClassSchedulePatternRepository schedulePatternRepository;
+    private final ClassSubscriptionRepository subscriptionRepository;
+
+    /**
+     * Obtener las clases activas con sus horarios para una fecha
+     * @param date Fecha a consultar
+     * @param branchId ID de la sucursal para filtrar (null para todas las sucursales)
+     */
+    public List<ClassDTO.ResponseWithDate> getTimetable(LocalDate date, Long branchId) {
+        return getTimetable(date, date, branchId);
+    }
+
+    /**
+     * Obtener las clases activas con sus horarios para cada fecha de un rango (ambos extremos incluidos)
+     * Incluye clases con patrones para el día de la semana Y clases con suscripciones directas para la fecha
+     * @param from Fecha inicial
+     * @param to Fecha final
+     * @param branchId ID de la sucursal para filtrar (null para todas las sucursales)
+     */
+    public List<ClassDTO.ResponseWithDate> getTimetable(LocalDate from, LocalDate to, Long branchId) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Las fechas de inicio y fin son obligatorias");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("La fecha de fin debe ser igual o posterior a la fecha de inicio");
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException(
+                    String.format("El rango de fechas no puede exceder %d días", MAX_RANGE_DAYS));
+        }
+        log.info("Obteniendo horario de clases desde {} hasta {}, branchId: {}", from, to, branchId);
+
+        // Días de la semana presentes en el rango (1=Lunes, 7=Domingo)
+        Set<Integer> daysOfWeek = new HashSet<>();
+        for (LocalDate date = from; !date.isAfter(to) && daysOfWeek.size() < 7; date = date.plusDays(1)) {
+            daysOfWeek.add(date.getDayOfWeek().getValue());
+        }
+
+        // 1) Patrones activos de clases activas para esos días (con clase, sucursal y creador)
+        Map<Long, Class> classesById = new HashMap<>();
+        Map<Long, Map<Integer, List<ClassSchedulePattern>>> patternsByClassAndDay = new HashMap<>();
+        for (ClassSchedulePattern pattern : schedulePatternRepository
+                .findActivePatternsOfActiveClassesByDaysOfWeek(daysOfWeek, branchId)) {
+            Class clazz = pattern.getClazz();
+            classesById.putIfAbsent(clazz.getId(), clazz);
+            patternsByClassAndDay
+                    .computeIfAbsent(clazz.getId(), id -> new HashMap<>())
+                    .computeIfAbsent(pattern.getDayOfWeek(), day -> new ArrayList<>())
+                    .add(pattern);
+        }
+
+        // 2) Conteos de suscripciones activas por clase, fecha y horario
+        Map<Long, Map<LocalDate, List<ClassSubscriptionRepository.DateTimeRangeSubscriptionCount>>> slotsByClassAndDate =
+                new HashMap<>();
+        for (ClassSubscriptionRepository.DateTimeRangeSubscriptionCount slot : subscriptionRepository
+                .countActiveSubscriptionsByDateRangeGroupedBySlot(from, to, branchId)) {
+            slotsByClassAndDate
+                    .computeIfAbsent(slot.getClassId(), id -> new HashMap<>())
+                    .computeIfAbsent(slot.getSubscriptionDate(), d -> new ArrayList<>())
+                    .add(slot);
+        }
+
+        // 3) Clases que solo tienen suscripciones directas (sin patrón para esos días)
+        Set<Long> missingClassIds = new HashSet<>(slotsByClassAndDate.keySet());
+        missingClassIds.removeAll(classesById.keySet());
+        if (!missingClassIds.isEmpty()) {
+            for (Class clazz : classRepository.findActiveClassesByIdIn(missingClassIds)) {
+                classesById.put(clazz.getId(), clazz);
+            }
+        }
+
+        if (classesById.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 4) Conteo total de suscripciones activas por clase
+        Map<Long, Long> totalsByClass = new HashMap<>();
+        for (ClassSubscriptionRepository.ClassSubscriptionCount row
+                : subscriptionRepository.countActiveSubscriptionsGroupedByClass(classesById.keySet())) {
+            totalsByClass.put(row.getClassId(), row.getTotal());
+        }
+
+        List<Class> orderedClasses = new ArrayList<>(classesById.values());
+        orderedClasses.sort(Comparator.comparing(Class::getName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(Class::getId));
+
+        List<ClassDTO.ResponseWithDate> result = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            int dayOfWeek = date.getDayOfWeek().getValue();
+            for (Class clazz : orderedClasses) {
+                List<ClassSchedulePattern> patterns = patternsByClassAndDay
+                        .getOrDefault(clazz.getId(), Collections.emptyMap())
+                        .getOrDefault(dayOfWeek, Collections.emptyList());
+                List<ClassSubscriptionRepository.DateTimeRangeSubscriptionCount> slots = slotsByClassAndDate
+                        .getOrDefault(clazz.getId(), Collections.emptyMap())
+                        .getOrDefault(date, Collections.emptyList());
+
+                List<ClassDTO.TimeRange> timeRanges = mergeTimeRanges(patterns, slots);
+
+                // Omitir clases sin horarios para esta fecha
+                if (timeRanges.isEmpty()) {
+                    continue;
+                }
+
+                result.add(ClassDTO.ResponseWithDate.builder()
+                        .id(clazz.getId())
+                        .name(clazz.getName())
+                        .description(clazz.getDescription())
+                        .capacity(clazz.getCapacity())
+                        .active(clazz.getActive())
+                        .subscriptionCount(totalsByClass.getOrDefault(clazz.getId(), 0L).intValue())
+                        .branch(clazz.getBranch() != null ? BranchDto.Response.fromEntity(clazz.getBranch()) : null)
+                        .createdBy(clazz.getCreatedBy() != null ? UserDTO.SummaryResponse.fromEntity(clazz.getCreatedBy()) : null)
+                        .date(date)
+                        .dayOfWeek(dayOfWeek)
+                        .timeRanges(timeRanges)
+                        .createdAt(clazz.getCreatedAt())
+                        .updatedAt(clazz.getUpdatedAt())
+                        .build());
+            }
+        }
+
+        log.debug("Horario generado con {} entradas para {} clases", result.size(), orderedClasses.size());
+        return result;
+    }
+
+    /**
+     * Combina los horarios de los patrones con los de las suscripciones directas de la fecha,
+     * ordenados por hora de inicio
+     */
+    private List<ClassDTO.TimeRange> mergeTimeRanges(
+            List<ClassSchedulePattern> patterns,
+            List<ClassSubscriptionRepository.DateTimeRangeSubscriptionCount> slots) {
+        Map<TimeRangeKey, Integer> countsByTimeRange = new HashMap<>();
+        for (ClassSubscriptionRepository.DateTimeRangeSubscriptionCount slot : slots) {
+            countsByTimeRange.put(new TimeRangeKey(slot.getStartTime(), slot.getEndTime()), slot.getTotal().intValue());
+        }
+
+        Map<TimeRangeKey, ClassDTO.TimeRange> timeRangeMap = new LinkedHashMap<>();
+
+        // Horarios de patrones recurrentes
+        for (ClassSchedulePattern pattern : patterns) {
+            TimeRangeKey key = new TimeRangeKey(pattern.getStartTime(), pattern.getEndTime());
+            timeRangeMap.putIfAbsent(key, ClassDTO.TimeRange.builder()
+                    .startTime(pattern.getStartTime())
+                    .endTime(pattern.getEndTime())
+                    .subscriptionCount(countsByTimeRange.getOrDefault(key, 0))
+                    .build());
+        }
+
+        // Horarios de suscripciones directas (pueden no tener patrón)
+        for (ClassSubscriptionRepository.DateTimeRangeSubscriptionCount slot : slots) {
+            TimeRangeKey key = new TimeRangeKey(slot.getStartTime(), slot.getEndTime());
+            timeRangeMap.putIfAbsent(key, ClassDTO.TimeRange.builder()
+                    .startTime(slot.getStartTime())
+                    .endTime(slot.getEndTime())
+                    .subscriptionCount(slot.getTotal().intValue())
+                    .build());
+        }
+
+        List<ClassDTO.TimeRange> timeRanges = new ArrayList<>(timeRangeMap.values());
+        timeRanges.sort(Comparator.comparing(ClassDTO.TimeRange::getStartTime));
+        return timeRanges;
+    }
+
+    /**
+     * Clave de un rango de horas (hora inicio, hora fin)
+     */
+    private record TimeRangeKey(LocalTime startTime, LocalTime endTime) {
+    }
+}
@@ -0,0 +1,360 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.repository.BranchRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.SelectionQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exportación masiva de pagos, reservas y suscripciones en CSV o NDJSON.
+ * <ul>
+ *   <li>Las filas se leen con un cursor de solo avance (ScrollableResults) sobre una sesión sin estado:
+ *       no hay contexto de persistencia que crezca con el número de filas.</li>
+ *   <li>Las consultas seleccionan columnas escalares con joins explícitos, sin cargar entidades ni
+ *       relaciones lazy.</li>
+ *   <li>El driver trae las filas en bloques de fetch-size y cada fila se escribe directamente en la
+ *       respuesta, así que la memoria es constante sea cual sea el rango exportado.</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+public class DataExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final SessionFactory sessionFactory;
+    private final BranchRepository branchRepository;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public DataExportService(EntityManagerFactory entityManagerFactory,
+                             BranchRepository branchRepository,
+                             ObjectMapper objectMapper,
+                             @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.branchRepository = branchRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Formatos de exportación
+     */
+    public enum Format {
+        CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)),
+        NDJSON("ndjson", MediaType.parseMediaType("application/x-ndjson"));
+
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * Interpretar el parámetro format (csv por defecto)
+         * @throws IllegalArgumentException si el formato no es soportado
+         */
+        public static Format fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Formato de exportación no soportado: " + value + " (use csv o ndjson)");
+        }
+    }
+
+    /**
+     * Exportar pagos, filtrando por sucursal del usuario y fecha de pago
+     * @param branchId Sucursal (null para todas)
+     * @param startDate Fecha de pago mínima, inclusive (opcional)
+     * @param endDate Fecha de pago máxima, inclusive (opcional)
+     */
+    public StreamingResponseBody exportPayments(Long branchId, LocalDateTime startDate, LocalDateTime endDate, Format format) {
+        validateFilters(branchId, startDate, endDate);
+        log.info("Exportando pagos en {} (sucursal: {}, desde: {}, hasta: {})", format, branchId, startDate, endDate);
+
+        ExportQuery query = new ExportQuery("pagos",
+                List.of("id", "paymentDate", "amount", "currency", "status", "paymentMethod", "refundAmount",
+                        "transactionId", "userId", "userName", "userEmail", "branchId", "reservationId"),
+                "SELECT p.id, p.paymentDate, p.amount, p.currency, p.status, p.paymentMethod, p.refundAmount, " +
+                        "p.transactionId, u.id, u.name, u.email, b.id, r.id " +
+                        "FROM Payment p JOIN p.user u LEFT JOIN u.branch b LEFT JOIN p.reservation r WHERE 1 = 1");
+        query.filter(branchId, "b.id = :branchId", "branchId");
+        query.filter(startDate, "p.paymentDate >= :startDate", "startDate");
+        query.filter(endDate, "p.paymentDate <= :endDate", "endDate");
+        query.orderBy("p.paymentDate, p.id");
+        return stream(query, format);
+    }
+
+    /**
+     * Exportar reservas, filtrando por sucursal de la clase y fecha de reserva
+     * @param branchId Sucursal (null para todas)
+     * @param startDate Fecha de reserva mínima, inclusive (opcional)
+     * @param endDate Fecha de reserva máxima, inclusive (opcional)
+     */
+    public StreamingResponseBody exportReservations(Long branchId, LocalDateTime startDate, LocalDateTime endDate, Format format) {
+        validateFilters(branchId, startDate, endDate);
+        log.info("Exportando reservas en {} (sucursal: {}, desde: {}, hasta: {})", format, branchId, startDate, endDate);
+
+        ExportQuery query = new ExportQuery("reservas",
+                List.of("id", "reservationDate", "status", "userId", "userName", "userEmail", "scheduleId",
+                        "startTime", "endTime", "classId", "className", "branchId", "createdAt"),
+                "SELECT r.id, r.reservationDate, r.status, u.id, u.name, u.email, s.id, " +
+                        "s.startTime, s.endTime, c.id, c.name, c.branch.id, r.createdAt " +
+                        "FROM Reservation r JOIN r.user u JOIN r.schedule s JOIN s.clazz c WHERE 1 = 1");
+        query.filter(branchId, "c.branch.id = :branchId", "branchId");
+        query.filter(startDate, "r.reservationDate >= :startDate", "startDate");
+        query.filter(endDate, "r.reservationDate <= :endDate", "endDate");
+        query.orderBy("r.id");
+        return stream(query, format);
+    }
+
+    /**
+     * Exportar suscripciones a clases, filtrando por sucursal de la clase y fecha de creación
+     * @param branchId Sucursal (null para todas)
+     * @param startDate Fecha de creación mínima, inclusive (opcional)
+     * @param endDate Fecha de creación máxima, inclusive (opcional)
+     */
+    public StreamingResponseBody exportSubscriptions(Long branchId, LocalDateTime startDate, LocalDateTime endDate, Format format) {
+        validateFilters(branchId, startDate, endDate);
+        log.info("Exportando suscripciones en {} (sucursal: {}, desde: {}, hasta: {})", format, branchId, startDate, endDate);
+
+        ExportQuery query = new ExportQuery("suscripciones",
+                List.of("id", "userId", "userName", "userEmail", "classId", "className", "branchId", "dayOfWeek",
+                        "startTime", "endTime", "date", "recurrent", "active", "createdAt"),
+                "SELECT cs.id, u.id, u.name, u.email, c.id, c.name, c.branch.id, cs.dayOfWeek, " +
+                        "cs.startTime, cs.endTime, cs.date, cs.recurrent, cs.active, cs.createdAt " +
+                        "FROM ClassSubscription cs JOIN cs.user u JOIN cs.clazz c WHERE 1 = 1");
+        query.filter(branchId, "c.branch.id = :branchId", "branchId");
+        query.filter(startDate, "cs.createdAt >= :startDate", "startDate");
+        query.filter(endDate, "cs.createdAt <= :endDate", "endDate");
+        query.orderBy("cs.id");
+        return stream(query, format);
+    }
+
+    /**
+     * Los errores de validación deben detectarse antes de empezar a escribir la respuesta
+     */
+    private void validateFilters(Long branchId, LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("La fecha de inicio debe ser anterior a la fecha de fin");
+        }
+        if (branchId != null && !branchRepository.existsById(branchId)) {
+            throw new IllegalArgumentException("Sucursal no encontrada con ID: " + branchId);
+        }
+    }
+
+    private StreamingResponseBody stream(ExportQuery query, Format format) {
+        return outputStream -> {
+            long startedAt = System.currentTimeMillis();
+            long rows = 0;
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                // Con PostgreSQL el fetch size solo usa un cursor de servidor dentro de una transacción
+                Transaction transaction = session.beginTransaction();
+                try {
+                    SelectionQuery<Object[]> selection = session.createSelectionQuery(query.hql(), Object[].class)
+                            .setFetchSize(fetchSize)
+                            .setReadOnly(true);
+                    query.parameters().forEach(selection::setParameter);
+
+                    try (ScrollableResults<Object[]> results = selection.scroll(ScrollMode.FORWARD_ONLY);
+                         RowWriter writer = rowWriter(format, outputStream, query.columns())) {
+                        while (results.next()) {
+                            writer.write(results.get());
+                            rows++;
+                        }
+                    }
+                } finally {
+                    // Solo lectura: no hay nada que confirmar
+                    transaction.rollback();
+                }
+            } catch (IOException e) {
+                log.info("Exportación de {} interrumpida por el cliente tras {} filas", query.name(), rows);
+                throw e;
+            }
+            log.info("Exportación de {} completada: {} filas en {} ms", query.name(), rows,
+                    System.currentTimeMillis() - startedAt);
+        };
+    }
+
+    private RowWriter rowWriter(Format format, OutputStream outputStream, List<String> columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        return format == Format.NDJSON ? new NdjsonRowWriter(writer, columns) : new CsvRowWriter(writer, columns);
+    }
+
+    /**
+     * Consulta de exportación con filtros opcionales
+     */
+    private static final class ExportQuery {
+
+        private final String name;
+        private final List<String> columns;
+        private final StringBuilder hql;
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        private ExportQuery(String name, List<String> columns, String select) {
+            this.name = name;
+            this.columns = columns;
+            this.hql = new StringBuilder(select);
+        }
+
+        private void filter(Object value, String condition, String parameter) {
+            if (value != null) {
+                hql.append(" AND ").append(condition);
+                parameters.put(parameter, value);
+            }
+        }
+
+        private void orderBy(String order) {
+            hql.append(" ORDER BY ").append(order);
+        }
+
+        private String name() {
+            return name;
+        }
+
+        private List<String> columns() {
+            return columns;
+        }
+
+        private String hql() {
+            return hql.toString();
+        }
+
+        private Map<String, Object> parameters() {
+            return parameters;
+        }
+    }
+
+    private interface RowWriter extends AutoCloseable {
+
+        void write(Object[] row) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * CSV (RFC 4180) con cabecera. Los textos que empiezan por =, +, - o @ se prefijan con ' para que
+     * las hojas de cálculo no los interpreten como fórmulas.
+     */
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(Writer writer, List<String> columns) throws IOException {
+            this.writer = writer;
+            writer.write(String.join(",", columns));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeValue(row[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (!(value instanceof String text)) {
+                writer.write(value instanceof Enum<?> e ? e.name() : value.toString());
+                return;
+            }
+            if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+                text = "'" + text;
+            }
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Un objeto JSON por línea, con las columnas como propiedades
+     */
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final JsonGenerator generator;
+        private final List<String> columns;
+
+        private NdjsonRowWriter(Writer writer, List<String> columns) throws IOException {
+            this.writer = writer;
+            this.columns = columns;
+            // El generador vuelca en el buffer del writer; el flush a la respuesta lo decide el writer
+            this.generator = objectMapper.createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < row.length; i++) {
+                generator.writeFieldName(columns.get(i));
+                generator.writeObject(row[i]);
+            }
+            generator.writeEndObject();
+            generator.flush();
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+            writer.flush();
+        }
+    }
+}
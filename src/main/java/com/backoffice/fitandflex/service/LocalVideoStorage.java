@@ -0,0 +1,202 @@
+package com.backoffice.fitandflex.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Almacenamiento de videos en el sistema de archivos local (app.video.storage.type=local).
+ * <ul>
+ *   <li>Las subidas se escriben en un archivo temporal junto al destino y se publican con un rename
+ *       atómico al terminar: nunca se sirve un archivo a medio escribir.</li>
+ *   <li>Los rangos se leen por posición en el buffer del llamador (del pool del streaming) y se
+ *       escriben a la respuesta; no se mapea memoria por petición.</li>
+ *   <li>No genera URLs firmadas: el acceso directo siempre pasa por el endpoint de streaming.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.video.storage.type", havingValue = "local")
+public class LocalVideoStorage implements VideoStorage {
+
+    private static final String TEMP_SUFFIX = ".part-";
+
+    private final VideoUploadPolicy uploadPolicy;
+    private final Path rootDir;
+    private final long copyChunkSize;
+
+    public LocalVideoStorage(VideoUploadPolicy uploadPolicy,
+                             @Value("${app.video.storage.local.root-dir:./data/videos}") String rootDir,
+                             @Value("${app.video.storage.local.copy-chunk-size:8388608}") long copyChunkSize) {
+        this.uploadPolicy = uploadPolicy;
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.copyChunkSize = Math.max(64 * 1024, copyChunkSize);
+        try {
+            Files.createDirectories(this.rootDir);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo crear el directorio de videos: " + this.rootDir, e);
+        }
+        log.info("Almacenamiento local de videos en {}", this.rootDir);
+    }
+
+    @Override
+    public String store(MultipartFile file) throws IOException {
+        uploadPolicy.validate(file);
+        String key = uploadPolicy.newKey(file.getOriginalFilename());
+        try (InputStream inputStream = file.getInputStream()) {
+            write(key, inputStream);
+        }
+        log.info("Video guardado en almacenamiento local: {}", key);
+        return key;
+    }
+
+    @Override
+    public StoredVideo store(InputStream inputStream, String contentType, String originalFilename,
+                             long declaredLength) throws IOException {
+        uploadPolicy.validate(contentType, declaredLength);
+        String key = uploadPolicy.newKey(originalFilename);
+        long size = write(key, inputStream);
+        log.info("Video guardado en almacenamiento local por streaming: {} ({} bytes)", key, size);
+        return new StoredVideo(key, size);
+    }
+
+    @Override
+    public long size(String key) {
+        try {
+            return Files.size(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("Video no encontrado: " + key, e);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al obtener el video: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public RangeSource openRange(String key, long start, long end) {
+        try {
+            return new LocalRangeSource(FileChannel.open(resolve(key), StandardOpenOption.READ), start, end);
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("Video no encontrado: " + key, e);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al obtener el video: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Optional<PresignedUrl> presign(String key, Duration validity) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+            log.info("Video eliminado del almacenamiento local: {}", key);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al eliminar el video: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copiar el stream a un archivo temporal y publicarlo con un rename atómico
+     * @return Bytes escritos
+     */
+    private long write(String key, InputStream inputStream) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX + UUID.randomUUID());
+
+        long maxBytes = uploadPolicy.getMaxFileSize();
+        boolean published = false;
+        try {
+            long total = 0;
+            try (ReadableByteChannel source = Channels.newChannel(inputStream);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                while (true) {
+                    // Pedir como máximo un byte más del límite para detectar el exceso sin leer de más
+                    long chunk = Math.min(copyChunkSize, maxBytes - total + 1);
+                    long transferred = out.transferFrom(source, total, chunk);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    total += transferred;
+                    if (total > maxBytes) {
+                        throw uploadPolicy.sizeExceeded();
+                    }
+                }
+                if (total == 0) {
+                    throw new IllegalArgumentException("El archivo no puede estar vacío");
+                }
+                out.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            published = true;
+            return total;
+        } finally {
+            if (!published) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Resolver la clave dentro del directorio raíz, rechazando rutas que salgan de él
+     */
+    private Path resolve(String key) {
+        Path path = rootDir.resolve(key).normalize();
+        if (!path.startsWith(rootDir) || path.equals(rootDir)) {
+            throw new IllegalArgumentException("Clave de video inválida: " + key);
+        }
+        return path;
+    }
+
+    /**
+     * Rango de un archivo local, leído por posición en el buffer del llamador: lectura del archivo a
+     * ese buffer y escritura desde él a la respuesta, sin otras copias.
+     */
+    private record LocalRangeSource(FileChannel channel, long start, long end) implements RangeSource {
+
+        @Override
+        public void transferTo(OutputStream outputStream, byte[] buffer) throws IOException {
+            long position = start;
+            while (position <= end) {
+                int length = (int) Math.min(buffer.length, end - position + 1);
+                int read = channel.read(ByteBuffer.wrap(buffer, 0, length), position);
+                if (read <= 0) {
+                    throw new EOFException("El archivo terminó antes de lo esperado");
+                }
+                outputStream.write(buffer, 0, read);
+                position += read;
+            }
+        }
+
+        @Override
+        public void abort() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // El canal ya no se usa
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.backoffice.fitandflex.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proceso periódico que pasa a EXPIRED las membresías activas con fecha de fin vencida.
+ * <ul>
+ *   <li>Procesa lotes (cada uno en su propia transacción) hasta que un lote sale incompleto.</li>
+ *   <li>Si otra instancia tiene el lock, esta ejecución termina sin hacer nada.</li>
+ *   <li>Publica métricas: memberships.expired (membresías expiradas) y memberships.expiry.runs
+ *       (ejecuciones por resultado: completed, skipped, failed), además del tiempo por ejecución.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class MembershipExpiryJob {
+
+    private final MembershipExpiryService expiryService;
+    private final int batchSize;
+    private final MeterRegistry meterRegistry;
+    private final Counter expiredCounter;
+    private final Timer runTimer;
+
+    public MembershipExpiryJob(MembershipExpiryService expiryService,
+                               @Value("${app.memberships.expiry.batch-size:500}") int batchSize,
+                               ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.expiryService = expiryService;
+        this.batchSize = Math.max(1, batchSize);
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+        this.expiredCounter = meterRegistry != null
+                ? Counter.builder("memberships.expired")
+                        .description("Membresías pasadas a EXPIRED por el proceso de expiración")
+                        .register(meterRegistry)
+                : null;
+        this.runTimer = meterRegistry != null
+                ? Timer.builder("memberships.expiry.duration")
+                        .description("Duración de las ejecuciones del proceso de expiración")
+                        .register(meterRegistry)
+                : null;
+    }
+
+    /**
+     * Expirar las membresías vencidas
+     */
+    @Scheduled(fixedDelayString = "${app.memberships.expiry.interval-ms:300000}",
+               initialDelayString = "${app.memberships.expiry.initial-delay-ms:60000}")
+    public void expireMemberships() {
+        long startedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        String outcome = "completed";
+        try {
+            MembershipExpiryService.BatchResult result;
+            do {
+                result = expiryService.expireNextBatch(now, batchSize);
+                if (!result.lockAcquired()) {
+                    outcome = "skipped";
+                    break;
+                }
+                expired += result.expiredIds().size();
+            } while (result.expiredIds().size() == batchSize);
+        } catch (RuntimeException e) {
+            // Los lotes ya confirmados se mantienen; el resto se procesa en la siguiente ejecución
+            outcome = "failed";
+            log.warn("Error en el proceso de expiración de membresías: {}", e.getMessage());
+        }
+
+        if (expired > 0) {
+            log.info("Proceso de expiración: {} membresías expiradas", expired);
+        } else if ("skipped".equals(outcome)) {
+            log.debug("Proceso de expiración omitido: otra instancia tiene el lock");
+        }
+        record(outcome, expired, System.nanoTime() - startedAt);
+    }
+
+    private void record(String outcome, int expired, long elapsedNanos) {
+        if (meterRegistry == null) {
+            return;
+        }
+        expiredCounter.increment(expired);
+        runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("memberships.expiry.runs", "outcome", outcome).increment();
+    }
+}
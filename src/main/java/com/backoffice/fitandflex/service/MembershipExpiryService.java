@@ -0,0 +1,54 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.repository.UserMembershipRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Expiración de membresías por lotes.
+ * Cada lote es una transacción que toma un advisory lock y marca como EXPIRED, con un único UPDATE,
+ * hasta batchSize membresías activas con fecha de fin vencida. El lock evita que varias instancias
+ * procesen a la vez; el UPDATE solo afecta a membresías aún ACTIVE, así repetir un lote no tiene efecto.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class MembershipExpiryService {
+
+    /**
+     * Clave del advisory lock del proceso de expiración
+     */
+    static final long EXPIRY_LOCK_KEY = "fitandflex:membership-expiry".hashCode();
+
+    private final UserMembershipRepository userMembershipRepository;
+
+    /**
+     * Resultado de un lote
+     * @param lockAcquired false si otra instancia está procesando (no se expiró nada)
+     * @param expiredIds IDs de las membresías expiradas en el lote
+     */
+    public record BatchResult(boolean lockAcquired, List<Long> expiredIds) {
+    }
+
+    /**
+     * Expirar el siguiente lote de membresías vencidas
+     * @param now Instante de referencia (fecha de fin anterior a este instante)
+     * @param batchSize Máximo de membresías a expirar
+     */
+    public BatchResult expireNextBatch(LocalDateTime now, int batchSize) {
+        if (!userMembershipRepository.tryAdvisoryXactLock(EXPIRY_LOCK_KEY)) {
+            return new BatchResult(false, List.of());
+        }
+        List<Long> expiredIds = userMembershipRepository.expireBatch(now, batchSize);
+        if (!expiredIds.isEmpty()) {
+            log.debug("{} membresías marcadas como expiradas: {}", expiredIds.size(), expiredIds);
+        }
+        return new BatchResult(true, expiredIds);
+    }
+}
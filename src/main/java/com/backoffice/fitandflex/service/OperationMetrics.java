@@ -0,0 +1,74 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.entity.Branch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Timers de las operaciones clave (reservas, suscripciones, membresías, pagos, login).
+ * <ul>
+ *   <li>Publica {@code fitandflex.operation} etiquetado por operación, sucursal ("none" si no aplica) y
+ *       resultado ({@code success} o el nombre de la excepción).</li>
+ *   <li>La sucursal se conoce dentro de la operación (la de la clase, el horario o el usuario), por eso el
+ *       cuerpo la informa con {@link Operation#branch}.</li>
+ *   <li>En los servicios transaccionales se mide dentro de la transacción: el commit queda en
+ *       {@code http.server.requests}.</li>
+ *   <li>Los buckets de SLO se configuran en {@code management.metrics.distribution.slo.fitandflex.operation}.</li>
+ * </ul>
+ */
+@Component
+public class OperationMetrics {
+
+    public static final String METRIC = "fitandflex.operation";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    public OperationMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.meterRegistry = meterRegistryProvider.getIfAvailable();
+    }
+
+    /**
+     * Sucursal de la operación en curso
+     */
+    public static final class Operation {
+
+        private String branch = NONE;
+
+        public void branch(Branch branch) {
+            branchId(branch != null ? branch.getId() : null);
+        }
+
+        public void branchId(Long branchId) {
+            this.branch = branchId != null ? branchId.toString() : NONE;
+        }
+    }
+
+    /**
+     * Ejecutar una operación midiendo su duración; las excepciones se propagan sin cambios
+     */
+    public <T> T time(String operation, Function<Operation, T> body) {
+        Operation current = new Operation();
+        if (meterRegistry == null) {
+            return body.apply(current);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return body.apply(current);
+        } catch (RuntimeException | Error ex) {
+            outcome = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder(METRIC)
+                    .description("Duración de las operaciones clave del negocio")
+                    .tags("operation", operation, "branch", current.branch, "outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+}
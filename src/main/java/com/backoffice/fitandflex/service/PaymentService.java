@@ -1,6 +1,8 @@
 package com.backoffice.fitandflex.service;
 
 import com.backoffice.fitandflex.dto.CommonDto;
+import com.backoffice.fitandflex.dto.CursorPage;
+import com.backoffice.fitandflex.dto.CursorPageRequest;
 import com.backoffice.fitandflex.dto.PaymentDTO;
 import com.backoffice.fitandflex.entity.Payment;
 import com.backoffice.fitandflex.entity.Reservation;
@@ -11,13 +13,17 @@ import com.backoffice.fitandflex.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +38,7 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final UserRepository userRepository;
     private final ReservationRepository reservationRepository;
+    private final PaymentStatsRollup paymentStatsRollup;
 
     /**
      * Crear un nuevo pago
@@ -64,6 +71,7 @@ public class PaymentService {
                 .build();
 
         Payment savedPayment = paymentRepository.save(payment);
+        paymentStatsRollup.apply(null, paymentStatsRollup.contributionOf(savedPayment));
         log.info("Pago creado exitosamente con ID: {}", savedPayment.getId());
 
         return PaymentDTO.fromEntity(savedPayment);
@@ -171,6 +179,25 @@ public class PaymentService {
         return payments.map(PaymentDTO::fromEntity);
     }
 
+    /**
+     * Obtener pagos por sucursal con paginación por cursor (más recientes primero)
+     * El total solo se cuenta si se pide explícitamente
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentDTO.Response> getPaymentsByBranch(Long branchId, CursorPageRequest request) {
+        log.info("Obteniendo pagos para sucursal {} por cursor - tamaño: {}", branchId, request.getSize());
+
+        Pageable limit = PageRequest.of(0, request.getSize() + 1);
+        List<Payment> rows = request.isFirstPage()
+                ? paymentRepository.findKeysetFirstByBranchId(branchId, limit)
+                : paymentRepository.findKeysetAfterByBranchId(branchId, request.getAfterLocalDateTime(), request.getAfterId(), limit);
+        Long total = request.isIncludeTotal() ? paymentRepository.countByBranchId(branchId) : null;
+
+        return CursorPage.from(rows, request.getSize(),
+                p -> CursorPageRequest.encode(p.getPaymentDate(), p.getId()),
+                PaymentDTO::fromEntity, total);
+    }
+
     /**
      * Obtener pagos por rango de fechas
      */
@@ -223,6 +250,7 @@ public class PaymentService {
         
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Pago no encontrado con ID: " + id));
+        PaymentStatsRollup.Contribution before = paymentStatsRollup.contributionOf(payment);
         
         // Actualizar campos si se proporcionan
         if (request.getStatus() != null) {
@@ -245,6 +273,7 @@ public class PaymentService {
         }
         
         Payment updatedPayment = paymentRepository.save(payment);
+        paymentStatsRollup.apply(before, paymentStatsRollup.contributionOf(updatedPayment));
         log.info("Pago actualizado exitosamente con ID: {}", updatedPayment.getId());
         
         return PaymentDTO.fromEntity(updatedPayment);
@@ -259,8 +288,10 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Pago no encontrado con ID: " + id));
         
+        PaymentStatsRollup.Contribution before = paymentStatsRollup.contributionOf(payment);
         payment.markAsCompleted(transactionId, gatewayReference);
         Payment updatedPayment = paymentRepository.save(payment);
+        paymentStatsRollup.apply(before, paymentStatsRollup.contributionOf(updatedPayment));
         log.info("Pago marcado como completado exitosamente con ID: {}", updatedPayment.getId());
         
         return PaymentDTO.fromEntity(updatedPayment);
@@ -275,8 +306,10 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Pago no encontrado con ID: " + id));
         
+        PaymentStatsRollup.Contribution before = paymentStatsRollup.contributionOf(payment);
         payment.markAsFailed(failureReason);
         Payment updatedPayment = paymentRepository.save(payment);
+        paymentStatsRollup.apply(before, paymentStatsRollup.contributionOf(updatedPayment));
         log.info("Pago marcado como fallido exitosamente con ID: {}", updatedPayment.getId());
         
         return PaymentDTO.fromEntity(updatedPayment);
@@ -301,8 +334,10 @@ public class PaymentService {
             throw new IllegalArgumentException("El monto del reembolso no puede exceder el monto del pago");
         }
         
+        PaymentStatsRollup.Contribution before = paymentStatsRollup.contributionOf(payment);
         payment.processRefund(request.getRefundAmount(), request.getRefundReason());
         Payment updatedPayment = paymentRepository.save(payment);
+        paymentStatsRollup.apply(before, paymentStatsRollup.contributionOf(updatedPayment));
         log.info("Reembolso procesado exitosamente para pago con ID: {}", updatedPayment.getId());
         
         return PaymentDTO.fromEntity(updatedPayment);
@@ -322,35 +357,23 @@ public class PaymentService {
             throw new IllegalArgumentException("No se puede eliminar un pago completado sin reembolso");
         }
         
+        paymentStatsRollup.apply(paymentStatsRollup.contributionOf(payment), null);
         paymentRepository.delete(payment);
         log.info("Pago eliminado exitosamente con ID: {}", id);
     }
 
     /**
-     * Obtener estadísticas de pagos
+     * Obtener estadísticas de pagos desde el acumulado diario
+     * @param startDate Primer día, inclusive (opcional)
+     * @param endDate Último día, inclusive (opcional)
+     * @param granularity day, week o month para incluir una serie por período (opcional)
      */
     @Transactional(readOnly = true)
-    public CommonDto.SuccessResponse<Object> getPaymentStats() {
-        long totalPayments = paymentRepository.count();
-        long pendingPayments = paymentRepository.countByStatus(Payment.PaymentStatus.PENDING);
-        long completedPayments = paymentRepository.countByStatus(Payment.PaymentStatus.COMPLETED);
-        long failedPayments = paymentRepository.countByStatus(Payment.PaymentStatus.FAILED);
-        long cancelledPayments = paymentRepository.countByStatus(Payment.PaymentStatus.CANCELLED);
-        long refundedPayments = paymentRepository.countByStatus(Payment.PaymentStatus.REFUNDED);
-        long partiallyRefundedPayments = paymentRepository.countByStatus(Payment.PaymentStatus.PARTIALLY_REFUNDED);
-        
+    public CommonDto.SuccessResponse<Object> getPaymentStats(LocalDate startDate, LocalDate endDate, String granularity) {
         return CommonDto.SuccessResponse.builder()
                 .success(true)
                 .message("Estadísticas obtenidas exitosamente")
-                .data(java.util.Map.of(
-                    "totalPayments", totalPayments,
-                    "pendingPayments", pendingPayments,
-                    "completedPayments", completedPayments,
-                    "failedPayments", failedPayments,
-                    "cancelledPayments", cancelledPayments,
-                    "refundedPayments", refundedPayments,
-                    "partiallyRefundedPayments", partiallyRefundedPayments
-                ))
+                .data(summarizeStats(null, startDate, endDate, granularity))
                 .build();
     }
 
@@ -383,25 +406,57 @@ public class PaymentService {
     }
 
     /**
-     * Obtener estadísticas de pagos por sucursal
+     * Obtener estadísticas de pagos por sucursal desde el acumulado diario
+     * @param startDate Primer día, inclusive (opcional)
+     * @param endDate Último día, inclusive (opcional)
+     * @param granularity day, week o month para incluir una serie por período (opcional)
      */
     @Transactional(readOnly = true)
-    public CommonDto.SuccessResponse<Object> getPaymentStatsByBranch(Long branchId) {
-        long totalPayments = paymentRepository.countByBranchId(branchId);
-        long completedPayments = paymentRepository.countByBranchIdAndStatus(branchId, Payment.PaymentStatus.COMPLETED);
-        BigDecimal totalAmount = paymentRepository.sumAmountByBranchId(branchId);
-        BigDecimal totalRefunded = paymentRepository.sumRefundAmountByBranchId(branchId);
-        
+    public CommonDto.SuccessResponse<Object> getPaymentStatsByBranch(Long branchId, LocalDate startDate, LocalDate endDate,
+                                                                     String granularity) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("branchId", branchId);
+        data.putAll(summarizeStats(branchId, startDate, endDate, granularity));
+
         return CommonDto.SuccessResponse.builder()
                 .success(true)
                 .message("Estadísticas de la sucursal obtenidas exitosamente")
-                .data(java.util.Map.of(
-                    "branchId", branchId,
-                    "totalPayments", totalPayments,
-                    "completedPayments", completedPayments,
-                    "totalAmount", totalAmount != null ? totalAmount : BigDecimal.ZERO,
-                    "totalRefunded", totalRefunded != null ? totalRefunded : BigDecimal.ZERO
-                ))
+                .data(data)
                 .build();
     }
+
+    /**
+     * Resolver el rango y la granularidad de las estadísticas.
+     * Con granularidad y sin rango completo se toman los últimos 30 días, 12 semanas o 12 meses.
+     */
+    private Map<String, Object> summarizeStats(Long branchId, LocalDate startDate, LocalDate endDate, String granularity) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("La fecha de inicio debe ser anterior a la fecha de fin");
+        }
+        PaymentStatsRollup.Granularity resolved = granularity != null && !granularity.isBlank()
+                ? PaymentStatsRollup.Granularity.fromParam(granularity) : null;
+        if (resolved != null) {
+            LocalDate today = LocalDate.now();
+            if (endDate == null) {
+                endDate = startDate != null && startDate.isAfter(today) ? startDate : today;
+            }
+            if (startDate == null) {
+                startDate = switch (resolved) {
+                    case DAY -> endDate.minusDays(29);
+                    case WEEK -> resolved.periodStart(endDate).minusWeeks(11);
+                    case MONTH -> resolved.periodStart(endDate).minusMonths(11);
+                };
+            }
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (startDate != null) {
+            data.put("startDate", startDate);
+        }
+        if (endDate != null) {
+            data.put("endDate", endDate);
+        }
+        data.putAll(paymentStatsRollup.summarize(branchId, startDate, endDate, resolved));
+        return data;
+    }
 }
@@ -0,0 +1,66 @@
+package com.backoffice.fitandflex.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Reconstrucción del acumulado diario de pagos desde la tabla de pagos.
+ * <ul>
+ *   <li>Una tarea diaria recalcula los últimos días, corrigiendo cualquier desviación del mantenimiento
+ *       incremental (cambios de fecha de pago, pagos modificados fuera de PaymentService).</li>
+ *   <li>Bajo demanda se puede reconstruir cualquier rango; se procesa por meses, cada mes en su propia
+ *       transacción, para no bloquear el acumulado durante toda la reconstrucción.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class PaymentStatsRebuildJob {
+
+    private final PaymentStatsRollup rollup;
+    private final int recentDays;
+
+    public PaymentStatsRebuildJob(PaymentStatsRollup rollup,
+                                  @Value("${app.payments.stats.rebuild-days:7}") int recentDays) {
+        this.rollup = rollup;
+        this.recentDays = Math.max(1, recentDays);
+    }
+
+    /**
+     * Recalcular los últimos días del acumulado
+     */
+    @Scheduled(cron = "${app.payments.stats.rebuild-cron:0 30 3 * * *}")
+    public void rebuildRecent() {
+        LocalDate today = LocalDate.now();
+        try {
+            rebuild(today.minusDays(recentDays - 1L), today);
+        } catch (RuntimeException e) {
+            log.warn("Error reconstruyendo el acumulado de pagos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruir el acumulado de un rango de días (inclusive)
+     * @return Número de filas de acumulado generadas
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("La fecha de inicio debe ser anterior a la fecha de fin");
+        }
+        long startedAt = System.currentTimeMillis();
+        int rows = 0;
+        LocalDate chunkStart = from;
+        while (!chunkStart.isAfter(to)) {
+            LocalDate monthEnd = chunkStart.withDayOfMonth(chunkStart.lengthOfMonth());
+            LocalDate chunkEnd = monthEnd.isBefore(to) ? monthEnd : to;
+            rows += rollup.rebuild(chunkStart, chunkEnd);
+            chunkStart = chunkEnd.plusDays(1);
+        }
+        log.info("Acumulado de pagos reconstruido del {} al {}: {} filas en {} ms",
+                from, to, rows, System.currentTimeMillis() - startedAt);
+        return rows;
+    }
+}
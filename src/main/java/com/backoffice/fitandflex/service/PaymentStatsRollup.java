@@ -0,0 +1,230 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.entity.Payment;
+import com.backoffice.fitandflex.entity.PaymentDailyStats;
+import com.backoffice.fitandflex.repository.PaymentDailyStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Acumulado diario de pagos (payment_daily_stats).
+ * <ul>
+ *   <li>Cada pago aporta una unidad, su monto y su reembolso a la fila (sucursal, día, estado, método).</li>
+ *   <li>Al crear, modificar o eliminar un pago se resta su aporte anterior y se suma el nuevo, en la misma
+ *       transacción que el cambio del pago.</li>
+ *   <li>Las estadísticas leen como mucho una fila por día, estado y método, en lugar de agregar pagos.</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class PaymentStatsRollup {
+
+    private final PaymentDailyStatsRepository statsRepository;
+
+    /**
+     * Granularidad de las series de estadísticas
+     */
+    public enum Granularity {
+        DAY, WEEK, MONTH;
+
+        /**
+         * Interpretar el parámetro granularity (day, week o month)
+         * @throws IllegalArgumentException si la granularidad no es soportada
+         */
+        public static Granularity fromParam(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Granularidad no soportada: " + value + " (use day, week o month)");
+            }
+        }
+
+        /**
+         * Primer día del período que contiene la fecha
+         */
+        public LocalDate periodStart(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+    }
+
+    /**
+     * Aporte de un pago al acumulado
+     */
+    public record Contribution(long branchId, LocalDate day, Payment.PaymentStatus status,
+                               Payment.PaymentMethod method, BigDecimal amount, BigDecimal refund) {
+
+        private boolean sameKey(Contribution other) {
+            return branchId == other.branchId && day.equals(other.day)
+                    && status == other.status && method == other.method;
+        }
+
+        private Contribution key() {
+            return new Contribution(branchId, day, status, method, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+
+        private Contribution plus(Contribution other) {
+            return new Contribution(branchId, day, status, method, amount.add(other.amount), refund.add(other.refund));
+        }
+    }
+
+    /**
+     * Aporte actual de un pago; tomarlo antes de modificarlo para poder aplicar la diferencia.
+     * La sucursal es la guardada en el pago, no la actual del usuario.
+     */
+    public Contribution contributionOf(Payment payment) {
+        long branchId = payment.getBranchId() != null ? payment.getBranchId() : PaymentDailyStats.NO_BRANCH;
+        return new Contribution(branchId, payment.getPaymentDate().toLocalDate(), payment.getStatus(),
+                payment.getPaymentMethod(), payment.getAmount(),
+                payment.getRefundAmount() != null ? payment.getRefundAmount() : BigDecimal.ZERO);
+    }
+
+    /**
+     * Aplicar al acumulado el cambio de aporte de un pago
+     * @param before Aporte antes del cambio (null si el pago es nuevo)
+     * @param after Aporte después del cambio (null si el pago se eliminó)
+     */
+    public void apply(Contribution before, Contribution after) {
+        if (before != null && after != null && before.sameKey(after)) {
+            BigDecimal amountDelta = after.amount().subtract(before.amount());
+            BigDecimal refundDelta = after.refund().subtract(before.refund());
+            if (amountDelta.signum() != 0 || refundDelta.signum() != 0) {
+                upsert(after, 0, amountDelta, refundDelta);
+            }
+            return;
+        }
+        if (before != null) {
+            upsert(before, -1, before.amount().negate(), before.refund().negate());
+        }
+        if (after != null) {
+            upsert(after, 1, after.amount(), after.refund());
+        }
+    }
+
+    /**
+     * Sumar al acumulado varios pagos nuevos, con un solo upsert por fila de acumulado
+     */
+    public void applyAll(Collection<Contribution> added) {
+        Map<Contribution, Long> counts = new LinkedHashMap<>();
+        Map<Contribution, Contribution> sums = new LinkedHashMap<>();
+        for (Contribution contribution : added) {
+            Contribution key = contribution.key();
+            counts.merge(key, 1L, Long::sum);
+            sums.merge(key, contribution, Contribution::plus);
+        }
+        sums.forEach((key, sum) -> upsert(sum, counts.get(key), sum.amount(), sum.refund()));
+    }
+
+    private void upsert(Contribution key, long count, BigDecimal amount, BigDecimal refund) {
+        statsRepository.applyDelta(key.branchId(), key.day(), key.status().name(), key.method().name(),
+                count, amount, refund);
+    }
+
+    /**
+     * Recalcular el acumulado de un rango de días (inclusive) desde la tabla de pagos
+     * @return Número de filas de acumulado generadas
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        statsRepository.lockForRebuild();
+        int deleted = statsRepository.deleteByDayRange(from, to);
+        int inserted = statsRepository.insertAggregatedFromPayments(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        log.debug("Acumulado de pagos reconstruido del {} al {}: {} filas eliminadas, {} insertadas",
+                from, to, deleted, inserted);
+        return inserted;
+    }
+
+    /**
+     * Estadísticas de pagos desde el acumulado
+     * @param branchId Sucursal (null para todas)
+     * @param from Primer día, inclusive (null sin límite)
+     * @param to Último día, inclusive (null sin límite)
+     * @param granularity Granularidad de la serie (null para no incluir serie; requiere from y to)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> summarize(Long branchId, LocalDate from, LocalDate to, Granularity granularity) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (granularity == null) {
+            Totals totals = new Totals();
+            statsRepository.sumGroupedByStatus(branchId, from, to)
+                    .forEach(row -> totals.add(row.getStatus(), row.getPayments(), row.getAmount(), row.getRefunded()));
+            totals.writeTo(data);
+            return data;
+        }
+
+        Totals totals = new Totals();
+        Map<LocalDate, Totals> periods = new TreeMap<>();
+        for (PaymentDailyStatsRepository.DayStatusTotals row : statsRepository.sumGroupedByDayAndStatus(branchId, from, to)) {
+            totals.add(row.getStatus(), row.getPayments(), row.getAmount(), row.getRefunded());
+            periods.computeIfAbsent(granularity.periodStart(row.getDay()), day -> new Totals())
+                    .add(row.getStatus(), row.getPayments(), row.getAmount(), row.getRefunded());
+        }
+        totals.writeTo(data);
+
+        List<Map<String, Object>> series = new ArrayList<>(periods.size());
+        periods.forEach((periodStart, periodTotals) -> {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("periodStart", periodStart);
+            point.put("totalPayments", periodTotals.payments);
+            point.put("completedPayments", periodTotals.countOf(Payment.PaymentStatus.COMPLETED));
+            point.put("totalAmount", periodTotals.amount);
+            point.put("totalRefunded", periodTotals.refunded);
+            series.add(point);
+        });
+        data.put("granularity", granularity.name().toLowerCase());
+        data.put("series", series);
+        return data;
+    }
+
+    /**
+     * Totales acumulados de un conjunto de filas
+     */
+    private static final class Totals {
+
+        private final Map<Payment.PaymentStatus, Long> countByStatus = new LinkedHashMap<>();
+        private long payments;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private BigDecimal refunded = BigDecimal.ZERO;
+
+        private void add(Payment.PaymentStatus status, Long count, BigDecimal amountSum, BigDecimal refundSum) {
+            long rowCount = count != null ? count : 0L;
+            countByStatus.merge(status, rowCount, Long::sum);
+            payments += rowCount;
+            amount = amount.add(amountSum != null ? amountSum : BigDecimal.ZERO);
+            refunded = refunded.add(refundSum != null ? refundSum : BigDecimal.ZERO);
+        }
+
+        private long countOf(Payment.PaymentStatus status) {
+            return countByStatus.getOrDefault(status, 0L);
+        }
+
+        private void writeTo(Map<String, Object> data) {
+            data.put("totalPayments", payments);
+            data.put("pendingPayments", countOf(Payment.PaymentStatus.PENDING));
+            data.put("completedPayments", countOf(Payment.PaymentStatus.COMPLETED));
+            data.put("failedPayments", countOf(Payment.PaymentStatus.FAILED));
+            data.put("cancelledPayments", countOf(Payment.PaymentStatus.CANCELLED));
+            data.put("refundedPayments", countOf(Payment.PaymentStatus.REFUNDED));
+            data.put("partiallyRefundedPayments", countOf(Payment.PaymentStatus.PARTIALLY_REFUNDED));
+            data.put("totalAmount", amount);
+            data.put("totalRefunded", refunded);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.backoffice.fitandflex.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché de URLs presignadas por clave de almacenamiento.
+ * <ul>
+ *   <li>Una URL se reutiliza mientras le quede más del margen de refresco antes de expirar; así cada
+ *       cliente recibe una URL que sigue siendo válida al menos ese margen.</li>
+ *   <li>Una tarea periódica vuelve a firmar en segundo plano las URLs que entran en el margen y elimina
+ *       las que no se han pedido durante un período completo de validez.</li>
+ *   <li>Solo se firma en la petición cuando no hay entrada o ya no es utilizable.</li>
+ *   <li>Si el almacenamiento no genera URLs firmadas (almacenamiento local) devuelve null.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+@ConditionalOnExpression("'${app.video.storage.type:s3}' == 'local' || (!'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty())")
+public class PresignedUrlCache {
+
+    private final VideoStorage videoStorage;
+    private final Duration validity;
+    private final long refreshMarginMs;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public PresignedUrlCache(VideoStorage videoStorage,
+                             @Value("${app.video.presigned-url.validity-seconds:3600}") long validitySeconds,
+                             @Value("${app.video.presigned-url.refresh-margin-seconds:600}") long refreshMarginSeconds,
+                             @Value("${app.video.presigned-url.max-entries:10000}") int maxEntries) {
+        this.videoStorage = videoStorage;
+        this.validity = Duration.ofSeconds(validitySeconds);
+        // El margen nunca puede cubrir toda la validez, o cada URL se consideraría a punto de expirar
+        this.refreshMarginMs = Math.min(Duration.ofSeconds(refreshMarginSeconds).toMillis(), this.validity.toMillis() / 2);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Obtener una URL presignada para la clave, reutilizando la cacheada si sigue vigente
+     * @param key La clave del archivo en el almacenamiento
+     * @return URL presignada, o null si el almacenamiento no las soporta
+     */
+    public String getUrl(String key) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.usableAt(now, refreshMarginMs)) {
+            entry.touch(now);
+            return entry.url();
+        }
+        Entry signed = sign(key, now);
+        return signed != null ? signed.url() : null;
+    }
+
+    /**
+     * Eliminar la URL cacheada de una clave (p. ej. al borrar el video)
+     */
+    public void invalidate(String key) {
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Volver a firmar las URLs que entran en el margen de expiración y descartar las que no se usan
+     */
+    @Scheduled(fixedDelayString = "${app.video.presigned-url.refresh-interval-ms:60000}")
+    public void refreshExpiring() {
+        long now = System.currentTimeMillis();
+        int refreshed = 0;
+        int evicted = 0;
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            Entry entry = cached.getValue();
+            if (now - entry.lastAccessAt() > validity.toMillis()) {
+                entries.remove(cached.getKey(), entry);
+                evicted++;
+            } else if (!entry.usableAt(now + refreshIntervalSlack(), refreshMarginMs)) {
+                try {
+                    Entry signed = sign(cached.getKey(), now);
+                    if (signed != null) {
+                        signed.touch(entry.lastAccessAt());
+                        refreshed++;
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("No se pudo refrescar la URL presignada de {}: {}", cached.getKey(), e.getMessage());
+                }
+            }
+        }
+        if (refreshed > 0 || evicted > 0) {
+            log.debug("URLs presignadas: {} refrescadas, {} descartadas, {} en caché", refreshed, evicted, entries.size());
+        }
+    }
+
+    /**
+     * Anticipa el refresco una ejecución de la tarea, para que las entradas no salgan del margen
+     * entre dos ejecuciones
+     */
+    private long refreshIntervalSlack() {
+        return refreshMarginMs / 2;
+    }
+
+    private Entry sign(String key, long now) {
+        VideoStorage.PresignedUrl presigned = videoStorage.presign(key, validity).orElse(null);
+        if (presigned == null) {
+            return null;
+        }
+        Entry entry = new Entry(presigned.url(), presigned.expiresAt().toEpochMilli(), now);
+        if (entries.size() < maxEntries || entries.containsKey(key)) {
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private static final class Entry {
+
+        private final String url;
+        private final long expiresAt;
+        private volatile long lastAccessAt;
+
+        private Entry(String url, long expiresAt, long lastAccessAt) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+            this.lastAccessAt = lastAccessAt;
+        }
+
+        private String url() {
+            return url;
+        }
+
+        private long lastAccessAt() {
+            return lastAccessAt;
+        }
+
+        private Entry touch(long now) {
+            lastAccessAt = now;
+            return this;
+        }
+
+        private boolean usableAt(long now, long marginMs) {
+            return now < expiresAt - marginMs;
+        }
+    }
+}
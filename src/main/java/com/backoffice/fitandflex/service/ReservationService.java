@@ -1,6 +1,8 @@
 package com.backoffice.fitandflex.service;
 
 import com.backoffice.fitandflex.dto.CommonDto;
+import com.backoffice.fitandflex.dto.CursorPage;
+import com.backoffice.fitandflex.dto.CursorPageRequest;
 import com.backoffice.fitandflex.dto.ReservationDTO;
 import com.backoffice.fitandflex.entity.Reservation;
 import com.backoffice.fitandflex.entity.ReservationStatus;
@@ -13,12 +15,20 @@ import com.backoffice.fitandflex.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -34,20 +44,30 @@ public class ReservationService {
     private final UserRepository userRepository;
     private final ScheduleRepository scheduleRepository;
     private final BranchRepository branchRepository;
+    private final ReservationWaitlistPromoter waitlistPromoter;
+    private final OperationMetrics operationMetrics;
 
     /**
      * Crear una nueva reserva
+     * El alta se serializa por horario (bloqueo de la fila del horario) y respeta la capacidad de la clase.
+     * Si el horario está lleno (o ya hay personas esperando) la reserva queda en lista de espera,
+     * salvo que la solicitud indique lo contrario.
      */
     public ReservationDTO.Response createReservation(ReservationDTO.CreateRequest request) {
+        return operationMetrics.time("createReservation", operation -> createReservation(request, operation));
+    }
+
+    private ReservationDTO.Response createReservation(ReservationDTO.CreateRequest request, OperationMetrics.Operation operation) {
         log.info("Creando reserva para usuario {} en horario {}", request.getUserId(), request.getScheduleId());
 
         // Validar que el usuario existe
         User user = userRepository.findById(request.getUserId())
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado con ID: " + request.getUserId()));
 
-        // Validar que el horario existe
-        Schedule schedule = scheduleRepository.findById(request.getScheduleId())
+        // Validar que el horario existe (bloquea el horario hasta el fin de la transacción)
+        Schedule schedule = scheduleRepository.findByIdForUpdate(request.getScheduleId())
                 .orElseThrow(() -> new IllegalArgumentException("Horario no encontrado con ID: " + request.getScheduleId()));
+        operation.branch(schedule.getClazz().getBranch());
 
         // Validar que el horario está activo
         if (!schedule.getActive()) {
@@ -64,27 +84,51 @@ public class ReservationService {
             throw new IllegalArgumentException("Ya existe una reserva para este usuario en este horario");
         }
 
-        // Validar que el usuario no tiene una reserva activa en el mismo horario
-        List<Reservation> existingReservations = reservationRepository.findByUserIdAndStatus(
-                request.getUserId(), ReservationStatus.ACTIVE);
-        
-        for (Reservation existingReservation : existingReservations) {
-            if (existingReservation.getSchedule().getStartTime().equals(schedule.getStartTime())) {
-                throw new IllegalArgumentException("El usuario ya tiene una reserva activa en este horario");
+        // Validar que el usuario no tiene una reserva activa o en lista de espera en el mismo horario
+        if (reservationRepository.existsOpenReservationByUserAndStartTime(request.getUserId(), schedule.getStartTime())) {
+            throw new IllegalArgumentException("El usuario ya tiene una reserva activa o en lista de espera en este horario");
+        }
+
+        // Validar capacidad: con el horario bloqueado el conteo no cambia hasta el commit
+        long activeReservations = reservationRepository.countByScheduleIdAndStatus(
+                schedule.getId(), ReservationStatus.ACTIVE);
+        boolean full = activeReservations >= schedule.getClazz().getCapacity();
+        // Respetar el orden de la lista de espera aunque haya cupos pendientes de promoción
+        boolean waitlistNotEmpty = reservationRepository.existsByScheduleIdAndStatus(
+                schedule.getId(), ReservationStatus.WAITLISTED);
+
+        ReservationStatus status = ReservationStatus.ACTIVE;
+        if (full || waitlistNotEmpty) {
+            if (Boolean.FALSE.equals(request.getJoinWaitlist())) {
+                throw new IllegalArgumentException("El horario está lleno");
             }
+            status = ReservationStatus.WAITLISTED;
         }
 
         // Crear la reserva
         Reservation reservation = Reservation.builder()
                 .user(user)
                 .schedule(schedule)
-                .status(ReservationStatus.ACTIVE)
+                .status(status)
                 .build();
 
         Reservation savedReservation = reservationRepository.save(reservation);
-        log.info("Reserva creada exitosamente con ID: {}", savedReservation.getId());
+        ReservationDTO.Response response = ReservationDTO.fromEntity(savedReservation);
+
+        if (status == ReservationStatus.WAITLISTED) {
+            response.setWaitlistPosition(
+                    (int) reservationRepository.countWaitlistedAhead(
+                            schedule.getId(), savedReservation.getCreatedAt(), savedReservation.getId()) + 1);
+            if (!full) {
+                waitlistPromoter.requestPromotion(schedule.getId());
+            }
+            log.info("Reserva {} en lista de espera del horario {} (posición {})",
+                    savedReservation.getId(), schedule.getId(), response.getWaitlistPosition());
+        } else {
+            log.info("Reserva creada exitosamente con ID: {}", savedReservation.getId());
+        }
 
-        return ReservationDTO.fromEntity(savedReservation);
+        return response;
     }
 
     /**
@@ -179,16 +223,35 @@ public class ReservationService {
             throw new IllegalArgumentException("Sucursal no encontrada con ID: " + branchId);
         }
         
-        // Contar total para debugging
-        long totalCount = reservationRepository.countByBranchId(branchId);
-        log.debug("Total de reservas encontradas para branch {}: {}", branchId, totalCount);
-        
         Page<Reservation> reservations = reservationRepository.findByBranchId(branchId, pageable);
         log.info("Reservas obtenidas: {} de {}", reservations.getNumberOfElements(), reservations.getTotalElements());
         
         return reservations.map(ReservationDTO::fromEntity);
     }
 
+    /**
+     * Obtener reservas por sucursal con paginación por cursor (más recientes primero)
+     * El total solo se cuenta si se pide explícitamente
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ReservationDTO.Response> getReservationsByBranch(Long branchId, CursorPageRequest request) {
+        log.info("Obteniendo reservas para sucursal {} por cursor - tamaño: {}", branchId, request.getSize());
+
+        if (!branchRepository.existsById(branchId)) {
+            throw new IllegalArgumentException("Sucursal no encontrada con ID: " + branchId);
+        }
+
+        Pageable limit = PageRequest.of(0, request.getSize() + 1);
+        List<Reservation> rows = request.isFirstPage()
+                ? reservationRepository.findKeysetFirstByBranchId(branchId, limit)
+                : reservationRepository.findKeysetAfterByBranchId(branchId, request.getAfterLocalDateTime(), request.getAfterId(), limit);
+        Long total = request.isIncludeTotal() ? reservationRepository.countByBranchId(branchId) : null;
+
+        return CursorPage.from(rows, request.getSize(),
+                r -> CursorPageRequest.encode(r.getCreatedAt(), r.getId()),
+                ReservationDTO::fromEntity, total);
+    }
+
     /**
      * Obtener reservas por clase
      */
@@ -251,8 +314,22 @@ public class ReservationService {
         }
         
         // Actualizar estado si se proporciona
-        if (request.getStatus() != null) {
+        if (request.getStatus() != null && request.getStatus() != reservation.getStatus()) {
+            ReservationStatus previousStatus = reservation.getStatus();
+            if (request.getStatus() == ReservationStatus.ACTIVE) {
+                // Ocupar un cupo requiere la misma validación de capacidad que el alta
+                Schedule schedule = scheduleRepository.findByIdForUpdate(reservation.getSchedule().getId())
+                        .orElseThrow(() -> new IllegalArgumentException("Horario no encontrado"));
+                long activeReservations = reservationRepository.countByScheduleIdAndStatus(
+                        schedule.getId(), ReservationStatus.ACTIVE);
+                if (activeReservations >= schedule.getClazz().getCapacity()) {
+                    throw new IllegalArgumentException("El horario está lleno");
+                }
+            }
             reservation.setStatus(request.getStatus());
+            if (previousStatus == ReservationStatus.ACTIVE && request.getStatus() == ReservationStatus.CANCELED) {
+                waitlistPromoter.requestPromotion(reservation.getSchedule().getId());
+            }
         }
         
         Reservation updatedReservation = reservationRepository.save(reservation);
@@ -270,9 +347,10 @@ public class ReservationService {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Reserva no encontrada con ID: " + id));
         
-        // Validar que se puede cancelar
-        if (reservation.getStatus() != ReservationStatus.ACTIVE) {
-            throw new IllegalArgumentException("Solo se pueden cancelar reservas activas");
+        // Validar que se puede cancelar (activas o en lista de espera)
+        ReservationStatus previousStatus = reservation.getStatus();
+        if (previousStatus != ReservationStatus.ACTIVE && previousStatus != ReservationStatus.WAITLISTED) {
+            throw new IllegalArgumentException("Solo se pueden cancelar reservas activas o en lista de espera");
         }
         
         // Validar que el horario es futuro
@@ -283,6 +361,11 @@ public class ReservationService {
         reservation.setStatus(ReservationStatus.CANCELED);
         Reservation updatedReservation = reservationRepository.save(reservation);
         log.info("Reserva cancelada exitosamente con ID: {}", updatedReservation.getId());
+
+        // Un cupo liberado se asigna de forma asíncrona al siguiente de la lista de espera
+        if (previousStatus == ReservationStatus.ACTIVE) {
+            waitlistPromoter.requestPromotion(updatedReservation.getSchedule().getId());
+        }
         
         return ReservationDTO.fromEntity(updatedReservation);
     }
@@ -345,6 +428,10 @@ public class ReservationService {
         
         reservationRepository.delete(reservation);
         log.info("Reserva eliminada exitosamente con ID: {}", id);
+
+        if (reservation.getStatus() == ReservationStatus.ACTIVE) {
+            waitlistPromoter.requestPromotion(reservation.getSchedule().getId());
+        }
     }
 
     /**
@@ -360,23 +447,18 @@ public class ReservationService {
      */
     @Transactional(readOnly = true)
     public CommonDto.SuccessResponse<Object> getReservationStats() {
-        long totalReservations = reservationRepository.count();
-        
-        // Contar reservas por estado usando consultas existentes
-        List<Reservation> activeReservations = reservationRepository.findByStatus(ReservationStatus.ACTIVE);
-        List<Reservation> canceledReservations = reservationRepository.findByStatus(ReservationStatus.CANCELED);
-        List<Reservation> attendedReservations = reservationRepository.findByStatus(ReservationStatus.ATTENDED);
-        List<Reservation> noShowReservations = reservationRepository.findByStatus(ReservationStatus.NO_SHOW);
+        Map<ReservationStatus, Long> counts = toStatusMap(reservationRepository.countGroupedByStatus());
         
         return CommonDto.SuccessResponse.builder()
                 .success(true)
                 .message("Estadísticas obtenidas exitosamente")
-                .data(java.util.Map.of(
-                    "totalReservations", totalReservations,
-                    "activeReservations", activeReservations.size(),
-                    "canceledReservations", canceledReservations.size(),
-                    "attendedReservations", attendedReservations.size(),
-                    "noShowReservations", noShowReservations.size()
+                .data(Map.of(
+                    "totalReservations", counts.values().stream().mapToLong(Long::longValue).sum(),
+                    "activeReservations", counts.getOrDefault(ReservationStatus.ACTIVE, 0L),
+                    "waitlistedReservations", counts.getOrDefault(ReservationStatus.WAITLISTED, 0L),
+                    "canceledReservations", counts.getOrDefault(ReservationStatus.CANCELED, 0L),
+                    "attendedReservations", counts.getOrDefault(ReservationStatus.ATTENDED, 0L),
+                    "noShowReservations", counts.getOrDefault(ReservationStatus.NO_SHOW, 0L)
                 ))
                 .build();
     }
@@ -391,25 +473,81 @@ public class ReservationService {
             throw new IllegalArgumentException("Usuario no encontrado con ID: " + userId);
         }
         
-        long totalReservations = reservationRepository.countByUserId(userId);
-        
-        // Contar reservas por estado usando consultas existentes
-        List<Reservation> activeReservations = reservationRepository.findByUserIdAndStatus(userId, ReservationStatus.ACTIVE);
-        List<Reservation> canceledReservations = reservationRepository.findByUserIdAndStatus(userId, ReservationStatus.CANCELED);
-        List<Reservation> attendedReservations = reservationRepository.findByUserIdAndStatus(userId, ReservationStatus.ATTENDED);
-        List<Reservation> noShowReservations = reservationRepository.findByUserIdAndStatus(userId, ReservationStatus.NO_SHOW);
+        Map<ReservationStatus, Long> counts = toStatusMap(reservationRepository.countByUserGroupedByStatus(userId));
         
         return CommonDto.SuccessResponse.builder()
                 .success(true)
                 .message("Estadísticas del usuario obtenidas exitosamente")
-                .data(java.util.Map.of(
+                .data(Map.of(
                     "userId", userId,
-                    "totalReservations", totalReservations,
-                    "activeReservations", activeReservations.size(),
-                    "canceledReservations", canceledReservations.size(),
-                    "attendedReservations", attendedReservations.size(),
-                    "noShowReservations", noShowReservations.size()
+                    "totalReservations", counts.values().stream().mapToLong(Long::longValue).sum(),
+                    "activeReservations", counts.getOrDefault(ReservationStatus.ACTIVE, 0L),
+                    "waitlistedReservations", counts.getOrDefault(ReservationStatus.WAITLISTED, 0L),
+                    "canceledReservations", counts.getOrDefault(ReservationStatus.CANCELED, 0L),
+                    "attendedReservations", counts.getOrDefault(ReservationStatus.ATTENDED, 0L),
+                    "noShowReservations", counts.getOrDefault(ReservationStatus.NO_SHOW, 0L)
                 ))
                 .build();
     }
+
+    /**
+     * Obtener estadísticas de reservas por estado y por clase con una sola consulta agrupada
+     * @param branchId ID de la sucursal (null para todas)
+     * @param classId ID de la clase (null para todas)
+     * @param from Fecha inicial del horario reservado, incluida (null sin límite)
+     * @param to Fecha final del horario reservado, incluida (null sin límite)
+     */
+    @Transactional(readOnly = true)
+    public ReservationDTO.StatsResponse getReservationStats(Long branchId, Long classId, LocalDate from, LocalDate to) {
+        log.info("Obteniendo estadísticas de reservas - branchId: {}, classId: {}, desde: {}, hasta: {}",
+                branchId, classId, from, to);
+        
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("La fecha de fin debe ser igual o posterior a la fecha de inicio");
+        }
+        
+        List<ReservationRepository.ClassStatusCount> rows = reservationRepository.countGroupedByClassAndStatus(
+                branchId,
+                classId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null);
+        
+        Map<ReservationStatus, Long> totals = new EnumMap<>(ReservationStatus.class);
+        Map<Long, String> classNames = new LinkedHashMap<>();
+        Map<Long, Map<ReservationStatus, Long>> countsByClass = new HashMap<>();
+        for (ReservationRepository.ClassStatusCount row : rows) {
+            totals.merge(row.getStatus(), row.getTotal(), Long::sum);
+            classNames.putIfAbsent(row.getClassId(), row.getClassName());
+            countsByClass.computeIfAbsent(row.getClassId(), id -> new EnumMap<>(ReservationStatus.class))
+                    .put(row.getStatus(), row.getTotal());
+        }
+        
+        List<ReservationDTO.ClassStats> classes = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : classNames.entrySet()) {
+            classes.add(ReservationDTO.ClassStats.builder()
+                    .classId(entry.getKey())
+                    .className(entry.getValue())
+                    .stats(ReservationDTO.StatusStats.fromCounts(countsByClass.get(entry.getKey())))
+                    .build());
+        }
+        classes.sort(Comparator.comparing(ReservationDTO.ClassStats::getClassName, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(ReservationDTO.ClassStats::getClassId));
+        
+        return ReservationDTO.StatsResponse.builder()
+                .branchId(branchId)
+                .classId(classId)
+                .from(from)
+                .to(to)
+                .totals(ReservationDTO.StatusStats.fromCounts(totals))
+                .classes(classes)
+                .build();
+    }
+
+    private static Map<ReservationStatus, Long> toStatusMap(List<ReservationRepository.StatusCount> rows) {
+        Map<ReservationStatus, Long> counts = new EnumMap<>(ReservationStatus.class);
+        for (ReservationRepository.StatusCount row : rows) {
+            counts.put(row.getStatus(), row.getTotal());
+        }
+        return counts;
+    }
 }
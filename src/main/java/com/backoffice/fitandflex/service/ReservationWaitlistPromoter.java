@@ -0,0 +1,102 @@
+package com.backoffice.fitandflex.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Promoción asíncrona de listas de espera.
+ * <ul>
+ *   <li>Las cancelaciones solo marcan el horario como pendiente (después del commit), así su latencia
+ *       no depende del tamaño de la lista de espera.</li>
+ *   <li>Un proceso periódico toma los horarios pendientes (varias cancelaciones de un mismo horario
+ *       se agrupan) y los promueve por lotes, cada lote en su propia transacción.</li>
+ *   <li>Un barrido menos frecuente recupera horarios con cupos libres que no quedaron pendientes
+ *       (por ejemplo, tras un reinicio).</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class ReservationWaitlistPromoter {
+
+    private final ReservationWaitlistService waitlistService;
+    private final int batchSize;
+
+    private final Set<Long> pendingSchedules = ConcurrentHashMap.newKeySet();
+
+    public ReservationWaitlistPromoter(ReservationWaitlistService waitlistService,
+                                       @Value("${app.waitlist.batch-size:50}") int batchSize) {
+        this.waitlistService = waitlistService;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Solicitar la promoción de la lista de espera de un horario (se aplica al confirmar la transacción)
+     */
+    public void requestPromotion(Long scheduleId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pendingSchedules.add(scheduleId);
+                }
+            });
+        } else {
+            pendingSchedules.add(scheduleId);
+        }
+    }
+
+    /**
+     * Procesar los horarios pendientes de promoción
+     */
+    @Scheduled(fixedDelayString = "${app.waitlist.promotion-interval-ms:1000}")
+    public void processPending() {
+        if (pendingSchedules.isEmpty()) {
+            return;
+        }
+
+        List<Long> scheduleIds = new ArrayList<>(pendingSchedules);
+        pendingSchedules.removeAll(scheduleIds);
+
+        int promoted = 0;
+        for (Long scheduleId : scheduleIds) {
+            promoted += promoteSchedule(scheduleId);
+        }
+        log.debug("Promoción de listas de espera: {} horarios procesados, {} reservas promovidas",
+                scheduleIds.size(), promoted);
+    }
+
+    /**
+     * Barrido de horarios con lista de espera y cupos libres
+     */
+    @Scheduled(fixedDelayString = "${app.waitlist.sweep-interval-ms:300000}",
+               initialDelayString = "${app.waitlist.sweep-interval-ms:300000}")
+    public void sweep() {
+        pendingSchedules.addAll(waitlistService.findSchedulesWithPromotableWaitlist());
+        processPending();
+    }
+
+    private int promoteSchedule(Long scheduleId) {
+        int total = 0;
+        try {
+            int promoted;
+            do {
+                promoted = waitlistService.promoteNextBatch(scheduleId, batchSize);
+                total += promoted;
+            } while (promoted == batchSize);
+        } catch (RuntimeException e) {
+            // Reintentar en el siguiente ciclo
+            log.warn("Error promoviendo la lista de espera del horario {}: {}", scheduleId, e.getMessage());
+            pendingSchedules.add(scheduleId);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,66 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.entity.ReservationStatus;
+import com.backoffice.fitandflex.entity.Schedule;
+import com.backoffice.fitandflex.repository.ReservationRepository;
+import com.backoffice.fitandflex.repository.ScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Promoción de la lista de espera de reservas.
+ * Cada llamada bloquea la fila del horario (igual que el alta de reservas), calcula los cupos
+ * libres y promueve en orden de llegada a lo sumo un lote de reservas en una sola sentencia.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class ReservationWaitlistService {
+
+    private final ReservationRepository reservationRepository;
+    private final ScheduleRepository scheduleRepository;
+
+    /**
+     * Promover a activas las primeras reservas en espera de un horario, hasta llenar los cupos libres
+     * @param scheduleId ID del horario
+     * @param batchSize Máximo de reservas a promover en esta llamada
+     * @return Número de reservas promovidas
+     */
+    public int promoteNextBatch(Long scheduleId, int batchSize) {
+        Schedule schedule = scheduleRepository.findByIdForUpdate(scheduleId).orElse(null);
+        if (schedule == null || !schedule.getActive() || schedule.getStartTime().isBefore(LocalDateTime.now())) {
+            return 0;
+        }
+
+        long active = reservationRepository.countByScheduleIdAndStatus(scheduleId, ReservationStatus.ACTIVE);
+        long free = schedule.getClazz().getCapacity() - active;
+        if (free <= 0) {
+            return 0;
+        }
+
+        List<Long> ids = reservationRepository.findWaitlistedIdsByScheduleId(
+                scheduleId, PageRequest.of(0, (int) Math.min(free, batchSize)));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        int promoted = reservationRepository.promoteWaitlisted(ids, LocalDateTime.now());
+        log.info("{} reservas promovidas desde la lista de espera del horario {}", promoted, scheduleId);
+        return promoted;
+    }
+
+    /**
+     * IDs de horarios futuros con lista de espera y cupos libres
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findSchedulesWithPromotableWaitlist() {
+        return reservationRepository.findScheduleIdsWithPromotableWaitlist(LocalDateTime.now());
+    }
+}
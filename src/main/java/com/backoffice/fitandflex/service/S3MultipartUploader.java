@@ -0,0 +1,295 @@
+package com.backoffice.fitandflex.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subida multipart a S3 leyendo directamente de un InputStream, sin archivos temporales.
+ * <ul>
+ *   <li>El stream se corta en partes de tamaño fijo que se cargan en buffers reutilizables de un pool
+ *       global acotado (la memoria máxima es buffer-pool-size x part-size).</li>
+ *   <li>Las partes de una misma subida se envían en paralelo con concurrencia acotada; cuando no hay
+ *       buffers libres la lectura espera (backpressure).</li>
+ *   <li>Ante cualquier error se aborta la subida multipart para no dejar partes huérfanas en S3: las
+ *       partes pendientes se cancelan (devolviendo su buffer) y se espera a que terminen las que ya se
+ *       estaban enviando antes de abortar.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+@Profile("!test")
+@ConditionalOnExpression("'${app.video.storage.type:s3}' == 's3' && !'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty()")
+public class S3MultipartUploader {
+
+    /**
+     * Tamaño mínimo de parte aceptado por S3 (excepto la última)
+     */
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final int partSize;
+    private final int maxConcurrentParts;
+
+    private final Semaphore bufferPermits;
+    private final ConcurrentLinkedQueue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final ExecutorService partExecutor;
+
+    public S3MultipartUploader(S3Client s3Client,
+                               @Value("${aws.s3.bucket-name}") String bucketName,
+                               @Value("${app.video.upload.part-size:8388608}") int partSize,
+                               @Value("${app.video.upload.max-concurrent-parts:4}") int maxConcurrentParts,
+                               @Value("${app.video.upload.buffer-pool-size:8}") int bufferPoolSize) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.maxConcurrentParts = Math.max(1, maxConcurrentParts);
+        this.bufferPermits = new Semaphore(Math.max(1, bufferPoolSize));
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.partExecutor = Executors.newFixedThreadPool(Math.max(1, bufferPoolSize), runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload-part-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subir un stream a S3 con multipart upload
+     * @param key Clave destino en S3
+     * @param contentType Tipo de contenido
+     * @param input Stream a subir (no se cierra)
+     * @param maxBytes Tamaño máximo permitido; si se supera se aborta la subida
+     * @return Número de bytes subidos
+     * @throws IllegalArgumentException si el stream está vacío o supera maxBytes
+     */
+    public long upload(String key, String contentType, InputStream input, long maxBytes) throws IOException {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+        log.debug("Multipart upload iniciado para {} (uploadId {})", key, uploadId);
+
+        Semaphore inFlight = new Semaphore(maxConcurrentParts);
+        List<PartUpload> parts = new ArrayList<>();
+        long totalBytes = 0;
+        try {
+            int partNumber = 1;
+            while (true) {
+                failFast(parts);
+                inFlight.acquire();
+                byte[] buffer = acquireBuffer();
+                int length;
+                try {
+                    length = input.readNBytes(buffer, 0, partSize);
+                } catch (IOException | RuntimeException e) {
+                    releaseBuffer(buffer);
+                    inFlight.release();
+                    throw e;
+                }
+                if (length == 0) {
+                    releaseBuffer(buffer);
+                    inFlight.release();
+                    break;
+                }
+
+                totalBytes += length;
+                if (totalBytes > maxBytes) {
+                    releaseBuffer(buffer);
+                    inFlight.release();
+                    throw new IllegalArgumentException(
+                            "El archivo excede el tamaño máximo permitido: " + (maxBytes / 1024 / 1024) + " MB");
+                }
+
+                parts.add(submitPart(key, uploadId, partNumber++, buffer, length, inFlight));
+                if (length < partSize) {
+                    break;
+                }
+            }
+
+            if (totalBytes == 0) {
+                throw new IllegalArgumentException("El archivo no puede estar vacío");
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+            for (PartUpload part : parts) {
+                completedParts.add(part.task.get());
+            }
+            completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+            log.info("Multipart upload completado para {}: {} bytes en {} partes", key, totalBytes, completedParts.size());
+            return totalBytes;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(key, uploadId, parts);
+            throw new IOException("Subida interrumpida", e);
+        } catch (ExecutionException e) {
+            abort(key, uploadId, parts);
+            throw new RuntimeException("Error al subir el video a S3: " + e.getCause().getMessage(), e.getCause());
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId, parts);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        partExecutor.shutdownNow();
+    }
+
+    private PartUpload submitPart(String key, String uploadId, int partNumber,
+                                  byte[] buffer, int length, Semaphore inFlight) {
+        PartUpload part = new PartUpload(key, uploadId, partNumber, buffer, length, inFlight);
+        try {
+            partExecutor.execute(part.task);
+        } catch (RejectedExecutionException e) {
+            // No llegó a encolarse: cancelarla devuelve el buffer y el permiso
+            part.task.cancel(false);
+            throw e;
+        }
+        return part;
+    }
+
+    /**
+     * Detener la lectura si alguna parte ya falló
+     */
+    private static void failFast(List<PartUpload> parts) throws ExecutionException, InterruptedException {
+        for (PartUpload part : parts) {
+            if (part.task.isDone()) {
+                part.task.get();
+            }
+        }
+    }
+
+    private void abort(String key, String uploadId, List<PartUpload> parts) {
+        // Cancelar las partes pendientes y esperar a las que ya se están enviando: una parte que termina
+        // después del abort quedaría huérfana en S3
+        boolean interrupted = Thread.interrupted();
+        for (PartUpload part : parts) {
+            part.task.cancel(true);
+        }
+        for (PartUpload part : parts) {
+            while (true) {
+                try {
+                    part.finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            log.warn("Multipart upload abortado para {} (uploadId {})", key, uploadId);
+        } catch (S3Exception e) {
+            log.error("Error al abortar multipart upload {} para {}: {}", uploadId, key, e.getMessage());
+        }
+    }
+
+    private byte[] acquireBuffer() throws InterruptedException {
+        bufferPermits.acquire();
+        byte[] buffer = freeBuffers.poll();
+        return buffer != null ? buffer : new byte[partSize];
+    }
+
+    private void releaseBuffer(byte[] buffer) {
+        freeBuffers.offer(buffer);
+        bufferPermits.release();
+    }
+
+    /**
+     * Envío de una parte. El buffer y el permiso de concurrencia se devuelven exactamente una vez: al
+     * terminar el envío si llegó a empezar, o al cancelarse si nunca empezó (ahí el bloque finally del
+     * envío no se ejecuta).
+     */
+    private final class PartUpload {
+
+        private final String key;
+        private final String uploadId;
+        private final int partNumber;
+        private final byte[] buffer;
+        private final int length;
+        private final Semaphore inFlight;
+
+        /**
+         * Quién es dueño del buffer: el envío (si empezó) o la cancelación (si no empezó)
+         */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final FutureTask<CompletedPart> task;
+
+        private PartUpload(String key, String uploadId, int partNumber, byte[] buffer, int length, Semaphore inFlight) {
+            this.key = key;
+            this.uploadId = uploadId;
+            this.partNumber = partNumber;
+            this.buffer = buffer;
+            this.length = length;
+            this.inFlight = inFlight;
+            this.task = new FutureTask<>(this::send) {
+                @Override
+                protected void done() {
+                    if (claimed.compareAndSet(false, true)) {
+                        release();
+                    }
+                }
+            };
+        }
+
+        private CompletedPart send() {
+            if (!claimed.compareAndSet(false, true)) {
+                throw new CancellationException("Parte " + partNumber + " cancelada");
+            }
+            try {
+                UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) length)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length));
+                return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            releaseBuffer(buffer);
+            inFlight.release();
+            finished.countDown();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
@@ -20,31 +21,23 @@ import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @Profile("!test")
-@ConditionalOnExpression("!'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty()")
+@ConditionalOnExpression("'${app.video.storage.type:s3}' == 's3' && !'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty()")
 public class S3Service {
 
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
+    private final S3MultipartUploader multipartUploader;
+    private final VideoUploadPolicy uploadPolicy;
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
-    @Value("${aws.s3.video-folder}")
-    private String videoFolder;
-
-    @Value("${aws.s3.max-file-size:104857600}")
-    private long maxFileSize;
-
-    @Value("${aws.s3.allowed-video-types}")
-    private String allowedVideoTypes;
-
     /**
      * Sube un video a S3
      * 
@@ -54,13 +47,10 @@ public class S3Service {
      */
     public String uploadVideo(MultipartFile file) throws IOException {
         // Validar el archivo
-        validateVideoFile(file);
+        uploadPolicy.validate(file);
 
         // Generar un nombre único para el archivo
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = getFileExtension(originalFilename);
-        String fileName = UUID.randomUUID().toString() + fileExtension;
-        String key = videoFolder + "/" + fileName;
+        String key = uploadPolicy.newKey(file.getOriginalFilename());
 
         try {
             // Subir el archivo a S3
@@ -85,6 +75,32 @@ public class S3Service {
         }
     }
 
+    /**
+     * Sube un video a S3 leyendo directamente del stream de la petición (multipart upload por partes),
+     * sin almacenar el archivo completo en memoria ni en disco
+     * 
+     * @param inputStream Cuerpo de la petición
+     * @param contentType Tipo de contenido del video
+     * @param originalFilename Nombre original del archivo (solo para la extensión)
+     * @param declaredLength Tamaño declarado por el cliente (-1 si se desconoce)
+     * @return La clave (key) del archivo en S3 y el tamaño subido
+     * @throws IOException Si hay un error al leer el stream
+     */
+    public VideoStorage.StoredVideo uploadVideoStream(InputStream inputStream, String contentType,
+                                                      String originalFilename, long declaredLength) throws IOException {
+        uploadPolicy.validate(contentType, declaredLength);
+
+        String key = uploadPolicy.newKey(originalFilename);
+        try {
+            long size = multipartUploader.upload(key, contentType, inputStream, uploadPolicy.getMaxFileSize());
+            log.info("Video subido exitosamente a S3 por streaming: {} ({} bytes)", key, size);
+            return new VideoStorage.StoredVideo(key, size);
+        } catch (S3Exception e) {
+            log.error("Error al subir video a S3: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al subir el video a S3: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Obtiene un video de S3 como InputStream
      * 
@@ -109,6 +125,57 @@ public class S3Service {
         }
     }
 
+    /**
+     * Obtiene un rango de bytes de un video de S3 (GetObject con cabecera Range)
+     * 
+     * @param key La clave del archivo en S3
+     * @param start Primer byte (incluido)
+     * @param end Último byte (incluido)
+     * @return Stream del rango solicitado
+     */
+    public ResponseInputStream<GetObjectResponse> getVideoRange(String key, long start, long end) {
+        try {
+            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .range("bytes=" + start + "-" + end)
+                    .build();
+
+            return s3Client.getObject(getObjectRequest);
+
+        } catch (NoSuchKeyException e) {
+            log.error("Video no encontrado en S3: {}", key);
+            throw new RuntimeException("Video no encontrado: " + key, e);
+        } catch (S3Exception e) {
+            log.error("Error al obtener rango de video de S3: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al obtener el video de S3: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Obtiene el tamaño en bytes de un video en S3 (HeadObject)
+     * 
+     * @param key La clave del archivo en S3
+     * @return Tamaño del archivo
+     */
+    public long getVideoSize(String key) {
+        try {
+            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build();
+
+            return s3Client.headObject(headObjectRequest).contentLength();
+
+        } catch (NoSuchKeyException e) {
+            log.error("Video no encontrado en S3: {}", key);
+            throw new RuntimeException("Video no encontrado: " + key, e);
+        } catch (S3Exception e) {
+            log.error("Error al obtener metadatos de video de S3: {}", e.getMessage(), e);
+            throw new RuntimeException("Error al obtener el video de S3: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Genera una URL presignada para acceder al video (válida por 1 hora)
      * 
@@ -116,6 +183,17 @@ public class S3Service {
      * @return URL presignada
      */
     public String getPresignedUrl(String key) {
+        return presignGetObject(key, Duration.ofHours(1)).url().toString();
+    }
+
+    /**
+     * Genera una petición GET presignada con la validez indicada
+     * 
+     * @param key La clave del archivo en S3
+     * @param validity Duración de la firma
+     * @return Petición presignada (URL y expiración)
+     */
+    public PresignedGetObjectRequest presignGetObject(String key, Duration validity) {
         try {
             GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                     .bucket(bucketName)
@@ -123,12 +201,11 @@ public class S3Service {
                     .build();
 
             GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                    .signatureDuration(Duration.ofHours(1))
+                    .signatureDuration(validity)
                     .getObjectRequest(getObjectRequest)
                     .build();
 
-            PresignedGetObjectRequest presignedRequest = s3Presigner.presignGetObject(presignRequest);
-            return presignedRequest.url().toString();
+            return s3Presigner.presignGetObject(presignRequest);
 
         } catch (S3Exception e) {
             log.error("Error al generar URL presignada: {}", e.getMessage(), e);
@@ -166,7 +243,7 @@ public class S3Service {
         try {
             ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
                     .bucket(bucketName)
-                    .prefix(videoFolder + "/")
+                    .prefix(uploadPolicy.getVideoFolder() + "/")
                     .build();
 
             ListObjectsV2Response listObjectsV2Response = s3Client.listObjectsV2(listObjectsV2Request);
@@ -192,46 +269,4 @@ public class S3Service {
             throw new RuntimeException("Error al listar videos de S3: " + e.getMessage(), e);
         }
     }
-
-    /**
-     * Valida que el archivo sea un video válido
-     */
-    private void validateVideoFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new IllegalArgumentException("El archivo no puede estar vacío");
-        }
-
-        if (file.getSize() > maxFileSize) {
-            throw new IllegalArgumentException(
-                    "El archivo excede el tamaño máximo permitido: " + (maxFileSize / 1024 / 1024) + " MB");
-        }
-
-        String contentType = file.getContentType();
-        if (contentType == null || !isAllowedVideoType(contentType)) {
-            throw new IllegalArgumentException("Tipo de archivo no permitido. Tipos permitidos: " + allowedVideoTypes);
-        }
-    }
-
-    /**
-     * Verifica si el tipo de contenido es un video permitido
-     */
-    private boolean isAllowedVideoType(String contentType) {
-        List<String> allowedTypes = List.of(allowedVideoTypes.split(","));
-        return allowedTypes.stream()
-                .anyMatch(type -> contentType.toLowerCase().contains(type.trim().toLowerCase()));
-    }
-
-    /**
-     * Obtiene la extensión del archivo
-     */
-    private String getFileExtension(String filename) {
-        if (filename == null || filename.isEmpty()) {
-            return "";
-        }
-        int lastDotIndex = filename.lastIndexOf('.');
-        if (lastDotIndex == -1) {
-            return "";
-        }
-        return filename.substring(lastDotIndex);
-    }
 }
@@ -0,0 +1,85 @@
+package com.backoffice.fitandflex.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Almacenamiento de videos en S3 (app.video.storage.type=s3, valor por defecto)
+ */
+@Component
+@RequiredArgsConstructor
+@Profile("!test")
+@ConditionalOnExpression("'${app.video.storage.type:s3}' == 's3' && !'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty()")
+public class S3VideoStorage implements VideoStorage {
+
+    private final S3Service s3Service;
+
+    @Override
+    public String store(MultipartFile file) throws IOException {
+        return s3Service.uploadVideo(file);
+    }
+
+    @Override
+    public StoredVideo store(InputStream inputStream, String contentType, String originalFilename,
+                             long declaredLength) throws IOException {
+        return s3Service.uploadVideoStream(inputStream, contentType, originalFilename, declaredLength);
+    }
+
+    @Override
+    public long size(String key) {
+        return s3Service.getVideoSize(key);
+    }
+
+    @Override
+    public RangeSource openRange(String key, long start, long end) {
+        return new S3RangeSource(s3Service.getVideoRange(key, start, end));
+    }
+
+    @Override
+    public Optional<PresignedUrl> presign(String key, Duration validity) {
+        PresignedGetObjectRequest presigned = s3Service.presignGetObject(key, validity);
+        return Optional.of(new PresignedUrl(presigned.url().toString(), presigned.expiration()));
+    }
+
+    @Override
+    public void delete(String key) {
+        s3Service.deleteVideo(key);
+    }
+
+    /**
+     * Rango servido por un GetObject con cabecera Range; se copia a través del buffer del llamador
+     */
+    private record S3RangeSource(ResponseInputStream<GetObjectResponse> s3Stream) implements RangeSource {
+
+        @Override
+        public void transferTo(OutputStream target, byte[] buffer) throws IOException {
+            int read;
+            while ((read = s3Stream.read(buffer)) != -1) {
+                target.write(buffer, 0, read);
+            }
+        }
+
+        @Override
+        public void abort() {
+            // Cortar la conexión en lugar de drenar el resto de la respuesta de S3
+            s3Stream.abort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            s3Stream.close();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.exception.SlotBusyException;
+import com.backoffice.fitandflex.repository.ClassSlotOccupancyRepository;
+import com.backoffice.fitandflex.repository.ClassSubscriptionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Control de admisión por capacidad para suscripciones a clases.
+ * <ul>
+ *   <li>En la JVM: locks divididos en franjas (lock striping) por horario; el lock se mantiene
+ *       hasta que termina la transacción, así que las admisiones de un mismo horario se serializan
+ *       y las de horarios distintos avanzan en paralelo.</li>
+ *   <li>Las franjas se toman en orden creciente en toda la transacción (no solo dentro de una llamada), para
+ *       que dos transacciones nunca se esperen en orden inverso. Las franjas ya tomadas se reutilizan; pedir
+ *       una franja menor que la mayor ya tomada falla de inmediato. Si una transacción admite horarios en
+ *       varias llamadas, debe bloquearlos antes todos juntos con {@link #lockAll}.</li>
+ *   <li>En la BD: actualización condicional atómica del contador {@code class_slot_occupancy}
+ *       ({@code occupied < capacity}), que protege también entre varias instancias.</li>
+ *   <li>En lote (inscripción por período): una consulta agrupada de ocupación para todos los horarios y
+ *       los mismos dos pasos en BD (crear contador si falta, incremento condicional) como lotes JDBC.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class SlotAdmissionControl {
+
+    private static final String CREATE_COUNTER_IF_ABSENT =
+            "INSERT INTO class_slot_occupancy (class_id, slot_date, start_time, end_time, occupied) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String INCREMENT_IF_BELOW_CAPACITY =
+            "UPDATE class_slot_occupancy SET occupied = occupied + 1 " +
+            "WHERE class_id = ? AND slot_date = ? AND start_time = ? AND end_time = ? AND occupied < ?";
+
+    private final ClassSlotOccupancyRepository occupancyRepository;
+    private final ClassSubscriptionRepository subscriptionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock[] stripes;
+    private final long lockTimeoutMs;
+
+    public SlotAdmissionControl(ClassSlotOccupancyRepository occupancyRepository,
+                                ClassSubscriptionRepository subscriptionRepository,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${app.admission.lock-stripes:256}") int lockStripes,
+                                @Value("${app.admission.lock-timeout-ms:5000}") long lockTimeoutMs) {
+        this.occupancyRepository = occupancyRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.lockTimeoutMs = lockTimeoutMs;
+
+        // Número de franjas redondeado a potencia de 2 para indexar con máscara
+        int size = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Admitir una suscripción en un horario si hay cupo.
+     * Debe llamarse dentro de la transacción que inserta o reactiva la suscripción.
+     * @throws IllegalArgumentException si el horario está lleno
+     * @throws SlotBusyException si no se pudo obtener el lock del horario a tiempo
+     * @throws IllegalStateException si la transacción ya tiene una franja mayor que la del horario
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void admit(Class clazz, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        Long classId = clazz.getId();
+        lockStripesUntilCompletion(Set.of(stripeIndex(classId, date, startTime, endTime)));
+
+        int capacity = clazz.getCapacity();
+
+        // Guardia en BD: incremento condicional atómico. Si el contador aún no existe se crea con las
+        // suscripciones existentes y se reintenta, aunque la inserción la haya ganado otra transacción
+        boolean admitted = occupancyRepository.incrementIfBelowCapacity(classId, date, startTime, endTime, capacity) == 1;
+        if (!admitted) {
+            occupancyRepository.createIfAbsent(classId, date, startTime, endTime);
+            admitted = occupancyRepository.incrementIfBelowCapacity(classId, date, startTime, endTime, capacity) == 1;
+        }
+
+        if (!admitted) {
+            log.debug("Horario lleno en BD para clase {} fecha {} {}-{}", classId, date, startTime, endTime);
+            throw new IllegalArgumentException("La clase está llena para este horario y fecha");
+        }
+    }
+
+    /**
+     * Horario de una clase en una fecha
+     */
+    public record Slot(LocalDate date, LocalTime startTime, LocalTime endTime) {
+    }
+
+    /**
+     * Bloquear hasta el fin de la transacción las franjas de todos los horarios que se admitirán en ella.
+     * Necesario antes de llamar varias veces a {@link #admitAll} o {@link #admit} en la misma transacción.
+     * @throws SlotBusyException si no se pudo obtener el lock de algún horario a tiempo
+     * @throws IllegalStateException si la transacción ya tiene una franja mayor que alguna de las pedidas
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockAll(Class clazz, Collection<Slot> slots) {
+        lockStripesUntilCompletion(stripeIndexes(clazz.getId(), slots));
+    }
+
+    /**
+     * Admitir una suscripción en cada uno de varios horarios de una clase, los que tengan cupo.
+     * Debe llamarse dentro de la transacción que inserta o reactiva las suscripciones.
+     * @return Horarios admitidos (los demás están llenos)
+     * @throws SlotBusyException si no se pudo obtener el lock de algún horario a tiempo
+     * @throws IllegalStateException si la transacción ya tiene una franja mayor que la de alguno de los horarios
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<Slot> admitAll(Class clazz, Collection<Slot> slots) {
+        Set<Slot> admitted = new LinkedHashSet<>();
+        if (slots.isEmpty()) {
+            return admitted;
+        }
+        Long classId = clazz.getId();
+        int capacity = clazz.getCapacity();
+        lockStripesUntilCompletion(stripeIndexes(classId, slots));
+
+        // Ocupación actual de todos los horarios en una consulta agrupada
+        Map<Slot, Long> occupied = new HashMap<>();
+        Set<LocalDate> dates = new TreeSet<>();
+        slots.forEach(slot -> dates.add(slot.date()));
+        subscriptionRepository.countActiveSubscriptionsByClassesAndDatesGroupedBySlot(List.of(classId), dates)
+                .forEach(row -> occupied.put(
+                        new Slot(row.getSubscriptionDate(), row.getStartTime(), row.getEndTime()), row.getTotal()));
+        List<Slot> candidates = new ArrayList<>();
+        for (Slot slot : slots) {
+            if (occupied.getOrDefault(slot, 0L) < capacity) {
+                candidates.add(slot);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return admitted;
+        }
+
+        // Guardia en BD, en lotes: crear los contadores que falten y aplicar el incremento condicional
+        jdbcTemplate.batchUpdate(CREATE_COUNTER_IF_ABSENT, candidates, candidates.size(), (ps, slot) -> {
+            bindSlot(ps, classId, slot);
+            ps.setInt(5, occupied.getOrDefault(slot, 0L).intValue());
+        });
+        int[][] updated = jdbcTemplate.batchUpdate(INCREMENT_IF_BELOW_CAPACITY, candidates, candidates.size(),
+                (ps, slot) -> {
+                    bindSlot(ps, classId, slot);
+                    ps.setInt(5, capacity);
+                });
+        for (int i = 0; i < candidates.size(); i++) {
+            if (updated[0][i] != 0) {
+                admitted.add(candidates.get(i));
+            }
+        }
+        if (admitted.size() < candidates.size()) {
+            log.debug("{} horarios llenos en BD para clase {}", candidates.size() - admitted.size(), classId);
+        }
+        return admitted;
+    }
+
+    /**
+     * Liberar un cupo de un horario (cancelación o eliminación de una suscripción activa)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long classId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        if (date == null) {
+            return;
+        }
+        occupancyRepository.decrement(classId, date, startTime, endTime);
+    }
+
+    /**
+     * Bloquear las franjas pedidas que la transacción aún no tiene, en orden creciente, hasta que termine.
+     * Las franjas tomadas por la transacción se registran como recurso de la transacción.
+     */
+    private void lockStripesUntilCompletion(Collection<Integer> requested) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("La admisión de cupos requiere una transacción activa");
+        }
+
+        HeldStripes held = (HeldStripes) TransactionSynchronizationManager.getResource(this);
+        SortedSet<Integer> missing = new TreeSet<>(requested);
+        if (held != null) {
+            missing.removeAll(held.indexes);
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        if (held == null) {
+            held = new HeldStripes();
+            TransactionSynchronizationManager.bindResource(this, held);
+        } else if (!held.indexes.isEmpty() && missing.first() < held.indexes.last()) {
+            throw new IllegalStateException("Franja de admisión " + missing.first() + " pedida después de la "
+                    + held.indexes.last() + ": los horarios de la transacción deben bloquearse juntos con lockAll");
+        }
+
+        // Liberar lo que se tome aquí cuando termine la transacción (commit o rollback)
+        HeldStripes owner = held;
+        List<Integer> acquired = new ArrayList<>(missing.size());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                acquired.forEach(index -> stripes[index].unlock());
+                owner.indexes.removeAll(acquired);
+                if (owner.indexes.isEmpty()) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SlotAdmissionControl.this);
+                }
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lockTimeoutMs);
+        for (int index : missing) {
+            boolean locked;
+            try {
+                locked = stripes[index].tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                locked = false;
+            }
+            if (!locked) {
+                throw new SlotBusyException("El horario está procesando otras reservas, intente nuevamente");
+            }
+            acquired.add(index);
+            held.indexes.add(index);
+        }
+    }
+
+    /**
+     * Franjas tomadas por la transacción en curso
+     */
+    private static final class HeldStripes {
+        private final SortedSet<Integer> indexes = new TreeSet<>();
+    }
+
+    private SortedSet<Integer> stripeIndexes(Long classId, Collection<Slot> slots) {
+        SortedSet<Integer> indexes = new TreeSet<>();
+        slots.forEach(slot -> indexes.add(stripeIndex(classId, slot.date(), slot.startTime(), slot.endTime())));
+        return indexes;
+    }
+
+    private static void bindSlot(PreparedStatement ps, Long classId, Slot slot) throws SQLException {
+        ps.setLong(1, classId);
+        ps.setDate(2, Date.valueOf(slot.date()));
+        ps.setTime(3, Time.valueOf(slot.startTime()));
+        ps.setTime(4, Time.valueOf(slot.endTime()));
+    }
+
+    private int stripeIndex(Long classId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        int hash = 31 * (31 * (31 * classId.hashCode() + date.hashCode()) + startTime.hashCode()) + endTime.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (stripes.length - 1);
+    }
+}
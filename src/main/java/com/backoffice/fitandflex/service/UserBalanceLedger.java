@@ -0,0 +1,193 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.dto.UserMembershipDTO;
+import com.backoffice.fitandflex.entity.UserBalance;
+import com.backoffice.fitandflex.entity.UserMembership;
+import com.backoffice.fitandflex.repository.UserBalanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Saldo de membresías por usuario (user_balances), en unidades mínimas de la moneda.
+ * <ul>
+ *   <li>Las operaciones sobre membresías suman su variación con un upsert atómico, en la misma
+ *       transacción que el cambio de la membresía.</li>
+ *   <li>El saldo de un usuario es una lectura por clave primaria; el de varios usuarios, una sola
+ *       consulta por IN.</li>
+ *   <li>Los montos se guardan como enteros (centavos): las sumas son exactas y no dependen de la escala
+ *       de los BigDecimal.</li>
+ *   <li>{@link UserBalanceRebuildJob} recalcula los saldos desde las membresías para corregir desviaciones
+ *       (membresías modificadas fuera de este servicio, scripts manuales).</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class UserBalanceLedger {
+
+    private static final int MINOR_UNIT_DIGITS = 2;
+
+    private final UserBalanceRepository userBalanceRepository;
+
+    /**
+     * Registrar una membresía nueva con su precio y abono inicial
+     */
+    public void recordAssignment(Long userId, BigDecimal totalAmount, BigDecimal paidAmount) {
+        long due = toMinor(totalAmount);
+        long paid = toMinor(paidAmount);
+        long pending = Math.max(due - paid, 0);
+        userBalanceRepository.applyDelta(userId, due, paid, pending, pending > 0 ? 1 : 0, LocalDateTime.now());
+    }
+
+    /**
+     * Registrar varias membresías nuevas con un solo upsert por usuario
+     */
+    public void recordAssignments(Collection<UserMembership> memberships) {
+        Map<Long, long[]> deltas = new LinkedHashMap<>();
+        for (UserMembership membership : memberships) {
+            long due = toMinor(membership.getTotalAmount());
+            long paid = toMinor(membership.getPaidAmount());
+            long pending = Math.max(due - paid, 0);
+            long[] delta = deltas.computeIfAbsent(membership.getUser().getId(), userId -> new long[4]);
+            delta[0] += due;
+            delta[1] += paid;
+            delta[2] += pending;
+            delta[3] += pending > 0 ? 1 : 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        deltas.forEach((userId, delta) ->
+                userBalanceRepository.applyDelta(userId, delta[0], delta[1], delta[2], (int) delta[3], now));
+    }
+
+    /**
+     * Registrar un abono a una membresía
+     * @param settled true si con este abono la membresía quedó completamente pagada
+     */
+    public void recordPayment(Long userId, BigDecimal amount, boolean settled) {
+        long paid = toMinor(amount);
+        userBalanceRepository.applyDelta(userId, 0, paid, -paid, settled ? -1 : 0, LocalDateTime.now());
+    }
+
+    /**
+     * Quitar del saldo una membresía eliminada
+     */
+    public void recordRemoval(UserMembership membership) {
+        long due = toMinor(membership.getTotalAmount());
+        long paid = toMinor(membership.getPaidAmount());
+        long pending = Math.max(due - paid, 0);
+        userBalanceRepository.applyDelta(membership.getUser().getId(), -due, -paid, -pending,
+                pending > 0 ? -1 : 0, LocalDateTime.now());
+    }
+
+    /**
+     * Recalcular desde las membresías los saldos de un rango de usuarios (inclusive)
+     * @return Número de saldos generados
+     */
+    public int rebuild(long fromUserId, long toUserId) {
+        userBalanceRepository.lockForRebuild();
+        int deleted = userBalanceRepository.deleteByUserIdRange(fromUserId, toUserId);
+        int inserted = userBalanceRepository.insertAggregatedFromMemberships(fromUserId, toUserId, LocalDateTime.now());
+        log.debug("Saldos de usuarios {} a {} reconstruidos: {} filas eliminadas, {} insertadas",
+                fromUserId, toUserId, deleted, inserted);
+        return inserted;
+    }
+
+    /**
+     * Mayor ID de usuario con membresías o con saldo
+     */
+    @Transactional(readOnly = true)
+    public long maxUserId() {
+        return userBalanceRepository.findMaxUserId();
+    }
+
+    /**
+     * Saldo de un usuario (en cero si no tiene membresías)
+     */
+    @Transactional(readOnly = true)
+    public UserMembershipDTO.BalanceResponse getBalance(Long userId) {
+        return userBalanceRepository.findById(userId)
+                .map(this::toResponse)
+                .orElseGet(() -> emptyBalance(userId));
+    }
+
+    /**
+     * Saldos de varios usuarios, en el orden recibido
+     */
+    @Transactional(readOnly = true)
+    public List<UserMembershipDTO.BalanceResponse> getBalances(Collection<Long> userIds) {
+        Collection<Long> distinctIds = new LinkedHashSet<>(userIds);
+        Map<Long, UserBalance> balances = userBalanceRepository.findByUserIdIn(distinctIds).stream()
+                .collect(Collectors.toMap(UserBalance::getUserId, Function.identity()));
+        return distinctIds.stream()
+                .map(userId -> balances.containsKey(userId) ? toResponse(balances.get(userId)) : emptyBalance(userId))
+                .toList();
+    }
+
+    /**
+     * Usuarios de una sucursal con saldo pendiente, de mayor a menor deuda
+     */
+    @Transactional(readOnly = true)
+    public Page<UserMembershipDTO.BalanceResponse> getDebtorsByBranch(Long branchId, Pageable pageable) {
+        return userBalanceRepository.findDebtorsByBranchId(branchId, pageable)
+                .map(debtor -> UserMembershipDTO.BalanceResponse.builder()
+                        .userId(debtor.getUserId())
+                        .userName(debtor.getUserName())
+                        .userEmail(debtor.getUserEmail())
+                        .totalDueMinor(debtor.getTotalDueMinor())
+                        .paidMinor(debtor.getPaidMinor())
+                        .pendingMinor(debtor.getPendingMinor())
+                        .pendingAmount(fromMinor(debtor.getPendingMinor()))
+                        .membershipsWithPendingPayment(debtor.getMembershipsWithPending())
+                        .hasPendingPayments(true)
+                        .build());
+    }
+
+    /**
+     * Convertir un monto a unidades mínimas, con el mismo redondeo que las columnas NUMERIC(10, 2)
+     */
+    static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(MINOR_UNIT_DIGITS, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, MINOR_UNIT_DIGITS);
+    }
+
+    private UserMembershipDTO.BalanceResponse toResponse(UserBalance balance) {
+        return UserMembershipDTO.BalanceResponse.builder()
+                .userId(balance.getUserId())
+                .totalDueMinor(balance.getTotalDueMinor())
+                .paidMinor(balance.getPaidMinor())
+                .pendingMinor(balance.getPendingMinor())
+                .pendingAmount(fromMinor(balance.getPendingMinor()))
+                .membershipsWithPendingPayment(balance.getMembershipsWithPending())
+                .hasPendingPayments(balance.getPendingMinor() > 0)
+                .build();
+    }
+
+    private UserMembershipDTO.BalanceResponse emptyBalance(Long userId) {
+        return UserMembershipDTO.BalanceResponse.builder()
+                .userId(userId)
+                .pendingAmount(fromMinor(0))
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.backoffice.fitandflex.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconstrucción de los saldos de membresías (user_balances) desde la tabla de membresías.
+ * <ul>
+ *   <li>Una tarea diaria recalcula todos los saldos, corrigiendo cualquier desviación del mantenimiento
+ *       incremental.</li>
+ *   <li>Se procesa por rangos de IDs de usuario, cada rango en su propia transacción, para no bloquear los
+ *       saldos durante toda la reconstrucción.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class UserBalanceRebuildJob {
+
+    private final UserBalanceLedger ledger;
+    private final long chunkSize;
+
+    public UserBalanceRebuildJob(UserBalanceLedger ledger,
+                                 @Value("${app.memberships.balances.rebuild-chunk-size:5000}") long chunkSize) {
+        this.ledger = ledger;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Recalcular todos los saldos
+     */
+    @Scheduled(cron = "${app.memberships.balances.rebuild-cron:0 45 3 * * *}")
+    public void rebuildAll() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Error reconstruyendo los saldos de membresías: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruir los saldos de todos los usuarios
+     * @return Número de saldos generados
+     */
+    public int rebuild() {
+        long startedAt = System.currentTimeMillis();
+        long maxUserId = ledger.maxUserId();
+        int rows = 0;
+        for (long fromUserId = 1; fromUserId <= maxUserId; fromUserId += chunkSize) {
+            rows += ledger.rebuild(fromUserId, Math.min(fromUserId + chunkSize - 1, maxUserId));
+        }
+        log.info("Saldos de membresías reconstruidos: {} usuarios en {} ms", rows, System.currentTimeMillis() - startedAt);
+        return rows;
+    }
+}
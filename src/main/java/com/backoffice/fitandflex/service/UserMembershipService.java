@@ -31,20 +31,32 @@ import java.util.stream.Collectors;
 @Transactional
 public class UserMembershipService {
 
+    private static final int MAX_BALANCES_PER_REQUEST = 500;
+
     private final UserMembershipRepository userMembershipRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
     private final PaymentRepository paymentRepository;
+    private final UserBalanceLedger userBalanceLedger;
+    private final PaymentStatsRollup paymentStatsRollup;
+    private final ClassCreditLedger classCreditLedger;
+    private final OperationMetrics operationMetrics;
 
     /**
      * Asignar membresía a usuario
      */
     public UserMembershipDTO.Response assignMembership(UserMembershipDTO.CreateRequest request, String assignedByEmail) {
+        return operationMetrics.time("assignMembership", operation -> assignMembership(request, assignedByEmail, operation));
+    }
+
+    private UserMembershipDTO.Response assignMembership(UserMembershipDTO.CreateRequest request, String assignedByEmail,
+                                                        OperationMetrics.Operation operation) {
         log.info("Asignando membresía {} al usuario {}", request.getProductId(), request.getUserId());
 
         // Validar que el usuario existe
         User user = userRepository.findById(request.getUserId())
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + request.getUserId()));
+        operation.branch(user.getBranch());
 
         // Validar que el producto existe
         Product product = productRepository.findById(request.getProductId())
@@ -95,9 +107,12 @@ public class UserMembershipService {
                 .assignedBy(assignedBy)
                 .totalAmount(totalAmount)
                 .paidAmount(initialPayment)
+                .remainingClasses(product.getNumberOfClasses())
                 .build();
 
         UserMembership savedMembership = userMembershipRepository.save(membership);
+        userBalanceLedger.recordAssignment(user.getId(), totalAmount, initialPayment);
+        classCreditLedger.invalidate(user.getId());
         log.info("Membresía asignada exitosamente con ID: {}. Total: {}, Abono inicial: {}, Pendiente: {}", 
                 savedMembership.getId(), totalAmount, initialPayment, savedMembership.getPendingAmount());
 
@@ -112,6 +127,7 @@ public class UserMembershipService {
                     .status(Payment.PaymentStatus.COMPLETED)
                     .build();
             paymentRepository.save(payment);
+            paymentStatsRollup.apply(null, paymentStatsRollup.contributionOf(payment));
             log.info("Pago inicial registrado: {}", payment.getId());
         }
 
@@ -237,7 +253,7 @@ public class UserMembershipService {
     public UserMembershipDTO.Response updateMembership(Long id, UserMembershipDTO.UpdateRequest request) {
         log.info("Actualizando membresía: {}", id);
         
-        UserMembership membership = userMembershipRepository.findById(id)
+        UserMembership membership = userMembershipRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new IllegalArgumentException("Membresía no encontrada: " + id));
         
         // Actualizar campos si se proporcionan
@@ -267,6 +283,7 @@ public class UserMembershipService {
         }
         
         UserMembership updatedMembership = userMembershipRepository.save(membership);
+        classCreditLedger.invalidate(updatedMembership.getUser().getId());
         log.info("Membresía actualizada exitosamente: {}", updatedMembership.getId());
         
         return UserMembershipDTO.Response.fromEntity(updatedMembership);
@@ -278,7 +295,7 @@ public class UserMembershipService {
     public UserMembershipDTO.Response changeMembershipStatus(Long id, UserMembershipDTO.ChangeStatusRequest request) {
         log.info("Cambiando estado de membresía {} a {}", id, request.getStatus());
         
-        UserMembership membership = userMembershipRepository.findById(id)
+        UserMembership membership = userMembershipRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new IllegalArgumentException("Membresía no encontrada: " + id));
         
         // Cambiar estado según el tipo
@@ -306,6 +323,7 @@ public class UserMembershipService {
         }
         
         UserMembership updatedMembership = userMembershipRepository.save(membership);
+        classCreditLedger.invalidate(updatedMembership.getUser().getId());
         log.info("Estado de membresía cambiado exitosamente: {}", updatedMembership.getId());
         
         return UserMembershipDTO.Response.fromEntity(updatedMembership);
@@ -317,7 +335,7 @@ public class UserMembershipService {
     public UserMembershipDTO.Response extendMembership(Long id, UserMembershipDTO.ExtendRequest request) {
         log.info("Extendiendo membresía {} por {} días", id, request.getAdditionalDays());
         
-        UserMembership membership = userMembershipRepository.findById(id)
+        UserMembership membership = userMembershipRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new IllegalArgumentException("Membresía no encontrada: " + id));
         
         // Extender la fecha de fin
@@ -331,6 +349,7 @@ public class UserMembershipService {
         }
         
         UserMembership updatedMembership = userMembershipRepository.save(membership);
+        classCreditLedger.invalidate(updatedMembership.getUser().getId());
         log.info("Membresía extendida exitosamente: {}", updatedMembership.getId());
         
         return UserMembershipDTO.Response.fromEntity(updatedMembership);
@@ -342,10 +361,12 @@ public class UserMembershipService {
     public void deleteMembership(Long id) {
         log.info("Eliminando membresía: {}", id);
         
-        UserMembership membership = userMembershipRepository.findById(id)
+        UserMembership membership = userMembershipRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new IllegalArgumentException("Membresía no encontrada: " + id));
         
+        userBalanceLedger.recordRemoval(membership);
         userMembershipRepository.delete(membership);
+        classCreditLedger.invalidate(membership.getUser().getId());
         log.info("Membresía eliminada exitosamente: {}", id);
     }
 
@@ -359,43 +380,63 @@ public class UserMembershipService {
 
     /**
      * Verificar si usuario tiene pagos pendientes
+     * Los totales salen del saldo materializado (una lectura por clave primaria); el detalle por
+     * membresía solo se consulta si hay saldo pendiente
      */
     @Transactional(readOnly = true)
     public Map<String, Object> hasPendingPayments(Long userId) {
         log.info("Verificando si usuario {} tiene pagos pendientes", userId);
         
-        List<UserMembership> memberships = userMembershipRepository.findByUserId(userId);
-        
-        BigDecimal totalPendingAmount = BigDecimal.ZERO;
-        int membershipsWithPendingPayment = 0;
-        List<Map<String, Object>> pendingMemberships = new java.util.ArrayList<>();
-        
-        for (UserMembership membership : memberships) {
-            BigDecimal pendingAmount = membership.getPendingAmount();
-            if (pendingAmount.compareTo(BigDecimal.ZERO) > 0) {
-                totalPendingAmount = totalPendingAmount.add(pendingAmount);
-                membershipsWithPendingPayment++;
-                pendingMemberships.add(Map.of(
-                    "membershipId", membership.getId(),
-                    "productName", membership.getProduct().getName(),
-                    "pendingAmount", pendingAmount,
-                    "totalAmount", membership.getTotalAmount(),
-                    "paidAmount", membership.getPaidAmount()
-                ));
-            }
+        UserMembershipDTO.BalanceResponse balance = userBalanceLedger.getBalance(userId);
+        
+        List<Map<String, Object>> pendingMemberships = List.of();
+        if (balance.isHasPendingPayments()) {
+            pendingMemberships = userMembershipRepository.findWithPendingBalanceByUserId(userId).stream()
+                    .map(membership -> Map.<String, Object>of(
+                        "membershipId", membership.getId(),
+                        "productName", membership.getProduct().getName(),
+                        "pendingAmount", membership.getPendingAmount(),
+                        "totalAmount", membership.getTotalAmount(),
+                        "paidAmount", membership.getPaidAmount()
+                    ))
+                    .collect(Collectors.toList());
         }
         
-        boolean hasPendingPayments = totalPendingAmount.compareTo(BigDecimal.ZERO) > 0;
-        
         return Map.of(
             "userId", userId,
-            "hasPendingPayments", hasPendingPayments,
-            "totalPendingAmount", totalPendingAmount,
-            "membershipsWithPendingPayment", membershipsWithPendingPayment,
-            "pendingMemberships", pendingMemberships
+            "hasPendingPayments", balance.isHasPendingPayments(),
+            "totalPendingAmount", balance.getPendingAmount(),
+            "membershipsWithPendingPayment", balance.getMembershipsWithPendingPayment(),
+            "pendingMemberships", pendingMemberships,
+            "totalDueMinor", balance.getTotalDueMinor(),
+            "paidMinor", balance.getPaidMinor(),
+            "pendingMinor", balance.getPendingMinor()
         );
     }
 
+    /**
+     * Obtener los saldos de varios usuarios en una sola consulta
+     */
+    @Transactional(readOnly = true)
+    public List<UserMembershipDTO.BalanceResponse> getBalances(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un usuario");
+        }
+        if (userIds.size() > MAX_BALANCES_PER_REQUEST) {
+            throw new IllegalArgumentException("No se pueden consultar más de " + MAX_BALANCES_PER_REQUEST + " usuarios a la vez");
+        }
+        return userBalanceLedger.getBalances(userIds);
+    }
+
+    /**
+     * Obtener los deudores de una sucursal, de mayor a menor saldo pendiente
+     */
+    @Transactional(readOnly = true)
+    public Page<UserMembershipDTO.BalanceResponse> getDebtorsByBranch(Long branchId, Pageable pageable) {
+        log.info("Obteniendo deudores de la sucursal: {}", branchId);
+        return userBalanceLedger.getDebtorsByBranch(branchId, pageable);
+    }
+
     /**
      * Obtener resumen de membresías por usuario
      */
@@ -413,11 +454,18 @@ public class UserMembershipService {
      * Registrar un abono adicional a una membresía
      */
     public UserMembershipDTO.Response addPaymentToMembership(Long membershipId, UserMembershipDTO.AddPaymentRequest request) {
+        return operationMetrics.time("addPaymentToMembership",
+                operation -> addPaymentToMembership(membershipId, request, operation));
+    }
+
+    private UserMembershipDTO.Response addPaymentToMembership(Long membershipId, UserMembershipDTO.AddPaymentRequest request,
+                                                              OperationMetrics.Operation operation) {
         log.info("Registrando abono de {} para membresía {}", request.getAmount(), membershipId);
         
-        // Obtener la membresía
-        UserMembership membership = userMembershipRepository.findById(membershipId)
+        // Obtener la membresía bloqueada: dos abonos simultáneos no pueden leer el mismo monto pagado
+        UserMembership membership = userMembershipRepository.findByIdForUpdate(membershipId)
                 .orElseThrow(() -> new IllegalArgumentException("Membresía no encontrada: " + membershipId));
+        operation.branch(membership.getUser().getBranch());
         
         // Validar que la membresía no esté completamente pagada
         if (membership.isFullyPaid()) {
@@ -436,6 +484,7 @@ public class UserMembershipService {
         
         // Guardar la membresía actualizada
         UserMembership updatedMembership = userMembershipRepository.save(membership);
+        userBalanceLedger.recordPayment(membership.getUser().getId(), request.getAmount(), updatedMembership.isFullyPaid());
         log.info("Abono registrado. Nuevo saldo pagado: {}, Pendiente: {}", 
                 updatedMembership.getPaidAmount(), updatedMembership.getPendingAmount());
         
@@ -451,6 +500,7 @@ public class UserMembershipService {
                 .status(Payment.PaymentStatus.COMPLETED)
                 .build();
         paymentRepository.save(payment);
+        paymentStatsRollup.apply(null, paymentStatsRollup.contributionOf(payment));
         log.info("Pago registrado con ID: {}", payment.getId());
         
         return UserMembershipDTO.Response.fromEntity(updatedMembership);
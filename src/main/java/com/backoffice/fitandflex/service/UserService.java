@@ -1,5 +1,7 @@
 package com.backoffice.fitandflex.service;
 
+import com.backoffice.fitandflex.dto.CursorPage;
+import com.backoffice.fitandflex.dto.CursorPageRequest;
 import com.backoffice.fitandflex.dto.UserDTO;
 import com.backoffice.fitandflex.dto.UserClassDTO;
 import com.backoffice.fitandflex.dto.UserProductDTO;
@@ -20,9 +22,11 @@ import com.backoffice.fitandflex.repository.ReservationRepository;
 import com.backoffice.fitandflex.repository.PaymentRepository;
 import com.backoffice.fitandflex.repository.ScheduleRepository;
 import com.backoffice.fitandflex.repository.UserMembershipRepository;
+import com.backoffice.fitandflex.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -47,6 +51,8 @@ public class UserService {
     private final PaymentRepository paymentRepository;
     private final ScheduleRepository scheduleRepository;
     private final UserMembershipRepository userMembershipRepository;
+    private final UserPrincipalCache principalCache;
+    private final PaymentStatsRollup paymentStatsRollup;
 
     /**
      * Crear un nuevo usuario
@@ -142,6 +148,25 @@ public class UserService {
         return users.map(UserDTO.Response::fromEntity);
     }
 
+    /**
+     * Obtener todos los usuarios con paginación por cursor (más recientes primero)
+     * El total solo se cuenta si se pide explícitamente
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserDTO.Response> getAllUsers(CursorPageRequest request) {
+        log.info("Obteniendo usuarios por cursor - tamaño: {}", request.getSize());
+
+        Pageable limit = PageRequest.of(0, request.getSize() + 1);
+        List<User> rows = request.isFirstPage()
+                ? userRepository.findKeysetFirst(limit)
+                : userRepository.findKeysetAfter(request.getAfterTimestamp(), request.getAfterId(), limit);
+        Long total = request.isIncludeTotal() ? userRepository.count() : null;
+
+        return CursorPage.from(rows, request.getSize(),
+                u -> CursorPageRequest.encode(u.getCreatedAt(), u.getId()),
+                UserDTO.Response::fromEntity, total);
+    }
+
     /**
      * Obtener usuarios por sucursal
      */
@@ -184,6 +209,7 @@ public class UserService {
         
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + id));
+        String previousEmail = user.getEmail();
 
         // Actualizar campos si se proporcionan
         if (request.getName() != null) {
@@ -220,6 +246,8 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        principalCache.invalidate(previousEmail);
+        principalCache.invalidate(updatedUser.getEmail());
         log.info("Usuario actualizado exitosamente: {}", updatedUser.getEmail());
         
         return UserDTO.Response.fromEntity(updatedUser);
@@ -236,6 +264,7 @@ public class UserService {
         
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
         
         log.info("Contraseña cambiada exitosamente para usuario: {}", user.getEmail());
     }
@@ -251,6 +280,7 @@ public class UserService {
         
         user.setActive(false);
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
         
         log.info("Usuario desactivado exitosamente: {}", user.getEmail());
     }
@@ -266,6 +296,7 @@ public class UserService {
         
         user.setActive(true);
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
         
         log.info("Usuario activado exitosamente: {}", user.getEmail());
     }
@@ -282,6 +313,7 @@ public class UserService {
         // Soft delete - solo desactivar
         user.setActive(false);
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
         
         log.info("Usuario eliminado exitosamente: {}", user.getEmail());
     }
@@ -432,6 +464,7 @@ public class UserService {
         if (!payment.getUser().getId().equals(userId)) {
             throw new IllegalArgumentException("El pago no pertenece al usuario especificado");
         }
+        PaymentStatsRollup.Contribution before = paymentStatsRollup.contributionOf(payment);
         
         // Actualizar campos si se proporcionan
         if (request.getNewPaymentAmount() != null) {
@@ -465,6 +498,7 @@ public class UserService {
         }
         
         Payment updatedPayment = paymentRepository.save(payment);
+        paymentStatsRollup.apply(before, paymentStatsRollup.contributionOf(updatedPayment));
         log.info("Producto del usuario actualizado exitosamente");
         
         return UserProductDTO.Response.fromPayment(updatedPayment);
@@ -4,31 +4,53 @@ import com.backoffice.fitandflex.entity.Video;
 import com.backoffice.fitandflex.repository.VideoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@ConditionalOnExpression("'${app.video.storage.type:s3}' == 'local' || (!'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty())")
 public class VideoService {
 
-    private final S3Service s3Service;
+    private final VideoStorage videoStorage;
     private final VideoRepository videoRepository;
+    private final PresignedUrlCache presignedUrlCache;
 
     /**
-     * Sube un video a S3 y guarda los metadatos en la base de datos
+     * Vigencia máxima de la instantánea del listado; acota el desfase cuando otra instancia modifica videos
+     */
+    @Value("${app.video.listing.snapshot-ttl-ms:60000}")
+    private long snapshotTtlMs;
+
+    private volatile Snapshot snapshot;
+    private final AtomicLong snapshotVersion = new AtomicLong();
+
+    /**
+     * Sube un video al almacenamiento y guarda los metadatos en la base de datos
      */
     @Transactional
     public Video uploadVideo(MultipartFile file, String title, String description) throws IOException {
-        // Subir a S3
-        String key = s3Service.uploadVideo(file);
+        // Subir al almacenamiento
+        String key = videoStorage.store(file);
 
         // Guardar en BD
         Video video = Video.builder()
@@ -40,37 +62,62 @@ public class VideoService {
                 .size(file.getSize())
                 .build();
 
-        return videoRepository.save(video);
+        Video saved = videoRepository.save(video);
+        invalidateListing();
+        return saved;
     }
 
     /**
-     * Lista todos los videos de la base de datos y genera URLs presignadas
+     * Sube un video al almacenamiento por streaming y guarda los metadatos solo si la subida se completó.
+     * No es transaccional a propósito: la conexión a BD no se mantiene abierta durante la subida.
+     * Si falla el guardado en BD se elimina el archivo subido para no dejarlo huérfano.
      */
-    public List<Map<String, Object>> getAllVideos() {
-        List<Video> videos = videoRepository.findAll();
-
-        return videos.stream().map(video -> {
-            Map<String, Object> videoMap = new HashMap<>();
-            videoMap.put("id", video.getId());
-            videoMap.put("title", video.getTitle());
-            videoMap.put("description", video.getDescription());
-            videoMap.put("key", video.getS3Key());
-            videoMap.put("fileName", video.getFileName());
-            videoMap.put("size", video.getSize());
-            videoMap.put("contentType", video.getContentType());
-            videoMap.put("createdAt", video.getCreatedAt());
-
-            // Generar URL presignada
+    public Video uploadVideoStream(InputStream inputStream, String contentType, String fileName,
+                                   long declaredLength, String title, String description) throws IOException {
+        VideoStorage.StoredVideo result =
+                videoStorage.store(inputStream, contentType, fileName, declaredLength);
+
+        Video video = Video.builder()
+                .title(title)
+                .description(description)
+                .s3Key(result.key())
+                .fileName(fileName != null && !fileName.isBlank()
+                        ? fileName
+                        : result.key().substring(result.key().lastIndexOf('/') + 1))
+                .contentType(contentType)
+                .size(result.size())
+                .build();
+
+        try {
+            Video saved = videoRepository.save(video);
+            invalidateListing();
+            return saved;
+        } catch (RuntimeException e) {
+            log.error("Error al guardar el video {} en BD, eliminando del almacenamiento: {}", result.key(), e.getMessage());
             try {
-                String url = s3Service.getPresignedUrl(video.getS3Key());
-                videoMap.put("url", url);
-            } catch (Exception e) {
-                log.error("Error al generar URL presignada para video {}: {}", video.getId(), e.getMessage());
-                videoMap.put("url", null);
+                videoStorage.delete(result.key());
+            } catch (RuntimeException deleteError) {
+                log.error("No se pudo eliminar el video huérfano {} del almacenamiento: {}", result.key(), deleteError.getMessage());
             }
+            throw e;
+        }
+    }
+
+    /**
+     * Lista una página de videos con sus URLs presignadas.
+     * Los metadatos salen de una instantánea en memoria que se invalida al subir, actualizar o eliminar
+     * videos; las URLs salen de la caché de URLs presignadas.
+     */
+    public Page<Map<String, Object>> getVideos(Pageable pageable) {
+        List<VideoSummary> videos = listingSnapshot();
 
-            return videoMap;
-        }).collect(Collectors.toList());
+        int from = (int) Math.min(pageable.getOffset(), videos.size());
+        int to = Math.min(from + pageable.getPageSize(), videos.size());
+
+        List<Map<String, Object>> content = videos.subList(from, to).stream()
+                .map(this::toListingMap)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, videos.size());
     }
 
     /**
@@ -89,22 +136,26 @@ public class VideoService {
             video.setDescription(description);
         }
 
-        return videoRepository.save(video);
+        Video saved = videoRepository.save(video);
+        invalidateListing();
+        return saved;
     }
 
     /**
-     * Elimina un video de S3 y de la base de datos
+     * Elimina un video del almacenamiento y de la base de datos
      */
     @Transactional
     public void deleteVideo(Long id) {
         Video video = videoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Video no encontrado con ID: " + id));
 
-        // Eliminar de S3
-        s3Service.deleteVideo(video.getS3Key());
+        // Eliminar del almacenamiento
+        videoStorage.delete(video.getS3Key());
 
         // Eliminar de BD
         videoRepository.delete(video);
+        presignedUrlCache.invalidate(video.getS3Key());
+        invalidateListing();
     }
 
     /**
@@ -114,4 +165,80 @@ public class VideoService {
         return videoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Video no encontrado con ID: " + id));
     }
+
+    private List<VideoSummary> listingSnapshot() {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current != null && current.loadedAt() + snapshotTtlMs > now) {
+            return current.videos();
+        }
+
+        long seenVersion = snapshotVersion.get();
+        List<VideoSummary> videos = videoRepository.findAll(Sort.by(Sort.Direction.ASC, "id")).stream()
+                .map(VideoSummary::from)
+                .toList();
+        // Solo publicar si no hubo invalidaciones mientras se leía
+        if (snapshotVersion.get() == seenVersion) {
+            snapshot = new Snapshot(videos, now);
+        }
+        return videos;
+    }
+
+    /**
+     * Invalidar la instantánea del listado (al confirmar la transacción, si la hay)
+     */
+    private void invalidateListing() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearSnapshot();
+                }
+            });
+        } else {
+            clearSnapshot();
+        }
+    }
+
+    private void clearSnapshot() {
+        snapshotVersion.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Map<String, Object> toListingMap(VideoSummary video) {
+        Map<String, Object> videoMap = new HashMap<>();
+        videoMap.put("id", video.id());
+        videoMap.put("title", video.title());
+        videoMap.put("description", video.description());
+        videoMap.put("key", video.s3Key());
+        videoMap.put("fileName", video.fileName());
+        videoMap.put("size", video.size());
+        videoMap.put("contentType", video.contentType());
+        videoMap.put("createdAt", video.createdAt());
+
+        // URL presignada (cacheada mientras siga vigente); sin URLs firmadas se usa el endpoint de streaming
+        try {
+            String url = presignedUrlCache.getUrl(video.s3Key());
+            videoMap.put("url", url != null ? url : "/api/videos/" + video.id() + "/stream");
+        } catch (Exception e) {
+            log.error("Error al generar URL presignada para video {}: {}", video.id(), e.getMessage());
+            videoMap.put("url", null);
+        }
+        return videoMap;
+    }
+
+    /**
+     * Metadatos inmutables de un video para el listado
+     */
+    private record VideoSummary(Long id, String title, String description, String s3Key, String fileName,
+                                Long size, String contentType, LocalDateTime createdAt) {
+
+        private static VideoSummary from(Video video) {
+            return new VideoSummary(video.getId(), video.getTitle(), video.getDescription(), video.getS3Key(),
+                    video.getFileName(), video.getSize(), video.getContentType(), video.getCreatedAt());
+        }
+    }
+
+    private record Snapshot(List<VideoSummary> videos, long loadedAt) {
+    }
 }
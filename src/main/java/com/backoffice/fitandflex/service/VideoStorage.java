@@ -0,0 +1,80 @@
+package com.backoffice.fitandflex.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Almacenamiento de los archivos de video.
+ * La implementación se elige con app.video.storage.type: s3 ({@link S3VideoStorage}) o
+ * local ({@link LocalVideoStorage}, sistema de archivos).
+ */
+public interface VideoStorage {
+
+    /**
+     * Guardar un archivo subido como multipart
+     * @return La clave del archivo
+     */
+    String store(MultipartFile file) throws IOException;
+
+    /**
+     * Guardar un video leyendo directamente de un stream (sin copiarlo completo a memoria)
+     * @param declaredLength Tamaño declarado por el cliente (-1 si se desconoce)
+     */
+    StoredVideo store(InputStream inputStream, String contentType, String originalFilename,
+                      long declaredLength) throws IOException;
+
+    /**
+     * Tamaño en bytes del archivo
+     */
+    long size(String key);
+
+    /**
+     * Abrir un rango de bytes (ambos extremos incluidos) para copiarlo a la respuesta
+     */
+    RangeSource openRange(String key, long start, long end);
+
+    /**
+     * URL de acceso directo firmada, si el almacenamiento la soporta
+     */
+    Optional<PresignedUrl> presign(String key, Duration validity);
+
+    /**
+     * Eliminar el archivo
+     */
+    void delete(String key);
+
+    /**
+     * Resultado de guardar un video
+     */
+    record StoredVideo(String key, long size) {
+    }
+
+    /**
+     * URL firmada y su instante de expiración
+     */
+    record PresignedUrl(String url, Instant expiresAt) {
+    }
+
+    /**
+     * Rango abierto de un archivo
+     */
+    interface RangeSource extends Closeable {
+
+        /**
+         * Copiar el rango completo al destino a través del buffer indicado
+         */
+        void transferTo(OutputStream target, byte[] buffer) throws IOException;
+
+        /**
+         * Descartar el resto del rango sin leerlo (p. ej. si el cliente se desconectó)
+         */
+        void abort();
+    }
+}
@@ -0,0 +1,197 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.entity.Video;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streaming de videos con soporte de rangos HTTP.
+ * <ul>
+ *   <li>Cada petición lee del almacenamiento solo el rango solicitado (en S3, GetObject con Range).</li>
+ *   <li>La copia hacia la respuesta usa buffers en heap de tamaño fijo reutilizados desde un pool acotado:
+ *       origen (stream de S3 o archivo) y destino (stream de la respuesta) son streams, así que un buffer
+ *       directo solo agregaría copias.</li>
+ *   <li>Alternativamente, el modo redirect responde 302 a la URL presignada y la JVM no transfiere bytes.</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@ConditionalOnExpression("'${app.video.storage.type:s3}' == 'local' || (!'${aws.s3.access-key:}'.isEmpty() && !'${aws.s3.secret-key:}'.isEmpty())")
+public class VideoStreamingService {
+
+    public static final String MODE_PROXY = "proxy";
+    public static final String MODE_REDIRECT = "redirect";
+
+    private final VideoStorage videoStorage;
+    private final String defaultMode;
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> bufferPool;
+
+    public VideoStreamingService(VideoStorage videoStorage,
+                                 @Value("${app.video.stream.mode:proxy}") String defaultMode,
+                                 @Value("${app.video.stream.buffer-size:65536}") int bufferSize,
+                                 @Value("${app.video.stream.buffer-pool-size:32}") int maxPooledBuffers) {
+        this.videoStorage = videoStorage;
+        this.defaultMode = defaultMode;
+        this.bufferSize = bufferSize;
+        this.bufferPool = new ArrayBlockingQueue<>(Math.max(1, maxPooledBuffers));
+    }
+
+    /**
+     * Indica si se debe responder con redirect a la URL presignada
+     * @param requestedMode Modo indicado en la petición (null para usar el configurado)
+     */
+    public boolean isRedirectMode(String requestedMode) {
+        String mode = requestedMode != null && !requestedMode.isBlank() ? requestedMode : defaultMode;
+        return MODE_REDIRECT.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Tamaño del video: el registrado en BD o, si no existe, el del almacenamiento
+     */
+    public long resolveSize(Video video) {
+        return video.getSize() != null ? video.getSize() : videoStorage.size(video.getS3Key());
+    }
+
+    /**
+     * ETag fuerte del video. Las claves de almacenamiento son únicas e inmutables (UUID), así que un digest
+     * SHA-256 de la clave, junto con el tamaño, identifica el contenido sin consultar el almacenamiento.
+     */
+    public String etag(Video video, long size) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(video.getS3Key().getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest) + "-" + Long.toHexString(size) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Interpretar una cabecera Range de un solo rango ("bytes=a-b", "bytes=a-", "bytes=-n")
+     * @return El rango a servir, o null si la cabecera se ignora y se sirve el contenido completo
+     * @throws RangeNotSatisfiableException si el rango queda fuera del archivo
+     */
+    public ByteRange parseRange(String rangeHeader, long size) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        if (spec.contains(",")) {
+            // Múltiples rangos (multipart/byteranges) no soportados: servir completo
+            return null;
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Sufijo: últimos n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    throw new RangeNotSatisfiableException(size);
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            if (start >= size || start > end) {
+                throw new RangeNotSatisfiableException(size);
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Abrir el rango en el almacenamiento y devolver el cuerpo de la respuesta que lo copia
+     * El rango se abre antes de devolver el cuerpo para que los errores (p. ej. archivo inexistente)
+     * se puedan responder con el código adecuado.
+     */
+    public StreamingResponseBody openStream(Video video, ByteRange range) {
+        if (range.length() == 0) {
+            return outputStream -> { };
+        }
+        VideoStorage.RangeSource source = videoStorage.openRange(video.getS3Key(), range.start(), range.end());
+
+        return outputStream -> {
+            byte[] buffer = acquireBuffer();
+            boolean completed = false;
+            try {
+                source.transferTo(outputStream, buffer);
+                completed = true;
+            } finally {
+                releaseBuffer(buffer);
+                if (completed) {
+                    source.close();
+                } else {
+                    // Cliente desconectado (p. ej. al adelantar el video): abortar en lugar de cerrar, que
+                    // leería el resto del rango
+                    source.abort();
+                    log.debug("Streaming del video {} interrumpido en el rango {}-{}", video.getId(), range.start(), range.end());
+                }
+            }
+        };
+    }
+
+    private byte[] acquireBuffer() {
+        byte[] buffer = bufferPool.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * Devolver el buffer al pool; si está lleno se descarta
+     */
+    private void releaseBuffer(byte[] buffer) {
+        bufferPool.offer(buffer);
+    }
+
+    /**
+     * Rango de bytes (ambos extremos incluidos)
+     */
+    public record ByteRange(long start, long end) {
+
+        public static ByteRange full(long size) {
+            return new ByteRange(0, size - 1);
+        }
+
+        public long length() {
+            return end - start + 1;
+        }
+    }
+
+    /**
+     * Rango solicitado fuera del tamaño del archivo (HTTP 416)
+     */
+    public static class RangeNotSatisfiableException extends RuntimeException {
+
+        private final long size;
+
+        public RangeNotSatisfiableException(long size) {
+            super("Rango no satisfacible para un archivo de " + size + " bytes");
+            this.size = size;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
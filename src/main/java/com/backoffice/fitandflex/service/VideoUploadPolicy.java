@@ -0,0 +1,94 @@
+package com.backoffice.fitandflex.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reglas comunes de subida de videos (tipos permitidos, tamaño máximo y generación de claves),
+ * compartidas por todas las implementaciones de {@link VideoStorage}
+ */
+@Component
+public class VideoUploadPolicy {
+
+    @Value("${aws.s3.video-folder:videos}")
+    private String videoFolder;
+
+    @Value("${aws.s3.max-file-size:104857600}")
+    private long maxFileSize;
+
+    @Value("${aws.s3.allowed-video-types:video/mp4,video/quicktime,video/x-msvideo,video/x-matroska,video/webm}")
+    private String allowedVideoTypes;
+
+    /**
+     * Valida que el archivo sea un video válido
+     */
+    public void validate(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("El archivo no puede estar vacío");
+        }
+        validate(file.getContentType(), file.getSize());
+    }
+
+    /**
+     * Valida el tipo de contenido y el tamaño declarado de una subida
+     * @param declaredLength Tamaño declarado (-1 si se desconoce; el límite se vuelve a comprobar al leer)
+     */
+    public void validate(String contentType, long declaredLength) {
+        if (contentType == null || !isAllowedVideoType(contentType)) {
+            throw new IllegalArgumentException("Tipo de archivo no permitido. Tipos permitidos: " + allowedVideoTypes);
+        }
+        if (declaredLength == 0) {
+            throw new IllegalArgumentException("El archivo no puede estar vacío");
+        }
+        if (declaredLength > maxFileSize) {
+            throw sizeExceeded();
+        }
+    }
+
+    /**
+     * Genera una clave única dentro de la carpeta de videos conservando la extensión original
+     */
+    public String newKey(String originalFilename) {
+        return videoFolder + "/" + UUID.randomUUID() + getFileExtension(originalFilename);
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public String getVideoFolder() {
+        return videoFolder;
+    }
+
+    public IllegalArgumentException sizeExceeded() {
+        return new IllegalArgumentException(
+                "El archivo excede el tamaño máximo permitido: " + (maxFileSize / 1024 / 1024) + " MB");
+    }
+
+    /**
+     * Verifica si el tipo de contenido es un video permitido
+     */
+    private boolean isAllowedVideoType(String contentType) {
+        List<String> allowedTypes = List.of(allowedVideoTypes.split(","));
+        return allowedTypes.stream()
+                .anyMatch(type -> contentType.toLowerCase().contains(type.trim().toLowerCase()));
+    }
+
+    /**
+     * Obtiene la extensión del archivo
+     */
+    private String getFileExtension(String filename) {
+        if (filename == null || filename.isEmpty()) {
+            return "";
+        }
+        int lastDotIndex = filename.lastIndexOf('.');
+        if (lastDotIndex == -1) {
+            return "";
+        }
+        return filename.substring(lastDotIndex);
+    }
+}
@@ -0,0 +1,30 @@
+-- =============================================
+-- SECUENCIAS DE IDS CON ASIGNACIÓN POR BLOQUES
+-- =============================================
+-- Las entidades generan sus ids con la secuencia de la columna (SEQUENCE, allocationSize = 50,
+-- optimizador pooled-lo) en lugar de IDENTITY: Hibernate reserva 50 ids con un solo nextval y puede
+-- agrupar los INSERT en lotes JDBC (hibernate.jdbc.batch_size).
+-- Se reutilizan las secuencias de las columnas BIGSERIAL, con incremento 50 y el próximo valor después
+-- del mayor id existente: los ids actuales no cambian. Con pooled-lo, el valor de nextval es el primer id
+-- del bloque, así que los INSERT que usan el DEFAULT de la columna (SQL manual, migraciones) no se
+-- superponen con los bloques reservados por la aplicación.
+DO $$
+DECLARE
+    t TEXT;
+    seq TEXT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['roles', 'branches', 'users', 'classes', 'class_schedule_patterns', 'schedules',
+                             'reservations', 'class_subscriptions', 'products', 'user_memberships',
+                             'payments', 'videos']
+    LOOP
+        seq := pg_get_serial_sequence(t, 'id');
+        IF seq IS NULL THEN
+            seq := t || '_id_seq';
+            EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I', seq);
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', t, seq);
+            EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', seq, t);
+        END IF;
+        EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', seq);
+        EXECUTE format('SELECT setval(%L, COALESCE((SELECT MAX(id) FROM %I), 0) + 1, false)', seq, t);
+    END LOOP;
+END $$;
@@ -0,0 +1,45 @@
+-- =============================================
+-- CRÉDITOS DE CLASES POR MEMBRESÍA
+-- =============================================
+-- remaining_classes: clases disponibles de la membresía (NULL = ilimitadas). Se descuenta con un UPDATE
+-- condicional (remaining_classes > 0) al suscribirse y se devuelve al cancelar la suscripción.
+ALTER TABLE user_memberships ADD COLUMN IF NOT EXISTS remaining_classes INTEGER;
+ALTER TABLE user_memberships DROP CONSTRAINT IF EXISTS chk_user_membership_remaining_classes;
+ALTER TABLE user_memberships ADD CONSTRAINT chk_user_membership_remaining_classes
+    CHECK (remaining_classes IS NULL OR remaining_classes >= 0);
+
+-- membership_id: membresía a la que se descontó la clase, para devolver el crédito al cancelar
+ALTER TABLE class_subscriptions ADD COLUMN IF NOT EXISTS membership_id BIGINT;
+ALTER TABLE class_subscriptions DROP CONSTRAINT IF EXISTS fk_class_subscription_membership;
+ALTER TABLE class_subscriptions ADD CONSTRAINT fk_class_subscription_membership
+    FOREIGN KEY (membership_id) REFERENCES user_memberships(id) ON DELETE SET NULL;
+
+CREATE INDEX IF NOT EXISTS idx_class_subscription_membership ON class_subscriptions(membership_id);
+
+-- Cada suscripción activa se atribuye a una sola membresía, en el mismo orden que ClassCreditLedger:
+-- entre las membresías activas del usuario que cubren la fecha y la sucursal de la clase, una ilimitada
+-- no descuenta nada; si no hay ninguna, descuenta la limitada que vence antes
+UPDATE class_subscriptions cs
+SET membership_id = attribution.membership_id
+FROM (
+    SELECT DISTINCT ON (s.id) s.id AS subscription_id, um.id AS membership_id,
+           p.number_of_classes IS NOT NULL AS limited
+    FROM class_subscriptions s
+    JOIN classes c ON c.id = s.class_id
+    JOIN user_memberships um ON um.user_id = s.user_id AND um.active = true AND um.status = 'ACTIVE'
+    JOIN products p ON p.id = um.product_id
+    WHERE s.active = true AND s.membership_id IS NULL
+      AND s.date BETWEEN CAST(um.start_date AS DATE) AND CAST(um.end_date AS DATE)
+      AND c.branch_id = p.branch_id
+    ORDER BY s.id, p.number_of_classes IS NOT NULL, CAST(um.end_date AS DATE), um.id
+) attribution
+WHERE cs.id = attribution.subscription_id AND attribution.limited;
+
+-- Las membresías existentes empiezan con las clases del producto menos las suscripciones que se les
+-- atribuyeron (mínimo 0)
+UPDATE user_memberships um
+SET remaining_classes = GREATEST(p.number_of_classes - (
+        SELECT COUNT(*) FROM class_subscriptions cs
+        WHERE cs.membership_id = um.id AND cs.active = true), 0)
+FROM products p
+WHERE p.id = um.product_id AND p.number_of_classes IS NOT NULL AND um.remaining_classes IS NULL;
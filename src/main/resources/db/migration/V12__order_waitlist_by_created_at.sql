@@ -0,0 +1,7 @@
+-- =============================================
+-- RESERVATIONS: orden de la lista de espera
+-- =============================================
+-- Con secuencias pooled los IDs no siguen el orden de alta entre instancias: la lista de espera FIFO se
+-- ordena por (created_at, id)
+DROP INDEX IF EXISTS idx_reservation_schedule_status;
+CREATE INDEX IF NOT EXISTS idx_reservation_schedule_status ON reservations(schedule_id, status, created_at, id);
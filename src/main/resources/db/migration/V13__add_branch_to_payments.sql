@@ -0,0 +1,12 @@
+-- =============================================
+-- PAYMENTS: sucursal del pago
+-- =============================================
+-- branch_id: sucursal del usuario al registrar el pago. payment_daily_stats agrupa por esta columna, así
+-- cambiar al usuario de sucursal no mueve (ni deja en negativo) los acumulados de sus pagos anteriores.
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS branch_id BIGINT;
+
+-- Pagos existentes: la sucursal actual del usuario, la misma con la que se calculó el acumulado
+UPDATE payments p
+SET branch_id = u.branch_id
+FROM users u
+WHERE u.id = p.user_id AND p.branch_id IS NULL;
@@ -0,0 +1,19 @@
+-- =============================================
+-- CLASS SLOT OCCUPANCY TABLE
+-- Contador de ocupación por horario y fecha, usado como guardia de capacidad
+-- (UPDATE condicional occupied < capacidad). Las filas se crean de forma perezosa
+-- con el conteo de suscripciones activas del horario.
+-- =============================================
+CREATE TABLE IF NOT EXISTS class_slot_occupancy (
+    id BIGSERIAL PRIMARY KEY,
+    class_id BIGINT NOT NULL,
+    slot_date DATE NOT NULL,
+    start_time TIME NOT NULL,
+    end_time TIME NOT NULL,
+    occupied INTEGER NOT NULL DEFAULT 0,
+    CONSTRAINT fk_slot_occupancy_class FOREIGN KEY (class_id) REFERENCES classes(id) ON DELETE CASCADE,
+    CONSTRAINT uk_class_slot_occupancy_slot UNIQUE (class_id, slot_date, start_time, end_time),
+    CONSTRAINT chk_slot_occupancy_non_negative CHECK (occupied >= 0)
+);
+
+CREATE INDEX IF NOT EXISTS idx_slot_occupancy_date ON class_slot_occupancy(slot_date);
@@ -0,0 +1,8 @@
+-- =============================================
+-- RESERVATIONS: capacidad y lista de espera
+-- =============================================
+-- Conteo de reservas activas y lista de espera FIFO por horario
+CREATE INDEX IF NOT EXISTS idx_reservation_schedule_status ON reservations(schedule_id, status, id);
+
+-- Verificación de reservas activas del usuario a la misma hora
+CREATE INDEX IF NOT EXISTS idx_reservation_user_status ON reservations(user_id, status);
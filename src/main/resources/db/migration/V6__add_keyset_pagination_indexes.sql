@@ -0,0 +1,9 @@
+-- =============================================
+-- PAGINACIÓN POR CURSOR (KEYSET)
+-- =============================================
+-- Listados ordenados por (fecha, id) descendente: cada página es un recorrido de índice
+-- a partir de la clave del cursor, sin OFFSET
+CREATE INDEX IF NOT EXISTS idx_reservation_created_id ON reservations(created_at, id);
+CREATE INDEX IF NOT EXISTS idx_payment_date_id ON payments(payment_date, id);
+CREATE INDEX IF NOT EXISTS idx_class_subscription_created_id ON class_subscriptions(created_at, id);
+CREATE INDEX IF NOT EXISTS idx_user_created_id ON users(created_at, id);
@@ -0,0 +1,28 @@
+-- =============================================
+-- PAYMENT DAILY STATS TABLE
+-- Acumulado diario de pagos por sucursal, estado y método. Se mantiene de forma
+-- incremental desde PaymentService y se reconstruye periódicamente desde payments.
+-- branch_id = 0 agrupa los pagos de usuarios sin sucursal.
+-- =============================================
+CREATE TABLE IF NOT EXISTS payment_daily_stats (
+    id BIGSERIAL PRIMARY KEY,
+    branch_id BIGINT NOT NULL,
+    day DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    method VARCHAR(20) NOT NULL,
+    payment_count BIGINT NOT NULL DEFAULT 0,
+    amount_sum NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    refund_sum NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    CONSTRAINT uk_payment_daily_stats_key UNIQUE (branch_id, day, status, method)
+);
+
+CREATE INDEX IF NOT EXISTS idx_payment_daily_stats_day ON payment_daily_stats(day);
+
+-- Carga inicial con los pagos existentes
+INSERT INTO payment_daily_stats (branch_id, day, status, method, payment_count, amount_sum, refund_sum)
+SELECT COALESCE(u.branch_id, 0), CAST(p.payment_date AS DATE), p.status, p.payment_method,
+       COUNT(*), SUM(p.amount), COALESCE(SUM(p.refund_amount), 0)
+FROM payments p
+JOIN users u ON u.id = p.user_id
+GROUP BY COALESCE(u.branch_id, 0), CAST(p.payment_date AS DATE), p.status, p.payment_method
+ON CONFLICT (branch_id, day, status, method) DO NOTHING;
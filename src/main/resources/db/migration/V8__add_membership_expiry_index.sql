@@ -0,0 +1,7 @@
+-- =============================================
+-- EXPIRACIÓN DE MEMBRESÍAS
+-- =============================================
+-- El proceso de expiración busca membresías ACTIVE con end_date vencida; el índice parcial
+-- solo contiene las activas, así cada lote es un recorrido corto aunque la tabla crezca
+CREATE INDEX IF NOT EXISTS idx_user_membership_active_end_date
+    ON user_memberships(end_date) WHERE status = 'ACTIVE';
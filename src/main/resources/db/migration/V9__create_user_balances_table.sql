@@ -0,0 +1,30 @@
+-- =============================================
+-- USER BALANCES TABLE
+-- Saldo de membresías por usuario en unidades mínimas (centavos), mantenido de forma
+-- incremental por UserMembershipService. Responde "¿tiene pagos pendientes?" con una
+-- lectura por clave primaria.
+-- =============================================
+CREATE TABLE IF NOT EXISTS user_balances (
+    user_id BIGINT PRIMARY KEY,
+    total_due_minor BIGINT NOT NULL DEFAULT 0,
+    paid_minor BIGINT NOT NULL DEFAULT 0,
+    pending_minor BIGINT NOT NULL DEFAULT 0,
+    memberships_with_pending INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP,
+    CONSTRAINT fk_user_balance_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Listado de deudores: solo indexa los usuarios con saldo pendiente
+CREATE INDEX IF NOT EXISTS idx_user_balance_debtors ON user_balances(user_id) WHERE pending_minor > 0;
+
+-- Carga inicial desde las membresías existentes
+INSERT INTO user_balances (user_id, total_due_minor, paid_minor, pending_minor, memberships_with_pending, updated_at)
+SELECT um.user_id,
+       SUM(CAST(ROUND(um.total_amount * 100) AS BIGINT)),
+       SUM(CAST(ROUND(um.paid_amount * 100) AS BIGINT)),
+       SUM(GREATEST(CAST(ROUND(um.total_amount * 100) AS BIGINT) - CAST(ROUND(um.paid_amount * 100) AS BIGINT), 0)),
+       SUM(CASE WHEN um.total_amount > um.paid_amount THEN 1 ELSE 0 END),
+       NOW()
+FROM user_memberships um
+GROUP BY um.user_id
+ON CONFLICT (user_id) DO NOTHING;
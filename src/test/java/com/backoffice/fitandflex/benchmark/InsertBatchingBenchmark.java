@@ -0,0 +1,184 @@
+package com.backoffice.fitandflex.benchmark;
+
+import com.backoffice.fitandflex.entity.Branch;
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.ClassSchedulePattern;
+import com.backoffice.fitandflex.entity.ClassSubscription;
+import com.backoffice.fitandflex.entity.Payment;
+import com.backoffice.fitandflex.entity.Role;
+import com.backoffice.fitandflex.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput de inserción masiva por entidad, antes y después de los ids por secuencia.
+ * <ul>
+ *   <li>Antes (IDENTITY): Hibernate ejecuta el INSERT al persistir para conocer el id; se reproduce con
+ *       un flush por fila, una sentencia por fila.</li>
+ *   <li>Después (SEQUENCE pooled-lo): los ids salen del bloque reservado y los INSERT se envían en lotes
+ *       de hibernate.jdbc.batch_size.</li>
+ * </ul>
+ * Se ejecuta con {@code gradle benchmark [-PbenchmarkRows=5000]}; el test normal lo excluye. Corre sobre H2
+ * en modo PostgreSQL, donde no hay latencia de red: contra una base remota la diferencia es mayor, porque
+ * cada sentencia ahorrada es una ida y vuelta.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InsertBatchingBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 2000);
+    private static final int WARMUP_ROWS = 200;
+    private static final int CLEAR_EVERY = 500;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long userId;
+    private Long classId;
+    private int dateOffset;
+
+    @BeforeEach
+    void setUp() {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        em.getTransaction().begin();
+        Branch branch = Branch.builder().name("Sucursal Benchmark").build();
+        em.persist(branch);
+        Role role = Role.builder().name("USER").build();
+        em.persist(role);
+        User user = User.builder()
+                .name("Usuario Benchmark")
+                .email("benchmark@test.com")
+                .password("secret")
+                .role(role)
+                .branch(branch)
+                .build();
+        em.persist(user);
+        Class clazz = Class.builder().name("Spinning").capacity(20).active(true).branch(branch).build();
+        em.persist(clazz);
+        em.getTransaction().commit();
+        em.close();
+        userId = user.getId();
+        classId = clazz.getId();
+    }
+
+    @Test
+    void bulkInsertThroughput() {
+        System.out.printf("%nInserción de %d filas por entidad (H2, batch_size=50)%n", ROWS);
+        System.out.printf("%-22s %-10s %12s %12s %10s%n", "Entidad", "Modo", "Sentencias", "Filas/s", "ms");
+
+        compare("ClassSubscription", this::subscription);
+        compare("Payment", this::payment);
+        compare("ClassSchedulePattern", this::pattern);
+    }
+
+    private void compare(String entity, RowFactory factory) {
+        insert(factory, WARMUP_ROWS, true);
+        insert(factory, WARMUP_ROWS, false);
+
+        Result before = insert(factory, ROWS, true);
+        Result after = insert(factory, ROWS, false);
+        print(entity, "IDENTITY", before);
+        print(entity, "SEQUENCE", after);
+
+        assertEquals(ROWS, before.inserted());
+        assertEquals(ROWS, after.inserted());
+        assertTrue(after.statements() < before.statements(),
+                "La inserción por lotes debería preparar menos sentencias que la inserción fila por fila");
+    }
+
+    private Object subscription(EntityManager em, int i) {
+        // Una fecha distinta por fila: (usuario, clase, día, fecha, horario) es único
+        LocalDate date = LocalDate.now().plusDays(dateOffset + i);
+        return ClassSubscription.builder()
+                .user(em.getReference(User.class, userId))
+                .clazz(em.getReference(Class.class, classId))
+                .date(date)
+                .dayOfWeek(date.getDayOfWeek().getValue())
+                .startTime(LocalTime.of(7, 0))
+                .endTime(LocalTime.of(8, 0))
+                .build();
+    }
+
+    private Object payment(EntityManager em, int i) {
+        return Payment.builder()
+                .user(em.getReference(User.class, userId))
+                .amount(BigDecimal.valueOf(1000 + i, 2))
+                .paymentMethod(Payment.PaymentMethod.CASH)
+                .status(Payment.PaymentStatus.COMPLETED)
+                .description("Pago benchmark " + i)
+                .build();
+    }
+
+    private Object pattern(EntityManager em, int i) {
+        return ClassSchedulePattern.builder()
+                .clazz(em.getReference(Class.class, classId))
+                .dayOfWeek(i % 7 + 1)
+                .startTime(LocalTime.of(6, 0).plusMinutes(i % 900))
+                .endTime(LocalTime.of(7, 0).plusMinutes(i % 900))
+                .recurrent(true)
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface RowFactory {
+        Object create(EntityManager em, int index);
+    }
+
+    private record Result(long inserted, long statements, long nanos) {
+    }
+
+    /**
+     * Insertar filas en una transacción
+     * @param flushEachRow true para reproducir IDENTITY (un INSERT inmediato por fila)
+     */
+    private Result insert(RowFactory factory, int rows, boolean flushEachRow) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        EntityManager em = entityManagerFactory.createEntityManager();
+        long startedAt = System.nanoTime();
+        em.getTransaction().begin();
+        for (int i = 0; i < rows; i++) {
+            em.persist(factory.create(em, i));
+            if (flushEachRow) {
+                em.flush();
+            }
+            if ((i + 1) % CLEAR_EVERY == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.getTransaction().commit();
+        long nanos = System.nanoTime() - startedAt;
+        em.close();
+        dateOffset += rows;
+        return new Result(statistics.getEntityInsertCount(), statistics.getPrepareStatementCount(), nanos);
+    }
+
+    private static void print(String entity, String mode, Result result) {
+        double millis = result.nanos() / 1_000_000.0;
+        System.out.printf("%-22s %-10s %12d %12.0f %10.1f%n", entity, mode, result.statements(),
+                result.inserted() / (millis / 1000.0), millis);
+    }
+}
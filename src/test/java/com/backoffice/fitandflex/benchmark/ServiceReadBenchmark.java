@@ -0,0 +1,271 @@
+package com.backoffice.fitandflex.benchmark;
+
+import com.backoffice.fitandflex.dto.CursorPageRequest;
+import com.backoffice.fitandflex.service.ClassCreditLedger;
+import com.backoffice.fitandflex.service.ClassResponseAssembler;
+import com.backoffice.fitandflex.service.ClassService;
+import com.backoffice.fitandflex.service.ClassTimetableService;
+import com.backoffice.fitandflex.service.OperationMetrics;
+import com.backoffice.fitandflex.service.PaymentService;
+import com.backoffice.fitandflex.service.PaymentStatsRollup;
+import com.backoffice.fitandflex.service.ReservationService;
+import com.backoffice.fitandflex.service.ReservationWaitlistPromoter;
+import com.backoffice.fitandflex.service.ReservationWaitlistService;
+import com.backoffice.fitandflex.service.UserBalanceLedger;
+import com.backoffice.fitandflex.service.UserMembershipService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tiempos de los métodos de lectura de ClassService, ReservationService, PaymentService y
+ * UserMembershipService sobre el dataset sintético, en cada escala.
+ * <ul>
+ *   <li>{@code gradle benchmark [-PbenchmarkScales=small,medium,large] [-PbenchmarkSeed=42]
+ *       [-PbenchmarkIterations=20]}; el test normal lo excluye.</li>
+ *   <li>Por defecto corre sobre H2 en modo PostgreSQL; con {@code -PbenchmarkJdbcUrl=jdbc:postgresql://localhost:5432/bench
+ *       -PbenchmarkJdbcUser=... -PbenchmarkJdbcPassword=...} corre sobre un PostgreSQL local (el esquema se crea
+ *       y se borra como en los tests: usar una base dedicada).</li>
+ *   <li>Cada llamada es una transacción propia, como un request. Se informa mediana, p95 y sentencias SQL
+ *       por llamada; el reporte se escribe en {@code build/reports/benchmark/service-reads.csv} para comparar
+ *       corridas (misma semilla y escala = mismo dataset).</li>
+ * </ul>
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@Import({ClassService.class, ClassResponseAssembler.class, ClassTimetableService.class,
+        ReservationService.class, ReservationWaitlistPromoter.class, ReservationWaitlistService.class,
+        PaymentService.class, PaymentStatsRollup.class,
+        UserMembershipService.class, UserBalanceLedger.class, ClassCreditLedger.class, OperationMetrics.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ServiceReadBenchmark {
+
+    private static final List<String> SCALES = Arrays.asList(System.getProperty("benchmark.scales", "small,medium").split(","));
+    private static final long SEED = Long.getLong("benchmark.seed", 42L);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 20);
+    private static final int WARMUP_ITERATIONS = Math.max(1, ITERATIONS / 4);
+    private static final Path REPORT = Path.of("build", "reports", "benchmark", "service-reads.csv");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        String url = System.getProperty("benchmark.jdbc.url", "");
+        if (!url.isBlank()) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> System.getProperty("benchmark.jdbc.user", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("benchmark.jdbc.password", ""));
+            registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+            registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ClassService classService;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private UserMembershipService membershipService;
+
+    private record Operation(String service, String method, Supplier<?> call) {
+    }
+
+    private record Result(String scale, String service, String method, double medianMs, double p95Ms,
+                          double statementsPerCall, String error) {
+    }
+
+    @AfterEach
+    void tearDown() {
+        SyntheticDataset.clear(jdbcTemplate);
+    }
+
+    @Test
+    void serviceReadsAtEachScale() throws IOException {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Result> results = new ArrayList<>();
+        Map<String, SyntheticDataset.Summary> summaries = new LinkedHashMap<>();
+
+        for (String name : SCALES) {
+            SyntheticDataset.Scale scale = SyntheticDataset.Scale.named(name);
+            SyntheticDataset.Summary summary = SyntheticDataset.load(jdbcTemplate, scale, SEED);
+            summaries.put(scale.name(), summary);
+            System.out.printf("%nEscala %s (semilla %d): %s en %d ms%n", scale.name(), SEED, summary.rows(), summary.loadMillis());
+
+            for (Operation operation : operations(summary)) {
+                results.add(measure(scale.name(), operation, statistics));
+            }
+        }
+
+        print(results, summaries.keySet());
+        write(results);
+        // Un método que falla no tiene medición comparable: el benchmark falla con cualquier error
+        List<String> failed = results.stream()
+                .filter(result -> result.error() != null)
+                .map(result -> result.scale() + " " + result.service() + "." + result.method() + ": " + result.error())
+                .toList();
+        assertTrue(failed.isEmpty(), "Operaciones con error:\n" + String.join("\n", failed));
+    }
+
+    /**
+     * Métodos de lectura con argumentos del dataset: sucursal, usuario y clase de ejemplo, páginas de 20
+     */
+    private List<Operation> operations(SyntheticDataset.Summary data) {
+        Long branchId = data.branchId();
+        Long userId = data.userId();
+        Long classId = data.classId();
+        LocalDate today = LocalDate.now();
+        LocalDate monthAgo = today.minusDays(30);
+        Pageable page = PageRequest.of(0, 20);
+        CursorPageRequest cursor = CursorPageRequest.of(null, 20, false);
+
+        return List.of(
+                new Operation("ClassService", "getClassById", () -> classService.getClassById(classId)),
+                new Operation("ClassService", "getAllClasses(page)", () -> classService.getAllClasses(page)),
+                new Operation("ClassService", "getClassesByBranch(page)", () -> classService.getClassesByBranch(branchId, page)),
+                new Operation("ClassService", "getActiveClassesByBranch", () -> classService.getActiveClassesByBranch(branchId)),
+                new Operation("ClassService", "getActiveClassesByDate", () -> classService.getActiveClassesByDate(today, branchId)),
+                new Operation("ClassService", "getActiveClassesByDateRange(7d)",
+                        () -> classService.getActiveClassesByDateRange(today, today.plusDays(6), branchId)),
+                new Operation("ClassService", "searchClassesByName", () -> classService.searchClassesByName("Yoga")),
+                new Operation("ClassService", "getClassesWithAvailableSchedules", () -> classService.getClassesWithAvailableSchedules()),
+
+                new Operation("ReservationService", "getReservationsByUser(page)", () -> reservationService.getReservationsByUser(userId, page)),
+                new Operation("ReservationService", "getReservationsByBranch(page)", () -> reservationService.getReservationsByBranch(branchId, page)),
+                new Operation("ReservationService", "getReservationsByBranch(cursor)", () -> reservationService.getReservationsByBranch(branchId, cursor)),
+                new Operation("ReservationService", "getReservationsByClass(page)", () -> reservationService.getReservationsByClass(classId, page)),
+                new Operation("ReservationService", "getFutureReservationsByUser", () -> reservationService.getFutureReservationsByUser(userId)),
+                new Operation("ReservationService", "getReservationStatsByUser", () -> reservationService.getReservationStatsByUser(userId)),
+                new Operation("ReservationService", "getReservationStats(branch,30d)",
+                        () -> reservationService.getReservationStats(branchId, null, monthAgo, today)),
+
+                new Operation("PaymentService", "getPaymentsByUser(page)", () -> paymentService.getPaymentsByUser(userId, page)),
+                new Operation("PaymentService", "getPaymentsByBranch(page)", () -> paymentService.getPaymentsByBranch(branchId, page)),
+                new Operation("PaymentService", "getPaymentsByBranch(cursor)", () -> paymentService.getPaymentsByBranch(branchId, cursor)),
+                new Operation("PaymentService", "getPaymentsByDateRange(30d,page)",
+                        () -> paymentService.getPaymentsByDateRange(monthAgo.atStartOfDay(), today.plusDays(1).atStartOfDay(), page)),
+                new Operation("PaymentService", "getPaymentStats(30d,day)", () -> paymentService.getPaymentStats(monthAgo, today, "day")),
+                new Operation("PaymentService", "getPaymentStatsByBranch(30d,week)",
+                        () -> paymentService.getPaymentStatsByBranch(branchId, monthAgo, today, "week")),
+                new Operation("PaymentService", "getPaymentStatsByUser", () -> paymentService.getPaymentStatsByUser(userId)),
+
+                new Operation("UserMembershipService", "getMembershipsByUser", () -> membershipService.getMembershipsByUser(userId)),
+                new Operation("UserMembershipService", "getActiveMembershipsByBranch", () -> membershipService.getActiveMembershipsByBranch(branchId)),
+                new Operation("UserMembershipService", "getExpiringMemberships(7d)", () -> membershipService.getExpiringMemberships(7)),
+                new Operation("UserMembershipService", "hasPendingPayments", () -> membershipService.hasPendingPayments(userId)),
+                new Operation("UserMembershipService", "getBalances(20)",
+                        () -> membershipService.getBalances(LongStream.rangeClosed(userId, userId + 19).boxed().toList())),
+                new Operation("UserMembershipService", "getDebtorsByBranch(page)", () -> membershipService.getDebtorsByBranch(branchId, page)),
+                new Operation("UserMembershipService", "getMembershipSummaryByUser", () -> membershipService.getMembershipSummaryByUser(userId)));
+    }
+
+    private Result measure(String scale, Operation operation, Statistics statistics) {
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                operation.call().get();
+            }
+            long[] nanos = new long[ITERATIONS];
+            statistics.clear();
+            for (int i = 0; i < ITERATIONS; i++) {
+                long startedAt = System.nanoTime();
+                operation.call().get();
+                nanos[i] = System.nanoTime() - startedAt;
+            }
+            double statements = statistics.getPrepareStatementCount() / (double) ITERATIONS;
+            Arrays.sort(nanos);
+            return new Result(scale, operation.service(), operation.method(), percentile(nanos, 50), percentile(nanos, 95),
+                    statements, null);
+        } catch (RuntimeException e) {
+            String message = e.getClass().getSimpleName() + ": " + String.valueOf(e.getMessage()).lines().findFirst().orElse("");
+            return new Result(scale, operation.service(), operation.method(), Double.NaN, Double.NaN, Double.NaN, message);
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * Tabla por operación con una columna de mediana (ms) y sentencias por escala
+     */
+    private static void print(List<Result> results, Iterable<String> scales) {
+        Map<String, Map<String, Result>> byOperation = new LinkedHashMap<>();
+        for (Result result : results) {
+            byOperation.computeIfAbsent(result.service() + "." + result.method(), key -> new LinkedHashMap<>())
+                    .put(result.scale(), result);
+        }
+        StringBuilder header = new StringBuilder(String.format("%n%-62s", "Operación (mediana ms / p95 ms / sentencias)"));
+        for (String scale : scales) {
+            header.append(String.format(" %28s", scale));
+        }
+        System.out.println(header);
+        byOperation.forEach((operation, byScale) -> {
+            StringBuilder line = new StringBuilder(String.format("%-62s", operation));
+            for (String scale : scales) {
+                Result result = byScale.get(scale);
+                line.append(result == null || result.error() != null
+                        ? String.format(" %28s", "error")
+                        : String.format(" %10.2f /%8.2f /%5.1f", result.medianMs(), result.p95Ms(), result.statementsPerCall()));
+            }
+            System.out.println(line);
+        });
+        results.stream().filter(result -> result.error() != null).forEach(result ->
+                System.out.printf("  %s %s.%s: %s%n", result.scale(), result.service(), result.method(), result.error()));
+    }
+
+    private static void write(List<Result> results) throws IOException {
+        Files.createDirectories(REPORT.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(REPORT))) {
+            out.println("scale,seed,iterations,service,method,median_ms,p95_ms,statements_per_call,error");
+            for (Result result : results) {
+                out.printf(Locale.ROOT, "%s,%d,%d,%s,\"%s\",%.3f,%.3f,%.1f,\"%s\"%n", result.scale(), SEED, ITERATIONS,
+                        result.service(), result.method(), result.medianMs(), result.p95Ms(), result.statementsPerCall(),
+                        result.error() == null ? "" : result.error().replace("\"", "'"));
+            }
+        }
+        System.out.printf("%nReporte: %s%n", REPORT.toAbsolutePath());
+    }
+}
@@ -0,0 +1,383 @@
+package com.backoffice.fitandflex.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generador de datos sintéticos de varias sucursales, determinista para una semilla y una escala.
+ * <ul>
+ *   <li>Carga con INSERT por lotes (JdbcTemplate.batchUpdate) e ids explícitos; al terminar, las secuencias
+ *       de ids se reinician después del mayor id para que la aplicación pueda seguir insertando.</li>
+ *   <li>Las fechas son relativas al día de la carga: el historial termina {@link #FUTURE_DAYS} días después
+ *       de hoy, para que haya reservas y suscripciones futuras.</li>
+ *   <li>Los acumulados (user_balances, payment_daily_stats) se recalculan desde las tablas generadas con
+ *       la misma agregación que usa la aplicación.</li>
+ * </ul>
+ * El SQL es el común a H2 en modo PostgreSQL y a PostgreSQL.
+ */
+final class SyntheticDataset {
+
+    static final int FUTURE_DAYS = 14;
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] CLASS_NAMES = {"Yoga", "Spinning", "Pilates", "Crossfit", "Funcional", "Box", "Zumba", "Stretching"};
+    private static final String[] PAYMENT_METHODS = {"CASH", "CARD", "TRANSFER"};
+
+    /**
+     * Tablas en orden de carga; se vacían en orden inverso
+     */
+    private static final List<String> TABLES = List.of("roles", "branches", "users", "classes",
+            "class_schedule_patterns", "schedules", "reservations", "class_subscriptions", "products",
+            "user_memberships", "payments", "user_balances", "payment_daily_stats", "class_slot_occupancy");
+
+    /**
+     * Factores de escala
+     * @param subscriptionsPerDay Suscripciones a clases por sucursal y día
+     * @param reservationsPerDay Reservas de horarios por sucursal y día
+     * @param days Días de historial (suscripciones, reservas, horarios y pagos)
+     */
+    record Scale(String name, int branches, int usersPerBranch, int classesPerBranch, int patternsPerClass,
+                 int subscriptionsPerDay, int reservationsPerDay, int days, int paymentsPerUser) {
+
+        static Scale named(String name) {
+            return switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "small" -> new Scale("small", 2, 100, 10, 6, 40, 20, 30, 4);
+                case "medium" -> new Scale("medium", 5, 400, 40, 8, 150, 80, 90, 8);
+                case "large" -> new Scale("large", 10, 1500, 80, 10, 500, 250, 180, 16);
+                default -> throw new IllegalArgumentException("Escala desconocida: " + name + " (small, medium, large)");
+            };
+        }
+    }
+
+    /**
+     * Resultado de la carga: filas por tabla y entidades de ejemplo para las consultas
+     */
+    record Summary(Scale scale, Map<String, Long> rows, long loadMillis, long branchId, long userId,
+                   long classId, LocalDate from, LocalDate to) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final Scale scale;
+    private final Random random;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Map<String, Long> rows = new LinkedHashMap<>();
+
+    private SyntheticDataset(JdbcTemplate jdbc, Scale scale, long seed) {
+        this.jdbc = jdbc;
+        this.scale = scale;
+        this.random = new Random(seed);
+        this.to = LocalDate.now().plusDays(FUTURE_DAYS);
+        this.from = to.minusDays(scale.days() - 1L);
+    }
+
+    /**
+     * Vaciar las tablas del dataset y cargar uno nuevo
+     */
+    static Summary load(JdbcTemplate jdbc, Scale scale, long seed) {
+        clear(jdbc);
+        long startedAt = System.nanoTime();
+        SyntheticDataset dataset = new SyntheticDataset(jdbc, scale, seed);
+        dataset.generate();
+        long loadMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        // Ejemplos: la primera sucursal, su primer usuario (con actividad en todo el período) y su primera clase
+        return new Summary(scale, dataset.rows, loadMillis, 1L, 1L, 1L, dataset.from, dataset.to);
+    }
+
+    static void clear(JdbcTemplate jdbc) {
+        for (int i = TABLES.size() - 1; i >= 0; i--) {
+            jdbc.update("DELETE FROM " + TABLES.get(i));
+        }
+    }
+
+    private void generate() {
+        Timestamp createdAt = Timestamp.valueOf(from.minusDays(1).atStartOfDay());
+
+        insert("roles", "INSERT INTO roles (id, name, description, created_at) VALUES (?, ?, ?, ?)", List.of(
+                new Object[]{1L, "USER", "Usuario", createdAt},
+                new Object[]{2L, "BRANCH_ADMIN", "Administrador de sucursal", createdAt},
+                new Object[]{3L, "SUPER_ADMIN", "Administrador general", createdAt}));
+
+        List<Object[]> branches = new ArrayList<>();
+        for (int b = 1; b <= scale.branches(); b++) {
+            branches.add(new Object[]{(long) b, "Sucursal " + b, "Calle " + b, "Ciudad " + (b % 3 + 1), "Ecuador", createdAt});
+        }
+        insert("branches", "INSERT INTO branches (id, name, address, city, country, created_at) VALUES (?, ?, ?, ?, ?, ?)", branches);
+
+        // Usuarios: ids consecutivos por sucursal; el primero de cada sucursal es su administrador
+        List<Object[]> users = new ArrayList<>();
+        for (int b = 1; b <= scale.branches(); b++) {
+            for (int u = 0; u < scale.usersPerBranch(); u++) {
+                long id = userId(b, u);
+                users.add(new Object[]{id, "Usuario " + id, "usuario" + id + "@bench.fitandflex.com", "{noop}secret",
+                        true, u == 0 ? 2L : 1L, (long) b, Timestamp.valueOf(from.atStartOfDay().minusDays(u % 365))});
+            }
+        }
+        insert("users", "INSERT INTO users (id, name, email, password, active, role_id, branch_id, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", users);
+
+        // Clases y patrones: patternsByBranchDay[b][día] = {classId, inicio} de los horarios de ese día
+        List<Object[]> classes = new ArrayList<>();
+        List<Object[]> patterns = new ArrayList<>();
+        List<List<List<long[]>>> patternsByBranchDay = new ArrayList<>();
+        long patternId = 0;
+        for (int b = 1; b <= scale.branches(); b++) {
+            List<List<long[]>> byDay = new ArrayList<>();
+            for (int d = 0; d <= 7; d++) {
+                byDay.add(new ArrayList<>());
+            }
+            patternsByBranchDay.add(byDay);
+            for (int c = 0; c < scale.classesPerBranch(); c++) {
+                long classId = (long) (b - 1) * scale.classesPerBranch() + c + 1;
+                classes.add(new Object[]{classId, CLASS_NAMES[c % CLASS_NAMES.length] + " " + (c + 1), "Clase " + classId,
+                        10 + random.nextInt(21), c % 10 != 9, (long) b, userId(b, 0), Timestamp.valueOf(from.minusDays(1).atStartOfDay())});
+                int firstDay = random.nextInt(7);
+                for (int p = 0; p < scale.patternsPerClass(); p++) {
+                    int dayOfWeek = (firstDay + p) % 7 + 1;
+                    int hour = 6 + (c + p * 3) % 15;
+                    patterns.add(new Object[]{++patternId, classId, dayOfWeek, Time.valueOf(LocalTime.of(hour, 0)),
+                            Time.valueOf(LocalTime.of(hour + 1, 0)), true, true});
+                    byDay.get(dayOfWeek).add(new long[]{classId, hour});
+                }
+            }
+        }
+        insert("classes", "INSERT INTO classes (id, name, description, capacity, active, branch_id, created_by, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", classes);
+        insert("class_schedule_patterns", "INSERT INTO class_schedule_patterns (id, class_id, day_of_week, start_time, end_time, " +
+                "active, recurrent) VALUES (?, ?, ?, ?, ?, ?, ?)", patterns);
+
+        generateDailyActivity(patternsByBranchDay);
+        generateMemberships();
+        generatePayments();
+        rebuildAggregates();
+        restartSequences();
+    }
+
+    /**
+     * Por día: un horario concreto (schedules) por patrón, suscripciones a clases y reservas de horarios
+     */
+    private void generateDailyActivity(List<List<List<long[]>>> patternsByBranchDay) {
+        String scheduleSql = "INSERT INTO schedules (id, class_id, start_time, end_time, active, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+        String reservationSql = "INSERT INTO reservations (id, user_id, schedule_id, reservation_date, status, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        String subscriptionSql = "INSERT INTO class_subscriptions (id, user_id, class_id, start_time, end_time, date, day_of_week, " +
+                "recurrent, active, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        Batch schedules = new Batch("schedules", scheduleSql, null);
+        Batch reservations = new Batch("reservations", reservationSql, schedules);
+        Batch subscriptions = new Batch("class_subscriptions", subscriptionSql, null);
+        LocalDate today = LocalDate.now();
+        long scheduleId = 0;
+        long reservationId = 0;
+        long subscriptionId = 0;
+
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            int dayOfWeek = date.getDayOfWeek().getValue();
+            for (int b = 1; b <= scale.branches(); b++) {
+                List<long[]> dayPatterns = patternsByBranchDay.get(b - 1).get(dayOfWeek);
+                if (dayPatterns.isEmpty()) {
+                    continue;
+                }
+                long firstScheduleId = scheduleId + 1;
+                for (long[] pattern : dayPatterns) {
+                    LocalDateTime start = date.atTime((int) pattern[1], 0);
+                    schedules.add(++scheduleId, pattern[0], Timestamp.valueOf(start), Timestamp.valueOf(start.plusHours(1)),
+                            true, Timestamp.valueOf(start.minusDays(7)));
+                }
+                int daySchedules = dayPatterns.size();
+
+                // Usuarios consecutivos desde un desplazamiento aleatorio: sin repetir usuario en el día
+                int subscriptionsToday = Math.min(scale.subscriptionsPerDay(), scale.usersPerBranch());
+                int offset = offset(b, subscriptionsToday);
+                for (int k = 0; k < subscriptionsToday; k++) {
+                    long[] pattern = dayPatterns.get(random.nextInt(daySchedules));
+                    LocalTime start = LocalTime.of((int) pattern[1], 0);
+                    boolean cancelled = random.nextInt(10) == 0;
+                    subscriptions.add(++subscriptionId, userId(b, (offset + k) % scale.usersPerBranch()), pattern[0],
+                            Time.valueOf(start), Time.valueOf(start.plusHours(1)), Date.valueOf(date), dayOfWeek,
+                            false, !cancelled, Timestamp.valueOf(date.atStartOfDay().minusDays(random.nextInt(14) + 1)));
+                }
+                int reservationsToday = Math.min(scale.reservationsPerDay(), scale.usersPerBranch());
+                offset = offset(b, reservationsToday);
+                for (int k = 0; k < reservationsToday; k++) {
+                    long schedule = firstScheduleId + random.nextInt(daySchedules);
+                    int roll = random.nextInt(20);
+                    String status = !date.isBefore(today)
+                            ? (roll == 0 ? "CANCELED" : "ACTIVE")
+                            : (roll == 0 ? "CANCELED" : roll < 3 ? "NO_SHOW" : "ATTENDED");
+                    LocalDateTime reservedAt = date.atStartOfDay().minusDays(random.nextInt(10) + 1).plusMinutes(random.nextInt(1440));
+                    reservations.add(++reservationId, userId(b, (offset + k) % scale.usersPerBranch()), schedule,
+                            Timestamp.valueOf(reservedAt), status, Timestamp.valueOf(reservedAt));
+                }
+            }
+        }
+        schedules.flush();
+        reservations.flush();
+        subscriptions.flush();
+    }
+
+    /**
+     * Productos por sucursal (mensual ilimitado, pack de 8 clases, trimestral) y una membresía por usuario;
+     * una de cada cinco vencida, una de cada cuatro con saldo pendiente
+     */
+    private void generateMemberships() {
+        List<Object[]> products = new ArrayList<>();
+        for (int b = 1; b <= scale.branches(); b++) {
+            long base = (long) (b - 1) * 3;
+            products.add(new Object[]{base + 1, "Mensual " + b, "BENCH-M-" + b, "MENSUAL", new BigDecimal("45.00"), 30, null, true, (long) b, ts(from)});
+            products.add(new Object[]{base + 2, "Pack 8 clases " + b, "BENCH-P-" + b, "PACK", new BigDecimal("30.00"), 60, 8, true, (long) b, ts(from)});
+            products.add(new Object[]{base + 3, "Trimestral " + b, "BENCH-T-" + b, "TRIMESTRAL", new BigDecimal("120.00"), 90, null, true, (long) b, ts(from)});
+        }
+        insert("products", "INSERT INTO products (id, name, sku, membership_type, price, duration_days, number_of_classes, " +
+                "active, branch_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", products);
+
+        Batch memberships = new Batch("user_memberships", "INSERT INTO user_memberships (id, user_id, product_id, start_date, " +
+                "end_date, status, active, total_amount, paid_amount, remaining_classes, assigned_by, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", null);
+        LocalDate today = LocalDate.now();
+        long membershipId = 0;
+        for (int b = 1; b <= scale.branches(); b++) {
+            for (int u = 0; u < scale.usersPerBranch(); u++) {
+                int kind = random.nextInt(3);
+                Object[] product = products.get((b - 1) * 3 + kind);
+                int duration = (Integer) product[5];
+                BigDecimal price = (BigDecimal) product[4];
+                boolean expired = random.nextInt(5) == 0;
+                LocalDate start = expired
+                        ? today.minusDays(duration + 1L + random.nextInt(30))
+                        : today.minusDays(random.nextInt(duration));
+                BigDecimal paid = random.nextInt(4) == 0 ? price.divide(BigDecimal.valueOf(2)) : price;
+                memberships.add(++membershipId, userId(b, u), product[0], ts(start), ts(start.plusDays(duration)),
+                        expired ? "EXPIRED" : "ACTIVE", !expired, price, paid,
+                        product[6] == null ? null : random.nextInt(9), userId(b, 0), ts(start));
+            }
+        }
+        memberships.flush();
+    }
+
+    /**
+     * Historial de pagos repartido en el período (sin los días futuros)
+     */
+    private void generatePayments() {
+        Batch payments = new Batch("payments", "INSERT INTO payments (id, amount, currency, payment_date, status, payment_method, " +
+                "transaction_id, description, refund_amount, user_id, branch_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", null);
+        int historyDays = Math.max(1, scale.days() - FUTURE_DAYS);
+        LocalDateTime now = LocalDateTime.now();
+        long paymentId = 0;
+        for (int b = 1; b <= scale.branches(); b++) {
+            for (int u = 0; u < scale.usersPerBranch(); u++) {
+                for (int p = 0; p < scale.paymentsPerUser(); p++) {
+                    LocalDateTime paidAt = now.minusDays(random.nextInt(historyDays)).minusMinutes(random.nextInt(1440));
+                    int roll = random.nextInt(50);
+                    String status = roll == 0 ? "REFUNDED" : roll < 3 ? "FAILED" : roll < 5 ? "PENDING" : "COMPLETED";
+                    BigDecimal amount = BigDecimal.valueOf(1500 + random.nextInt(10500), 2);
+                    paymentId++;
+                    payments.add(paymentId, amount, "USD", Timestamp.valueOf(paidAt), status,
+                            PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)], "BENCH-" + paymentId,
+                            "Pago de membresía", "REFUNDED".equals(status) ? amount : null, userId(b, u),
+                            (long) b, Timestamp.valueOf(paidAt));
+                }
+            }
+        }
+        payments.flush();
+    }
+
+    private void rebuildAggregates() {
+        count("user_balances", jdbc.update("INSERT INTO user_balances (user_id, total_due_minor, paid_minor, pending_minor, " +
+                "memberships_with_pending, updated_at) " +
+                "SELECT user_id, SUM(CAST(total_amount * 100 AS BIGINT)), SUM(CAST(paid_amount * 100 AS BIGINT)), " +
+                "SUM(CAST(GREATEST(total_amount - paid_amount, 0) * 100 AS BIGINT)), " +
+                "SUM(CASE WHEN total_amount > paid_amount THEN 1 ELSE 0 END), CURRENT_TIMESTAMP " +
+                "FROM user_memberships GROUP BY user_id"));
+        count("payment_daily_stats", jdbc.update("INSERT INTO payment_daily_stats (branch_id, day, status, method, payment_count, " +
+                "amount_sum, refund_sum) " +
+                "SELECT COALESCE(p.branch_id, 0), CAST(p.payment_date AS DATE), p.status, p.payment_method, " +
+                "COUNT(*), SUM(p.amount), COALESCE(SUM(p.refund_amount), 0) " +
+                "FROM payments p " +
+                "GROUP BY COALESCE(p.branch_id, 0), CAST(p.payment_date AS DATE), p.status, p.payment_method"));
+    }
+
+    /**
+     * Reiniciar las secuencias de ids después del mayor id generado
+     */
+    private void restartSequences() {
+        for (String table : List.of("roles", "branches", "users", "classes", "class_schedule_patterns", "schedules",
+                "reservations", "class_subscriptions", "products", "user_memberships", "payments")) {
+            Long max = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            jdbc.execute("ALTER SEQUENCE " + table + "_id_seq RESTART WITH " + (max + 1));
+        }
+    }
+
+    /**
+     * Primer usuario de la rotación del día; en la sucursal 1 la rotación siempre incluye al usuario de
+     * ejemplo (índice 0), para que tenga actividad en todo el período
+     */
+    private int offset(int branch, int usersToday) {
+        int users = scale.usersPerBranch();
+        return branch == 1 ? (users - random.nextInt(usersToday)) % users : random.nextInt(users);
+    }
+
+    private long userId(int branch, int index) {
+        return (long) (branch - 1) * scale.usersPerBranch() + index + 1;
+    }
+
+    private static Timestamp ts(LocalDate date) {
+        return Timestamp.valueOf(date.atStartOfDay());
+    }
+
+    private void insert(String table, String sql, List<Object[]> batch) {
+        for (int i = 0; i < batch.size(); i += BATCH_SIZE) {
+            jdbc.batchUpdate(sql, batch.subList(i, Math.min(i + BATCH_SIZE, batch.size())));
+        }
+        count(table, batch.size());
+    }
+
+    private void count(String table, long inserted) {
+        rows.merge(table, inserted, Long::sum);
+    }
+
+    /**
+     * Filas pendientes de una tabla; se envían cada {@link #BATCH_SIZE}, después de las filas pendientes
+     * de la tabla referenciada (parent)
+     */
+    private final class Batch {
+        private final String table;
+        private final String sql;
+        private final Batch parent;
+        private final List<Object[]> pending = new ArrayList<>(BATCH_SIZE);
+
+        private Batch(String table, String sql, Batch parent) {
+            this.table = table;
+            this.sql = sql;
+            this.parent = parent;
+        }
+
+        private void add(Object... row) {
+            pending.add(row);
+            if (pending.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (parent != null) {
+                parent.flush();
+            }
+            if (!pending.isEmpty()) {
+                insert(table, sql, pending);
+                pending.clear();
+            }
+        }
+    }
+}
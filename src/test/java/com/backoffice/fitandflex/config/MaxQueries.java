@@ -0,0 +1,21 @@
+package com.backoffice.fitandflex.config;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Presupuesto de sentencias SQL por petición HTTP: el test falla si alguna petición hecha con MockMvc
+ * (pasando por {@link SqlMetricsFilter}) ejecuta más sentencias que {@link #value()}.
+ * En una clase aplica a todos sus tests; en un método, reemplaza al de la clase.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(MaxQueriesExtension.class)
+public @interface MaxQueries {
+
+    int value();
+}
@@ -0,0 +1,44 @@
+package com.backoffice.fitandflex.config;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.opentest4j.AssertionFailedError;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+/**
+ * Abre un ámbito SQL alrededor de cada test y compara la petición HTTP con más sentencias contra
+ * {@link MaxQueries}
+ */
+class MaxQueriesExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(MaxQueriesExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), SqlStatementScope.open(context.getDisplayName()));
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        SqlStatementScope scope = context.getStore(NAMESPACE).remove(context.getUniqueId(), SqlStatementScope.class);
+        if (scope == null) {
+            return;
+        }
+        scope.close();
+        int budget = budget(context);
+        if (scope.getWorstRequest() != null && scope.getWorstRequestStatements() > budget) {
+            throw new AssertionFailedError(scope.getWorstRequest() + " ejecutó " + scope.getWorstRequestStatements()
+                    + " sentencias SQL; el máximo permitido es " + budget,
+                    budget, scope.getWorstRequestStatements());
+        }
+    }
+
+    private static int budget(ExtensionContext context) {
+        MaxQueries annotation = AnnotatedElementUtils.findMergedAnnotation(context.getRequiredTestMethod(), MaxQueries.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(context.getRequiredTestClass(), MaxQueries.class);
+        }
+        return annotation != null ? annotation.value() : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,125 @@
+package com.backoffice.fitandflex.config;
+
+import com.backoffice.fitandflex.controller.BranchController;
+import com.backoffice.fitandflex.entity.Branch;
+import com.backoffice.fitandflex.repository.BranchRepository;
+import com.backoffice.fitandflex.service.BranchService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifica el conteo de sentencias SQL por petición y por método de repositorio, y el presupuesto de
+ * {@link MaxQueries}
+ */
+@DataJpaTest
+@Import({SqlMetricsConfig.class, BranchService.class, SqlMetricsTest.Metrics.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@MaxQueries(5)
+class SqlMetricsTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private BranchRepository branchRepository;
+
+    @Autowired
+    private FilterRegistrationBean<SqlMetricsFilter> sqlMetricsFilter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private MockMvc mockMvc;
+    private Branch branch;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new BranchController(branchService))
+                .addFilters(sqlMetricsFilter.getFilter())
+                .build();
+        branch = branchRepository.save(Branch.builder().name("Sucursal Métricas").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        branchRepository.deleteAll();
+    }
+
+    @Test
+    @MaxQueries(1)
+    void requestStatementsAreCountedPerEndpoint() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/branches/{id}", branch.getId()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals("1", result.getResponse().getHeader(SqlMetricsFilter.COUNT_HEADER));
+        assertEquals(1.0, meterRegistry.get("sql.request.statements")
+                .tags("method", "GET", "uri", "/api/branches/{id}")
+                .summary().totalAmount());
+        assertTrue(meterRegistry.get("sql.repository.statements")
+                .tags("repository", "BranchRepository", "method", "findById")
+                .summary().count() >= 1);
+    }
+
+    @Test
+    void worstRequestPropagatesToEnclosingScope() {
+        try (SqlStatementScope test = SqlStatementScope.open("test")) {
+            try (SqlStatementScope ignored = SqlStatementScope.openRequest("GET /api/classes")) {
+                try (SqlStatementScope ignoredRepository = SqlStatementScope.open("ClassRepository.findAll")) {
+                    SqlStatementScope.record(1_000);
+                    SqlStatementScope.record(1_000);
+                }
+                SqlStatementScope.record(1_000);
+            }
+            try (SqlStatementScope ignored = SqlStatementScope.openRequest("GET /api/branches")) {
+                SqlStatementScope.record(1_000);
+            }
+            // Los repositorios llamados fuera de una petición no cuentan para el presupuesto
+            try (SqlStatementScope ignored = SqlStatementScope.open("BranchRepository.findAll")) {
+                for (int i = 0; i < 10; i++) {
+                    SqlStatementScope.record(1_000);
+                }
+            }
+
+            test.close();
+            assertEquals(14, test.getStatements());
+            assertEquals("GET /api/classes", test.getWorstRequest());
+            assertEquals(3, test.getWorstRequestStatements());
+        }
+        SqlStatementScope.record(1_000);
+        try (SqlStatementScope empty = SqlStatementScope.open("empty")) {
+            assertNull(empty.getWorstRequest());
+            assertEquals(0, empty.getStatements());
+        }
+    }
+}
@@ -34,6 +34,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 
 @WebMvcTest(
@@ -47,6 +48,7 @@ import org.springframework.test.context.ActiveProfiles;
         }
     )
 )
+@Import(com.backoffice.fitandflex.service.OperationMetrics.class)
 @ActiveProfiles("test")
 class AuthControllerTest {
 
@@ -0,0 +1,148 @@
+package com.backoffice.fitandflex.controller;
+
+import com.backoffice.fitandflex.config.MaxQueries;
+import com.backoffice.fitandflex.config.SqlMetricsConfig;
+import com.backoffice.fitandflex.config.SqlMetricsFilter;
+import com.backoffice.fitandflex.entity.Branch;
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.Role;
+import com.backoffice.fitandflex.entity.User;
+import com.backoffice.fitandflex.repository.BranchRepository;
+import com.backoffice.fitandflex.repository.ClassRepository;
+import com.backoffice.fitandflex.repository.RoleRepository;
+import com.backoffice.fitandflex.repository.UserRepository;
+import com.backoffice.fitandflex.security.JwtService;
+import com.backoffice.fitandflex.service.ClassResponseAssembler;
+import com.backoffice.fitandflex.service.ClassService;
+import com.backoffice.fitandflex.service.ClassTimetableService;
+import com.backoffice.fitandflex.service.OperationMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fija el número de sentencias SQL de los listados paginados de clases: sucursal y creador de cada clase
+ * deben llegar en la consulta de la página, sin cargas perezosas por fila
+ */
+@DataJpaTest
+@Import({SqlMetricsConfig.class, ClassService.class, ClassResponseAssembler.class, ClassTimetableService.class,
+        OperationMetrics.class, ClassControllerQueryBudgetTest.Metrics.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@MaxQueries(5)
+class ClassControllerQueryBudgetTest {
+
+    private static final int BRANCHES = 3;
+    private static final int CLASSES_PER_BRANCH = 3;
+    private static final String TOKEN = "token";
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private ClassService classService;
+
+    @Autowired
+    private ClassRepository classRepository;
+
+    @Autowired
+    private BranchRepository branchRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FilterRegistrationBean<SqlMetricsFilter> sqlMetricsFilter;
+
+    private final JwtService jwtService = mock(JwtService.class);
+
+    private MockMvc mockMvc;
+    private Branch branch;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ClassController(classService, null, null, jwtService))
+                .addFilters(sqlMetricsFilter.getFilter())
+                .build();
+
+        // Cada sucursal con su propio creador y rol, para que una carga perezosa por entidad se note
+        List<Class> classes = new ArrayList<>();
+        for (int i = 0; i < BRANCHES; i++) {
+            Branch current = branchRepository.save(Branch.builder().name("Sucursal " + i).build());
+            Role role = roleRepository.save(Role.builder().name("ROLE_" + i).build());
+            User creator = userRepository.save(User.builder()
+                    .name("Creador " + i)
+                    .email("creador" + i + "@test.com")
+                    .password("secret")
+                    .role(role)
+                    .branch(current)
+                    .build());
+            for (int j = 0; j < CLASSES_PER_BRANCH; j++) {
+                classes.add(Class.builder()
+                        .name("Clase " + i + "-" + j)
+                        .capacity(10)
+                        .active(true)
+                        .branch(current)
+                        .createdBy(creator)
+                        .build());
+            }
+            branch = current;
+        }
+        classRepository.saveAll(classes);
+    }
+
+    @AfterEach
+    void tearDown() {
+        classRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+        branchRepository.deleteAll();
+    }
+
+    @Test
+    void allClassesPageLoadsBranchAndCreatorWithThePage() throws Exception {
+        mockMvc.perform(get("/api/classes").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5));
+    }
+
+    @Test
+    void branchClassesPageLoadsBranchAndCreatorWithThePage() throws Exception {
+        when(jwtService.extractBranchId(TOKEN)).thenReturn(branch.getId());
+        when(jwtService.isSuperAdmin(TOKEN)).thenReturn(false);
+
+        mockMvc.perform(get("/api/classes").param("size", "2").header("Authorization", "Bearer " + TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2));
+    }
+}
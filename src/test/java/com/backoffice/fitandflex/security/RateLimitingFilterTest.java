@@ -0,0 +1,159 @@
+package com.backoffice.fitandflex.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica el filtro de rate limiting: 429 con Retry-After al agotar el bucket, buckets independientes por
+ * clave y por política, y rutas que no se limitan
+ */
+class RateLimitingFilterTest {
+
+    private static final int CAPACITY = 3;
+    private static final int PERIOD_SECONDS = 60;
+
+    private MeterRegistry meterRegistry;
+    private RateLimitingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = filter(new MockEnvironment());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void exhaustedBucketIsRejectedWithRetryAfter() throws Exception {
+        for (int i = 0; i < CAPACITY; i++) {
+            MockHttpServletResponse response = perform(get("/api/classes", "10.0.0.1"));
+            assertEquals(200, response.getStatus());
+            assertEquals(String.valueOf(CAPACITY), response.getHeader("X-RateLimit-Limit"));
+            assertEquals(String.valueOf(CAPACITY - i - 1), response.getHeader("X-RateLimit-Remaining"));
+        }
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(get("/api/classes", "10.0.0.1"), rejected, chain);
+
+        assertEquals(429, rejected.getStatus());
+        assertNull(chain.getRequest(), "la petición rechazada no debe llegar a la cadena");
+        assertEquals("0", rejected.getHeader("X-RateLimit-Remaining"));
+        // Un token cada período / capacidad segundos
+        assertEquals(String.valueOf(PERIOD_SECONDS / CAPACITY), rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("\"path\":\"/api/classes\""));
+        assertEquals(1.0, meterRegistry.get("http.server.requests.throttled")
+                .tags("policy", "read", "key", "ip")
+                .counter().count());
+    }
+
+    @Test
+    void bucketsAreIsolatedPerKeyAndPolicy() throws Exception {
+        exhaust(get("/api/classes", "10.0.0.1"));
+
+        // Otra IP y la misma IP en otra política tienen su propio bucket
+        assertEquals(200, perform(get("/api/classes", "10.0.0.2")).getStatus());
+        assertEquals(200, perform(request("POST", "/api/classes", "10.0.0.1")).getStatus());
+
+        // Un usuario autenticado desde la misma IP también, y su bucket lo sigue desde cualquier IP
+        authenticate("socio@test.com");
+        exhaust(get("/api/classes", "10.0.0.1"));
+        assertEquals(429, perform(get("/api/classes", "10.0.0.4")).getStatus());
+        authenticate("otro@test.com");
+        assertEquals(200, perform(get("/api/classes", "10.0.0.4")).getStatus());
+    }
+
+    @Test
+    void loginIsLimitedPerIpEvenWhenAuthenticated() throws Exception {
+        authenticate("socio@test.com");
+        exhaust(request("POST", "/api/auth/login", "10.0.0.1"));
+
+        authenticate("otro@test.com");
+        assertEquals(429, perform(request("POST", "/api/auth/login", "10.0.0.1")).getStatus());
+        assertEquals(200, perform(request("POST", "/api/auth/login", "10.0.0.2")).getStatus());
+    }
+
+    @Test
+    void exemptRequestsAreNeverLimited() throws Exception {
+        for (int i = 0; i < CAPACITY * 3; i++) {
+            for (MockHttpServletRequest request : List.of(
+                    get("/actuator/health", "10.0.0.1"),
+                    get("/swagger-ui/index.html", "10.0.0.1"),
+                    request("OPTIONS", "/api/classes", "10.0.0.1"))) {
+                MockHttpServletResponse response = perform(request);
+                assertEquals(200, response.getStatus());
+                assertNull(response.getHeader("X-RateLimit-Limit"));
+            }
+        }
+
+        RateLimitingFilter disabled = filter(new MockEnvironment().withProperty("app.rate-limit.enabled", "false"));
+        for (int i = 0; i < CAPACITY * 3; i++) {
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            disabled.doFilter(get("/api/classes", "10.0.0.1"), response, chain);
+            assertNotNull(chain.getRequest());
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    private RateLimitingFilter filter(MockEnvironment env) {
+        for (String policy : List.of("login", "refresh-token", "upload", "read", "write")) {
+            env.setProperty("app.rate-limit." + policy + ".capacity", String.valueOf(CAPACITY));
+            env.setProperty("app.rate-limit." + policy + ".period-seconds", String.valueOf(PERIOD_SECONDS));
+        }
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        return new RateLimitingFilter(env, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    /**
+     * Consumir el bucket de la petición y comprobar que la siguiente se rechaza
+     */
+    private void exhaust(MockHttpServletRequest request) throws Exception {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(200, perform(request).getStatus());
+        }
+        assertEquals(429, perform(request).getStatus());
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String path, String remoteAddr) {
+        return request("GET", path, remoteAddr);
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(username, null, List.of()));
+    }
+}
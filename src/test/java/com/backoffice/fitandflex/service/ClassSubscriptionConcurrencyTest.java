@@ -0,0 +1,371 @@
+package com.backoffice.fitandflex.service;
+
+import com.backoffice.fitandflex.dto.ClassDTO;
+import com.backoffice.fitandflex.entity.Branch;
+import com.backoffice.fitandflex.entity.Class;
+import com.backoffice.fitandflex.entity.ClassSchedulePattern;
+import com.backoffice.fitandflex.entity.Product;
+import com.backoffice.fitandflex.entity.Role;
+import com.backoffice.fitandflex.entity.User;
+import com.backoffice.fitandflex.entity.UserMembership;
+import com.backoffice.fitandflex.repository.BranchRepository;
+import com.backoffice.fitandflex.repository.ClassRepository;
+import com.backoffice.fitandflex.repository.ClassSchedulePatternRepository;
+import com.backoffice.fitandflex.repository.ClassSlotOccupancyRepository;
+import com.backoffice.fitandflex.repository.ClassSubscriptionRepository;
+import com.backoffice.fitandflex.repository.ProductRepository;
+import com.backoffice.fitandflex.repository.RoleRepository;
+import com.backoffice.fitandflex.repository.UserMembershipRepository;
+import com.backoffice.fitandflex.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que la admisión por capacidad no sobrevende un horario bajo concurrencia, que sus franjas se toman
+ * en orden dentro de una transacción y que las suscripciones descuentan los créditos de la membresía
+ */
+@DataJpaTest
+@Import({ClassSubscriptionService.class, SlotAdmissionControl.class, ClassCreditLedger.class,
+        OperationMetrics.class})
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ClassSubscriptionConcurrencyTest {
+
+    private static final int CAPACITY = 12;
+    private static final int REQUESTS = 300;
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+    private static final LocalTime START = LocalTime.of(7, 0);
+    private static final LocalTime END = LocalTime.of(8, 0);
+
+    @Autowired
+    private ClassSubscriptionService subscriptionService;
+
+    @Autowired
+    private SlotAdmissionControl admissionControl;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ClassSubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private ClassSlotOccupancyRepository occupancyRepository;
+
+    @Autowired
+    private ClassRepository classRepository;
+
+    @Autowired
+    private ClassSchedulePatternRepository patternRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private BranchRepository branchRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserMembershipRepository membershipRepository;
+
+    private Branch branch;
+    private Class clazz;
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        branch = branchRepository.save(Branch.builder().name("Sucursal Test").build());
+        Role role = roleRepository.save(Role.builder().name("USER").build());
+
+        clazz = classRepository.save(Class.builder()
+                .name("Spinning")
+                .capacity(CAPACITY)
+                .active(true)
+                .branch(branch)
+                .build());
+
+        users = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            users.add(User.builder()
+                    .name("Usuario " + i)
+                    .email("usuario" + i + "@test.com")
+                    .password("secret")
+                    .role(role)
+                    .branch(branch)
+                    .build());
+        }
+        users = userRepository.saveAll(users);
+
+        // Membresía ilimitada para todos salvo el último usuario, que recibe una de cupo limitado en su test
+        Product unlimited = productRepository.save(product("Libre", null));
+        List<UserMembership> memberships = new ArrayList<>();
+        for (User user : users.subList(0, REQUESTS - 1)) {
+            memberships.add(membership(user, unlimited));
+        }
+        membershipRepository.saveAll(memberships);
+    }
+
+    @AfterEach
+    void tearDown() {
+        occupancyRepository.deleteAll();
+        subscriptionRepository.deleteAll();
+        membershipRepository.deleteAll();
+        productRepository.deleteAll();
+        patternRepository.deleteAll();
+        classRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+        branchRepository.deleteAll();
+    }
+
+    @Test
+    void parallelSubscribesToOneSlot_AdmitExactlyCapacity() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (User user : users) {
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                try {
+                    subscriptionService.createSubscription(clazz.getId(), ClassDTO.CreateSubscriptionRequest.builder()
+                            .userId(user.getId())
+                            .date(DATE)
+                            .startTime(START)
+                            .endTime(END)
+                            .build(), null, true);
+                    admitted.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(CAPACITY, admitted.get());
+        assertEquals(REQUESTS - CAPACITY, rejected.get());
+        assertEquals(REQUESTS - 1, membershipRepository.count());
+        assertEquals(CAPACITY, subscriptionRepository
+                .countByClazzIdAndDateAndStartTimeAndEndTimeAndActiveTrue(clazz.getId(), DATE, START, END));
+    }
+
+    @Test
+    void cancelFreesSeatForNextSubscriber() {
+        List<ClassDTO.SubscriptionResponse> subscriptions = new ArrayList<>();
+        for (int i = 0; i < CAPACITY; i++) {
+            subscriptions.add(subscribe(users.get(i)));
+        }
+
+        subscriptionService.cancelSubscription(subscriptions.get(0).getId());
+
+        ClassDTO.SubscriptionResponse next = subscribe(users.get(CAPACITY));
+        assertTrue(next.getActive());
+        assertEquals(CAPACITY, subscriptionRepository
+                .countByClazzIdAndDateAndStartTimeAndEndTimeAndActiveTrue(clazz.getId(), DATE, START, END));
+    }
+
+    @Test
+    void termEnrollmentSkipsFullDatesAndSubscribesTheRest() {
+        patternRepository.save(ClassSchedulePattern.builder()
+                .clazz(clazz)
+                .dayOfWeek(DATE.getDayOfWeek().getValue())
+                .startTime(START)
+                .endTime(END)
+                .recurrent(true)
+                .build());
+        for (int i = 0; i < CAPACITY; i++) {
+            subscribe(users.get(i));
+        }
+
+        ClassDTO.TermEnrollmentRequest request = ClassDTO.TermEnrollmentRequest.builder()
+                .userId(users.get(CAPACITY).getId())
+                .startDate(DATE)
+                .endDate(DATE.plusWeeks(3).minusDays(1))
+                .daysOfWeek(List.of(DATE.getDayOfWeek().getValue()))
+                .startTime(START)
+                .build();
+        ClassDTO.TermEnrollmentResponse enrollment = subscriptionService.enrollForTerm(clazz.getId(), request, null, true);
+
+        assertEquals(3, enrollment.getRequestedSlots());
+        assertEquals(2, enrollment.getSubscriptions().size());
+        assertEquals(1, enrollment.getFull().size());
+        assertEquals(DATE, enrollment.getFull().get(0).getDate());
+        assertEquals(1, subscriptionRepository
+                .countByClazzIdAndDateAndStartTimeAndEndTimeAndActiveTrue(clazz.getId(), DATE.plusWeeks(1), START, END));
+
+        ClassDTO.TermEnrollmentResponse repeated = subscriptionService.enrollForTerm(clazz.getId(), request, null, true);
+        assertEquals(0, repeated.getSubscriptions().size());
+        assertEquals(2, repeated.getAlreadySubscribed().size());
+        assertEquals(1, repeated.getFull().size());
+    }
+
+    @Test
+    void termEnrollmentMovesCreditsOfFullDatesToLaterDates() {
+        patternRepository.save(ClassSchedulePattern.builder()
+                .clazz(clazz)
+                .dayOfWeek(DATE.getDayOfWeek().getValue())
+                .startTime(START)
+                .endTime(END)
+                .recurrent(true)
+                .build());
+        for (int i = 0; i < CAPACITY; i++) {
+            subscribe(users.get(i));
+        }
+        User user = users.get(REQUESTS - 1);
+        Product twoClasses = productRepository.save(product("Pack 2 clases", 2));
+        UserMembership membership = membershipRepository.save(membership(user, twoClasses));
+
+        ClassDTO.TermEnrollmentResponse enrollment = subscriptionService.enrollForTerm(clazz.getId(),
+                ClassDTO.TermEnrollmentRequest.builder()
+                        .userId(user.getId())
+                        .startDate(DATE)
+                        .endDate(DATE.plusWeeks(3).minusDays(1))
+                        .daysOfWeek(List.of(DATE.getDayOfWeek().getValue()))
+                        .startTime(START)
+                        .build(), null, true);
+
+        // El crédito asignado a la primera fecha (llena) pasa a la tercera
+        assertEquals(2, enrollment.getSubscriptions().size());
+        assertEquals(1, enrollment.getFull().size());
+        assertEquals(0, enrollment.getNoCredits().size());
+        assertEquals(1, subscriptionRepository
+                .countByClazzIdAndDateAndStartTimeAndEndTimeAndActiveTrue(clazz.getId(), DATE.plusWeeks(2), START, END));
+        assertEquals(0, membershipRepository.findById(membership.getId()).orElseThrow().getRemainingClasses());
+    }
+
+    @Test
+    void limitedMembershipConsumesCreditsAndCancelRefundsThem() {
+        User user = users.get(REQUESTS - 1);
+        Product twoClasses = productRepository.save(product("Pack 2 clases", 2));
+        UserMembership membership = membershipRepository.save(membership(user, twoClasses));
+
+        ClassDTO.SubscriptionResponse first = subscribe(user, DATE);
+        subscribe(user, DATE.plusDays(1));
+        assertThrows(IllegalArgumentException.class, () -> subscribe(user, DATE.plusDays(2)));
+        assertEquals(0, membershipRepository.findById(membership.getId()).orElseThrow().getRemainingClasses());
+
+        subscriptionService.cancelSubscription(first.getId());
+        assertEquals(1, membershipRepository.findById(membership.getId()).orElseThrow().getRemainingClasses());
+
+        ClassDTO.SubscriptionResponse third = subscribe(user, DATE.plusDays(2));
+        assertTrue(third.getActive());
+        assertEquals(0, membershipRepository.findById(membership.getId()).orElseThrow().getRemainingClasses());
+    }
+
+    @Test
+    void stripesAreTakenInOrderAcrossAdmissionsOfOneTransaction() {
+        SlotAdmissionControl target = AopTestUtils.getTargetObject(admissionControl);
+        SlotAdmissionControl.Slot first = new SlotAdmissionControl.Slot(DATE, START, END);
+        SlotAdmissionControl.Slot second = null;
+        for (int day = 1; second == null; day++) {
+            SlotAdmissionControl.Slot slot = new SlotAdmissionControl.Slot(DATE.plusDays(day), START, END);
+            if (stripeIndex(target, slot) != stripeIndex(target, first)) {
+                second = slot;
+            }
+        }
+        SlotAdmissionControl.Slot low = stripeIndex(target, first) < stripeIndex(target, second) ? first : second;
+        SlotAdmissionControl.Slot high = low == first ? second : first;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Una franja menor después de una mayor en la misma transacción falla sin esperar
+        assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+            admissionControl.admit(clazz, high.date(), START, END);
+            admissionControl.admit(clazz, low.date(), START, END);
+        }));
+
+        // Con lockAll al inicio, las admisiones posteriores reutilizan las franjas tomadas
+        transaction.executeWithoutResult(status -> {
+            admissionControl.lockAll(clazz, List.of(high, low));
+            admissionControl.admitAll(clazz, List.of(high));
+            admissionControl.admit(clazz, low.date(), START, END);
+        });
+
+        ReentrantLock[] stripes = (ReentrantLock[]) ReflectionTestUtils.getField(target, "stripes");
+        assertTrue(Arrays.stream(stripes).noneMatch(ReentrantLock::isLocked));
+        assertNull(TransactionSynchronizationManager.getResource(target));
+    }
+
+    private int stripeIndex(SlotAdmissionControl target, SlotAdmissionControl.Slot slot) {
+        Integer index = ReflectionTestUtils.invokeMethod(target, "stripeIndex",
+                clazz.getId(), slot.date(), slot.startTime(), slot.endTime());
+        return index;
+    }
+
+    private ClassDTO.SubscriptionResponse subscribe(User user) {
+        return subscribe(user, DATE);
+    }
+
+    private ClassDTO.SubscriptionResponse subscribe(User user, LocalDate date) {
+        return subscriptionService.createSubscription(clazz.getId(), ClassDTO.CreateSubscriptionRequest.builder()
+                .userId(user.getId())
+                .date(date)
+                .startTime(START)
+                .endTime(END)
+                .build(), null, true);
+    }
+
+    private Product product(String name, Integer numberOfClasses) {
+        return Product.builder()
+                .name(name)
+                .price(BigDecimal.valueOf(100))
+                .durationDays(30)
+                .numberOfClasses(numberOfClasses)
+                .branch(branch)
+                .build();
+    }
+
+    private UserMembership membership(User user, Product product) {
+        return UserMembership.builder()
+                .user(user)
+                .product(product)
+                .startDate(DATE.minusDays(2).atStartOfDay())
+                .endDate(DATE.plusDays(30).atStartOfDay())
+                .remainingClasses(product.getNumberOfClasses())
+                .build();
+    }
+}
@@ -0,0 +1,144 @@
+package com.backoffice.fitandflex.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica la subida y lectura por rangos del almacenamiento local de videos, y que las subidas rechazadas
+ * no dejan archivos temporales
+ */
+class LocalVideoStorageTest {
+
+    private static final int MAX_FILE_SIZE = 300 * 1024;
+    private static final int COPY_CHUNK_SIZE = 64 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    @TempDir
+    private Path tempDir;
+
+    private Path rootDir;
+    private LocalVideoStorage storage;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() {
+        VideoUploadPolicy uploadPolicy = new VideoUploadPolicy();
+        ReflectionTestUtils.setField(uploadPolicy, "videoFolder", "videos");
+        ReflectionTestUtils.setField(uploadPolicy, "maxFileSize", (long) MAX_FILE_SIZE);
+        ReflectionTestUtils.setField(uploadPolicy, "allowedVideoTypes", "video/mp4,video/webm");
+
+        rootDir = tempDir.resolve("root");
+        storage = new LocalVideoStorage(uploadPolicy, rootDir.toString(), COPY_CHUNK_SIZE);
+
+        // Varios tramos de copia y de buffer, con un último tramo incompleto
+        content = new byte[3 * COPY_CHUNK_SIZE + 1234];
+        new Random(42).nextBytes(content);
+    }
+
+    @Test
+    void storedStreamIsReadBackWholeAndByRange() throws IOException {
+        VideoStorage.StoredVideo stored = storage.store(new ByteArrayInputStream(content), "video/mp4", "clase.mp4", -1);
+
+        assertTrue(stored.key().startsWith("videos/") && stored.key().endsWith(".mp4"));
+        assertEquals(content.length, stored.size());
+        assertEquals(content.length, storage.size(stored.key()));
+
+        assertArrayEquals(content, read(stored.key(), 0, content.length - 1));
+        // Rango parcial que ocupa varios buffers y no empieza ni termina en su límite
+        int start = COPY_CHUNK_SIZE - 100;
+        int end = 3 * COPY_CHUNK_SIZE + 10;
+        assertArrayEquals(Arrays.copyOfRange(content, start, end + 1), read(stored.key(), start, end));
+        // Último byte
+        assertArrayEquals(new byte[]{content[content.length - 1]},
+                read(stored.key(), content.length - 1, content.length - 1));
+        assertEquals(List.of(rootDir.resolve(stored.key())), files());
+    }
+
+    @Test
+    void storedMultipartIsReadBack() throws IOException {
+        String key = storage.store(new MockMultipartFile("file", "clase.webm", "video/webm", content));
+
+        assertArrayEquals(content, read(key, 0, content.length - 1));
+
+        storage.delete(key);
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    void oversizeUploadIsRejectedWithoutLeavingFiles() {
+        byte[] oversize = new byte[MAX_FILE_SIZE + 1];
+
+        // Tamaño desconocido: el límite se detecta al copiar
+        assertThrows(IllegalArgumentException.class,
+                () -> storage.store(new ByteArrayInputStream(oversize), "video/mp4", "grande.mp4", -1));
+        // Tamaño declarado: se rechaza antes de leer
+        assertThrows(IllegalArgumentException.class,
+                () -> storage.store(new ByteArrayInputStream(oversize), "video/mp4", "grande.mp4", oversize.length));
+
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    void emptyUploadIsRejectedWithoutLeavingFiles() {
+        assertThrows(IllegalArgumentException.class,
+                () -> storage.store(new ByteArrayInputStream(new byte[0]), "video/mp4", "vacio.mp4", -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> storage.store(new MockMultipartFile("file", "vacio.mp4", "video/mp4", new byte[0])));
+
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    void keysOutsideTheRootAreRejected() throws IOException {
+        Path outside = Files.write(tempDir.resolve("outside.mp4"), content);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.openRange("../outside.mp4", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> storage.size("videos/../../outside.mp4"));
+        assertThrows(IllegalArgumentException.class, () -> storage.delete("../outside.mp4"));
+        assertThrows(IllegalArgumentException.class, () -> storage.openRange("videos/..", 0, 0));
+
+        assertTrue(Files.exists(outside));
+        assertEquals(List.of(), files());
+        try (Stream<Path> siblings = Files.list(tempDir)) {
+            assertEquals(List.of(outside.getFileName().toString(), rootDir.getFileName().toString()),
+                    siblings.map(path -> path.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    private byte[] read(String key, long start, long end) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (VideoStorage.RangeSource source = storage.openRange(key, start, end)) {
+            source.transferTo(out, new byte[BUFFER_SIZE]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Archivos regulares bajo el directorio raíz, incluidos los temporales de subidas
+     */
+    private List<Path> files() {
+        try (Stream<Path> paths = Files.walk(rootDir)) {
+            return paths.filter(Files::isRegularFile).toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}